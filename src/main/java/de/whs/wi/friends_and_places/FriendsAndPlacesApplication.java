@@ -1,13 +1,77 @@
 package de.whs.wi.friends_and_places;
 
+import de.whs.wi.friends_and_places.controller.dto.LocationImportResultDTO;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.service.LocationImportService;
+import de.whs.wi.friends_and_places.service.UserService;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
 
 @SpringBootApplication
 public class FriendsAndPlacesApplication {
 
+	static final String IMPORT_COMMAND = "import-locations";
+
 	public static void main(String[] args) {
+		if (args.length > 0 && IMPORT_COMMAND.equals(args[0])) {
+			System.exit(importLocations(Arrays.copyOfRange(args, 1, args.length)));
+		}
 		SpringApplication.run(FriendsAndPlacesApplication.class, args);
 	}
 
+	/**
+	 * Offline import of location history:
+	 * {@code import-locations <email> <ndjson file|-> [offset] [--spring.option=value ...]}.
+	 * Runs without the web server and prints the checkpoint to resume from if the import stops early.
+	 *
+	 * @return the process exit code
+	 */
+	static int importLocations(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: " + IMPORT_COMMAND + " <email> <ndjson file|-> [offset] [--spring.option=value ...]");
+			return 2;
+		}
+		String email = args[0];
+		String file = args[1];
+		int springArgsFrom = 2;
+		long offset = 0;
+		if (args.length > 2 && !args[2].startsWith("--")) {
+			offset = Long.parseLong(args[2]);
+			springArgsFrom = 3;
+		}
+
+		SpringApplication application = new SpringApplication(FriendsAndPlacesApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		try (ConfigurableApplicationContext context = application.run(Arrays.copyOfRange(args, springArgsFrom, args.length));
+			 InputStream input = "-".equals(file) ? System.in : Files.newInputStream(Path.of(file))) {
+			Optional<User> user = context.getBean(UserService.class).findByEmail(email);
+			if (user.isEmpty()) {
+				System.err.println("No user with email " + email);
+				return 1;
+			}
+			LocationImportResultDTO result = context.getBean(LocationImportService.class)
+					.importLocations(user.get(), input, offset);
+			System.out.printf("imported=%d rejected=%d checkpoint=%d elapsedMillis=%d recordsPerSecond=%d%n",
+					result.imported(), result.rejected(), result.checkpoint(), result.elapsedMillis(),
+					result.recordsPerSecond());
+			result.rejectedLines().forEach(line -> System.out.println("rejected " + line));
+			if (!result.completed()) {
+				System.err.println("Import stopped: " + result.error() + ", resume with offset " + result.checkpoint());
+				return 1;
+			}
+			return 0;
+		} catch (Exception e) {
+			System.err.println("Import failed: " + e.getMessage());
+			return 1;
+		}
+	}
+
 }
@@ -0,0 +1,163 @@
+package de.whs.wi.friends_and_places.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.whs.wi.friends_and_places.error.ApiError;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import de.whs.wi.friends_and_places.util.TokenBucketLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate limits the unauthenticated endpoints below {@code /api/v1/auth} per client IP and per target email,
+ * so that a single client cannot keep the password hashing pool busy or enumerate accounts.
+ * Runs before the Spring Security filter chain; rejected requests get {@code 429} with {@code Retry-After}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AuthRateLimitFilter extends OncePerRequestFilter implements StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimitFilter.class);
+    private static final String AUTH_PATH_PREFIX = "/api/v1/auth/";
+    // Login and registration bodies are tiny, anything larger is not inspected for the email
+    private static final int MAX_INSPECTED_BODY = 16 * 1024;
+
+    private final RateLimitConfig config;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketLimiter limiter;
+    private final Map<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+    public AuthRateLimitFilter(RateLimitConfig config, ObjectMapper objectMapper) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.limiter = new TokenBucketLimiter(config.getMaxKeys());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !config.isEnabled() || routeOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String route = routeOf(request);
+        RateLimitConfig.RouteLimit limit = config.getRoutes().get(route);
+
+        if (limit.getPerIp() > 0) {
+            long retryAfter = limiter.tryAcquire(route + "|ip", clientIp(request), limit.getPerIp(), limit.getPeriodMillis());
+            if (retryAfter > 0) {
+                reject(request, response, route, "ip", retryAfter);
+                return;
+            }
+        }
+
+        HttpServletRequest forwarded = request;
+        if (limit.getPerEmail() > 0) {
+            String email = request.getParameter("email");
+            // Chunked bodies have no length (-1), they are read up to the cap as well
+            if (email == null && request.getContentLength() <= MAX_INSPECTED_BODY
+                    && request.getContentType() != null && request.getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE)) {
+                CachedBodyHttpServletRequest cached = new CachedBodyHttpServletRequest(request, MAX_INSPECTED_BODY);
+                if (cached.isComplete()) {
+                    email = emailFromBody(cached.getBody());
+                }
+                forwarded = cached;
+            }
+            if (email != null) {
+                long retryAfter = limiter.tryAcquire(route + "|email", email.trim().toLowerCase(Locale.ROOT),
+                        limit.getPerEmail(), limit.getPeriodMillis());
+                if (retryAfter > 0) {
+                    reject(request, response, route, "email", retryAfter);
+                    return;
+                }
+            }
+        }
+
+        filterChain.doFilter(forwarded, response);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "authRateLimit";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("trackedKeys", limiter.size());
+        Map<String, Object> rejected = new LinkedHashMap<>();
+        rejections.forEach((key, count) -> rejected.put(key, count.sum()));
+        stats.put("rejections", rejected);
+        return stats;
+    }
+
+    private String routeOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(AUTH_PATH_PREFIX)) {
+            return null;
+        }
+        String route = path.substring(AUTH_PATH_PREFIX.length());
+        return config.getRoutes().containsKey(route) ? route : null;
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (config.isTrustForwardedFor()) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                return forwardedFor.split(",")[0].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private String emailFromBody(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText() : null;
+        } catch (IOException e) {
+            // Malformed bodies are rejected by the controller, they are only limited by IP here
+            return null;
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, String route, String keyType,
+                        long retryAfterMillis) throws IOException {
+        rejections.computeIfAbsent(route + "." + keyType, k -> new LongAdder()).increment();
+        logger.debug("Rate limit exceeded on {} by {}", route, keyType);
+
+        ApiError error = ApiError.create(
+                request.getRequestURI(),
+                "Too many requests, please retry later",
+                HttpStatus.TOO_MANY_REQUESTS.value(),
+                HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase(),
+                "RATE_LIMITED"
+        );
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMillis + 999) / 1000));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+}
@@ -0,0 +1,97 @@
+package de.whs.wi.friends_and_places.config;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Security principal of an authenticated user.
+ * In addition to the standard user details it carries the user's database id,
+ * so that the user entity can be loaded by primary key instead of by email.
+ * As everywhere else in the application, {@link #getUsername()} returns the email address.
+ * Principals loaded from the user entity for a login also carry the account name and security version.
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String email;
+    private String password;
+    private final List<GrantedAuthority> authorities;
+    private final String accountName;
+    private final Long securityVersion;
+
+    public AuthenticatedUser(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        this(id, email, password, authorities, null, null);
+    }
+
+    public AuthenticatedUser(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities,
+                             String accountName, Long securityVersion) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.authorities = List.copyOf(authorities);
+        this.accountName = accountName;
+        this.securityVersion = securityVersion;
+    }
+
+    /**
+     * @return a copy of this principal with another password hash
+     */
+    public AuthenticatedUser withPassword(String newPassword) {
+        return new AuthenticatedUser(id, email, newPassword, authorities, accountName, securityVersion);
+    }
+
+    /**
+     * @return the id of the user entity
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the email address of the user
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * @return the username of the account, or null if the principal was not loaded from the user entity
+     */
+    public String getAccountName() {
+        return accountName;
+    }
+
+    /**
+     * @return the security version of the user, or null if the principal was not loaded from the user entity
+     */
+    public Long getSecurityVersion() {
+        return securityVersion;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * @return the email address, which is the login name of the application
+     */
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
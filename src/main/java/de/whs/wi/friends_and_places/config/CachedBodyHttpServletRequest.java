@@ -0,0 +1,106 @@
+package de.whs.wi.friends_and_places.config;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request wrapper that reads the start of the body once so that it can be inspected by a filter
+ * and still be read again by the controller.
+ * <p>
+ * Only the first {@code maxBytes + 1} bytes are held in memory. A body longer than {@code maxBytes} is not
+ * complete ({@link #isComplete()}); reading the wrapper then returns the cached bytes followed by the rest
+ * of the original stream.
+ */
+public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+    private final boolean complete;
+
+    /**
+     * @param request  the request whose body is read
+     * @param maxBytes the maximum number of bytes held in memory
+     */
+    public CachedBodyHttpServletRequest(HttpServletRequest request, int maxBytes) throws IOException {
+        super(request);
+        // One byte more than allowed tells a body of exactly maxBytes from a longer one
+        this.body = request.getInputStream().readNBytes(maxBytes + 1);
+        this.complete = body.length <= maxBytes;
+    }
+
+    /**
+     * @return the cached start of the request body, the whole body if it is complete
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return whether the whole body fit into the cache
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        ServletInputStream rest = complete ? null : super.getInputStream();
+        return new ServletInputStream() {
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0 && (rest == null || rest.isFinished());
+            }
+
+            @Override
+            public boolean isReady() {
+                return in.available() > 0 || rest == null || rest.isReady();
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                if (rest != null) {
+                    // The listener reads through this stream, which returns the cached bytes first
+                    rest.setReadListener(readListener);
+                    return;
+                }
+                // The whole body is in memory, it is available and read completely right away
+                try {
+                    readListener.onDataAvailable();
+                    readListener.onAllDataRead();
+                } catch (IOException e) {
+                    readListener.onError(e);
+                }
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                return b >= 0 || rest == null ? b : rest.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (in.available() > 0 || rest == null) {
+                    return in.read(b, off, len);
+                }
+                return rest.read(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+}
@@ -0,0 +1,18 @@
+package de.whs.wi.friends_and_places.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller parameter of type {@link de.whs.wi.friends_and_places.model.User}
+ * that should be resolved to the currently authenticated user.
+ * The user is loaded at most once per request, see {@link CurrentUserArgumentResolver}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
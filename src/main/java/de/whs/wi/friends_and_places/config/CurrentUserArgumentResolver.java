@@ -0,0 +1,66 @@
+package de.whs.wi.friends_and_places.config;
+
+import de.whs.wi.friends_and_places.error.AuthenticationException;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.service.UserService;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolves {@link CurrentUser} parameters to the authenticated user's entity.
+ * The user is looked up by primary key from the {@link AuthenticatedUser} principal and
+ * stored as a request attribute, so it is loaded at most once per request.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    static final String CURRENT_USER_ATTRIBUTE = CurrentUserArgumentResolver.class.getName() + ".USER";
+
+    private final UserService userService;
+
+    public CurrentUserArgumentResolver(@Lazy UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && User.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Object cached = webRequest.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null) {
+            return cached;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails principal)) {
+            throw new AuthenticationException("Authentication required");
+        }
+
+        User user;
+        if (principal instanceof AuthenticatedUser authenticatedUser && authenticatedUser.getId() != null) {
+            user = userService.findById(authenticatedUser.getId());
+        } else {
+            // Principals created outside the application's authentication (e.g. in tests) carry no id
+            user = userService.findByEmail(principal.getUsername())
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found: " + principal.getUsername()));
+        }
+
+        webRequest.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+}
@@ -1,17 +1,24 @@
 package de.whs.wi.friends_and_places.config;
 
+import de.whs.wi.friends_and_places.error.AuthenticationException;
+import de.whs.wi.friends_and_places.service.CustomUserDetailsService;
+import de.whs.wi.friends_and_places.service.TokenRevocationService;
+import de.whs.wi.friends_and_places.util.JwtClaims;
+import de.whs.wi.friends_and_places.util.JwtClaimsCache;
 import de.whs.wi.friends_and_places.util.JwtUtil;
+import de.whs.wi.friends_and_places.util.SecurityVersionRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -21,6 +28,8 @@ import java.io.IOException;
 /**
  * JwtRequestFilter is a filter that checks for JWT tokens in incoming requests.
  * It extracts the token, validates it, and sets the authentication in the security context.
+ * In stateless mode ({@code jwt.stateless.enabled}) the principal is built from the token claims
+ * instead of loading the user from the database.
  */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -28,11 +37,24 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtRequestFilter.class);
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final JwtClaimsCache jwtClaimsCache;
+    private final CustomUserDetailsService userDetailsService;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
+    private final boolean statelessEnabled;
 
-    public JwtRequestFilter(JwtUtil jwtUtil, @Lazy UserDetailsService userDetailsService) {
+    public JwtRequestFilter(JwtUtil jwtUtil,
+                            JwtClaimsCache jwtClaimsCache,
+                            @Lazy CustomUserDetailsService userDetailsService,
+                            SecurityVersionRegistry securityVersionRegistry,
+                            TokenRevocationService tokenRevocationService,
+                            @Value("${jwt.stateless.enabled:false}") boolean statelessEnabled) {
         this.jwtUtil = jwtUtil;
+        this.jwtClaimsCache = jwtClaimsCache;
         this.userDetailsService = userDetailsService;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
+        this.statelessEnabled = statelessEnabled;
     }
 
     /**
@@ -50,18 +72,17 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         try {
             final String authorizationHeader = request.getHeader("Authorization");
             String email = null;
-            String jwtToken = null;
-
-            // Log the request URL and authorization header for debugging
-            logger.info("Processing request: {} {}", request.getMethod(), request.getRequestURI());
+            JwtClaims claims = null;
 
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-                jwtToken = authorizationHeader.substring(7);
+                String jwtToken = authorizationHeader.substring(7);
                 try {
-                    email = jwtUtil.extractUsername(jwtToken);
-                    logger.info("JWT Token extracted email: {}", email);
+                    // Verified once per token, repeated requests are served from the cache
+                    claims = jwtClaimsCache.resolve(jwtToken);
+                    email = claims.subject();
                 } catch (Exception e) {
-                    logger.error("Invalid JWT token: {}", e.getMessage());
+                    logger.debug("Invalid JWT token: {}", e.getMessage());
+                    RequestTracingFilter.setAuthOutcome(request, "invalid_token");
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.setContentType("application/json");
                     response.getWriter().write("{\"error\":\"Invalid JWT token: " + e.getMessage() + "\"}");
@@ -71,11 +92,14 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 try {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-                    logger.info("Loaded user details for: {}", email);
+                    // Tokens revoked on logout; usually answered by the in-memory filter without a query
+                    if (claims.tokenId() != null && tokenRevocationService.isRevoked(claims.tokenId())) {
+                        throw new AuthenticationException("Token has been revoked");
+                    }
+
+                    UserDetails userDetails = loadUserDetails(claims);
 
-                    if (jwtUtil.validateToken(jwtToken, userDetails)) {
-                        logger.info("JWT Token validated successfully for user: {}", email);
+                    if (jwtUtil.validateClaims(claims, userDetails)) {
 
                         // Create an authentication token with proper details
                         UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -83,12 +107,13 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
                         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         SecurityContextHolder.getContext().setAuthentication(authentication);
-                        logger.info("Set authentication in SecurityContext");
+                        RequestTracingFilter.setAuthOutcome(request, "authenticated");
                     } else {
-                        logger.warn("JWT Token validation failed for user: {}", email);
+                        RequestTracingFilter.setAuthOutcome(request, "rejected");
                     }
                 } catch (Exception e) {
-                    logger.error("Error during authentication: {}", e.getMessage());
+                    logger.debug("Error during authentication: {}", e.getMessage());
+                    RequestTracingFilter.setAuthOutcome(request, "rejected");
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
                     response.getWriter().write("{\"error\":\"Authentication error: " + e.getMessage() + "\"}");
                     response.setContentType("application/json");
@@ -101,9 +126,26 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         } catch (Exception e) {
             logger.error("Unexpected error in JWT filter: {}", e.getMessage());
+            RequestTracingFilter.setAuthOutcome(request, "error");
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"error\":\"Internal server error in authentication filter\"}");
             response.setContentType("application/json");
         }
     }
+
+    /**
+     * Builds the user details for the token. In stateless mode the principal is built from the
+     * token claims; tokens without the required claims fall back to the cached user lookup.
+     */
+    private UserDetails loadUserDetails(JwtClaims claims) {
+        if (statelessEnabled && claims.isSelfContained()) {
+            // No user is loaded, so tokens issued before a password change or account deletion are rejected here
+            if (!securityVersionRegistry.isCurrent(claims.userId(), claims.securityVersion())) {
+                throw new AuthenticationException("Token has been revoked");
+            }
+            return new AuthenticatedUser(claims.userId(), claims.subject(), "",
+                    AuthorityUtils.createAuthorityList(claims.roles()));
+        }
+        return userDetailsService.loadPrincipalByEmail(claims.subject());
+    }
 }
@@ -0,0 +1,87 @@
+package de.whs.wi.friends_and_places.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the rate limits for the authentication endpoints.
+ * Routes are keyed by the last path segment below {@code /api/v1/auth}, e.g. {@code login}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitConfig {
+
+    private boolean enabled = true;
+    private int maxKeys = 100000;
+    private boolean trustForwardedFor = false;
+    private Map<String, RouteLimit> routes = new LinkedHashMap<>();
+
+    /**
+     * Limits of a single route. A limit of 0 disables limiting by that key.
+     */
+    public static class RouteLimit {
+        private int perIp;
+        private int perEmail;
+        private long periodMillis = 60000;
+
+        public int getPerIp() {
+            return perIp;
+        }
+
+        public void setPerIp(int perIp) {
+            this.perIp = perIp;
+        }
+
+        public int getPerEmail() {
+            return perEmail;
+        }
+
+        public void setPerEmail(int perEmail) {
+            this.perEmail = perEmail;
+        }
+
+        public long getPeriodMillis() {
+            return periodMillis;
+        }
+
+        public void setPeriodMillis(long periodMillis) {
+            this.periodMillis = periodMillis;
+        }
+    }
+
+    // Getters and setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public boolean isTrustForwardedFor() {
+        return trustForwardedFor;
+    }
+
+    public void setTrustForwardedFor(boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    public Map<String, RouteLimit> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, RouteLimit> routes) {
+        this.routes = routes;
+    }
+}
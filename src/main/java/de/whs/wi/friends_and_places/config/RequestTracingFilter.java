@@ -0,0 +1,133 @@
+package de.whs.wi.friends_and_places.config;
+
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records one compact trace event per request: method, route template, status, authentication outcome and latency.
+ * Only the route template is recorded (e.g. {@code /api/v1/places/friend/{username}}), never the concrete path,
+ * query or user identity, so the events contain no personal data.
+ * <p>
+ * Events are sampled with {@code tracing.sample-rate}; failed ({@code >= 400}) and slow requests are always kept.
+ * They are written to the {@code request-trace} logger, which goes through the asynchronous appender in
+ * {@code logback-spring.xml} so that request threads never wait for log I/O.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTracingFilter extends OncePerRequestFilter implements StatsProvider {
+
+    /**
+     * Request attribute holding the authentication outcome, set by the authentication filter.
+     */
+    public static final String AUTH_OUTCOME_ATTRIBUTE = RequestTracingFilter.class.getName() + ".authOutcome";
+
+    private static final Logger traceLogger = LoggerFactory.getLogger("request-trace");
+
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long slowThresholdMillis;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder slow = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public RequestTracingFilter(@Value("${tracing.enabled:true}") boolean enabled,
+                                @Value("${tracing.sample-rate:0.01}") double sampleRate,
+                                @Value("${tracing.slow-threshold-millis:1000}") long slowThresholdMillis) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    /**
+     * Records the authentication outcome of the request for its trace event.
+     *
+     * @param request the current request
+     * @param outcome short outcome identifier, e.g. {@code authenticated} or {@code invalid_token}
+     */
+    public static void setAuthOutcome(HttpServletRequest request, String outcome) {
+        request.setAttribute(AUTH_OUTCOME_ATTRIBUTE, outcome);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            record(request, status, System.nanoTime() - start);
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long latencyNanos) {
+        requests.increment();
+        long latencyMillis = latencyNanos / 1_000_000;
+        boolean isSlow = latencyMillis >= slowThresholdMillis;
+        boolean isFailed = status >= 400;
+        if (isSlow) {
+            slow.increment();
+        }
+        if (isFailed) {
+            failed.increment();
+        }
+        if (!isSlow && !isFailed && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        if (!traceLogger.isInfoEnabled()) {
+            return;
+        }
+        recorded.increment();
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Object auth = request.getAttribute(AUTH_OUTCOME_ATTRIBUTE);
+        traceLogger.info("method={} route={} status={} auth={} latencyMs={}{}",
+                request.getMethod(),
+                route != null ? route : "unmatched",
+                status,
+                auth != null ? auth : "none",
+                latencyMillis,
+                isSlow ? " slow=true" : "");
+    }
+
+    @Override
+    public String getStatsName() {
+        return "requestTracing";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("sampleRate", sampleRate);
+        stats.put("requests", requests.sum());
+        stats.put("recorded", recorded.sum());
+        stats.put("failed", failed.sum());
+        stats.put("slow", slow.sum());
+        return stats;
+    }
+}
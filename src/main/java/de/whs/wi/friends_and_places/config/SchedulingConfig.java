@@ -0,0 +1,12 @@
+package de.whs.wi.friends_and_places.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background tasks (e.g. rebuilding the token revocation filter).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
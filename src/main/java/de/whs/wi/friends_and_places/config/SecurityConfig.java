@@ -1,5 +1,7 @@
 package de.whs.wi.friends_and_places.config;
 
+import de.whs.wi.friends_and_places.util.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,7 +10,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -23,17 +24,33 @@ public class SecurityConfig {
     private final UserDetailsService userDetailsService;
     private final JwtRequestFilter jwtRequestFilter;
 
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${security.password.pool-size:0}")
+    private int hashPoolSize;
+
+    @Value("${security.password.queue-capacity:32}")
+    private int hashQueueCapacity;
+
+    @Value("${security.password.retry-after-seconds:1}")
+    private long hashRetryAfterSeconds;
+
     public SecurityConfig(UserDetailsService userDetailsService, JwtRequestFilter jwtRequestFilter) {
         this.userDetailsService = userDetailsService;
         this.jwtRequestFilter = jwtRequestFilter;
     }
 
     /**
-     * Configures the PasswordEncoder bean to use BCrypt hashing.
+     * Configures the PasswordEncoder bean to use BCrypt hashing with the configured cost.
+     * Hashing runs on a bounded pool (by default half of the available cores) so that login bursts
+     * do not starve the other endpoints; hashes with an outdated cost are upgraded on login.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        int poolSize = hashPoolSize > 0 ? hashPoolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), poolSize,
+                hashQueueCapacity, hashRetryAfterSeconds);
     }
 
     /**
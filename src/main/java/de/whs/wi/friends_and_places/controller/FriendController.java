@@ -1,5 +1,6 @@
 package de.whs.wi.friends_and_places.controller;
 
+import de.whs.wi.friends_and_places.config.CurrentUser;
 import de.whs.wi.friends_and_places.controller.dto.FriendRequestDTO;
 import de.whs.wi.friends_and_places.controller.dto.UserDTO;
 import de.whs.wi.friends_and_places.model.FriendRequest;
@@ -7,6 +8,7 @@ import de.whs.wi.friends_and_places.model.User;
 import de.whs.wi.friends_and_places.service.FriendService;
 import de.whs.wi.friends_and_places.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -42,12 +44,9 @@ public class FriendController {
     })
     @PostMapping("/requests/{receiverId}")
     public ResponseEntity<FriendRequestDTO> sendFriendRequest(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) @CurrentUser User sender,
             @PathVariable Long receiverId) {
 
-        User sender = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
         FriendRequest request = friendService.sendFriendRequest(sender, receiverId);
         return new ResponseEntity<>(convertToDTO(request), HttpStatus.OK);
     }
@@ -60,12 +59,9 @@ public class FriendController {
     })
     @PostMapping("/requests/{requestId}/accept")
     public ResponseEntity<FriendRequestDTO> acceptFriendRequest(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) @CurrentUser User user,
             @PathVariable Long requestId) {
 
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
         FriendRequest request = friendService.acceptFriendRequest(requestId, user);
         return new ResponseEntity<>(convertToDTO(request), HttpStatus.OK);
     }
@@ -78,12 +74,9 @@ public class FriendController {
     })
     @PostMapping("/requests/{requestId}/decline")
     public ResponseEntity<FriendRequestDTO> declineFriendRequest(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) @CurrentUser User user,
             @PathVariable Long requestId) {
 
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
         FriendRequest request = friendService.declineFriendRequest(requestId, user);
         return new ResponseEntity<>(convertToDTO(request), HttpStatus.OK);
     }
@@ -96,12 +89,9 @@ public class FriendController {
     })
     @PostMapping("/requests/{requestId}/cancel")
     public ResponseEntity<FriendRequestDTO> cancelFriendRequest(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) @CurrentUser User user,
             @PathVariable Long requestId) {
 
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
         FriendRequest request = friendService.cancelFriendRequest(requestId, user);
         return new ResponseEntity<>(convertToDTO(request), HttpStatus.OK);
     }
@@ -112,10 +102,7 @@ public class FriendController {
     })
     @GetMapping("/requests/received")
     public ResponseEntity<List<FriendRequestDTO>> getReceivedFriendRequests(
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
+            @Parameter(hidden = true) @CurrentUser User user) {
 
         List<FriendRequest> requests = friendService.getReceivedPendingRequests(user);
         List<FriendRequestDTO> requestDTOs = requests.stream()
@@ -131,10 +118,7 @@ public class FriendController {
     })
     @GetMapping("/requests/sent")
     public ResponseEntity<List<FriendRequestDTO>> getSentFriendRequests(
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
+            @Parameter(hidden = true) @CurrentUser User user) {
 
         List<FriendRequest> requests = friendService.getSentPendingRequests(user);
         List<FriendRequestDTO> requestDTOs = requests.stream()
@@ -150,10 +134,7 @@ public class FriendController {
     })
     @GetMapping
     public ResponseEntity<List<UserDTO>> getFriends(
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
+            @Parameter(hidden = true) @CurrentUser User user) {
 
         List<User> friends = friendService.getFriends(user);
         List<UserDTO> friendDTOs = friends.stream()
@@ -171,12 +152,9 @@ public class FriendController {
     })
     @DeleteMapping("/{friendId}")
     public ResponseEntity<Void> removeFriend(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @Parameter(hidden = true) @CurrentUser User user,
             @PathVariable Long friendId) {
 
-        User user = userService.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
         friendService.removeFriend(user, friendId);
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -41,7 +41,7 @@ public class GeocodeController {
     })
     @GetMapping("/zip/{zipCode}")
     public ResponseEntity<GeocodingData> getLocationByZipCode(@PathVariable String zipCode) {
-        logger.info("Request received for geocoding data of zip code: {}", zipCode);
+        logger.debug("Request received for geocoding data of zip code");
 
         GeocodingData geocodingData = geocodeApiService.getGeoDataFromZipCode(zipCode);
         return ResponseEntity.ok(geocodingData);
@@ -68,7 +68,7 @@ public class GeocodeController {
            @RequestParam String housenumber,
            @RequestParam String city,
            @RequestParam String country) {
-       logger.info("Request received for geocoding data of address: {}, {}, {}, {}", street ,housenumber, city, country);
+       logger.debug("Request received for geocoding data of address");
 
        GeocodingData geocodingData = geocodeApiService.getGeoDataFromAddress(street,housenumber, city, country);
        return ResponseEntity.ok(geocodingData);
@@ -91,7 +91,7 @@ public class GeocodeController {
     public ResponseEntity<GeocodingData> getLocationByCoordinates(
               @RequestParam double latitude,
               @RequestParam double longitude) {
-         logger.info("Request received for geocoding data of coordinates: {}, {}", latitude, longitude);
+         logger.debug("Request received for geocoding data of coordinates");
 
          GeocodingData geocodingData = geocodeApiService.getReverseGeoData(latitude, longitude);
          return ResponseEntity.ok(geocodingData);
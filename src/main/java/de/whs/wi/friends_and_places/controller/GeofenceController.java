@@ -0,0 +1,73 @@
+package de.whs.wi.friends_and_places.controller;
+
+import de.whs.wi.friends_and_places.config.CurrentUser;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceEventDTO;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.service.GeofenceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controller for managing geofences and polling their events
+ */
+@RestController
+@RequestMapping("/api/v1/geofences")
+@Tag(name = "Geofences", description = "Operations for managing geofences and their enter/exit events")
+public class GeofenceController {
+
+    private final GeofenceService geofenceService;
+
+    public GeofenceController(GeofenceService geofenceService) {
+        this.geofenceService = geofenceService;
+    }
+
+    @PostMapping
+    @Operation(summary = "Create a geofence",
+               description = "Create a circle (latitude, longitude and radius) or a polygon (vertices). " +
+                             "The authenticated user receives an event whenever they or a friend enter or leave it.")
+    public ResponseEntity<GeofenceDTO> createGeofence(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @RequestBody GeofenceCreateDTO geofenceDTO) {
+
+        GeofenceDTO geofence = geofenceService.createGeofence(user, geofenceDTO);
+        return ResponseEntity.ok(geofence);
+    }
+
+    @GetMapping
+    @Operation(summary = "Get geofences", description = "Retrieve the geofences of the authenticated user")
+    public ResponseEntity<List<GeofenceDTO>> getGeofences(@Parameter(hidden = true) @CurrentUser User user) {
+        List<GeofenceDTO> geofences = geofenceService.getGeofences(user);
+        return ResponseEntity.ok(geofences);
+    }
+
+    @DeleteMapping("/{geofenceId}")
+    @Operation(summary = "Delete a geofence", description = "Delete a geofence of the authenticated user and its events")
+    public ResponseEntity<Void> deleteGeofence(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @PathVariable Long geofenceId) {
+
+        geofenceService.deleteGeofence(user, geofenceId);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @GetMapping("/events")
+    @Operation(summary = "Poll geofence events",
+               description = "Retrieve the enter/exit events of the authenticated user's geofences, oldest first. " +
+                             "Pass the id of the last event received as 'after' to get only newer events.")
+    public ResponseEntity<List<GeofenceEventDTO>> getEvents(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Id of the last event received") @RequestParam(required = false) Long after,
+            @Parameter(description = "Maximum number of events") @RequestParam(required = false) Integer limit) {
+
+        List<GeofenceEventDTO> events = geofenceService.getEvents(user, after, limit);
+        return ResponseEntity.ok(events);
+    }
+}
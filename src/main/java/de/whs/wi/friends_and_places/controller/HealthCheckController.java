@@ -1,5 +1,6 @@
 package de.whs.wi.friends_and_places.controller;
 
+import de.whs.wi.friends_and_places.util.StatsProvider;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -7,6 +8,8 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +20,12 @@ import java.util.Map;
 @RequestMapping("/api/health")
 public class HealthCheckController {
 
+    private final List<StatsProvider> statsProviders;
+
+    public HealthCheckController(List<StatsProvider> statsProviders) {
+        this.statsProviders = statsProviders;
+    }
+
     /**
      * Simple health check endpoint that confirms the application is running
      * @return Response with status information
@@ -55,6 +64,13 @@ public class HealthCheckController {
         system.put("javaVersion", System.getProperty("java.version"));
         
         response.put("system", system);
+
+        // Runtime counters of caches, pools and queues
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (StatsProvider provider : statsProviders) {
+            metrics.put(provider.getStatsName(), provider.getStats());
+        }
+        response.put("metrics", metrics);
         
         return ResponseEntity.ok(response);
     }
@@ -1,14 +1,31 @@
 package de.whs.wi.friends_and_places.controller;
 
+import de.whs.wi.friends_and_places.config.CurrentUser;
+import de.whs.wi.friends_and_places.controller.dto.FriendClustersDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchResponseDTO;
 import de.whs.wi.friends_and_places.controller.dto.LocationCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationImportResultDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationPageDTO;
 import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.controller.dto.NearbyFriendDTO;
+import de.whs.wi.friends_and_places.controller.dto.UserPlaceDTO;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.service.FrequentPlaceService;
+import de.whs.wi.friends_and_places.service.LocationImportService;
 import de.whs.wi.friends_and_places.service.LocationService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -20,9 +37,14 @@ import java.util.List;
 public class LocationController {
 
     private final LocationService locationService;
+    private final LocationImportService locationImportService;
+    private final FrequentPlaceService frequentPlaceService;
 
-    public LocationController(LocationService locationService) {
+    public LocationController(LocationService locationService, LocationImportService locationImportService,
+                              FrequentPlaceService frequentPlaceService) {
         this.locationService = locationService;
+        this.locationImportService = locationImportService;
+        this.frequentPlaceService = frequentPlaceService;
     }
 
     @PutMapping
@@ -30,50 +52,151 @@ public class LocationController {
                description = "Create a new location entry for the authenticated user. " +
                              "Provide either latitude/longitude coordinates or a complete address.")
     public ResponseEntity<LocationResponseDTO> addLocation(
-            Authentication authentication,
+            @Parameter(hidden = true) @CurrentUser User user,
             @RequestBody LocationCreateDTO locationDTO) {
 
-        String username = authentication.getName();
-        LocationResponseDTO location = locationService.addLocation(username, locationDTO);
+        LocationResponseDTO location = locationService.addLocation(user, locationDTO);
         return ResponseEntity.ok(location);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Log several locations",
+               description = "Store an ordered list of coordinate fixes, e.g. recorded while offline, in one request. " +
+                             "Each point may carry the time it was recorded. Addresses are resolved in the background.")
+    public ResponseEntity<LocationBatchResponseDTO> addLocations(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @RequestBody List<LocationBatchPointDTO> points) {
+
+        LocationBatchResponseDTO result = locationService.addLocations(user, points);
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Import location history",
+               description = "Stream newline-delimited JSON records ({\"latitude\", \"longitude\", \"recordedAt\"}, optionally " +
+                             "\"locationName\" and \"formattedAddress\"). Invalid lines are skipped and reported. " +
+                             "If the import stops early, repeat it with offset set to the returned checkpoint.")
+    public ResponseEntity<LocationImportResultDTO> importLocations(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Number of leading lines to skip") @RequestParam(defaultValue = "0") long offset,
+            HttpServletRequest request) throws IOException {
+
+        LocationImportResultDTO result = locationImportService.importLocations(user, request.getInputStream(), offset);
+        return new ResponseEntity<>(result, result.completed() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @GetMapping("/latest")
     @Operation(summary = "Get latest location",
                description = "Retrieve the most recent location for the authenticated user")
-    public ResponseEntity<LocationResponseDTO> getLatestLocation(Authentication authentication) {
-        String username = authentication.getName();
-        LocationResponseDTO location = locationService.getLatestLocation(username);
+    public ResponseEntity<LocationResponseDTO> getLatestLocation(@Parameter(hidden = true) @CurrentUser User user) {
+        LocationResponseDTO location = locationService.getLatestLocation(user);
         return ResponseEntity.ok(location);
     }
 
     @GetMapping
     @Operation(summary = "Get all locations",
-               description = "Retrieve all locations for the authenticated user, sorted by date (newest first)")
-    public ResponseEntity<List<LocationResponseDTO>> getAllLocations(Authentication authentication) {
-        String username = authentication.getName();
-        List<LocationResponseDTO> locations = locationService.getAllLocations(username);
+               description = "Retrieve all locations for the authenticated user, sorted by date (newest first). " +
+                             "Use /history to read long histories page by page.")
+    public ResponseEntity<List<LocationResponseDTO>> getAllLocations(@Parameter(hidden = true) @CurrentUser User user) {
+        List<LocationResponseDTO> locations = locationService.getAllLocations(user);
+        return ResponseEntity.ok(locations);
+    }
+
+    @GetMapping("/history")
+    @Operation(summary = "Get location history",
+               description = "Retrieve the locations of the authenticated user page by page, newest first. " +
+                             "Pass the returned nextCursor to get the following page; from and to restrict the time range.")
+    public ResponseEntity<LocationPageDTO> getLocationHistory(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Only locations created at or after this time (ISO-8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Only locations created before this time (ISO-8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Cursor returned with the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of locations per page") @RequestParam(required = false) Integer size) {
+
+        LocationPageDTO page = locationService.getLocationHistory(user, from, to, cursor, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/area")
+    @Operation(summary = "Get locations in an area",
+               description = "Retrieve the locations of the authenticated user inside a bounding box, e.g. a map viewport, " +
+                             "newest first; from and to restrict the time range")
+    public ResponseEntity<List<LocationResponseDTO>> getLocationsInArea(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Southern edge of the box") @RequestParam double minLatitude,
+            @Parameter(description = "Western edge of the box") @RequestParam double minLongitude,
+            @Parameter(description = "Northern edge of the box") @RequestParam double maxLatitude,
+            @Parameter(description = "Eastern edge of the box") @RequestParam double maxLongitude,
+            @Parameter(description = "Only locations created at or after this time (ISO-8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Only locations created before this time (ISO-8601)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Maximum number of locations") @RequestParam(required = false) Integer limit) {
+
+        List<LocationResponseDTO> locations = locationService.getLocationsInArea(user, minLatitude, minLongitude,
+                maxLatitude, maxLongitude, from, to, limit);
         return ResponseEntity.ok(locations);
     }
 
+    @GetMapping("/frequent")
+    @Operation(summary = "Get frequent places",
+               description = "Retrieve the places where the authenticated user spends the most time, detected from " +
+                             "stays in their location history. A stay is added once the user has left it.")
+    public ResponseEntity<List<UserPlaceDTO>> getFrequentPlaces(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Maximum number of places") @RequestParam(required = false) Integer limit) {
+
+        List<UserPlaceDTO> places = frequentPlaceService.getFrequentPlaces(user, limit);
+        return ResponseEntity.ok(places);
+    }
+
     @GetMapping("/friends")
     @Operation(summary = "Get friends' locations",
                description = "Retrieve the latest locations of all friends of the authenticated user")
-    public ResponseEntity<List<LocationResponseDTO>> getFriendsLocations(Authentication authentication) {
-        String username = authentication.getName();
-        List<LocationResponseDTO> friendsLocations = locationService.getFriendsLocations(username);
+    public ResponseEntity<List<LocationResponseDTO>> getFriendsLocations(@Parameter(hidden = true) @CurrentUser User user) {
+        List<LocationResponseDTO> friendsLocations = locationService.getFriendsLocations(user);
         return ResponseEntity.ok(friendsLocations);
     }
 
+    @GetMapping("/friends/nearby")
+    @Operation(summary = "Get nearby friends",
+               description = "Retrieve the latest locations of the friends within a radius of the authenticated user's " +
+                             "latest location, nearest first")
+    public ResponseEntity<List<NearbyFriendDTO>> getNearbyFriends(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Radius in meters") @RequestParam(required = false) Double radius,
+            @Parameter(description = "Maximum number of friends") @RequestParam(required = false) Integer limit) {
+
+        List<NearbyFriendDTO> nearbyFriends = locationService.getNearbyFriends(user, radius, limit);
+        return ResponseEntity.ok(nearbyFriends);
+    }
+
+    @GetMapping("/friends/clusters")
+    @Operation(summary = "Get clustered friends' locations",
+               description = "Retrieve the latest locations of the authenticated user's friends inside a bounding box, " +
+                             "merged into clusters with counts and centroids for a map zoom level. Clusters of one friend " +
+                             "carry the friend's location.")
+    public ResponseEntity<FriendClustersDTO> getFriendClusters(
+            @Parameter(hidden = true) @CurrentUser User user,
+            @Parameter(description = "Bounding box as minLatitude,minLongitude,maxLatitude,maxLongitude")
+            @RequestParam(required = false) String bbox,
+            @Parameter(description = "Map zoom level, 0 to 22") @RequestParam(required = false) Integer zoom) {
+
+        FriendClustersDTO clusters = locationService.getFriendClusters(user, bbox, zoom);
+        return ResponseEntity.ok(clusters);
+    }
+
     @GetMapping("/user/{username}")
     @Operation(summary = "Get user's location by username",
                description = "Retrieve the latest location of a user by their username only if you are friends with them")
     public ResponseEntity<LocationResponseDTO> getUserLocationByUsername(
             @PathVariable String username,
-            Authentication authentication) {
+            @Parameter(hidden = true) @CurrentUser User user) {
 
-        String requestingUserEmail = authentication.getName();
-        LocationResponseDTO location = locationService.getFriendLocationByUsername(requestingUserEmail, username);
+        LocationResponseDTO location = locationService.getFriendLocationByUsername(user, username);
         return ResponseEntity.ok(location);
     }
 }
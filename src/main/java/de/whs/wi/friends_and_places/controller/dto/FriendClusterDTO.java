@@ -0,0 +1,19 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * A cluster of friends' latest locations on a map, or a single friend.
+ *
+ * @param latitude  the latitude of the centroid of the cluster
+ * @param longitude the longitude of the centroid of the cluster
+ * @param count     the number of friends in the cluster
+ * @param location  the latest location of the friend if the cluster holds exactly one, otherwise null
+ */
+@Schema(description = "Cluster of friends' latest locations")
+public record FriendClusterDTO(
+        @Schema(description = "Latitude of the centroid") double latitude,
+        @Schema(description = "Longitude of the centroid") double longitude,
+        @Schema(description = "Number of friends in the cluster") int count,
+        @Schema(description = "Latest location of the friend, only for clusters of one friend") LocationResponseDTO location) {
+}
@@ -0,0 +1,18 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * The clusters of friends' latest locations inside a bounding box.
+ *
+ * @param zoom     the zoom level the clusters were taken from; lower than the requested one if the
+ *                 requested level had too many clusters in the box
+ * @param clusters the clusters
+ */
+@Schema(description = "Clusters of friends' latest locations inside a bounding box")
+public record FriendClustersDTO(
+        @Schema(description = "Zoom level of the clusters, may be lower than requested") int zoom,
+        @Schema(description = "Clusters inside the bounding box") List<FriendClusterDTO> clusters) {
+}
@@ -0,0 +1,67 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import java.util.List;
+
+/**
+ * DTO for creating a geofence, either a circle (latitude, longitude and radius) or a polygon (vertices)
+ */
+public class GeofenceCreateDTO {
+
+    private String name;
+
+    // Circle
+    private Double latitude;
+    private Double longitude;
+    private Double radiusMeters;
+
+    // Polygon, [latitude, longitude] pairs in order; the ring is closed implicitly
+    private List<double[]> vertices;
+
+    // Getters and setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public Double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    public void setRadiusMeters(Double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+    }
+
+    public List<double[]> getVertices() {
+        return vertices;
+    }
+
+    public void setVertices(List<double[]> vertices) {
+        this.vertices = vertices;
+    }
+
+    /**
+     * Check if polygon vertices are provided in this DTO
+     */
+    public boolean hasVertices() {
+        return vertices != null;
+    }
+}
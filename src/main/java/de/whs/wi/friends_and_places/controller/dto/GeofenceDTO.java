@@ -0,0 +1,51 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import de.whs.wi.friends_and_places.model.Geofence;
+import de.whs.wi.friends_and_places.model.GeofenceShape;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A geofence of the requesting user.
+ *
+ * @param id           the id of the fence
+ * @param name         the name of the fence
+ * @param shape        circle or polygon
+ * @param latitude     the latitude of the center, of the bounding circle for polygons
+ * @param longitude    the longitude of the center, of the bounding circle for polygons
+ * @param radiusMeters the radius, of the bounding circle for polygons
+ * @param vertices     the vertices of a polygon as {@code [latitude, longitude]} pairs, null for circles
+ * @param createdAt    when the fence was created
+ */
+@Schema(description = "A geofence")
+public record GeofenceDTO(
+        @Schema(description = "Id of the geofence") Long id,
+        @Schema(description = "Name of the geofence") String name,
+        @Schema(description = "CIRCLE or POLYGON") GeofenceShape shape,
+        @Schema(description = "Latitude of the center, of the bounding circle for polygons") double latitude,
+        @Schema(description = "Longitude of the center, of the bounding circle for polygons") double longitude,
+        @Schema(description = "Radius in meters, of the bounding circle for polygons") double radiusMeters,
+        @Schema(description = "Vertices of a polygon as [latitude, longitude] pairs") List<double[]> vertices,
+        @Schema(description = "When the geofence was created") LocalDateTime createdAt) {
+
+    public GeofenceDTO(Geofence geofence) {
+        this(geofence.getId(), geofence.getName(), geofence.getShape(), geofence.getCenterLatitude(),
+                geofence.getCenterLongitude(), geofence.getRadiusMeters(), vertices(geofence), geofence.getCreatedAt());
+    }
+
+    private static List<double[]> vertices(Geofence geofence) {
+        double[] latitudes = geofence.getVertexLatitudes();
+        if (latitudes == null) {
+            return null;
+        }
+        double[] longitudes = geofence.getVertexLongitudes();
+        List<double[]> vertices = new ArrayList<>(latitudes.length);
+        for (int i = 0; i < latitudes.length; i++) {
+            vertices.add(new double[]{latitudes[i], longitudes[i]});
+        }
+        return vertices;
+    }
+}
@@ -0,0 +1,32 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import de.whs.wi.friends_and_places.model.GeofenceEventType;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user entering or leaving one of the requesting user's geofences.
+ *
+ * @param id           the id of the event, pass the last one seen as {@code after} when polling
+ * @param geofenceId   the id of the fence
+ * @param geofenceName the name of the fence
+ * @param userId       the id of the user who crossed the fence
+ * @param username     the username of the user who crossed the fence
+ * @param type         whether the user entered or left the fence
+ * @param latitude     the latitude of the location that crossed the fence
+ * @param longitude    the longitude of the location that crossed the fence
+ * @param occurredAt   the time of that location
+ */
+@Schema(description = "A user entering or leaving a geofence")
+public record GeofenceEventDTO(
+        @Schema(description = "Id of the event, increasing") Long id,
+        @Schema(description = "Id of the geofence") Long geofenceId,
+        @Schema(description = "Name of the geofence") String geofenceName,
+        @Schema(description = "Id of the user who crossed the geofence") Long userId,
+        @Schema(description = "Username of the user who crossed the geofence") String username,
+        @Schema(description = "ENTER or EXIT") GeofenceEventType type,
+        @Schema(description = "Latitude of the location that crossed the geofence") double latitude,
+        @Schema(description = "Longitude of the location that crossed the geofence") double longitude,
+        @Schema(description = "Time of that location") LocalDateTime occurredAt) {
+}
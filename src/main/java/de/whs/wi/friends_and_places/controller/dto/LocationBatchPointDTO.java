@@ -0,0 +1,49 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a single GPS fix in a batch upload
+ */
+public class LocationBatchPointDTO {
+
+    private Double latitude;
+    private Double longitude;
+    private String locationName;
+
+    // When the fix was taken on the device, the server time is used if missing
+    private LocalDateTime recordedAt;
+
+    // Getters and setters
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getLocationName() {
+        return locationName;
+    }
+
+    public void setLocationName(String locationName) {
+        this.locationName = locationName;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+}
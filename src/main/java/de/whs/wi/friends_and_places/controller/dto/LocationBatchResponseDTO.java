@@ -0,0 +1,17 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Result of a batch location upload.
+ *
+ * @param saved the number of stored points
+ * @param ids   the ids of the stored points, in request order
+ */
+@Schema(description = "Result of a batch location upload")
+public record LocationBatchResponseDTO(
+        @Schema(description = "Number of stored points") int saved,
+        @Schema(description = "Ids of the stored points in request order") List<Long> ids) {
+}
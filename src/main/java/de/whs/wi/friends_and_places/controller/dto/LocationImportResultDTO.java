@@ -0,0 +1,29 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Outcome of an NDJSON location import.
+ *
+ * @param completed       true if the whole input was read
+ * @param checkpoint      number of input lines that are fully processed; pass it as offset to resume
+ * @param imported        number of stored records
+ * @param rejected        number of lines that were skipped as invalid
+ * @param rejectedLines   details of the first rejected lines
+ * @param elapsedMillis   duration of the import
+ * @param recordsPerSecond stored records per second
+ * @param error           why the import stopped early, or null
+ */
+@Schema(description = "Outcome of an NDJSON location import")
+public record LocationImportResultDTO(
+        @Schema(description = "True if the whole input was read") boolean completed,
+        @Schema(description = "Number of processed lines, pass as offset to resume") long checkpoint,
+        @Schema(description = "Number of stored records") long imported,
+        @Schema(description = "Number of invalid lines") long rejected,
+        @Schema(description = "Line number and reason of the first rejected lines") List<String> rejectedLines,
+        @Schema(description = "Duration of the import in milliseconds") long elapsedMillis,
+        @Schema(description = "Stored records per second") long recordsPerSecond,
+        @Schema(description = "Why the import stopped early") String error) {
+}
@@ -0,0 +1,17 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * One page of a location history.
+ *
+ * @param locations  the locations of the page, newest first
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ */
+@Schema(description = "One page of a location history")
+public record LocationPageDTO(
+        @Schema(description = "Locations of the page, newest first") List<LocationResponseDTO> locations,
+        @Schema(description = "Cursor for the next page, null on the last page") String nextCursor) {
+}
@@ -1,5 +1,6 @@
 package de.whs.wi.friends_and_places.controller.dto;
 
+import de.whs.wi.friends_and_places.model.AddressStatus;
 import de.whs.wi.friends_and_places.model.UserLocation;
 
 import java.time.LocalDateTime;
@@ -14,7 +15,9 @@ public class LocationResponseDTO {
     private double longitude;
     private String formattedAddress;
     private LocalDateTime createdAt;
+    private LocalDateTime lastConfirmedAt;
     private String locationName;
+    private AddressStatus addressStatus;
 
     // User information
     private Long userId;
@@ -32,7 +35,9 @@ public class LocationResponseDTO {
         this.longitude = userLocation.getLongitude();
         this.formattedAddress = userLocation.getFormattedAddress();
         this.createdAt = userLocation.getCreatedAt();
+        this.lastConfirmedAt = userLocation.getLastConfirmedAt();
         this.locationName = userLocation.getLocationName();
+        this.addressStatus = userLocation.getAddressStatus();
 
         // Add user information
         if (userLocation.getUser() != null) {
@@ -42,6 +47,23 @@ public class LocationResponseDTO {
         }
     }
 
+    // Constructor for JPQL constructor expressions, see UserLocationRepository
+    public LocationResponseDTO(Long id, double latitude, double longitude, String formattedAddress,
+                               LocalDateTime createdAt, LocalDateTime lastConfirmedAt, String locationName,
+                               AddressStatus addressStatus, Long userId, String username, String email) {
+        this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.formattedAddress = formattedAddress;
+        this.createdAt = createdAt;
+        this.lastConfirmedAt = lastConfirmedAt;
+        this.locationName = locationName;
+        this.addressStatus = addressStatus;
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+    }
+
     // Getters and setters
     public Long getId() {
         return id;
@@ -91,6 +113,29 @@ public class LocationResponseDTO {
         this.locationName = locationName;
     }
 
+    public LocalDateTime getLastConfirmedAt() {
+        return lastConfirmedAt;
+    }
+
+    public void setLastConfirmedAt(LocalDateTime lastConfirmedAt) {
+        this.lastConfirmedAt = lastConfirmedAt;
+    }
+
+    public AddressStatus getAddressStatus() {
+        return addressStatus;
+    }
+
+    public void setAddressStatus(AddressStatus addressStatus) {
+        this.addressStatus = addressStatus;
+    }
+
+    /**
+     * @return true while the formatted address is still being determined in the background
+     */
+    public boolean isAddressPending() {
+        return addressStatus == AddressStatus.PENDING;
+    }
+
     public Long getUserId() {
         return userId;
     }
@@ -0,0 +1,15 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * The latest location of a friend near the requesting user.
+ *
+ * @param location       the latest location of the friend
+ * @param distanceMeters the distance to the latest location of the requesting user
+ */
+@Schema(description = "Latest location of a nearby friend")
+public record NearbyFriendDTO(
+        @Schema(description = "Latest location of the friend") LocationResponseDTO location,
+        @Schema(description = "Distance to the requesting user in meters") double distanceMeters) {
+}
@@ -0,0 +1,24 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Data transfer object for exchanging a refresh token")
+public class RefreshTokenRequestDTO {
+    @Schema(description = "Refresh token returned by login or a previous refresh", example = "q4V1cS3q0wX9...", required = true)
+    private String refreshToken;
+
+    public RefreshTokenRequestDTO() {
+    }
+
+    public RefreshTokenRequestDTO(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,15 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * An access token together with the refresh token to obtain the next one.
+ *
+ * @param token        the short-lived JWT access token
+ * @param refreshToken the single-use refresh token
+ */
+@Schema(description = "Access token and rotating refresh token")
+public record TokenPairDTO(
+        @Schema(description = "JWT access token") String token,
+        @Schema(description = "Single-use refresh token") String refreshToken) {
+}
@@ -0,0 +1,29 @@
+package de.whs.wi.friends_and_places.controller.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * A place where the requesting user repeatedly spends time.
+ *
+ * @param id                the id of the place
+ * @param latitude          the latitude of the place
+ * @param longitude         the longitude of the place
+ * @param name              the reverse-geocoded address, null while it is not resolved
+ * @param visitCount        the number of stays at the place
+ * @param totalDwellSeconds the time spent at the place over all stays
+ * @param firstVisitAt      the arrival of the first stay
+ * @param lastVisitAt       the arrival of the latest stay
+ */
+@Schema(description = "A place where the user repeatedly spends time")
+public record UserPlaceDTO(
+        @Schema(description = "Id of the place") Long id,
+        @Schema(description = "Latitude of the place") double latitude,
+        @Schema(description = "Longitude of the place") double longitude,
+        @Schema(description = "Address of the place, null while it is being resolved") String name,
+        @Schema(description = "Number of stays at the place") int visitCount,
+        @Schema(description = "Time spent at the place in seconds") long totalDwellSeconds,
+        @Schema(description = "Arrival of the first stay") LocalDateTime firstVisitAt,
+        @Schema(description = "Arrival of the latest stay") LocalDateTime lastVisitAt) {
+}
@@ -0,0 +1,21 @@
+package de.whs.wi.friends_and_places.error;
+
+/**
+ * Exception thrown when a bounded resource (e.g. the password hashing pool) is saturated
+ * and the request is rejected instead of being queued.
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return the number of seconds after which the client may retry
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
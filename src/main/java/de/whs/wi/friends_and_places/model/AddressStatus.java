@@ -0,0 +1,23 @@
+package de.whs.wi.friends_and_places.model;
+
+/**
+ * State of the formatted address of a {@link UserLocation}.
+ */
+public enum AddressStatus {
+    /**
+     * The address has been determined (or was provided by the user).
+     */
+    RESOLVED,
+    /**
+     * The location was saved with coordinates only, reverse geocoding is still in progress.
+     */
+    PENDING,
+    /**
+     * Reverse geocoding failed permanently or ran out of retries.
+     */
+    FAILED,
+    /**
+     * Imported history point without address; it is not geocoded to keep bulk imports off the external API.
+     */
+    NOT_REQUESTED
+}
@@ -0,0 +1,140 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Area defined by a user. The owner receives a {@link GeofenceEvent} whenever they or one of their
+ * friends enter or leave it.
+ */
+@Entity
+@Table(name = "geofences", indexes = {
+        // Serves listing and counting the fences of a user
+        @Index(name = "idx_geofences_owner", columnList = "owner_id")
+})
+public class Geofence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private GeofenceShape shape;
+
+    @Column(name = "center_latitude", nullable = false)
+    private double centerLatitude;
+
+    @Column(name = "center_longitude", nullable = false)
+    private double centerLongitude;
+
+    @Column(name = "radius_meters", nullable = false)
+    private double radiusMeters;
+
+    // Polygon vertices as "lat,lon;lat,lon;...", null for circles
+    @Column(columnDefinition = "TEXT")
+    private String vertices;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Default constructor for JPA
+    public Geofence() {
+    }
+
+    /**
+     * @param vertexLatitudes  the latitudes of the polygon's vertices, or null for a circle
+     * @param vertexLongitudes the longitudes of the polygon's vertices, or null for a circle
+     */
+    public Geofence(User owner, String name, double centerLatitude, double centerLongitude, double radiusMeters,
+                    double[] vertexLatitudes, double[] vertexLongitudes) {
+        this.owner = owner;
+        this.name = name;
+        this.shape = vertexLatitudes == null ? GeofenceShape.CIRCLE : GeofenceShape.POLYGON;
+        this.centerLatitude = centerLatitude;
+        this.centerLongitude = centerLongitude;
+        this.radiusMeters = radiusMeters;
+        if (vertexLatitudes != null) {
+            StringBuilder encoded = new StringBuilder();
+            for (int i = 0; i < vertexLatitudes.length; i++) {
+                if (i > 0) {
+                    encoded.append(';');
+                }
+                encoded.append(String.format(Locale.ROOT, "%.7f,%.7f", vertexLatitudes[i], vertexLongitudes[i]));
+            }
+            this.vertices = encoded.toString();
+        }
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public User getOwner() {
+        return owner;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public GeofenceShape getShape() {
+        return shape;
+    }
+
+    public double getCenterLatitude() {
+        return centerLatitude;
+    }
+
+    public double getCenterLongitude() {
+        return centerLongitude;
+    }
+
+    public double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    /**
+     * @return the latitudes of the polygon's vertices, or null for a circle
+     */
+    public double[] getVertexLatitudes() {
+        return vertexCoordinates(0);
+    }
+
+    /**
+     * @return the longitudes of the polygon's vertices, or null for a circle
+     */
+    public double[] getVertexLongitudes() {
+        return vertexCoordinates(1);
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    private double[] vertexCoordinates(int index) {
+        if (vertices == null) {
+            return null;
+        }
+        String[] pairs = vertices.split(";");
+        double[] coordinates = new double[pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            coordinates[i] = Double.parseDouble(pairs[i].split(",")[index]);
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,100 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user entering or leaving a {@link Geofence}, delivered to the owner of the fence.
+ * Owners poll their events in the order of the ids.
+ */
+@Entity
+@Table(name = "geofence_events", indexes = {
+        // Serves polling the events of an owner after the last seen id
+        @Index(name = "idx_geofence_events_owner_id", columnList = "owner_id, id")
+})
+public class GeofenceEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "geofence_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Geofence geofence;
+
+    // The user who crossed the fence, the owner or one of their friends
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private GeofenceEventType type;
+
+    @Column(nullable = false)
+    private double latitude;
+
+    @Column(nullable = false)
+    private double longitude;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+
+    // Default constructor for JPA
+    public GeofenceEvent() {
+    }
+
+    public GeofenceEvent(User owner, Geofence geofence, User user, GeofenceEventType type,
+                         double latitude, double longitude, LocalDateTime occurredAt) {
+        this.owner = owner;
+        this.geofence = geofence;
+        this.user = user;
+        this.type = type;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.occurredAt = occurredAt;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public User getOwner() {
+        return owner;
+    }
+
+    public Geofence getGeofence() {
+        return geofence;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public GeofenceEventType getType() {
+        return type;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,9 @@
+package de.whs.wi.friends_and_places.model;
+
+/**
+ * Transition recorded by a {@link GeofenceEvent}
+ */
+public enum GeofenceEventType {
+    ENTER,
+    EXIT
+}
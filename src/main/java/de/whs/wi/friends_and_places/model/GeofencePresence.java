@@ -0,0 +1,62 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a user as inside a {@link Geofence}, so that only transitions produce events, also across restarts.
+ * A user without a row is outside.
+ */
+@Entity
+@Table(name = "geofence_presence",
+        uniqueConstraints = @UniqueConstraint(name = "uk_geofence_presence_user_geofence",
+                columnNames = {"user_id", "geofence_id"}))
+public class GeofencePresence {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "geofence_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Geofence geofence;
+
+    @Column(name = "entered_at", nullable = false)
+    private LocalDateTime enteredAt;
+
+    // Default constructor for JPA
+    public GeofencePresence() {
+    }
+
+    public GeofencePresence(User user, Geofence geofence, LocalDateTime enteredAt) {
+        this.user = user;
+        this.geofence = geofence;
+        this.enteredAt = enteredAt;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Geofence getGeofence() {
+        return geofence;
+    }
+
+    public LocalDateTime getEnteredAt() {
+        return enteredAt;
+    }
+}
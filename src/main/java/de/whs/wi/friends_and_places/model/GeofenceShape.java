@@ -0,0 +1,11 @@
+package de.whs.wi.friends_and_places.model;
+
+/**
+ * Shape of a {@link Geofence}
+ */
+public enum GeofenceShape {
+    // A center and a radius
+    CIRCLE,
+    // A closed ring of vertices, the center and radius describe its bounding circle
+    POLYGON
+}
@@ -0,0 +1,131 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entity holding the compacted location history of one user for one day.
+ * The points are encoded with {@link de.whs.wi.friends_and_places.util.TrailCodec}; they replace the
+ * corresponding {@link UserLocation} rows once the day is sealed. The bounding box of the points lets area
+ * queries skip days elsewhere without decoding them; it is null for trails written before it was kept.
+ */
+@Entity
+@Table(name = "location_trails", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_location_trails_user_day", columnNames = {"user_id", "bucket_date"})
+})
+public class LocationTrail {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @Column(name = "point_count", nullable = false)
+    private int pointCount;
+
+    @Column(name = "first_recorded_at", nullable = false)
+    private LocalDateTime firstRecordedAt;
+
+    @Column(name = "last_recorded_at", nullable = false)
+    private LocalDateTime lastRecordedAt;
+
+    @Column(name = "min_latitude")
+    private Double minLatitude;
+
+    @Column(name = "min_longitude")
+    private Double minLongitude;
+
+    @Column(name = "max_latitude")
+    private Double maxLatitude;
+
+    @Column(name = "max_longitude")
+    private Double maxLongitude;
+
+    @Column(name = "encoded", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] encoded;
+
+    // Default constructor for JPA
+    public LocationTrail() {
+    }
+
+    public LocationTrail(User user, LocalDate bucketDate) {
+        this.user = user;
+        this.bucketDate = bucketDate;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public LocalDate getBucketDate() {
+        return bucketDate;
+    }
+
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    public LocalDateTime getFirstRecordedAt() {
+        return firstRecordedAt;
+    }
+
+    public LocalDateTime getLastRecordedAt() {
+        return lastRecordedAt;
+    }
+
+    public Double getMinLatitude() {
+        return minLatitude;
+    }
+
+    public Double getMinLongitude() {
+        return minLongitude;
+    }
+
+    public Double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    public Double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Replaces the encoded points together with the summary columns.
+     */
+    public void setEncoded(byte[] encoded, int pointCount, LocalDateTime firstRecordedAt, LocalDateTime lastRecordedAt) {
+        this.encoded = encoded;
+        this.pointCount = pointCount;
+        this.firstRecordedAt = firstRecordedAt;
+        this.lastRecordedAt = lastRecordedAt;
+    }
+
+    /**
+     * Sets the bounding box of the encoded points.
+     */
+    public void setBounds(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        this.minLatitude = minLatitude;
+        this.minLongitude = minLongitude;
+        this.maxLatitude = maxLatitude;
+        this.maxLongitude = maxLongitude;
+    }
+}
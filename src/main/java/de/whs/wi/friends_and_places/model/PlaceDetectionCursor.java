@@ -0,0 +1,71 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far the stay-point detection has read the location history of a user.
+ * Locations after the position {@code (afterCreatedAt, afterId)} in {@code (created_at, id)} order are not
+ * assigned to a place yet; {@code seenUntil} is the creation time of the newest location read, users whose
+ * latest location is newer have to be processed again. The cursor is moved by
+ * {@link de.whs.wi.friends_and_places.repository.PlaceDetectionCursorRepository#advance}.
+ */
+@Entity
+@Table(name = "place_detection_cursors")
+public class PlaceDetectionCursor {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(name = "user_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(name = "after_created_at", nullable = false)
+    private LocalDateTime afterCreatedAt;
+
+    @Column(name = "after_id", nullable = false)
+    private long afterId;
+
+    @Column(name = "seen_until", nullable = false)
+    private LocalDateTime seenUntil;
+
+    // Default constructor for JPA
+    public PlaceDetectionCursor() {
+    }
+
+    public PlaceDetectionCursor(User user, LocalDateTime afterCreatedAt, long afterId, LocalDateTime seenUntil) {
+        this.userId = user.getId();
+        this.user = user;
+        this.afterCreatedAt = afterCreatedAt;
+        this.afterId = afterId;
+        this.seenUntil = seenUntil;
+    }
+
+    // Getters and setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public LocalDateTime getAfterCreatedAt() {
+        return afterCreatedAt;
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public LocalDateTime getSeenUntil() {
+        return seenUntil;
+    }
+}
@@ -26,6 +26,10 @@ public class User {
     private String houseNumber;
     private String mobile;
 
+    // Bumped on password change, only by UserRepository.incrementSecurityVersion; null counts as 0
+    @Column(name = "security_version", insertable = false, updatable = false)
+    private Long securityVersion;
+
     // Friend relationships
     @ManyToMany
     @JoinTable(
@@ -122,6 +126,13 @@ public class User {
         this.houseNumber = houseNumber;
     }
 
+    /**
+     * @return the security version embedded in the user's tokens; tokens with an older version are revoked
+     */
+    public long getSecurityVersion() {
+        return securityVersion == null ? 0L : securityVersion;
+    }
+
     public String getMobile() {
         return mobile;
     }
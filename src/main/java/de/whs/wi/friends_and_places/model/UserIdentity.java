@@ -0,0 +1,21 @@
+package de.whs.wi.friends_and_places.model;
+
+/**
+ * Immutable snapshot of the identifying fields of a {@link User}.
+ * Used where the full entity is not needed (authentication, availability checks),
+ * so the values can be cached safely outside of a persistence context. The password hash is left out
+ * on purpose, it must never be served from a cache.
+ *
+ * @param id       the id of the user
+ * @param username the unique username
+ * @param email    the unique email address
+ */
+public record UserIdentity(Long id, String username, String email) {
+
+    /**
+     * Creates a snapshot of the given user.
+     */
+    public static UserIdentity of(User user) {
+        return new UserIdentity(user.getId(), user.getUsername(), user.getEmail());
+    }
+}
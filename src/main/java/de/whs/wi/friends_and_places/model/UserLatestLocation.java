@@ -0,0 +1,64 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection pointing at the most recent {@link UserLocation} of every user, so that latest-location
+ * lookups are primary-key reads instead of aggregations over the whole history.
+ * Maintained by {@link de.whs.wi.friends_and_places.repository.LatestLocationProjection}; a row without
+ * location means the user has no locations.
+ */
+@Entity
+@Table(name = "user_latest_location")
+public class UserLatestLocation {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(name = "user_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "location_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private UserLocation location;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // Default constructor for JPA
+    public UserLatestLocation() {
+    }
+
+    public UserLatestLocation(User user, UserLocation location) {
+        this.userId = user.getId();
+        this.user = user;
+        this.location = location;
+        this.createdAt = location == null ? null : location.getCreatedAt();
+    }
+
+    // Getters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public UserLocation getLocation() {
+        return location;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,5 +1,6 @@
 package de.whs.wi.friends_and_places.model;
 
+import de.whs.wi.friends_and_places.util.MortonCode;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
@@ -7,11 +8,24 @@ import java.time.LocalDateTime;
  * Entity representing a user's location at a specific point in time
  */
 @Entity
-@Table(name = "user_locations")
+@Table(name = "user_locations", indexes = {
+        // Serves the keyset-paginated history and the latest-location lookups of a user
+        @Index(name = "idx_user_locations_user_created_id", columnList = "user_id, created_at DESC, id DESC"),
+        // Serves bounding-box queries as range scans over the spatial key
+        @Index(name = "idx_user_locations_user_spatial_key", columnList = "user_id, spatial_key")
+})
 public class UserLocation {
 
+    /**
+     * Number of ids reserved per sequence call, must match the increment of {@code user_locations_seq}.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence instead of IDENTITY so that Hibernate can batch inserts (see locations.batch)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_locations_seq")
+    @SequenceGenerator(name = "user_locations_seq", sequenceName = "user_locations_seq",
+            allocationSize = UserLocation.ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -33,6 +47,22 @@ public class UserLocation {
     @Column(name = "location_name")
     private String locationName;
 
+    // Null for rows written before enrichment states existed, treated as RESOLVED
+    @Enumerated(EnumType.STRING)
+    @Column(name = "address_status", length = 16)
+    private AddressStatus addressStatus;
+
+    @Column(name = "enrichment_attempts")
+    private Integer enrichmentAttempts;
+
+    // Last time the user was reported at this point again, null if never confirmed
+    @Column(name = "last_confirmed_at")
+    private LocalDateTime lastConfirmedAt;
+
+    // Morton code of the coordinates, see MortonCode; null for rows not yet backfilled
+    @Column(name = "spatial_key")
+    private Long spatialKey;
+
     // Default constructor for JPA
     public UserLocation() {
     }
@@ -103,10 +133,44 @@ public class UserLocation {
         this.locationName = locationName;
     }
 
+    public AddressStatus getAddressStatus() {
+        return addressStatus == null ? AddressStatus.RESOLVED : addressStatus;
+    }
+
+    public void setAddressStatus(AddressStatus addressStatus) {
+        this.addressStatus = addressStatus;
+    }
+
+    public int getEnrichmentAttempts() {
+        return enrichmentAttempts == null ? 0 : enrichmentAttempts;
+    }
+
+    public void setEnrichmentAttempts(Integer enrichmentAttempts) {
+        this.enrichmentAttempts = enrichmentAttempts;
+    }
+
+    public LocalDateTime getLastConfirmedAt() {
+        return lastConfirmedAt;
+    }
+
+    public void setLastConfirmedAt(LocalDateTime lastConfirmedAt) {
+        this.lastConfirmedAt = lastConfirmedAt;
+    }
+
+    public Long getSpatialKey() {
+        return spatialKey;
+    }
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        onUpdate();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        spatialKey = MortonCode.encode(latitude, longitude);
     }
 }
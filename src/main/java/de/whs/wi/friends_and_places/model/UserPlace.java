@@ -0,0 +1,114 @@
+package de.whs.wi.friends_and_places.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * A place where a user repeatedly spends time, built from the stay points detected in their location history.
+ * The coordinates are the mean of the stays assigned to the place; the name is reverse-geocoded and null
+ * until it is resolved.
+ */
+@Entity
+@Table(name = "user_places", indexes = @Index(name = "idx_user_places_user", columnList = "user_id"))
+public class UserPlace {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Column(nullable = false)
+    private double latitude;
+
+    @Column(nullable = false)
+    private double longitude;
+
+    private String name;
+
+    @Column(name = "visit_count", nullable = false)
+    private int visitCount;
+
+    @Column(name = "total_dwell_seconds", nullable = false)
+    private long totalDwellSeconds;
+
+    @Column(name = "first_visit_at", nullable = false)
+    private LocalDateTime firstVisitAt;
+
+    @Column(name = "last_visit_at", nullable = false)
+    private LocalDateTime lastVisitAt;
+
+    // Default constructor for JPA
+    public UserPlace() {
+    }
+
+    public UserPlace(User user, double latitude, double longitude, LocalDateTime arrivedAt, LocalDateTime leftAt) {
+        this.user = user;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.visitCount = 1;
+        this.totalDwellSeconds = Duration.between(arrivedAt, leftAt).toSeconds();
+        this.firstVisitAt = arrivedAt;
+        this.lastVisitAt = arrivedAt;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    public long getTotalDwellSeconds() {
+        return totalDwellSeconds;
+    }
+
+    public LocalDateTime getFirstVisitAt() {
+        return firstVisitAt;
+    }
+
+    public LocalDateTime getLastVisitAt() {
+        return lastVisitAt;
+    }
+
+    /**
+     * Adds a further stay at this place and moves the place towards it.
+     */
+    public void addVisit(double latitude, double longitude, LocalDateTime arrivedAt, LocalDateTime leftAt) {
+        this.latitude = (this.latitude * visitCount + latitude) / (visitCount + 1);
+        this.longitude = (this.longitude * visitCount + longitude) / (visitCount + 1);
+        this.visitCount++;
+        this.totalDwellSeconds += Duration.between(arrivedAt, leftAt).toSeconds();
+        if (arrivedAt.isBefore(firstVisitAt)) {
+            this.firstVisitAt = arrivedAt;
+        }
+        if (arrivedAt.isAfter(lastVisitAt)) {
+            this.lastVisitAt = arrivedAt;
+        }
+    }
+}
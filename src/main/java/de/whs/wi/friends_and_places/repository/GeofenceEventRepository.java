@@ -0,0 +1,46 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.controller.dto.GeofenceEventDTO;
+import de.whs.wi.friends_and_places.model.GeofenceEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for accessing GeofenceEvent entities
+ */
+@Repository
+public interface GeofenceEventRepository extends JpaRepository<GeofenceEvent, Long> {
+
+    /**
+     * Find the events of a fence owner after the last event they have seen, projected with the names
+     * of the fence and the user in one query.
+     *
+     * @param ownerId The id of the owner
+     * @param afterId Only events with a greater id
+     * @param pageable Limits the number of returned events
+     * @return The events, oldest first
+     */
+    @Query("SELECT new de.whs.wi.friends_and_places.controller.dto.GeofenceEventDTO(" +
+           "e.id, g.id, g.name, u.id, u.username, e.type, e.latitude, e.longitude, e.occurredAt) " +
+           "FROM GeofenceEvent e JOIN e.geofence g JOIN e.user u " +
+           "WHERE e.owner.id = :ownerId AND e.id > :afterId ORDER BY e.id")
+    List<GeofenceEventDTO> findEventsAfter(@Param("ownerId") Long ownerId, @Param("afterId") Long afterId,
+                                           Pageable pageable);
+
+    /**
+     * Delete events that occurred before a point in time.
+     *
+     * @param before The point in time
+     * @return The number of deleted events
+     */
+    @Modifying
+    @Query("DELETE FROM GeofenceEvent e WHERE e.occurredAt < :before")
+    int deleteByOccurredAtBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,254 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.Geofence;
+import de.whs.wi.friends_and_places.util.BucketHistogram;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.SpatialGridIndex;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process index of all geofences, so that every location write can find the fences containing the
+ * point without a database round trip.
+ * <p>
+ * Every fence is stored in the cells of a {@link SpatialGridIndex} ({@code locations.geofences.cell-size-meters})
+ * covered by its bounding circle; a point is only tested against the fences of its own cell. Fences that
+ * would need more than {@code max-cells-per-fence} cells, come close to a pole or cross the antimeridian
+ * are tested on every lookup instead.
+ * <p>
+ * Warmed from the {@code geofences} table at startup and kept current by the geofence service. Fences
+ * created or deleted on other instances are picked up by a reload every {@code refresh-interval} ms.
+ */
+@Component
+public class GeofenceIndex implements StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeofenceIndex.class);
+    private static final int WARM_UP_PAGE_SIZE = 1000;
+
+    private final GeofenceRepository geofenceRepository;
+    private final int maxCellsPerFence;
+    private final Map<Long, Fence> fences = new ConcurrentHashMap<>();
+    private final SpatialGridIndex grid;
+    // Fences not in the grid, tested on every lookup
+    private final Set<Long> large = ConcurrentHashMap.newKeySet();
+    // Fence ids by owner id, owners without fences have no entry
+    private final Map<Long, Set<Long>> byOwner = new ConcurrentHashMap<>();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final BucketHistogram lookupMicros = new BucketHistogram(1, 5, 10, 50, 100, 500, 1000, 5000);
+    private volatile long warmUpMillis;
+    private volatile long lastRefreshMillis;
+
+    public GeofenceIndex(GeofenceRepository geofenceRepository,
+                         @Value("${locations.geofences.cell-size-meters:1000}") double cellSizeMeters,
+                         @Value("${locations.geofences.max-cells-per-fence:256}") int maxCellsPerFence) {
+        this.geofenceRepository = geofenceRepository;
+        this.maxCellsPerFence = maxCellsPerFence;
+        this.grid = new SpatialGridIndex(cellSizeMeters);
+    }
+
+    /**
+     * Loads all fences from the {@code geofences} table, page by page.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.nanoTime();
+        refresh();
+        warmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Geofence index warmed with {} fences in {} ms", fences.size(), warmUpMillis);
+    }
+
+    /**
+     * Reloads the {@code geofences} table, adding new fences and removing deleted ones. Fences are never
+     * changed, only created and deleted.
+     */
+    @Scheduled(fixedDelayString = "${locations.geofences.refresh-interval:60000}",
+               initialDelayString = "${locations.geofences.refresh-interval:60000}")
+    public void refresh() {
+        long start = System.nanoTime();
+        Set<Long> loaded = new HashSet<>();
+        Long after = 0L;
+        List<Geofence> page;
+        do {
+            page = geofenceRepository.findPageAfter(after, PageRequest.of(0, WARM_UP_PAGE_SIZE));
+            for (Geofence geofence : page) {
+                add(geofence);
+                loaded.add(geofence.getId());
+                after = geofence.getId();
+            }
+        } while (page.size() == WARM_UP_PAGE_SIZE);
+        // Fences created after the last page was read are kept until the next refresh
+        long lastId = after;
+        for (Long id : fences.keySet()) {
+            if (id <= lastId && !loaded.contains(id)) {
+                remove(id);
+            }
+        }
+        lastRefreshMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    public void add(Geofence geofence) {
+        add(Fence.of(geofence));
+    }
+
+    public void add(Fence fence) {
+        if (fences.put(fence.id(), fence) != null) {
+            return;
+        }
+        byOwner.compute(fence.ownerId(), (ownerId, ids) -> {
+            Set<Long> owned = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            owned.add(fence.id());
+            return owned;
+        });
+        if (!grid.addWithin(fence.id(), fence.centerLatitude(), fence.centerLongitude(), fence.radiusMeters(),
+                maxCellsPerFence)) {
+            large.add(fence.id());
+        }
+    }
+
+    public void remove(long id) {
+        Fence fence = fences.remove(id);
+        if (fence == null) {
+            return;
+        }
+        byOwner.computeIfPresent(fence.ownerId(), (ownerId, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+        if (!large.remove(id)) {
+            grid.removeWithin(id, fence.centerLatitude(), fence.centerLongitude(), fence.radiusMeters(),
+                    maxCellsPerFence);
+        }
+    }
+
+    /**
+     * @return the fence, or null if it does not exist
+     */
+    public Fence get(long id) {
+        return fences.get(id);
+    }
+
+    /**
+     * Finds the fences of all users that contain a point.
+     *
+     * @return the fences, in no particular order
+     */
+    public List<Fence> findContaining(double latitude, double longitude) {
+        long start = System.nanoTime();
+        List<Fence> containing = new ArrayList<>();
+        long[] ids = grid.idsAt(latitude, longitude);
+        for (long id : ids) {
+            test(id, latitude, longitude, containing);
+        }
+        for (long id : large) {
+            test(id, latitude, longitude, containing);
+        }
+        lookups.increment();
+        candidates.add(ids.length + large.size());
+        lookupMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return containing;
+    }
+
+    private void test(long id, double latitude, double longitude, List<Fence> containing) {
+        Fence fence = fences.get(id);
+        if (fence != null && fence.contains(latitude, longitude)) {
+            containing.add(fence);
+        }
+    }
+
+    /**
+     * Drops the fences of a user that no longer exist, e.g. after the account was deleted together with
+     * its fences. Changes of users without fences, by far the most common case, need no query.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.userId() == null || !byOwner.containsKey(event.userId())) {
+            return;
+        }
+        Set<Long> existing = new HashSet<>();
+        for (Geofence geofence : geofenceRepository.findByOwnerIdOrderById(event.userId())) {
+            existing.add(geofence.getId());
+        }
+        for (Long id : List.copyOf(byOwner.getOrDefault(event.userId(), Set.of()))) {
+            if (!existing.contains(id)) {
+                remove(id);
+            }
+        }
+    }
+
+    public int size() {
+        return fences.size();
+    }
+
+    public void clear() {
+        fences.clear();
+        large.clear();
+        byOwner.clear();
+        grid.clear();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "geofenceIndex";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long lookupCount = lookups.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fences", fences.size());
+        stats.put("largeFences", large.size());
+        stats.put("owners", byOwner.size());
+        stats.put("gridCells", grid.cellCount());
+        stats.put("lookups", lookupCount);
+        stats.put("averageCandidates", lookupCount == 0 ? 0.0 : (double) candidates.sum() / lookupCount);
+        stats.put("lookupMicros", lookupMicros.snapshot());
+        stats.put("warmUpMillis", warmUpMillis);
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        return stats;
+    }
+
+    /**
+     * Shape of a fence, holding primitives only.
+     *
+     * @param latitudes  the latitudes of the polygon's vertices, or null for a circle
+     * @param longitudes the longitudes of the polygon's vertices, or null for a circle
+     */
+    public record Fence(long id, long ownerId, double centerLatitude, double centerLongitude, double radiusMeters,
+                        double[] latitudes, double[] longitudes) {
+
+        static Fence of(Geofence geofence) {
+            return new Fence(geofence.getId(), geofence.getOwner().getId(), geofence.getCenterLatitude(),
+                    geofence.getCenterLongitude(), geofence.getRadiusMeters(),
+                    geofence.getVertexLatitudes(), geofence.getVertexLongitudes());
+        }
+
+        public boolean contains(double latitude, double longitude) {
+            // Polygons lie within their bounding circle, the cheap test rules out most of them
+            if (GeoUtils.distanceMeters(centerLatitude, centerLongitude, latitude, longitude) > radiusMeters) {
+                return false;
+            }
+            return latitudes == null || GeoUtils.polygonContains(latitudes, longitudes, latitude, longitude);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.GeofencePresence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for accessing GeofencePresence entities
+ */
+@Repository
+public interface GeofencePresenceRepository extends JpaRepository<GeofencePresence, Long> {
+
+    /**
+     * Find the fences a user is inside of.
+     *
+     * @param userId The id of the user
+     * @return The ids of the fences
+     */
+    @Query("SELECT p.geofence.id FROM GeofencePresence p WHERE p.user.id = :userId")
+    List<Long> findGeofenceIdsByUserId(@Param("userId") Long userId);
+
+    boolean existsByUserIdAndGeofenceId(Long userId, Long geofenceId);
+
+    /**
+     * Mark a user as outside of the given fences.
+     *
+     * @param userId The id of the user
+     * @param geofenceIds The ids of the fences
+     * @return The number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM GeofencePresence p WHERE p.user.id = :userId AND p.geofence.id IN :geofenceIds")
+    int deleteByUserIdAndGeofenceIds(@Param("userId") Long userId, @Param("geofenceIds") Collection<Long> geofenceIds);
+}
@@ -0,0 +1,47 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.Geofence;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for accessing Geofence entities
+ */
+@Repository
+public interface GeofenceRepository extends JpaRepository<Geofence, Long> {
+
+    /**
+     * Find the fences of a user, oldest first.
+     *
+     * @param ownerId The id of the owner
+     * @return The fences
+     */
+    List<Geofence> findByOwnerIdOrderById(Long ownerId);
+
+    /**
+     * Find a fence of a user.
+     *
+     * @param id The id of the fence
+     * @param ownerId The id of the owner
+     * @return The fence, or empty if it does not exist or belongs to another user
+     */
+    Optional<Geofence> findByIdAndOwnerId(Long id, Long ownerId);
+
+    long countByOwnerId(Long ownerId);
+
+    /**
+     * Find a page of fences, ordered by id.
+     *
+     * @param afterId Only fences with a greater id
+     * @param pageable Limits the number of returned fences
+     * @return The fences
+     */
+    @Query("SELECT g FROM Geofence g WHERE g.id > :afterId ORDER BY g.id")
+    List<Geofence> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -0,0 +1,177 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLatestLocation;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores locations together with the {@code user_latest_location} projection in one transaction and
+ * answers latest-location lookups from it. Lookups cost one primary-key IN-list query, independent of
+ * the length of the history.
+ * <p>
+ * Users that have no projection entry yet (locations written before the projection existed) are looked
+ * up in {@code user_locations} instead; their entry is created with their next location. Reads never write.
+ */
+@Component
+public class LatestLocationProjection {
+
+    private static final String INSERT_IF_ABSENT =
+            "INSERT INTO user_latest_location (user_id, location_id, created_at) " +
+            "SELECT user_id, id, created_at FROM user_locations WHERE id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM user_latest_location WHERE user_id = ?)";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final UserLocationRepository locationRepository;
+    private final UserLatestLocationRepository latestRepository;
+    private final LatestLocationRegistry registry;
+    private final JdbcTemplate jdbcTemplate;
+
+    public LatestLocationProjection(UserLocationRepository locationRepository,
+                                    UserLatestLocationRepository latestRepository,
+                                    LatestLocationRegistry registry,
+                                    JdbcTemplate jdbcTemplate) {
+        this.locationRepository = locationRepository;
+        this.latestRepository = latestRepository;
+        this.registry = registry;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Saves a location and makes it the latest location of its user if it is the newest.
+     *
+     * @param location The location to save
+     * @return The saved location
+     */
+    @Transactional
+    public UserLocation save(UserLocation location) {
+        UserLocation saved = locationRepository.save(location);
+        advance(saved);
+        return saved;
+    }
+
+    /**
+     * Saves locations and advances the latest location of every affected user.
+     *
+     * @param locations The locations to save
+     * @return The saved locations
+     */
+    @Transactional
+    public List<UserLocation> saveAll(List<UserLocation> locations) {
+        List<UserLocation> saved = locationRepository.saveAll(locations);
+        Map<Long, UserLocation> newestByUser = new HashMap<>();
+        for (UserLocation location : saved) {
+            newestByUser.merge(location.getUser().getId(), location,
+                    (current, candidate) -> candidate.getCreatedAt().isBefore(current.getCreatedAt()) ? current : candidate);
+        }
+        newestByUser.values().forEach(this::advance);
+        return saved;
+    }
+
+    /**
+     * Find the latest location of a user.
+     *
+     * @param user The user
+     * @return The latest location, or empty if the user has none
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserLocation> findLatest(User user) {
+        return findLatest(List.of(user)).stream().findFirst();
+    }
+
+    /**
+     * Find the latest location of each of the given users.
+     *
+     * @param users The users
+     * @return The latest locations of the users that have any, in the order of the users
+     */
+    @Transactional(readOnly = true)
+    public List<UserLocation> findLatest(List<User> users) {
+        Map<Long, UserLatestLocation> entries = new HashMap<>();
+        for (UserLatestLocation entry : latestRepository.findByUserIds(users.stream().map(User::getId).toList())) {
+            entries.put(entry.getUserId(), entry);
+        }
+
+        List<UserLocation> latest = new ArrayList<>(users.size());
+        for (User user : users) {
+            UserLatestLocation entry = entries.get(user.getId());
+            if (entry == null) {
+                locationRepository.findFirstByUserOrderByCreatedAtDesc(user).ifPresent(latest::add);
+            } else if (entry.getLocation() != null) {
+                latest.add(entry.getLocation());
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Find the id of the latest location of a user without loading it.
+     *
+     * @param userId The id of the user
+     * @return The location id, or empty if unknown
+     */
+    public Optional<Long> findLatestId(Long userId) {
+        return latestRepository.findLocationId(userId);
+    }
+
+    private void advance(UserLocation location) {
+        User user = location.getUser();
+        if (latestRepository.advance(user.getId(), location, location.getCreatedAt()) == 0) {
+            // No entry yet, or a newer one; older history, if any, may be newer than this location
+            UserLocation newest = locationRepository.findFirstByUserOrderByCreatedAtDesc(user).orElse(location);
+            if (!insertIfAbsent(user.getId(), newest.getId())) {
+                // The entry exists, possibly created by a concurrent request since the update
+                latestRepository.advance(user.getId(), location, location.getCreatedAt());
+            }
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Other requests must not see the location in the registry before it is committed
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registry.record(location);
+                }
+            });
+        }
+    }
+
+    /**
+     * Creates the entry of a user unless it exists. Runs on the connection of the current transaction, the
+     * location has been flushed by the update before.
+     *
+     * @return whether the entry was created; false if it existed or a concurrent request created it
+     */
+    private boolean insertIfAbsent(Long userId, Long locationId) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            // A duplicate key only rolls back to the savepoint, not the location saved by the caller
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_IF_ABSENT)) {
+                insert.setLong(1, locationId);
+                insert.setLong(2, userId);
+                boolean inserted = insert.executeUpdate() > 0;
+                connection.releaseSavepoint(savepoint);
+                return inserted;
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    return false;
+                }
+                throw e;
+            }
+        }));
+    }
+}
@@ -0,0 +1,536 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLatestLocation;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.util.BucketHistogram;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.SpatialGridIndex;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process copy of the latest location of every user ({@code locations.latest-registry.*}), so that
+ * friends' positions are answered without a database round trip.
+ * <p>
+ * Entries hold the location fields as primitives and strings only, no entities. The registry is warmed
+ * from {@code user_latest_location} at startup and kept current by the writers: inserts after their
+ * transaction committed ({@link LatestLocationProjection}), confirmations and address enrichment.
+ * Users it does not know are loaded from the database on first access and remembered, including the
+ * fact that a user has no locations.
+ * <p>
+ * The positions are also kept in a {@link SpatialGridIndex} ({@code locations.nearby.cell-size-meters})
+ * for radius queries over a user's friends.
+ * <p>
+ * Writes of other instances are picked up through expiry: an entry older than
+ * {@code locations.latest-registry.ttl-millis} is read again from {@code user_latest_location} on its next
+ * access, and after the same time the warm-up no longer counts as knowing every user.
+ */
+@Component
+public class LatestLocationRegistry implements StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestLocationRegistry.class);
+    // Map node, boxed key and the entry itself on a 64-bit JVM with compressed references
+    private static final int ESTIMATED_ENTRY_OVERHEAD_BYTES = 32 + 16 + 64;
+    private static final int WARM_UP_PAGE_SIZE = 1000;
+
+    private final UserLatestLocationRepository latestRepository;
+    private final boolean enabled;
+    private final int maxUsers;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final SpatialGridIndex grid;
+    // Users removed while the registry was complete, they may have locations
+    private final Set<Long> forgotten = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder full = new LongAdder();
+    private final LongAdder nearbyGridQueries = new LongAdder();
+    private final LongAdder nearbyScanQueries = new LongAdder();
+    private final BucketHistogram lookupMicros = new BucketHistogram(1, 5, 10, 50, 100, 500, 1000, 5000);
+    private final BucketHistogram nearbyMicros = new BucketHistogram(1, 5, 10, 50, 100, 500, 1000, 5000);
+    private volatile long warmUpMillis;
+    private volatile int warmedUsers;
+    private volatile boolean complete;
+    private volatile long completeAt;
+
+    @Autowired
+    public LatestLocationRegistry(UserLatestLocationRepository latestRepository,
+                                  @Value("${locations.latest-registry.enabled:true}") boolean enabled,
+                                  @Value("${locations.latest-registry.max-users:1000000}") int maxUsers,
+                                  @Value("${locations.latest-registry.ttl-millis:60000}") long ttlMillis,
+                                  @Value("${locations.nearby.cell-size-meters:1000}") double cellSizeMeters) {
+        this(latestRepository, enabled, maxUsers, ttlMillis, cellSizeMeters, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock source of the current time in milliseconds, mainly for tests
+     */
+    public LatestLocationRegistry(UserLatestLocationRepository latestRepository, boolean enabled, int maxUsers,
+                                  long ttlMillis, double cellSizeMeters, LongSupplier clock) {
+        this.latestRepository = latestRepository;
+        this.enabled = enabled;
+        this.maxUsers = maxUsers;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.grid = new SpatialGridIndex(cellSizeMeters);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the latest location of every user from {@code user_latest_location}, page by page.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long loadedAt = clock.getAsLong();
+        int loaded = 0;
+        Long after = 0L;
+        List<UserLatestLocation> page;
+        do {
+            page = latestRepository.findPageAfter(after, PageRequest.of(0, WARM_UP_PAGE_SIZE));
+            for (UserLatestLocation latest : page) {
+                if (entries.size() >= maxUsers) {
+                    break;
+                }
+                merge(latest.getUserId(), Entry.of(latest.getLocation(), loadedAt));
+                loaded++;
+                after = latest.getUserId();
+            }
+        } while (page.size() == WARM_UP_PAGE_SIZE && entries.size() < maxUsers);
+        complete = entries.size() < maxUsers;
+        completeAt = loadedAt;
+        warmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        warmedUsers = loaded;
+        logger.info("Latest location registry warmed with {} users in {} ms", loaded, warmUpMillis);
+    }
+
+    /**
+     * Finds the latest location of each of the given users. Users missing from the registry or with an
+     * expired entry are loaded with a single call of the loader and remembered.
+     *
+     * @param users  The users
+     * @param loader Loads the latest locations of the given users from the database
+     * @return The latest locations of the users that have any, in the order of the users; the locations
+     *         are detached copies without entity state
+     */
+    public List<UserLocation> findLatest(List<User> users, Function<List<User>, List<UserLocation>> loader) {
+        long start = System.nanoTime();
+        long now = clock.getAsLong();
+        Map<Long, UserLocation> found = new HashMap<>();
+        List<User> missing = new ArrayList<>();
+        for (User user : users) {
+            Entry entry = entries.get(user.getId());
+            if (entry == null || isExpired(entry, now)) {
+                missing.add(user);
+            } else if (!entry.isNone()) {
+                found.put(user.getId(), entry.toLocation(user));
+            }
+        }
+        hits.add(users.size() - missing.size());
+        lookupMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+
+        if (!missing.isEmpty()) {
+            found.putAll(load(missing, loader));
+        }
+
+        List<UserLocation> latest = new ArrayList<>(found.size());
+        for (User user : users) {
+            UserLocation location = found.get(user.getId());
+            if (location != null) {
+                latest.add(location);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Finds the latest locations of the given users that lie within a radius of a point. Candidates come
+     * from the grid cells around the point, unless these hold more users than were given; then the given
+     * users are checked.
+     * <p>
+     * Users missing from the registry or with an expired entry are loaded first, as in {@link #findLatest}.
+     * Within the expiry time of a warm-up that loaded every user, a user the registry does not know has no
+     * locations, so the users are not looked up one by one; only users forgotten since
+     * ({@link #onUserChanged}) are loaded again.
+     *
+     * @param users        The users
+     * @param radiusMeters The radius in meters
+     * @param loader       Loads the latest locations of the given users from the database
+     * @return The latest locations within the radius, in no particular order
+     */
+    public List<UserLocation> findNearby(List<User> users, double latitude, double longitude, double radiusMeters,
+                                         Function<List<User>, List<UserLocation>> loader) {
+        long start = System.nanoTime();
+        long now = clock.getAsLong();
+        Map<Long, User> candidates = new HashMap<>();
+        List<User> missing = new ArrayList<>();
+        boolean knowsAll = complete && now - completeAt < ttlMillis;
+        for (User user : users) {
+            Entry entry = entries.get(user.getId());
+            // A complete registry knows every user with locations, so only forgotten users are looked up
+            if (entry != null ? !isExpired(entry, now) : knowsAll && !forgotten.contains(user.getId())) {
+                candidates.put(user.getId(), user);
+            } else {
+                missing.add(user);
+            }
+        }
+        hits.add(users.size() - missing.size());
+
+        List<UserLocation> nearby = new ArrayList<>();
+        if (!missing.isEmpty()) {
+            // Checked directly, users beyond max-users are not added to the grid
+            for (UserLocation location : load(missing, loader).values()) {
+                if (GeoUtils.distanceMeters(latitude, longitude, location.getLatitude(), location.getLongitude()) <= radiusMeters) {
+                    nearby.add(location);
+                }
+            }
+        }
+
+        boolean indexed = grid.forEachWithin(latitude, longitude, radiusMeters, candidates.size(), id -> {
+            // Removed once visited, a user moving between cells may be visited twice
+            User user = candidates.remove(id);
+            if (user != null) {
+                addIfWithin(nearby, user, latitude, longitude, radiusMeters);
+            }
+        });
+        if (indexed) {
+            nearbyGridQueries.increment();
+        } else {
+            nearbyScanQueries.increment();
+            for (User user : candidates.values()) {
+                addIfWithin(nearby, user, latitude, longitude, radiusMeters);
+            }
+        }
+        nearbyMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return nearby;
+    }
+
+    /**
+     * Records a committed location. Older locations than the known one are ignored.
+     *
+     * @param location The location, with id and user
+     */
+    public void record(UserLocation location) {
+        if (enabled && location.getId() != null && location.getUser() != null) {
+            put(location.getUser().getId(), Entry.of(location, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * Records that the latest location of a user was confirmed at the given time.
+     *
+     * @param userId      The id of the user
+     * @param locationId  The id of the confirmed location
+     * @param confirmedAt The confirmation time
+     */
+    public void confirm(Long userId, Long locationId, LocalDateTime confirmedAt) {
+        if (enabled && userId != null && locationId != null) {
+            entries.computeIfPresent(userId, (id, entry) ->
+                    entry.locationId == locationId ? entry.withLastConfirmedAt(confirmedAt) : entry);
+        }
+    }
+
+    /**
+     * Records the result of the address enrichment of a location.
+     *
+     * @param userId           The id of the user
+     * @param locationId       The id of the location
+     * @param formattedAddress The resolved address
+     * @param addressStatus    The new address status
+     */
+    public void updateAddress(Long userId, Long locationId, String formattedAddress, AddressStatus addressStatus) {
+        if (enabled && userId != null && locationId != null) {
+            entries.computeIfPresent(userId, (id, entry) ->
+                    entry.locationId == locationId ? entry.withAddress(formattedAddress, addressStatus) : entry);
+        }
+    }
+
+    /**
+     * Forgets a user, e.g. after the account was deleted. The next lookup loads the user again.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.userId() != null) {
+            entries.computeIfPresent(event.userId(), (id, entry) -> {
+                if (complete) {
+                    forgotten.add(id);
+                }
+                unindex(id, entry);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void clear() {
+        complete = false;
+        entries.clear();
+        grid.clear();
+        forgotten.clear();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "latestLocationRegistry";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long bytes = 0;
+        int users = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.estimatedBytes();
+            users++;
+        }
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("users", users);
+        stats.put("estimatedBytes", bytes);
+        stats.put("estimatedBytesPerUser", users == 0 ? 0 : bytes / users);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("expired", expired.sum());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("rejectedFull", full.sum());
+        stats.put("warmUpMillis", warmUpMillis);
+        stats.put("warmedUsers", warmedUsers);
+        stats.put("complete", complete);
+        stats.put("lookupMicros", lookupMicros.snapshot());
+        stats.put("gridCells", grid.cellCount());
+        stats.put("nearbyGridQueries", nearbyGridQueries.sum());
+        stats.put("nearbyScanQueries", nearbyScanQueries.sum());
+        stats.put("nearbyMicros", nearbyMicros.snapshot());
+        return stats;
+    }
+
+    private void put(Long userId, Entry entry) {
+        if (entries.size() >= maxUsers && !entries.containsKey(userId)) {
+            // Users beyond the limit are served from the database
+            complete = false;
+            full.increment();
+            return;
+        }
+        merge(userId, entry);
+    }
+
+    /**
+     * Loads users missing from the registry and remembers them, including those without locations.
+     */
+    private Map<Long, UserLocation> load(List<User> missing, Function<List<User>, List<UserLocation>> loader) {
+        misses.add(missing.size());
+        long loadedAt = clock.getAsLong();
+        Map<Long, UserLocation> loaded = new HashMap<>();
+        for (UserLocation location : loader.apply(missing)) {
+            loaded.put(location.getUser().getId(), location);
+        }
+        for (User user : missing) {
+            put(user.getId(), Entry.of(loaded.get(user.getId()), loadedAt));
+        }
+        return loaded;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        if (now - entry.loadedAt < ttlMillis) {
+            return false;
+        }
+        expired.increment();
+        return true;
+    }
+
+    private void merge(Long userId, Entry entry) {
+        entries.compute(userId, (id, current) -> {
+            Entry next = current == null ? entry : Entry.newer(current, entry);
+            if (next != current) {
+                reindex(id, current, next);
+            } else if (entry.loadedAt > current.loadedAt) {
+                // Still the newest location, confirmed by the database
+                next = current.withLoadedAt(entry.loadedAt);
+            }
+            forgotten.remove(id);
+            return next;
+        });
+    }
+
+    private void reindex(Long userId, Entry current, Entry next) {
+        if (current == null || current.isNone()) {
+            if (!next.isNone()) {
+                grid.add(userId, next.latitude, next.longitude);
+            }
+        } else {
+            grid.move(userId, current.latitude, current.longitude, next.latitude, next.longitude);
+        }
+    }
+
+    private void unindex(Long userId, Entry entry) {
+        if (entry != null && !entry.isNone()) {
+            grid.remove(userId, entry.latitude, entry.longitude);
+        }
+    }
+
+    private void addIfWithin(List<UserLocation> nearby, User user, double latitude, double longitude, double radiusMeters) {
+        Entry entry = entries.get(user.getId());
+        if (entry != null && !entry.isNone()
+                && GeoUtils.distanceMeters(latitude, longitude, entry.latitude, entry.longitude) <= radiusMeters) {
+            nearby.add(entry.toLocation(user));
+        }
+    }
+
+    /**
+     * Compact snapshot of a location. Timestamps are stored as nanoseconds since the epoch (UTC, the
+     * zone does not matter as long as it is the same in both directions), {@link Long#MIN_VALUE} for none.
+     * Times outside the range of such a long (years 1677 to 2262) are clamped to its ends.
+     * {@code loadedAt} is the time in milliseconds the entry was read or written.
+     */
+    private static final class Entry {
+
+        private static final AddressStatus[] STATUSES = AddressStatus.values();
+        private static final long MAX_EPOCH_SECOND = Long.MAX_VALUE / 1_000_000_000L;
+        private static final long MIN_EPOCH_SECOND = Long.MIN_VALUE / 1_000_000_000L;
+
+        final long locationId;
+        final double latitude;
+        final double longitude;
+        final long createdAt;
+        final long lastConfirmedAt;
+        final byte addressStatus;
+        final String formattedAddress;
+        final String locationName;
+        final long loadedAt;
+
+        private Entry(long locationId, double latitude, double longitude, long createdAt, long lastConfirmedAt,
+                      byte addressStatus, String formattedAddress, String locationName, long loadedAt) {
+            this.locationId = locationId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.createdAt = createdAt;
+            this.lastConfirmedAt = lastConfirmedAt;
+            this.addressStatus = addressStatus;
+            this.formattedAddress = formattedAddress;
+            this.locationName = locationName;
+            this.loadedAt = loadedAt;
+        }
+
+        static Entry of(UserLocation location, long loadedAt) {
+            if (location == null) {
+                // A user known to have no locations
+                return new Entry(Long.MIN_VALUE, 0, 0, Long.MIN_VALUE, Long.MIN_VALUE, (byte) -1, null, null, loadedAt);
+            }
+            return new Entry(location.getId(), location.getLatitude(), location.getLongitude(),
+                    toNanos(location.getCreatedAt()), toNanos(location.getLastConfirmedAt()),
+                    location.getAddressStatus() == null ? -1 : (byte) location.getAddressStatus().ordinal(),
+                    location.getFormattedAddress(), location.getLocationName(), loadedAt);
+        }
+
+        /**
+         * Keeps the newer of two entries, ties are decided by the location id.
+         */
+        static Entry newer(Entry current, Entry candidate) {
+            if (candidate.isNone()) {
+                return current;
+            }
+            if (current.isNone() || candidate.createdAt > current.createdAt
+                    || (candidate.createdAt == current.createdAt && candidate.locationId >= current.locationId)) {
+                return candidate;
+            }
+            return current;
+        }
+
+        boolean isNone() {
+            return locationId == Long.MIN_VALUE;
+        }
+
+        Entry withLastConfirmedAt(LocalDateTime confirmedAt) {
+            return new Entry(locationId, latitude, longitude, createdAt, toNanos(confirmedAt),
+                    addressStatus, formattedAddress, locationName, loadedAt);
+        }
+
+        Entry withAddress(String address, AddressStatus status) {
+            return new Entry(locationId, latitude, longitude, createdAt, lastConfirmedAt,
+                    (byte) status.ordinal(), address, locationName, loadedAt);
+        }
+
+        Entry withLoadedAt(long time) {
+            return new Entry(locationId, latitude, longitude, createdAt, lastConfirmedAt,
+                    addressStatus, formattedAddress, locationName, time);
+        }
+
+        UserLocation toLocation(User user) {
+            UserLocation location = new UserLocation(user, latitude, longitude, formattedAddress);
+            location.setId(locationId);
+            location.setCreatedAt(toDateTime(createdAt));
+            location.setLastConfirmedAt(toDateTime(lastConfirmedAt));
+            location.setLocationName(locationName);
+            location.setAddressStatus(addressStatus < 0 ? null : STATUSES[addressStatus]);
+            return location;
+        }
+
+        long estimatedBytes() {
+            return ESTIMATED_ENTRY_OVERHEAD_BYTES + stringBytes(formattedAddress) + stringBytes(locationName);
+        }
+
+        private static long stringBytes(String value) {
+            // String object and its byte array, Latin-1 content assumed
+            return value == null ? 0 : 40 + value.length();
+        }
+
+        private static long toNanos(LocalDateTime time) {
+            if (time == null) {
+                return Long.MIN_VALUE;
+            }
+            long seconds = time.toEpochSecond(ZoneOffset.UTC);
+            if (seconds >= MAX_EPOCH_SECOND) {
+                return Long.MAX_VALUE;
+            }
+            if (seconds < MIN_EPOCH_SECOND) {
+                return Long.MIN_VALUE + 1;
+            }
+            return seconds * 1_000_000_000L + time.getNano();
+        }
+
+        private static LocalDateTime toDateTime(long nanos) {
+            if (nanos == Long.MIN_VALUE) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                    (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package de.whs.wi.friends_and_places.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A location reduced to the columns stay-point detection reads, see {@link UserLocationRepository#findPointsAfter}.
+ *
+ * @param id              the id of the location
+ * @param latitude        the latitude
+ * @param longitude       the longitude
+ * @param createdAt       when the location was recorded
+ * @param lastConfirmedAt when the user was last reported there again, null if never
+ */
+public record LocationPoint(Long id, double latitude, double longitude, LocalDateTime createdAt,
+                            LocalDateTime lastConfirmedAt) {
+}
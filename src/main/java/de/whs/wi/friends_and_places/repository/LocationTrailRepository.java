@@ -0,0 +1,72 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.LocationTrail;
+import de.whs.wi.friends_and_places.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for accessing LocationTrail entities
+ */
+@Repository
+public interface LocationTrailRepository extends JpaRepository<LocationTrail, Long> {
+
+    /**
+     * Find all compacted days of a user, newest first
+     *
+     * @param user The user whose trails to find
+     * @return The trails sorted by day descending
+     */
+    List<LocationTrail> findByUserOrderByBucketDateDesc(User user);
+
+    /**
+     * Find the compacted days of a user in a date range, newest first
+     *
+     * @param user The user whose trails to find
+     * @param from First day, inclusive
+     * @param to Last day, inclusive
+     * @param pageable Limits the number of returned days
+     * @return The trails sorted by day descending
+     */
+    List<LocationTrail> findByUserAndBucketDateBetweenOrderByBucketDateDesc(User user, LocalDate from, LocalDate to,
+                                                                            Pageable pageable);
+
+    /**
+     * Find the compacted days of a user whose points may lie inside a bounding box and time range, newest
+     * first. Days without a stored bounding box are always returned.
+     *
+     * @param user The user whose trails to find
+     * @param from Only days with points at or after this time
+     * @param to Only days with points before this time
+     * @param pageable Limits the number of returned days
+     * @return The trails sorted by day descending
+     */
+    @Query("SELECT t FROM LocationTrail t WHERE t.user = :user " +
+           "AND t.bucketDate BETWEEN :fromDate AND :toDate AND t.lastRecordedAt >= :from AND t.firstRecordedAt < :to " +
+           "AND (t.minLatitude IS NULL OR (t.minLatitude <= :maxLatitude AND t.maxLatitude >= :minLatitude " +
+           "AND t.minLongitude <= :maxLongitude AND t.maxLongitude >= :minLongitude)) " +
+           "ORDER BY t.bucketDate DESC")
+    List<LocationTrail> findOverlapping(@Param("user") User user,
+                                        @Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate,
+                                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                        @Param("minLatitude") double minLatitude, @Param("minLongitude") double minLongitude,
+                                        @Param("maxLatitude") double maxLatitude, @Param("maxLongitude") double maxLongitude,
+                                        Pageable pageable);
+
+    /**
+     * Find the compacted day of a user
+     *
+     * @param userId The id of the user
+     * @param bucketDate The day
+     * @return The trail if the day has been compacted before
+     */
+    Optional<LocationTrail> findByUserIdAndBucketDate(Long userId, LocalDate bucketDate);
+}
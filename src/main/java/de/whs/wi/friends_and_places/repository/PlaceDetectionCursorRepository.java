@@ -0,0 +1,50 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.PlaceDetectionCursor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for accessing PlaceDetectionCursor entities
+ */
+@Repository
+public interface PlaceDetectionCursorRepository extends JpaRepository<PlaceDetectionCursor, Long> {
+
+    /**
+     * Find users with locations newer than the stay-point detection has read, using the latest-location
+     * projection instead of the location history.
+     *
+     * @param pageable Limits the number of returned ids
+     * @return The ids of the users, ascending
+     */
+    @Query("SELECT p.userId FROM UserLatestLocation p LEFT JOIN PlaceDetectionCursor c ON c.userId = p.userId " +
+           "WHERE p.createdAt IS NOT NULL AND (c.userId IS NULL OR p.createdAt > c.seenUntil) ORDER BY p.userId")
+    List<Long> findUserIdsWithNewLocations(Pageable pageable);
+
+
+    /**
+     * Move the cursor of a user, unless it is no longer at the expected position.
+     *
+     * @param userId The id of the user
+     * @param expectedCreatedAt The creation time of the position the caller read from
+     * @param expectedId The location id of the position the caller read from
+     * @param afterCreatedAt The creation time of the new position
+     * @param afterId The location id of the new position
+     * @param seenUntil The creation time of the newest location read
+     * @return 1 if the cursor was moved, 0 if it does not exist or was moved by someone else
+     */
+    @Modifying
+    @Query("UPDATE PlaceDetectionCursor c SET c.afterCreatedAt = :afterCreatedAt, c.afterId = :afterId, " +
+           "c.seenUntil = :seenUntil WHERE c.userId = :userId " +
+           "AND c.afterCreatedAt = :expectedCreatedAt AND c.afterId = :expectedId")
+    int advance(@Param("userId") Long userId, @Param("expectedCreatedAt") LocalDateTime expectedCreatedAt,
+                @Param("expectedId") long expectedId, @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                @Param("afterId") long afterId, @Param("seenUntil") LocalDateTime seenUntil);
+}
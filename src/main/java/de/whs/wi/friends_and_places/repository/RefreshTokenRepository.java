@@ -0,0 +1,71 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.RefreshToken;
+import de.whs.wi.friends_and_places.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository for accessing RefreshToken entities
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Find a refresh token by the hash of its value, together with its user.
+     *
+     * @param tokenHash the SHA-256 hash of the token
+     * @return the refresh token if it exists
+     */
+    @Query("SELECT t FROM RefreshToken t JOIN FETCH t.user WHERE t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Mark a token as used, unless it was used or revoked already.
+     * Concurrent refreshes with the same token can therefore only succeed once.
+     *
+     * @param id the id of the token
+     * @param usedAt the time of use
+     * @return 1 if the token was consumed, 0 if it was not usable anymore
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.usedAt = :usedAt WHERE t.id = :id AND t.usedAt IS NULL AND t.revoked = false")
+    int markUsed(@Param("id") Long id, @Param("usedAt") LocalDateTime usedAt);
+
+    /**
+     * Revoke all tokens of a token family.
+     *
+     * @param familyId the family id
+     * @return the number of revoked tokens
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.familyId = :familyId AND t.revoked = false")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    /**
+     * Revoke all tokens of a user.
+     *
+     * @param user the user
+     * @return the number of revoked tokens
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.user = :user AND t.revoked = false")
+    int revokeAllForUser(@Param("user") User user);
+
+    /**
+     * Delete tokens that can no longer be exchanged: expired ones, whether used or not, and revoked ones.
+     * Used tokens are kept until they expire, presenting one again must still revoke its family.
+     *
+     * @param now the current time
+     * @return the number of deleted tokens
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt <= :now OR t.revoked = true")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,88 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.util.MortonCode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sets the spatial key of locations written before {@link UserLocation} had one. New rows get it on
+ * insert; rows without a key are not found by area queries until this has run. Works in batches of
+ * {@code locations.area.backfill-batch-size} rows in id order, each batch continuing after the last id of
+ * the previous one, and does nothing once every row has a key.
+ * <p>
+ * Runs on a background thread after startup, so the application serves requests meanwhile.
+ */
+@Component
+public class SpatialKeyBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpatialKeyBackfill.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    public SpatialKeyBackfill(JdbcTemplate jdbcTemplate,
+                              @Value("${locations.area.backfill-batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spatial-key-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.submit(this::backfill);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Fills in missing keys, batch by batch.
+     *
+     * @return the number of updated rows
+     */
+    public int backfill() {
+        int updated = 0;
+        try {
+            long lastId = Long.MIN_VALUE;
+            List<Object[]> rows;
+            do {
+                // Keyset paging, every batch starts where the previous one ended instead of rescanning
+                rows = jdbcTemplate.query(
+                        "SELECT id, latitude, longitude FROM user_locations WHERE id > ? AND spatial_key IS NULL " +
+                        "ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> new Object[]{
+                                MortonCode.encode(rs.getDouble("latitude"), rs.getDouble("longitude")), rs.getLong("id")},
+                        lastId, batchSize);
+                jdbcTemplate.batchUpdate("UPDATE user_locations SET spatial_key = ? WHERE id = ?", rows);
+                updated += rows.size();
+                if (!rows.isEmpty()) {
+                    lastId = (long) rows.get(rows.size() - 1)[1];
+                }
+            } while (rows.size() == batchSize && !Thread.currentThread().isInterrupted());
+            if (updated > 0) {
+                logger.info("Set the spatial key of {} locations", updated);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not backfill spatial keys after {} locations: {}", updated, e.getMessage());
+        }
+        return updated;
+    }
+}
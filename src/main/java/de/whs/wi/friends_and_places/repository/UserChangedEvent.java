@@ -0,0 +1,13 @@
+package de.whs.wi.friends_and_places.repository;
+
+/**
+ * Published whenever a user is created, updated or deleted.
+ * Listeners use it to drop cached data of the user; a message broker bridge can
+ * republish it on other instances to invalidate their caches as well.
+ *
+ * @param userId   the id of the user, may be null for users that were never saved
+ * @param email    the email address of the user
+ * @param username the username of the user
+ */
+public record UserChangedEvent(Long userId, String email, String username) {
+}
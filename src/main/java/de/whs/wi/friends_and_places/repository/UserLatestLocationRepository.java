@@ -0,0 +1,66 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.UserLatestLocation;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for accessing UserLatestLocation entities
+ */
+@Repository
+public interface UserLatestLocationRepository extends JpaRepository<UserLatestLocation, Long> {
+
+    /**
+     * Find the latest location entries of the given users, together with the locations and their users.
+     *
+     * @param userIds The ids of the users
+     * @return The entries that exist, in no particular order
+     */
+    @Query("SELECT p FROM UserLatestLocation p LEFT JOIN FETCH p.location l LEFT JOIN FETCH l.user " +
+           "WHERE p.userId IN :userIds")
+    List<UserLatestLocation> findByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Find a page of latest location entries with their locations, ordered by user id.
+     *
+     * @param afterUserId Only entries of users with a greater id
+     * @param pageable Limits the number of returned entries
+     * @return The entries
+     */
+    @Query("SELECT p FROM UserLatestLocation p LEFT JOIN FETCH p.location WHERE p.userId > :afterUserId ORDER BY p.userId")
+    List<UserLatestLocation> findPageAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+
+    /**
+     * Find the id of the latest location of a user.
+     *
+     * @param userId The id of the user
+     * @return The location id, or empty if the user has no entry or no locations
+     */
+    @Query("SELECT p.location.id FROM UserLatestLocation p WHERE p.userId = :userId")
+    Optional<Long> findLocationId(@Param("userId") Long userId);
+
+    /**
+     * Point the entry of a user to a location, unless it already points to a newer one.
+     *
+     * @param userId The id of the user
+     * @param location The new location
+     * @param createdAt The creation time of the new location
+     * @return 1 if the entry was updated, 0 if it does not exist or is newer
+     */
+    // The new location must be inserted first; Hibernate only auto-flushes tables the update touches
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE UserLatestLocation p SET p.location = :location, p.createdAt = :createdAt " +
+           "WHERE p.userId = :userId AND (p.createdAt IS NULL OR p.createdAt <= :createdAt)")
+    int advance(@Param("userId") Long userId, @Param("location") UserLocation location,
+                @Param("createdAt") LocalDateTime createdAt);
+}
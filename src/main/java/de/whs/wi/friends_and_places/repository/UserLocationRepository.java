@@ -1,12 +1,18 @@
 package de.whs.wi.friends_and_places.repository;
 
+import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.model.AddressStatus;
 import de.whs.wi.friends_and_places.model.User;
 import de.whs.wi.friends_and_places.model.UserLocation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +22,14 @@ import java.util.Optional;
 @Repository
 public interface UserLocationRepository extends JpaRepository<UserLocation, Long> {
 
+    /**
+     * Constructor expression selecting a {@link LocationResponseDTO} from {@code ul} joined with its user {@code u}.
+     */
+    String RESPONSE_DTO = "new de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO(" +
+            "ul.id, ul.latitude, ul.longitude, ul.formattedAddress, ul.createdAt, ul.lastConfirmedAt, " +
+            "ul.locationName, ul.addressStatus, u.id, u.username, u.email)";
+
+
     /**
      * Find all locations for a specific user, ordered by creation date (newest first)
      *
@@ -33,12 +47,201 @@ public interface UserLocationRepository extends JpaRepository<UserLocation, Long
     Optional<UserLocation> findFirstByUserOrderByCreatedAtDesc(User user);
 
     /**
-     * Find the most recent location for each user in a list of users
+     * Find all locations of a user as response DTOs, newest first. The user columns are joined into the
+     * same query, so no user entity is loaded.
+     *
+     * @param userId The id of the user
+     * @return The locations sorted by creation date descending
+     */
+    @Query("SELECT " + RESPONSE_DTO + " FROM UserLocation ul JOIN ul.user u WHERE u.id = :userId " +
+           "ORDER BY ul.createdAt DESC, ul.id DESC")
+    List<LocationResponseDTO> findResponsesByUserId(@Param("userId") Long userId);
+
+    /**
+     * Find one page of a user's history in keyset order as response DTOs. The page starts after the cursor
+     * position {@code (beforeCreatedAt, beforeId)}, so its cost does not depend on how many pages precede it.
+     *
+     * @param userId The id of the user
+     * @param from Only locations created at or after this time
+     * @param beforeCreatedAt Creation time of the cursor position
+     * @param beforeId Id of the cursor position, {@link Long#MIN_VALUE} to include nothing at {@code beforeCreatedAt}
+     * @param pageable Limits the number of returned locations
+     * @return The locations sorted by creation date and id, descending
+     */
+    @Query("SELECT " + RESPONSE_DTO + " FROM UserLocation ul JOIN ul.user u WHERE u.id = :userId AND ul.createdAt >= :from " +
+           "AND (ul.createdAt < :beforeCreatedAt OR (ul.createdAt = :beforeCreatedAt AND ul.id < :beforeId)) " +
+           "ORDER BY ul.createdAt DESC, ul.id DESC")
+    List<LocationResponseDTO> findResponsePage(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+                                               @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                               @Param("beforeId") long beforeId, Pageable pageable);
+
+    /**
+     * Find a user's locations inside a bounding box and time range as response DTOs, restricted to one range
+     * of spatial keys so that the lookup is a range scan of {@code idx_user_locations_user_spatial_key}.
+     * A box is covered by several such ranges, see {@link de.whs.wi.friends_and_places.util.MortonCode#ranges}.
+     *
+     * @param userId The id of the user
+     * @param fromKey Start of the spatial key range, inclusive
+     * @param toKey End of the spatial key range, inclusive
+     * @param from Only locations created at or after this time
+     * @param before Only locations created before this time
+     * @param pageable Limits the number of returned locations
+     * @return The locations sorted by creation date and id, descending
+     */
+    @Query("SELECT " + RESPONSE_DTO + " FROM UserLocation ul JOIN ul.user u WHERE u.id = :userId " +
+           "AND ul.spatialKey BETWEEN :fromKey AND :toKey " +
+           "AND ul.latitude BETWEEN :minLatitude AND :maxLatitude AND ul.longitude BETWEEN :minLongitude AND :maxLongitude " +
+           "AND ul.createdAt >= :from AND ul.createdAt < :before ORDER BY ul.createdAt DESC, ul.id DESC")
+    List<LocationResponseDTO> findResponsesInArea(@Param("userId") Long userId,
+                                                  @Param("fromKey") long fromKey, @Param("toKey") long toKey,
+                                                  @Param("minLatitude") double minLatitude,
+                                                  @Param("minLongitude") double minLongitude,
+                                                  @Param("maxLatitude") double maxLatitude,
+                                                  @Param("maxLongitude") double maxLongitude,
+                                                  @Param("from") LocalDateTime from, @Param("before") LocalDateTime before,
+                                                  Pageable pageable);
+
+    /**
+     * Find the locations of a user after a keyset position, oldest first, reduced to what stay-point
+     * detection needs. Served by {@code idx_user_locations_user_created_id} read backwards.
+     *
+     * @param userId The id of the user
+     * @param afterCreatedAt Creation time of the position
+     * @param afterId Id of the position, {@link Long#MIN_VALUE} to include everything at {@code afterCreatedAt}
+     * @param pageable Limits the number of returned locations
+     * @return The locations sorted by creation date and id, ascending
+     */
+    @Query("SELECT new de.whs.wi.friends_and_places.repository.LocationPoint(ul.id, ul.latitude, ul.longitude, " +
+           "ul.createdAt, ul.lastConfirmedAt) FROM UserLocation ul WHERE ul.user.id = :userId " +
+           "AND (ul.createdAt > :afterCreatedAt OR (ul.createdAt = :afterCreatedAt AND ul.id > :afterId)) " +
+           "ORDER BY ul.createdAt, ul.id")
+    List<LocationPoint> findPointsAfter(@Param("userId") Long userId,
+                                        @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                        @Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Find the ids of locations whose address is still pending and that were created before the given time.
+     * Used to pick up enrichments that were dropped (full queue, restart).
+     *
+     * @param status The address status, normally PENDING
+     * @param createdBefore Only locations created before this time
+     * @param pageable Limits the number of returned ids
+     * @return The ids of the matching locations, oldest first
+     */
+    @Query("SELECT ul.id FROM UserLocation ul WHERE ul.addressStatus = :status AND ul.createdAt < :createdBefore ORDER BY ul.createdAt")
+    List<Long> findIdsByAddressStatusCreatedBefore(@Param("status") AddressStatus status,
+                                                   @Param("createdBefore") LocalDateTime createdBefore,
+                                                   Pageable pageable);
+
+    /**
+     * Set the result of an address enrichment, but only while the address is still pending.
+     *
+     * @param id The id of the location
+     * @param formattedAddress The resolved address, or a placeholder
+     * @param status The new address status
+     * @param attempts The number of attempts made so far
+     * @return 1 if the location was updated, 0 if it was not pending anymore
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserLocation ul SET ul.formattedAddress = :formattedAddress, ul.addressStatus = :status, " +
+           "ul.enrichmentAttempts = :attempts WHERE ul.id = :id AND ul.addressStatus = de.whs.wi.friends_and_places.model.AddressStatus.PENDING")
+    int completeEnrichment(@Param("id") Long id, @Param("formattedAddress") String formattedAddress,
+                           @Param("status") AddressStatus status, @Param("attempts") int attempts);
+
+    /**
+     * Record a failed enrichment attempt of a pending location.
+     *
+     * @param id The id of the location
+     * @param attempts The number of attempts made so far
+     * @return 1 if the location was updated
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserLocation ul SET ul.enrichmentAttempts = :attempts WHERE ul.id = :id")
+    int recordEnrichmentAttempt(@Param("id") Long id, @Param("attempts") int attempts);
+
+    /**
+     * Mark a stored location as confirmed again, used instead of inserting a point the user has not moved away from.
+     *
+     * @param id The id of the location
+     * @param confirmedAt When the user was reported at the location again
+     * @return 1 if the location still exists
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserLocation ul SET ul.lastConfirmedAt = :confirmedAt WHERE ul.id = :id")
+    int confirmLocation(@Param("id") Long id, @Param("confirmedAt") LocalDateTime confirmedAt);
+
+    /**
+     * Find users that have locations created before the given time which are not pending enrichment and
+     * not referenced by {@code user_latest_location}, ordered by user id.
+     *
+     * @param afterUserId Only users with a greater id, for paging through all users
+     * @param before Only locations created before this time
+     * @param pending The status of locations to ignore, normally PENDING
+     * @param pageable Limits the number of returned ids
+     * @return The ids of the users
+     */
+    @Query("SELECT DISTINCT ul.user.id FROM UserLocation ul WHERE ul.user.id > :afterUserId " +
+           "AND ul.createdAt < :before AND (ul.addressStatus IS NULL OR ul.addressStatus <> :pending) " +
+           "AND NOT EXISTS (SELECT 1 FROM UserLatestLocation l WHERE l.location = ul) " +
+           "ORDER BY ul.user.id")
+    List<Long> findUserIdsWithLocationsBefore(@Param("afterUserId") long afterUserId,
+                                              @Param("before") LocalDateTime before,
+                                              @Param("pending") AddressStatus pending,
+                                              Pageable pageable);
+
+    /**
+     * Find the creation time of the earliest location of a user in a time range that is not pending enrichment
+     * and not referenced by {@code user_latest_location}.
+     *
+     * @param userId The id of the user
+     * @param from Start of the range, inclusive
+     * @param before End of the range, exclusive
+     * @param pending The status of locations to ignore, normally PENDING
+     * @return The earliest creation time, or null if there is no such location
+     */
+    @Query("SELECT MIN(ul.createdAt) FROM UserLocation ul WHERE ul.user.id = :userId " +
+           "AND ul.createdAt >= :from AND ul.createdAt < :before " +
+           "AND (ul.addressStatus IS NULL OR ul.addressStatus <> :pending) " +
+           "AND NOT EXISTS (SELECT 1 FROM UserLatestLocation l WHERE l.location = ul)")
+    LocalDateTime findEarliestCreatedAt(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+                                        @Param("before") LocalDateTime before, @Param("pending") AddressStatus pending);
+
+    /**
+     * Find the locations of a user in a time range that are not pending enrichment, oldest first.
+     *
+     * @param userId The id of the user
+     * @param from Start of the range, inclusive
+     * @param before End of the range, exclusive
+     * @param pending The status of locations to ignore, normally PENDING
+     * @return The locations sorted by creation date ascending
+     */
+    @Query("SELECT ul FROM UserLocation ul WHERE ul.user.id = :userId " +
+           "AND ul.createdAt >= :from AND ul.createdAt < :before " +
+           "AND (ul.addressStatus IS NULL OR ul.addressStatus <> :pending) ORDER BY ul.createdAt")
+    List<UserLocation> findInRange(@Param("userId") Long userId, @Param("from") LocalDateTime from,
+                                   @Param("before") LocalDateTime before, @Param("pending") AddressStatus pending);
+
+    /**
+     * Find the ids of the most recent locations of a user.
+     *
+     * @param userId The id of the user
+     * @param pageable Limits the number of returned ids
+     * @return The ids sorted by creation date descending
+     */
+    @Query("SELECT ul.id FROM UserLocation ul WHERE ul.user.id = :userId ORDER BY ul.createdAt DESC")
+    List<Long> findLatestIds(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Delete all locations of a user with a single statement.
      *
-     * @param users The list of users whose latest locations to find
-     * @return List of the most recent location for each user
+     * @param user The user whose locations to delete
+     * @return The number of deleted locations
      */
-    @Query("SELECT ul FROM UserLocation ul WHERE ul.createdAt IN " +
-           "(SELECT MAX(ul2.createdAt) FROM UserLocation ul2 WHERE ul2.user IN :users GROUP BY ul2.user)")
-    List<UserLocation> findLatestLocationsByUsers(@Param("users") List<User> users);
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UserLocation ul WHERE ul.user = :user")
+    int deleteByUser(@Param("user") User user);
 }
@@ -0,0 +1,58 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.UserLocation;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves {@code user_locations_seq} past the ids that were assigned while {@link UserLocation}
+ * still used an identity column. Schema updates create the sequence starting at 1, which would
+ * otherwise collide with existing rows. Does nothing once the sequence is ahead.
+ * <p>
+ * Runs once all singletons are created, i.e. after the schema update and before the web server and the
+ * schedulers start, so no id range has been handed out by Hibernate yet.
+ */
+@Component
+public class UserLocationSequenceInitializer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserLocationSequenceInitializer.class);
+    private static final String SEQUENCE = "user_locations_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Dialect dialect;
+
+    public UserLocationSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        alignSequence();
+    }
+
+    public void alignSequence() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_locations", Long.class);
+            if (maxId == null) {
+                return;
+            }
+            // With the pooled optimizer a sequence value v reserves the ids up to v, so v >= maxId is safe
+            Long next = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(SEQUENCE), Long.class);
+            if (next != null && next < maxId) {
+                long restartWith = maxId + UserLocation.ID_ALLOCATION_SIZE;
+                jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE + " RESTART WITH " + restartWith);
+                logger.info("Moved {} to {} past existing location ids", SEQUENCE, restartWith);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not align {}: {}", SEQUENCE, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.controller.dto.UserPlaceDTO;
+import de.whs.wi.friends_and_places.model.UserPlace;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Repository for accessing UserPlace entities
+ */
+@Repository
+public interface UserPlaceRepository extends JpaRepository<UserPlace, Long> {
+
+    /**
+     * Find the places of a user.
+     *
+     * @param userId The id of the user
+     * @return The places
+     */
+    List<UserPlace> findByUserId(Long userId);
+
+    /**
+     * Find the places of a user whose name is not resolved yet.
+     *
+     * @param userId The id of the user
+     * @return The places without name
+     */
+    List<UserPlace> findByUserIdAndNameIsNull(Long userId);
+
+    /**
+     * Find the places of a user as response DTOs, the places the user spent the most time at first.
+     *
+     * @param userId The id of the user
+     * @param pageable Limits the number of returned places
+     * @return The places sorted by total dwell time descending
+     */
+    @Query("SELECT new de.whs.wi.friends_and_places.controller.dto.UserPlaceDTO(p.id, p.latitude, p.longitude, " +
+           "p.name, p.visitCount, p.totalDwellSeconds, p.firstVisitAt, p.lastVisitAt) FROM UserPlace p " +
+           "WHERE p.user.id = :userId ORDER BY p.totalDwellSeconds DESC, p.id")
+    List<UserPlaceDTO> findFrequent(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Set the reverse-geocoded name of a place.
+     *
+     * @param id The id of the place
+     * @param name The name
+     * @return 1 if the place still exists
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserPlace p SET p.name = :name WHERE p.id = :id")
+    int setName(@Param("id") Long id, @Param("name") String name);
+}
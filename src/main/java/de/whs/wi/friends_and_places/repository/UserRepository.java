@@ -2,10 +2,50 @@ package de.whs.wi.friends_and_places.repository;
 
 import de.whs.wi.friends_and_places.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    /**
+     * Find the ids of the friends of a user, without loading either side.
+     *
+     * @param userId The id of the user
+     * @return The ids of the friends
+     */
+    @Query("SELECT f.id FROM User u JOIN u.friends f WHERE u.id = :userId")
+    List<Long> findFriendIds(@Param("userId") Long userId);
+
+    /**
+     * Find the ids of all users.
+     *
+     * @return The ids, ascending
+     */
+    @Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findAllIds();
+
+    /**
+     * Find the security version of a user.
+     *
+     * @param userId The id of the user
+     * @return The version, or empty if the user does not exist
+     */
+    @Query("SELECT COALESCE(u.securityVersion, 0) FROM User u WHERE u.id = :userId")
+    Optional<Long> findSecurityVersion(@Param("userId") Long userId);
+
+    /**
+     * Increment the security version of a user, which revokes all tokens issued so far.
+     *
+     * @param userId The id of the user
+     * @return 1 if the user exists, otherwise 0
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.securityVersion = COALESCE(u.securityVersion, 0) + 1 WHERE u.id = :userId")
+    int incrementSecurityVersion(@Param("userId") Long userId);
 }
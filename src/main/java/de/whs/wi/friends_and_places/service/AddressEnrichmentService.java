@@ -0,0 +1,12 @@
+package de.whs.wi.friends_and_places.service;
+
+public interface AddressEnrichmentService {
+
+    /**
+     * Schedules reverse geocoding for a location saved with a pending address.
+     * If the worker queue is full, the location stays pending and is picked up by the next sweep.
+     *
+     * @param locationId The id of the location
+     */
+    void enqueue(Long locationId);
+}
@@ -1,20 +1,20 @@
 package de.whs.wi.friends_and_places.service;
 
+import de.whs.wi.friends_and_places.config.AuthenticatedUser;
 import de.whs.wi.friends_and_places.model.User;
-import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.model.UserIdentity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.core.userdetails.User.UserBuilder;
 import org.springframework.stereotype.Service;
 
-import static org.springframework.security.core.userdetails.User.withUsername;
-
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserService userService;
 
@@ -24,19 +24,49 @@ public class CustomUserDetailsService implements UserDetailsService {
     }
 
     /**
-     * Loads a user by their email address.
+     * Loads a user by their email address for a login. Always reads the database, so the password is
+     * verified against the current hash and never against a cached one.
      *
      * @param email the email address of the user
-     * @return UserDetails object containing user information
+     * @return UserDetails object containing user information and the user's id
      * @throws UsernameNotFoundException if no user is found with the given email
      */
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userService.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
-        UserBuilder builder = withUsername(user.getEmail());
-        builder.password(user.getPassword());
-        builder.roles("USER");
-        return builder.build();
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(),
+                AuthorityUtils.createAuthorityList("ROLE_USER"), user.getUsername(), user.getSecurityVersion());
+    }
+
+    /**
+     * Loads the principal of an authenticated request by email address. The lookup is served from the
+     * user lookup cache, so token validations do not query the database; the principal has no password.
+     *
+     * @param email the email address of the user
+     * @return the principal carrying the user's id
+     * @throws UsernameNotFoundException if no user is found with the given email
+     */
+    public UserDetails loadPrincipalByEmail(String email) throws UsernameNotFoundException {
+        UserIdentity user = userService.findIdentityByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        return new AuthenticatedUser(user.id(), user.email(), "", AuthorityUtils.createAuthorityList("ROLE_USER"));
+    }
+
+    /**
+     * Stores a rehashed password. Called by the authentication manager after a successful login
+     * when the stored hash was created with a different BCrypt cost than the configured one.
+     *
+     * @param user the authenticated user
+     * @param newPassword the new password hash
+     * @return the user details carrying the new hash
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userService.updatePasswordHash(user.getUsername(), newPassword);
+        if (user instanceof AuthenticatedUser authenticatedUser) {
+            return authenticatedUser.withPassword(newPassword);
+        }
+        return new AuthenticatedUser(null, user.getUsername(), newPassword, user.getAuthorities());
     }
 }
@@ -0,0 +1,34 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.controller.dto.UserPlaceDTO;
+import de.whs.wi.friends_and_places.model.User;
+
+import java.util.List;
+
+public interface FrequentPlaceService {
+
+    /**
+     * Get the places where a user spends the most time.
+     *
+     * @param user The user.
+     * @param limit The maximum number of places, or null for the default.
+     * @return The places, the longest total dwell time first.
+     */
+    List<UserPlaceDTO> getFrequentPlaces(User user, Integer limit);
+
+    /**
+     * Detect the stays in the locations of a user added since the last detection and assign them to places.
+     * The stay the user is still in is assigned once they leave it.
+     *
+     * @param userId The id of the user.
+     * @return The number of locations read.
+     */
+    long detect(Long userId);
+
+    /**
+     * Detect the stays of all users in parallel, for example to build the places from an existing history.
+     *
+     * @return The number of locations read.
+     */
+    long detectAll();
+}
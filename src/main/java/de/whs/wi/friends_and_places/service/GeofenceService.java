@@ -0,0 +1,59 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.controller.dto.GeofenceCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceEventDTO;
+import de.whs.wi.friends_and_places.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface GeofenceService {
+
+    /**
+     * Create a geofence for a user.
+     *
+     * @param owner The user the fence belongs to.
+     * @param geofenceDTO A circle or a polygon.
+     * @return The created fence.
+     */
+    GeofenceDTO createGeofence(User owner, GeofenceCreateDTO geofenceDTO);
+
+    /**
+     * Get the geofences of a user.
+     *
+     * @param owner The user.
+     * @return The fences, oldest first.
+     */
+    List<GeofenceDTO> getGeofences(User owner);
+
+    /**
+     * Delete a geofence of a user, together with its events.
+     *
+     * @param owner The user the fence belongs to.
+     * @param geofenceId The id of the fence.
+     */
+    void deleteGeofence(User owner, Long geofenceId);
+
+    /**
+     * Get the events of a user's geofences after the last event the user has seen.
+     *
+     * @param owner The user.
+     * @param afterId The id of the last event seen, or null for the oldest events.
+     * @param limit The maximum number of events, or null for the default.
+     * @return The events, oldest first.
+     */
+    List<GeofenceEventDTO> getEvents(User owner, Long afterId, Integer limit);
+
+    /**
+     * Evaluate a new location of a user against the geofences of the user and their friends, and record
+     * an event for every fence the user entered or left since their previous location.
+     * Never throws, location writes must not fail because of geofences.
+     *
+     * @param user The user who reported the location.
+     * @param latitude The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @param at The time of the location.
+     */
+    void evaluate(User user, double latitude, double longitude, LocalDateTime at);
+}
@@ -0,0 +1,21 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.controller.dto.LocationImportResultDTO;
+import de.whs.wi.friends_and_places.model.User;
+
+import java.io.InputStream;
+
+public interface LocationImportService {
+
+    /**
+     * Import historic locations of a user from newline-delimited JSON.
+     * Every line holds one record with {@code latitude}, {@code longitude}, {@code recordedAt} and optionally
+     * {@code locationName} and {@code formattedAddress}. The input is read incrementally and stored in batches.
+     *
+     * @param user The user the locations belong to.
+     * @param input The NDJSON input, it is not closed.
+     * @param offset The number of leading lines to skip, i.e. the checkpoint of an earlier import.
+     * @return The progress made, including the checkpoint to resume from.
+     */
+    LocationImportResultDTO importLocations(User user, InputStream input, long offset);
+}
@@ -1,8 +1,15 @@
 package de.whs.wi.friends_and_places.service;
 
+import de.whs.wi.friends_and_places.controller.dto.FriendClustersDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchResponseDTO;
 import de.whs.wi.friends_and_places.controller.dto.LocationCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationPageDTO;
 import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.controller.dto.NearbyFriendDTO;
+import de.whs.wi.friends_and_places.model.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface LocationService {
@@ -10,43 +17,102 @@ public interface LocationService {
     /**
      * Add a new location for a user.
      *
-     * @param email The username of the user.
+     * @param user The user the location belongs to.
      * @param locationDTO The location data.
      * @return The saved location.
      */
-    LocationResponseDTO addLocation(String email, LocationCreateDTO locationDTO);
+    LocationResponseDTO addLocation(User user, LocationCreateDTO locationDTO);
+
+    /**
+     * Add several locations for a user in one transaction.
+     * Addresses are resolved in the background.
+     *
+     * @param user The user the locations belong to.
+     * @param points The points in the order they were recorded.
+     * @return The number and ids of the saved locations.
+     */
+    LocationBatchResponseDTO addLocations(User user, List<LocationBatchPointDTO> points);
 
     /**
      * Get the latest location for a user.
      *
-     * @param email The username of the user.
+     * @param user The user.
      * @return The latest location.
      */
-    LocationResponseDTO getLatestLocation(String email);
+    LocationResponseDTO getLatestLocation(User user);
 
     /**
      * Get all locations for a user.
      *
-     * @param email The username of the user.
+     * @param user The user.
      * @return A list of all locations.
      */
-    List<LocationResponseDTO> getAllLocations(String email);
+    List<LocationResponseDTO> getAllLocations(User user);
+
+    /**
+     * Get one page of a user's locations, newest first.
+     *
+     * @param user The user.
+     * @param from Only locations created at or after this time, or null.
+     * @param to Only locations created before this time, or null.
+     * @param cursor The cursor returned with the previous page, or null for the first page.
+     * @param size The maximum number of locations, or null for the default; capped at the maximum page size.
+     * @return The page and the cursor of the next page.
+     */
+    LocationPageDTO getLocationHistory(User user, LocalDateTime from, LocalDateTime to, String cursor, Integer size);
+
+    /**
+     * Get a user's locations inside a bounding box, newest first.
+     *
+     * @param user The user.
+     * @param minLatitude The southern edge of the box.
+     * @param minLongitude The western edge of the box.
+     * @param maxLatitude The northern edge of the box.
+     * @param maxLongitude The eastern edge of the box; boxes crossing the antimeridian are not supported.
+     * @param from Only locations created at or after this time, or null.
+     * @param to Only locations created before this time, or null.
+     * @param limit The maximum number of locations, or null for the default; capped at the maximum limit.
+     * @return The newest locations inside the box.
+     */
+    List<LocationResponseDTO> getLocationsInArea(User user, double minLatitude, double minLongitude,
+                                                 double maxLatitude, double maxLongitude,
+                                                 LocalDateTime from, LocalDateTime to, Integer limit);
 
     /**
      * Get all locations of friends for a user.
      *
-     * @param email The username of the user.
+     * @param user The user.
      * @return A list of all friends' locations.
      */
-    List<LocationResponseDTO> getFriendsLocations(String email);
+    List<LocationResponseDTO> getFriendsLocations(User user);
+
+    /**
+     * Get the latest locations of friends within a radius of the user's latest location, nearest first.
+     *
+     * @param user The user.
+     * @param radiusMeters The radius in meters, or null for the default; must not exceed the maximum radius.
+     * @param limit The maximum number of friends, or null for the default; capped at the maximum limit.
+     * @return The nearby friends' locations with their distances.
+     */
+    List<NearbyFriendDTO> getNearbyFriends(User user, Double radiusMeters, Integer limit);
+
+    /**
+     * Get the latest locations of friends inside a bounding box, clustered for a map zoom level.
+     *
+     * @param user The user.
+     * @param bbox The box as "minLatitude,minLongitude,maxLatitude,maxLongitude".
+     * @param zoom The map zoom level; a lower level is used if the box would hold too many clusters.
+     * @return The clusters and the zoom level they were taken from.
+     */
+    FriendClustersDTO getFriendClusters(User user, String bbox, Integer zoom);
 
     /**
      * Get the latest location for a user by username, only if the requesting user and target user are friends.
      *
-     * @param requestingUserEmail The email of the user making the request.
+     * @param requestingUser The user making the request.
      * @param targetUsername The username of the user whose location is being requested.
      * @return The latest location if users are friends.
      * @throws IllegalStateException if users are not friends
      */
-    LocationResponseDTO getFriendLocationByUsername(String requestingUserEmail, String targetUsername);
+    LocationResponseDTO getFriendLocationByUsername(User requestingUser, String targetUsername);
 }
@@ -0,0 +1,44 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.controller.dto.TokenPairDTO;
+import de.whs.wi.friends_and_places.model.User;
+
+public interface RefreshTokenService {
+    /**
+     * Issues a new refresh token for the user with the given email, starting a new token family.
+     *
+     * @param email the email of the user
+     * @return the raw refresh token, only returned once and stored hashed
+     */
+    String createRefreshToken(String email);
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * The presented token is consumed; presenting it again revokes all tokens of its family.
+     *
+     * @param refreshToken the raw refresh token
+     * @return the new token pair
+     * @throws de.whs.wi.friends_and_places.error.AuthenticationException if the token is unknown, expired, revoked or reused
+     */
+    TokenPairDTO refresh(String refreshToken);
+
+    /**
+     * Revokes the given refresh token and all tokens of its family, e.g. on logout.
+     * Unknown tokens are ignored.
+     *
+     * @param refreshToken the raw refresh token
+     */
+    void revoke(String refreshToken);
+
+    /**
+     * Revokes all refresh tokens of the user, e.g. after a password change.
+     *
+     * @param user the user
+     */
+    void revokeAll(User user);
+
+    /**
+     * Deletes refresh tokens that have expired or were revoked.
+     */
+    void deleteExpired();
+}
@@ -0,0 +1,24 @@
+package de.whs.wi.friends_and_places.service;
+
+public interface TokenRevocationService {
+    /**
+     * Revokes a single access token until it expires.
+     *
+     * @param token the compact JWT
+     * @throws de.whs.wi.friends_and_places.error.AuthenticationException if the token is invalid or has no id
+     */
+    void revoke(String token);
+
+    /**
+     * Checks whether the token with the given id has been revoked.
+     *
+     * @param tokenId the {@code jti} of the token
+     * @return true if the token has been revoked
+     */
+    boolean isRevoked(String tokenId);
+
+    /**
+     * Prunes expired revocations and rebuilds the in-memory filter from the revocation store.
+     */
+    void rebuild();
+}
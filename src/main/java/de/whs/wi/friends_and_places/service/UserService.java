@@ -3,6 +3,7 @@ package de.whs.wi.friends_and_places.service;
 import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
 import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
 import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserIdentity;
 
 import java.util.List;
 import java.util.Optional;
@@ -37,6 +38,28 @@ public interface UserService {
      * @return an Optional containing the User if found, otherwise empty
      */
     Optional<User> findByEmail(String email);
+    /**
+     * Finds the identity (id, username, email) of a user by their email.
+     * Served from the user lookup cache, use {@link #findByEmail(String)} when the entity is needed.
+     *
+     * @param email the email of the user
+     * @return an Optional containing the identity if found, otherwise empty
+     */
+    Optional<UserIdentity> findIdentityByEmail(String email);
+    /**
+     * Checks whether a user with the given username exists.
+     *
+     * @param username the username to check
+     * @return true if the username is taken
+     */
+    boolean existsByUsername(String username);
+    /**
+     * Checks whether a user with the given email exists.
+     *
+     * @param email the email to check
+     * @return true if the email is taken
+     */
+    boolean existsByEmail(String email);
     /**
      * Saves the user to the repository.
      *
@@ -51,6 +74,14 @@ public interface UserService {
      * @param newPassword the new password to set
      */
     void changePassword(User user, String newPassword);
+    /**
+     * Replaces the stored password hash of the user without revoking issued tokens.
+     * Used to upgrade hashes created with an outdated BCrypt cost after a successful login.
+     *
+     * @param email the email of the user
+     * @param encodedPassword the new password hash
+     */
+    void updatePasswordHash(String email, String encodedPassword);
     /**
      * Deletes the user from the repository.
      *
@@ -0,0 +1,232 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.error.GeocodingValidationException;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationRegistry;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.service.AddressEnrichmentService;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fills in the formatted address of locations that were saved with coordinates only.
+ * Reverse geocoding runs on a bounded worker pool outside of any transaction. Failed attempts are retried
+ * with exponential backoff; after {@code locations.enrichment.max-attempts} the location is marked
+ * {@link AddressStatus#FAILED} (dead letter). Locations that could not be queued, or whose retries were
+ * lost in a restart, are picked up again by a periodic sweep.
+ */
+@Service
+public class AddressEnrichmentServiceImpl implements AddressEnrichmentService, StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddressEnrichmentServiceImpl.class);
+    private static final String UNKNOWN_ADDRESS = "Unknown address at coordinates";
+    private static final int SWEEP_BATCH_SIZE = 100;
+
+    private final UserLocationRepository locationRepository;
+    private final LatestLocationRegistry latestLocationRegistry;
+    private final MovementFilter movementFilter;
+    private final GeocodeApiService geocodeApiService;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long sweepAgeMillis;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService retryScheduler;
+    // Ids queued, running or waiting for a retry, so that the sweep does not submit them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLagMillis = new LongAdder();
+    private final LongAccumulator maxLagMillis = new LongAccumulator(Math::max, 0L);
+
+    public AddressEnrichmentServiceImpl(UserLocationRepository locationRepository,
+                                        LatestLocationRegistry latestLocationRegistry,
+                                        MovementFilter movementFilter,
+                                        GeocodeApiService geocodeApiService,
+                                        @Value("${locations.enrichment.pool-size:2}") int poolSize,
+                                        @Value("${locations.enrichment.queue-capacity:1000}") int queueCapacity,
+                                        @Value("${locations.enrichment.max-attempts:5}") int maxAttempts,
+                                        @Value("${locations.enrichment.retry-backoff-millis:2000}") long retryBackoffMillis,
+                                        @Value("${locations.enrichment.sweep-age-millis:60000}") long sweepAgeMillis) {
+        this.locationRepository = locationRepository;
+        this.latestLocationRegistry = latestLocationRegistry;
+        this.movementFilter = movementFilter;
+        this.geocodeApiService = geocodeApiService;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.sweepAgeMillis = sweepAgeMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "address-enrichment-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "address-enrichment-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void enqueue(Long locationId) {
+        if (inFlight.add(locationId)) {
+            submit(locationId);
+        }
+    }
+
+    /**
+     * Re-queues pending locations that are older than {@code locations.enrichment.sweep-age-millis}
+     * and not currently being processed.
+     */
+    @Scheduled(fixedDelayString = "${locations.enrichment.sweep-interval:60000}")
+    public void sweep() {
+        LocalDateTime createdBefore = LocalDateTime.now().minus(Duration.ofMillis(sweepAgeMillis));
+        List<Long> pending = locationRepository.findIdsByAddressStatusCreatedBefore(
+                AddressStatus.PENDING, createdBefore, PageRequest.of(0, SWEEP_BATCH_SIZE));
+        for (Long id : pending) {
+            if (executor.getQueue().remainingCapacity() == 0) {
+                break;
+            }
+            enqueue(id);
+        }
+    }
+
+    /**
+     * Performs one enrichment attempt for the location. Called on the worker pool.
+     *
+     * @param locationId The id of the location
+     */
+    public void enrich(Long locationId) {
+        boolean retryScheduled = false;
+        try {
+            Optional<UserLocation> found = locationRepository.findById(locationId);
+            if (found.isEmpty() || found.get().getAddressStatus() != AddressStatus.PENDING) {
+                return;
+            }
+            UserLocation location = found.get();
+            int attempts = location.getEnrichmentAttempts() + 1;
+            try {
+                GeocodingData data = geocodeApiService.getReverseGeoData(location.getLatitude(), location.getLongitude());
+                if (locationRepository.completeEnrichment(locationId, data.getFormatted(), AddressStatus.RESOLVED, attempts) > 0) {
+                    latestLocationRegistry.updateAddress(location.getUser().getId(), locationId,
+                            data.getFormatted(), AddressStatus.RESOLVED);
+                    movementFilter.updateAddress(location.getUser().getId(), locationId,
+                            data.getFormatted(), AddressStatus.RESOLVED);
+                    resolved.increment();
+                    recordLag(location.getCreatedAt());
+                }
+            } catch (GeocodingValidationException | ResourceNotFoundException e) {
+                // Retrying cannot help for invalid coordinates or coordinates without an address
+                deadLetter(location, attempts, e);
+            } catch (Exception e) {
+                if (attempts >= maxAttempts) {
+                    deadLetter(location, attempts, e);
+                } else {
+                    locationRepository.recordEnrichmentAttempt(locationId, attempts);
+                    retries.increment();
+                    long delay = retryBackoffMillis << Math.min(attempts - 1, 10);
+                    retryScheduler.schedule(() -> submit(locationId), delay, TimeUnit.MILLISECONDS);
+                    retryScheduled = true;
+                }
+            }
+        } catch (Exception e) {
+            // Database errors: the location stays pending and is picked up by the sweep
+            logger.warn("Address enrichment of location {} failed: {}", locationId, e.getMessage());
+        } finally {
+            if (!retryScheduled) {
+                inFlight.remove(locationId);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        executor.shutdown();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "addressEnrichment";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long resolvedCount = resolved.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("inFlight", inFlight.size());
+        stats.put("resolved", resolvedCount);
+        stats.put("retries", retries.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("avgLagMillis", resolvedCount == 0 ? 0 : totalLagMillis.sum() / resolvedCount);
+        stats.put("maxLagMillis", maxLagMillis.get());
+        return stats;
+    }
+
+    private void submit(Long locationId) {
+        try {
+            executor.execute(() -> enrich(locationId));
+        } catch (RejectedExecutionException e) {
+            // Stays pending in the database, the sweep retries it later
+            rejected.increment();
+            inFlight.remove(locationId);
+        }
+    }
+
+    private void deadLetter(UserLocation location, int attempts, Exception cause) {
+        logger.warn("Giving up address enrichment of location {} after {} attempts: {}",
+                location.getId(), attempts, cause.getMessage());
+        if (locationRepository.completeEnrichment(location.getId(), UNKNOWN_ADDRESS, AddressStatus.FAILED, attempts) > 0) {
+            latestLocationRegistry.updateAddress(location.getUser().getId(), location.getId(),
+                    UNKNOWN_ADDRESS, AddressStatus.FAILED);
+            movementFilter.updateAddress(location.getUser().getId(), location.getId(),
+                    UNKNOWN_ADDRESS, AddressStatus.FAILED);
+            deadLettered.increment();
+        }
+    }
+
+    private void recordLag(LocalDateTime createdAt) {
+        if (createdAt != null) {
+            long lag = Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis());
+            totalLagMillis.add(lag);
+            maxLagMillis.accumulate(lag);
+        }
+    }
+}
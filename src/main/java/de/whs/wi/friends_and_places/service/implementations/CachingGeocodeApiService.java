@@ -0,0 +1,88 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.util.BoundedCache;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Caches reverse geocoding results per grid cell of {@code geocode.reverse-cache.cell-size-meters}.
+ * GPS fixes a few meters apart fall into the same cell and reuse the address of the first lookup instead
+ * of each costing an external API call. Forward geocoding is passed through unchanged.
+ * <p>
+ * Being the primary {@link GeocodeApiService}, the cache is used by the geocode endpoints, location
+ * creation and the address enrichment alike.
+ */
+@Service
+@Primary
+public class CachingGeocodeApiService implements GeocodeApiService, StatsProvider {
+
+    // Rough footprint of a cached GeocodingData with its strings, used for the memory estimate
+    private static final int ESTIMATED_ENTRY_BYTES = 1024;
+
+    private final GeocodeApiService delegate;
+    private final boolean enabled;
+    private final double cellSizeMeters;
+    private final BoundedCache<Long, GeocodingData> cache;
+
+    public CachingGeocodeApiService(GeocodeApiServiceImpl delegate,
+                                    @Value("${geocode.reverse-cache.enabled:true}") boolean enabled,
+                                    @Value("${geocode.reverse-cache.cell-size-meters:15}") double cellSizeMeters,
+                                    @Value("${geocode.reverse-cache.max-size:50000}") int maxSize,
+                                    @Value("${geocode.reverse-cache.ttl:86400000}") long ttlMillis) {
+        this.delegate = delegate;
+        this.enabled = enabled;
+        this.cellSizeMeters = cellSizeMeters;
+        this.cache = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    @Override
+    public GeocodingData getGeoDataFromZipCode(String zipCode) {
+        return delegate.getGeoDataFromZipCode(zipCode);
+    }
+
+    @Override
+    public GeocodingData getGeoDataFromAddress(String street, String housenumber, String city, String country) {
+        return delegate.getGeoDataFromAddress(street, housenumber, city, country);
+    }
+
+    /**
+     * Returns the cached result for the cell of the coordinates, calling the API only on a miss.
+     * Failed lookups are not cached.
+     */
+    @Override
+    public GeocodingData getReverseGeoData(double latitude, double longitude) {
+        if (!enabled) {
+            return delegate.getReverseGeoData(latitude, longitude);
+        }
+        // Invalid coordinates must fail as before instead of being mapped to some cell
+        GeocodeApiServiceImpl.validateCoordinates(latitude, longitude);
+        Long cell = GeoUtils.cellKey(latitude, longitude, cellSizeMeters);
+        GeocodingData data = cache.get(cell);
+        if (data == null) {
+            data = delegate.getReverseGeoData(latitude, longitude);
+            cache.put(cell, data);
+        }
+        return data;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "reverseGeocodeCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.stats();
+        stats.put("enabled", enabled);
+        stats.put("cellSizeMeters", cellSizeMeters);
+        stats.put("estimatedBytes", (long) cache.size() * ESTIMATED_ENTRY_BYTES);
+        return stats;
+    }
+}
@@ -0,0 +1,407 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.controller.dto.UserPlaceDTO;
+import de.whs.wi.friends_and_places.error.GeocodingValidationException;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.model.PlaceDetectionCursor;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserPlace;
+import de.whs.wi.friends_and_places.repository.LocationPoint;
+import de.whs.wi.friends_and_places.repository.PlaceDetectionCursorRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserPlaceRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.FrequentPlaceService;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import de.whs.wi.friends_and_places.util.StayPointDetector;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service detecting where users spend time ({@code locations.places.*}).
+ * <p>
+ * The location history of every user is read in {@code (created_at, id)} order from a
+ * {@link PlaceDetectionCursor}, so every run only reads the locations added since the previous one.
+ * Stays found by the {@link StayPointDetector} are assigned to the nearest place of the user within
+ * {@code place-radius-meters}, or start a new place; the places and the cursor are updated in one
+ * transaction per page. That transaction only moves the cursor if it still is where the page was read
+ * from and drops the page otherwise, so instances detecting the same user never assign a stay twice.
+ * New places are named by reverse geocoding afterwards.
+ * <p>
+ * A scheduled run processes the users whose latest location is newer than their cursor. Both it and
+ * {@link #detectAll()} split the users into ranges of ids that are processed on a fork/join pool of
+ * {@code parallelism} threads, each of which holds a database connection while it works.
+ * Locations recorded before the cursor of a user, for example uploaded late, are not assigned.
+ */
+@Service
+public class FrequentPlaceServiceImpl implements FrequentPlaceService, StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrequentPlaceServiceImpl.class);
+    private static final String UNKNOWN_ADDRESS = "Unknown address at coordinates";
+    private static final LocalDateTime BEGINNING = LocalDate.of(1970, 1, 1).atStartOfDay();
+
+    private final UserLocationRepository locationRepository;
+    private final UserPlaceRepository placeRepository;
+    private final PlaceDetectionCursorRepository cursorRepository;
+    private final UserRepository userRepository;
+    private final GeocodeApiService geocodeApiService;
+    private final TransactionTemplate transactionTemplate;
+    private final StayPointDetector detector;
+    private final boolean enabled;
+    private final double placeRadius;
+    private final int pageSize;
+    private final int maxUsersPerRun;
+    private final int parallelism;
+    private final int partitionSize;
+    private final boolean resolveNames;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Users being processed, saves the work of runs in this instance that the cursor check would drop
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder users = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder stays = new LongAdder();
+    private final LongAdder places = new LongAdder();
+    private final LongAdder namesResolved = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder pagesSkipped = new LongAdder();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public FrequentPlaceServiceImpl(UserLocationRepository locationRepository,
+                                    UserPlaceRepository placeRepository,
+                                    PlaceDetectionCursorRepository cursorRepository,
+                                    UserRepository userRepository,
+                                    GeocodeApiService geocodeApiService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${locations.places.enabled:true}") boolean enabled,
+                                    @Value("${locations.places.stay-radius-meters:200}") double stayRadius,
+                                    @Value("${locations.places.min-dwell-minutes:20}") int minDwellMinutes,
+                                    @Value("${locations.places.place-radius-meters:200}") double placeRadius,
+                                    @Value("${locations.places.page-size:5000}") int pageSize,
+                                    @Value("${locations.places.max-users-per-run:10000}") int maxUsersPerRun,
+                                    @Value("${locations.places.parallelism:4}") int parallelism,
+                                    @Value("${locations.places.partition-size:64}") int partitionSize,
+                                    @Value("${locations.places.resolve-names:true}") boolean resolveNames,
+                                    @Value("${locations.places.default-limit:20}") int defaultLimit,
+                                    @Value("${locations.places.max-limit:100}") int maxLimit) {
+        this.locationRepository = locationRepository;
+        this.placeRepository = placeRepository;
+        this.cursorRepository = cursorRepository;
+        this.userRepository = userRepository;
+        this.geocodeApiService = geocodeApiService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.detector = new StayPointDetector(stayRadius, minDwellMinutes * 60L);
+        this.enabled = enabled;
+        this.placeRadius = placeRadius;
+        this.pageSize = pageSize;
+        this.maxUsersPerRun = maxUsersPerRun;
+        this.parallelism = parallelism;
+        this.partitionSize = partitionSize;
+        this.resolveNames = resolveNames;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public List<UserPlaceDTO> getFrequentPlaces(User user, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Limit must be positive");
+        }
+        int maxPlaces = Math.min(limit != null ? limit : defaultLimit, maxLimit);
+        return placeRepository.findFrequent(user.getId(), PageRequest.of(0, maxPlaces));
+    }
+
+    /**
+     * Processes the users with locations added since their last detection, at most
+     * {@code max-users-per-run} per call.
+     */
+    @Scheduled(fixedDelayString = "${locations.places.detect-interval:300000}",
+               initialDelayString = "${locations.places.detect-interval:300000}")
+    public void detectNewLocations() {
+        if (enabled) {
+            List<Long> userIds = cursorRepository.findUserIdsWithNewLocations(PageRequest.of(0, maxUsersPerRun));
+            if (!userIds.isEmpty()) {
+                process(userIds);
+            }
+        }
+    }
+
+    @Override
+    public long detectAll() {
+        return process(userRepository.findAllIds());
+    }
+
+    @Override
+    public long detect(Long userId) {
+        if (!running.add(userId)) {
+            return 0;
+        }
+        try {
+            return detectPages(userId);
+        } catch (RuntimeException e) {
+            failures.increment();
+            logger.warn("Stay-point detection failed for user {}: {}", userId, e.getMessage());
+            return 0;
+        } finally {
+            running.remove(userId);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "frequentPlaces";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("users", users.sum());
+        stats.put("points", points.sum());
+        stats.put("stays", stays.sum());
+        stats.put("places", places.sum());
+        stats.put("namesResolved", namesResolved.sum());
+        stats.put("failures", failures.sum());
+        stats.put("pagesSkipped", pagesSkipped.sum());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    /**
+     * Detects the stays of the given users on a fork/join pool.
+     *
+     * @param userIds the ids of the users, ascending
+     * @return the number of locations read
+     */
+    private long process(List<Long> userIds) {
+        long start = System.nanoTime();
+        long[] ids = userIds.stream().mapToLong(Long::longValue).toArray();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long read;
+        try {
+            read = pool.invoke(new DetectTask(ids, 0, ids.length));
+        } finally {
+            pool.shutdown();
+        }
+
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("users", ids.length);
+        run.put("points", read);
+        run.put("millis", millis);
+        run.put("parallelism", parallelism);
+        // Includes the database round trips, the detection alone is measured in StayPointDetectorTest
+        run.put("pointsPerSecondPerThread", read * 1000 / millis / parallelism);
+        lastRun = run;
+        if (read > 0) {
+            logger.info("Detected stays of {} users from {} locations in {} ms", ids.length, read, millis);
+        }
+        return read;
+    }
+
+    private long detectPages(Long userId) {
+        PlaceDetectionCursor cursor = cursorRepository.findById(userId).orElse(null);
+        LocalDateTime afterCreatedAt = cursor != null ? cursor.getAfterCreatedAt() : BEGINNING;
+        long afterId = cursor != null ? cursor.getAfterId() : Long.MIN_VALUE;
+        long read = 0;
+        int newPlaces = 0;
+        while (true) {
+            List<LocationPoint> page = locationRepository.findPointsAfter(userId, afterCreatedAt, afterId,
+                    PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            int count = page.size();
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            long[] arrivals = new long[count];
+            long[] departures = new long[count];
+            for (int i = 0; i < count; i++) {
+                LocationPoint point = page.get(i);
+                latitudes[i] = point.latitude();
+                longitudes[i] = point.longitude();
+                arrivals[i] = point.createdAt().toEpochSecond(ZoneOffset.UTC);
+                departures[i] = point.lastConfirmedAt() != null && point.lastConfirmedAt().isAfter(point.createdAt())
+                        ? point.lastConfirmedAt().toEpochSecond(ZoneOffset.UTC) : arrivals[i];
+            }
+
+            boolean more = count == pageSize;
+            List<StayPointDetector.Stay> found = new ArrayList<>();
+            int decided = detector.detect(latitudes, longitudes, arrivals, departures, count, false, found);
+            if (decided == 0 && more) {
+                // One run fills the whole page, it is cut at the end of the page
+                decided = detector.detect(latitudes, longitudes, arrivals, departures, count, true, found);
+            }
+
+            LocationPoint last = decided > 0 ? page.get(decided - 1) : null;
+            LocalDateTime seenUntil = page.get(count - 1).createdAt();
+            LocalDateTime readAfterCreatedAt = afterCreatedAt;
+            long readAfterId = afterId;
+            Integer created;
+            try {
+                created = transactionTemplate.execute(status -> {
+                    // Compare-and-set first, its row lock makes a concurrent detection of the user wait and fail
+                    int moved = cursorRepository.advance(userId, readAfterCreatedAt, readAfterId,
+                            last != null ? last.createdAt() : readAfterCreatedAt,
+                            last != null ? last.id() : readAfterId, seenUntil);
+                    if (moved == 0) {
+                        if (readAfterId != Long.MIN_VALUE || cursorRepository.existsById(userId)) {
+                            // Another instance assigned this page meanwhile
+                            return null;
+                        }
+                        // The id is assigned, persist instead of save avoids merging into a row that does not exist
+                        entityManager.persist(new PlaceDetectionCursor(userRepository.getReferenceById(userId),
+                                last != null ? last.createdAt() : BEGINNING,
+                                last != null ? last.id() : Long.MIN_VALUE, seenUntil));
+                    }
+                    return found.isEmpty() ? 0 : assign(userId, found);
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Another instance created the cursor first
+                created = null;
+            }
+            if (created == null) {
+                pagesSkipped.increment();
+                break;
+            }
+
+            read += count;
+            newPlaces += created;
+            stays.add(found.size());
+            if (last != null) {
+                afterCreatedAt = last.createdAt();
+                afterId = last.id();
+            }
+            if (!more) {
+                break;
+            }
+        }
+
+        users.increment();
+        points.add(read);
+        places.add(newPlaces);
+        if (resolveNames && newPlaces > 0) {
+            resolveNames(userId);
+        }
+        return read;
+    }
+
+    /**
+     * Assigns stays to the nearest place of the user, or to new places.
+     *
+     * @return the number of new places
+     */
+    private int assign(Long userId, List<StayPointDetector.Stay> found) {
+        List<UserPlace> userPlaces = placeRepository.findByUserId(userId);
+        int created = 0;
+        for (StayPointDetector.Stay stay : found) {
+            LocalDateTime arrivedAt = LocalDateTime.ofEpochSecond(stay.arrival(), 0, ZoneOffset.UTC);
+            LocalDateTime leftAt = LocalDateTime.ofEpochSecond(stay.departure(), 0, ZoneOffset.UTC);
+            UserPlace nearest = null;
+            double nearestDistance = placeRadius;
+            for (UserPlace place : userPlaces) {
+                double distance = GeoUtils.distanceMeters(place.getLatitude(), place.getLongitude(),
+                        stay.latitude(), stay.longitude());
+                if (distance <= nearestDistance) {
+                    nearest = place;
+                    nearestDistance = distance;
+                }
+            }
+            if (nearest != null) {
+                nearest.addVisit(stay.latitude(), stay.longitude(), arrivedAt, leftAt);
+            } else {
+                userPlaces.add(placeRepository.save(new UserPlace(userRepository.getReferenceById(userId),
+                        stay.latitude(), stay.longitude(), arrivedAt, leftAt)));
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Names the places of a user without a name. Places that could not be named because of an unavailable
+     * geocoder are tried again the next time the user gets a new place.
+     */
+    private void resolveNames(Long userId) {
+        for (UserPlace place : placeRepository.findByUserIdAndNameIsNull(userId)) {
+            String name;
+            try {
+                GeocodingData data = geocodeApiService.getReverseGeoData(place.getLatitude(), place.getLongitude());
+                name = data.getFormatted();
+            } catch (GeocodingValidationException | ResourceNotFoundException e) {
+                // Retrying cannot help for coordinates without an address
+                name = UNKNOWN_ADDRESS;
+            } catch (Exception e) {
+                logger.debug("Naming place {} failed: {}", place.getId(), e.getMessage());
+                continue;
+            }
+            if (name != null) {
+                placeRepository.setName(place.getId(), name);
+                namesResolved.increment();
+            }
+        }
+    }
+
+    /**
+     * Detects the stays of a range of users, split in halves until at most {@code partition-size} users are left.
+     */
+    private class DetectTask extends RecursiveTask<Long> {
+
+        private final long[] userIds;
+        private final int from;
+        private final int to;
+
+        DetectTask(long[] userIds, int from, int to) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= partitionSize) {
+                long read = 0;
+                for (int i = from; i < to; i++) {
+                    read += detect(userIds[i]);
+                }
+                return read;
+            }
+            int middle = (from + to) >>> 1;
+            DetectTask left = new DetectTask(userIds, from, middle);
+            left.fork();
+            long right = new DetectTask(userIds, middle, to).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.util.BoundedCache;
+import de.whs.wi.friends_and_places.util.BucketHistogram;
+import de.whs.wi.friends_and_places.util.ClusterIndex;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster hierarchies ({@link ClusterIndex}) over the latest locations of a user's friends
+ * ({@code locations.clusters.*}), kept until one of the friends moves.
+ * <p>
+ * Every entry carries a fingerprint of the locations it was built from: the friends, their coordinates
+ * and the times of their latest locations. The caller reads the latest locations anyway, from memory
+ * (see {@link de.whs.wi.friends_and_places.repository.LatestLocationRegistry}), so a changed fingerprint
+ * detects new locations from every writer and changed friendships without any invalidation. Confirmations
+ * of a stationary location keep the fingerprint.
+ */
+@Component
+public class FriendClusterCache implements StatsProvider {
+
+    private final int maxZoom;
+    private final double radiusPixels;
+    private final BoundedCache<Long, Entry> cache;
+
+    private final LongAdder builds = new LongAdder();
+    private final BucketHistogram buildMicros = new BucketHistogram(10, 50, 100, 500, 1000, 5000, 10000, 50000);
+
+    public FriendClusterCache(@Value("${locations.clusters.max-zoom:16}") int maxZoom,
+                              @Value("${locations.clusters.radius-pixels:60}") double radiusPixels,
+                              @Value("${locations.clusters.cache-size:1000}") int cacheSize) {
+        this.maxZoom = maxZoom;
+        this.radiusPixels = radiusPixels;
+        // Entries are checked against the fingerprint on every read, they need no expiry
+        this.cache = new BoundedCache<>(cacheSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the cluster hierarchy of a user's friends, built again if any of the locations changed.
+     *
+     * @param userId    the id of the user whose friends are clustered
+     * @param locations the latest locations of the friends, in a stable order such as by user id; the
+     *                  points of the hierarchy are indexes into this list
+     * @return the hierarchy
+     */
+    public ClusterIndex get(Long userId, List<UserLocation> locations) {
+        long fingerprint = fingerprint(locations);
+        Entry entry = cache.get(userId);
+        if (entry != null && entry.fingerprint() == fingerprint) {
+            return entry.index();
+        }
+
+        long start = System.nanoTime();
+        double[] latitudes = new double[locations.size()];
+        double[] longitudes = new double[locations.size()];
+        for (int i = 0; i < locations.size(); i++) {
+            latitudes[i] = locations.get(i).getLatitude();
+            longitudes[i] = locations.get(i).getLongitude();
+        }
+        ClusterIndex index = new ClusterIndex(latitudes, longitudes, maxZoom, radiusPixels);
+        cache.put(userId, new Entry(fingerprint, index));
+        builds.increment();
+        buildMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return index;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "friendClusterCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(cache.stats());
+        stats.put("builds", builds.sum());
+        stats.put("buildMicros", buildMicros.snapshot());
+        return stats;
+    }
+
+    private static long fingerprint(List<UserLocation> locations) {
+        long hash = locations.size();
+        for (UserLocation location : locations) {
+            hash = 31 * hash + location.getUser().getId();
+            hash = 31 * hash + location.getCreatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L
+                    + location.getCreatedAt().getNano();
+            hash = 31 * hash + Double.doubleToLongBits(location.getLatitude());
+            hash = 31 * hash + Double.doubleToLongBits(location.getLongitude());
+        }
+        return hash;
+    }
+
+    private record Entry(long fingerprint, ClusterIndex index) {
+    }
+}
@@ -52,7 +52,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
      */
     @Override
     public GeocodingData getGeoDataFromZipCode(String zipCode) {
-        logger.info("Fetching geo data for zip code: {}", zipCode);
+        logger.debug("Fetching geo data for zip code");
 
         try {
             // Create URL with parameters
@@ -88,7 +88,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
             return extractGeocodingDataFromResponse(response.getBody(), "zip code: " + zipCode);
 
         } catch (HttpClientErrorException.NotFound e) {
-            logger.error("Geo data not found for zip code: {}", zipCode, e);
+            logger.warn("Geo data not found for zip code", e);
             throw new ResourceNotFoundException("No geo data found for zip code: " + zipCode);
         } catch (HttpClientErrorException | HttpServerErrorException e) {
             logger.error("Error calling geocode API: {}", e.getMessage(), e);
@@ -112,7 +112,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
      */
     @Override
     public GeocodingData getGeoDataFromAddress(String street,String housenumber, String city, String country){
-        logger.info("Fetching geo data for address: {}, {}, {}, {}", street,housenumber, city, country);
+        logger.debug("Fetching geo data for address");
 
         try {
             // Create URL with parameters
@@ -151,7 +151,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
             return extractGeocodingDataFromResponse(response.getBody(), "address: " + street + ", " + city + ", " + country);
 
         } catch (HttpClientErrorException.NotFound e) {
-            logger.error("Geo data not found for address: {}, {}, {}", street, city, country, e);
+            logger.warn("Geo data not found for address", e);
             throw new ResourceNotFoundException("No geo data found for address: " + street + ", " + city + ", " + country);
         } catch (HttpClientErrorException | HttpServerErrorException e) {
             logger.error("Error calling geocode API: {}", e.getMessage(), e);
@@ -174,7 +174,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
      */
     @Override
     public GeocodingData getReverseGeoData(double latitude, double longitude) {
-        logger.info("Fetching reverse geo data for coordinates: {}, {}", latitude, longitude);
+        logger.debug("Fetching reverse geo data for coordinates");
 
         // Validate latitude and longitude before making the API call
         validateCoordinates(latitude, longitude);
@@ -213,7 +213,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
             return extractGeocodingDataFromResponse(response.getBody(), "coordinates: " + latitude + ", " + longitude);
 
         } catch (HttpClientErrorException.NotFound e) {
-            logger.error("Geo data not found for coordinates: {}, {}", latitude, longitude, e);
+            logger.warn("Geo data not found for coordinates", e);
             throw new ResourceNotFoundException("No geo data found for coordinates: " + latitude + ", " + longitude);
         } catch (HttpClientErrorException | HttpServerErrorException e) {
             logger.error("Error calling geocode API: {}", e.getMessage(), e);
@@ -393,7 +393,7 @@ public class GeocodeApiServiceImpl implements GeocodeApiService {
      * @param longitude The longitude to validate
      * @throws GeocodingValidationException if the coordinates are outside the valid range
      */
-    private void validateCoordinates(double latitude, double longitude) {
+    public static void validateCoordinates(double latitude, double longitude) {
         if (latitude < -90.0 || latitude > 90.0) {
             throw new GeocodingValidationException("Latitude out of range: " + latitude);
         }
@@ -0,0 +1,428 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.controller.dto.GeofenceCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceEventDTO;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.Geofence;
+import de.whs.wi.friends_and_places.model.GeofenceEvent;
+import de.whs.wi.friends_and_places.model.GeofenceEventType;
+import de.whs.wi.friends_and_places.model.GeofencePresence;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.repository.GeofenceEventRepository;
+import de.whs.wi.friends_and_places.repository.GeofenceIndex;
+import de.whs.wi.friends_and_places.repository.GeofencePresenceRepository;
+import de.whs.wi.friends_and_places.repository.GeofenceRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.GeofenceService;
+import de.whs.wi.friends_and_places.util.BoundedCache;
+import de.whs.wi.friends_and_places.util.BucketHistogram;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for managing geofences and evaluating location writes against them.
+ * <p>
+ * Candidate fences come from the {@link GeofenceIndex}, so a write far from any fence costs a grid lookup.
+ * Whether a user is inside a fence is stored in {@code geofence_presence} and cached per user
+ * ({@code locations.geofences.presence-cache-size}, {@code presence-ttl-millis}); only changes of that
+ * state produce events and touch the database. The friends of a user are cached for {@code friends-ttl-millis},
+ * so writes into the fences of others do not query the friendship on every write.
+ * <p>
+ * A transition is claimed by a compare-and-set of the cached state, the only step done under a lock, so
+ * concurrent writes of one instance cannot report it twice. The database only records an exit whose
+ * presence row it deleted and an enter without a presence row, which covers writes of other instances; when
+ * that check drops a transition the cached state is invalidated and read again.
+ */
+@Service
+public class GeofenceServiceImpl implements GeofenceService, StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeofenceServiceImpl.class);
+    private static final int LOCK_STRIPES = 64;
+    private static final long[] NO_IDS = new long[0];
+
+    private final GeofenceRepository geofenceRepository;
+    private final GeofenceEventRepository eventRepository;
+    private final GeofencePresenceRepository presenceRepository;
+    private final UserRepository userRepository;
+    private final GeofenceIndex index;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxPerUser;
+    private final int maxVertices;
+    private final double maxRadius;
+    private final int defaultEventLimit;
+    private final int maxEventLimit;
+    private final int retentionDays;
+
+    // Ids of the fences a user is inside of, sorted; the database is the source of truth
+    private final BoundedCache<Long, long[]> presence;
+    // Ids of the friends of a user, sorted
+    private final BoundedCache<Long, long[]> friends;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder enters = new LongAdder();
+    private final LongAdder exits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final BucketHistogram evaluationMicros = new BucketHistogram(1, 5, 10, 50, 100, 500, 1000, 5000);
+
+    public GeofenceServiceImpl(GeofenceRepository geofenceRepository,
+                               GeofenceEventRepository eventRepository,
+                               GeofencePresenceRepository presenceRepository,
+                               UserRepository userRepository,
+                               GeofenceIndex index,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${locations.geofences.enabled:true}") boolean enabled,
+                               @Value("${locations.geofences.max-per-user:100}") int maxPerUser,
+                               @Value("${locations.geofences.max-vertices:100}") int maxVertices,
+                               @Value("${locations.geofences.max-radius-meters:50000}") double maxRadius,
+                               @Value("${locations.geofences.presence-cache-size:100000}") int presenceCacheSize,
+                               @Value("${locations.geofences.presence-ttl-millis:60000}") long presenceTtlMillis,
+                               @Value("${locations.geofences.friends-ttl-millis:60000}") long friendsTtlMillis,
+                               @Value("${locations.geofences.events.default-limit:100}") int defaultEventLimit,
+                               @Value("${locations.geofences.events.max-limit:1000}") int maxEventLimit,
+                               @Value("${locations.geofences.events.retention-days:30}") int retentionDays) {
+        this.geofenceRepository = geofenceRepository;
+        this.eventRepository = eventRepository;
+        this.presenceRepository = presenceRepository;
+        this.userRepository = userRepository;
+        this.index = index;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxPerUser = maxPerUser;
+        this.maxVertices = maxVertices;
+        this.maxRadius = maxRadius;
+        this.defaultEventLimit = defaultEventLimit;
+        this.maxEventLimit = maxEventLimit;
+        this.retentionDays = retentionDays;
+        this.presence = new BoundedCache<>(presenceCacheSize, presenceTtlMillis);
+        this.friends = new BoundedCache<>(presenceCacheSize, friendsTtlMillis);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public GeofenceDTO createGeofence(User owner, GeofenceCreateDTO geofenceDTO) {
+        String name = geofenceDTO.getName() == null ? "" : geofenceDTO.getName().trim();
+        if (name.isEmpty() || name.length() > 100) {
+            throw new ValidationException("A geofence requires a name of at most 100 characters");
+        }
+        if (geofenceRepository.countByOwnerId(owner.getId()) >= maxPerUser) {
+            throw new ValidationException("At most " + maxPerUser + " geofences can be created");
+        }
+
+        Geofence geofence;
+        if (geofenceDTO.hasVertices()) {
+            if (geofenceDTO.getLatitude() != null || geofenceDTO.getLongitude() != null
+                    || geofenceDTO.getRadiusMeters() != null) {
+                throw new ValidationException("A geofence is either a circle or a polygon, not both");
+            }
+            geofence = polygon(owner, name, geofenceDTO.getVertices());
+        } else {
+            if (geofenceDTO.getLatitude() == null || geofenceDTO.getLongitude() == null
+                    || geofenceDTO.getRadiusMeters() == null) {
+                throw new ValidationException("A circular geofence requires latitude, longitude and radius");
+            }
+            GeocodeApiServiceImpl.validateCoordinates(geofenceDTO.getLatitude(), geofenceDTO.getLongitude());
+            validateRadius(geofenceDTO.getRadiusMeters());
+            geofence = new Geofence(owner, name, geofenceDTO.getLatitude(), geofenceDTO.getLongitude(),
+                    geofenceDTO.getRadiusMeters(), null, null);
+        }
+
+        Geofence saved = geofenceRepository.save(geofence);
+        index.add(saved);
+        return new GeofenceDTO(saved);
+    }
+
+    @Override
+    public List<GeofenceDTO> getGeofences(User owner) {
+        return geofenceRepository.findByOwnerIdOrderById(owner.getId()).stream()
+                .map(GeofenceDTO::new)
+                .toList();
+    }
+
+    @Override
+    public void deleteGeofence(User owner, Long geofenceId) {
+        // Fences of other users are reported as missing, their ids are not revealed
+        Geofence geofence = geofenceRepository.findByIdAndOwnerId(geofenceId, owner.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Geofence", "id", geofenceId));
+        // Events and presence rows are removed by the database (ON DELETE CASCADE)
+        geofenceRepository.delete(geofence);
+        index.remove(geofence.getId());
+    }
+
+    @Override
+    public List<GeofenceEventDTO> getEvents(User owner, Long afterId, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Limit must be positive");
+        }
+        int maxEvents = Math.min(limit != null ? limit : defaultEventLimit, maxEventLimit);
+        return eventRepository.findEventsAfter(owner.getId(), afterId != null ? afterId : 0L,
+                PageRequest.of(0, maxEvents));
+    }
+
+    @Override
+    public void evaluate(User user, double latitude, double longitude, LocalDateTime at) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        Long userId = user.getId();
+        try {
+            List<GeofenceIndex.Fence> containing = index.findContaining(latitude, longitude);
+            while (true) {
+                long[] inside = presence.get(userId);
+                if (inside == null) {
+                    inside = toSortedArray(presenceRepository.findGeofenceIdsByUserId(userId));
+                    if (!compareAndSet(userId, null, inside)) {
+                        retries.increment();
+                        continue;
+                    }
+                }
+                if (containing.isEmpty() && inside.length == 0) {
+                    // Far from every fence, the common case
+                    return;
+                }
+
+                // Only fences of the user and of their friends apply
+                long[] friendIds = friendsOf(userId, containing, inside);
+                Set<Long> current = new HashSet<>();
+                List<GeofenceIndex.Fence> entered = new ArrayList<>();
+                for (GeofenceIndex.Fence fence : containing) {
+                    if (applies(fence, userId, friendIds)) {
+                        current.add(fence.id());
+                        if (Arrays.binarySearch(inside, fence.id()) < 0) {
+                            entered.add(fence);
+                        }
+                    }
+                }
+                List<Long> left = new ArrayList<>();
+                List<GeofenceIndex.Fence> exited = new ArrayList<>();
+                for (long id : inside) {
+                    if (!current.contains(id)) {
+                        left.add(id);
+                        GeofenceIndex.Fence fence = index.get(id);
+                        // Deleted fences and fences of former friends are left without an event
+                        if (fence != null && applies(fence, userId, friendIds)) {
+                            exited.add(fence);
+                        }
+                    }
+                }
+                if (entered.isEmpty() && left.isEmpty()) {
+                    return;
+                }
+
+                if (!compareAndSet(userId, inside, toSortedArray(current))) {
+                    // Another write of the user changed the state meanwhile
+                    retries.increment();
+                    continue;
+                }
+                int[] recorded = record(userId, entered, left, exited, latitude, longitude, at);
+                if (recorded[0] < entered.size() || recorded[1] < exited.size()) {
+                    // The database state differs, e.g. after a write on another instance
+                    conflicts.increment();
+                    presence.invalidate(userId);
+                }
+                enters.add(recorded[0]);
+                exits.add(recorded[1]);
+                return;
+            }
+        } catch (RuntimeException e) {
+            // The cached state may not match the database anymore
+            presence.invalidate(userId);
+            failures.increment();
+            logger.warn("Geofence evaluation failed for user {}: {}", userId, e.getMessage());
+        } finally {
+            evaluations.increment();
+            evaluationMicros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Deletes events older than {@code locations.geofences.events.retention-days}.
+     */
+    @Scheduled(fixedDelayString = "${locations.geofences.events.purge-interval:3600000}")
+    public void purgeEvents() {
+        int deleted = transactionTemplate.execute(status ->
+                eventRepository.deleteByOccurredAtBefore(LocalDateTime.now().minusDays(retentionDays)));
+        if (deleted > 0) {
+            logger.info("Deleted {} geofence events older than {} days", deleted, retentionDays);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "geofences";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("evaluations", evaluations.sum());
+        stats.put("enters", enters.sum());
+        stats.put("exits", exits.sum());
+        stats.put("failures", failures.sum());
+        stats.put("retries", retries.sum());
+        stats.put("conflicts", conflicts.sum());
+        stats.put("evaluationMicros", evaluationMicros.snapshot());
+        stats.put("presenceCache", presence.stats());
+        stats.put("friendsCache", friends.stats());
+        return stats;
+    }
+
+    /**
+     * Stores the events and the new presence rows of one evaluation in one transaction. An exit is only
+     * recorded if its presence row existed, an enter only if it did not.
+     *
+     * @return the number of recorded enters and exits
+     */
+    private int[] record(Long userId, List<GeofenceIndex.Fence> entered, List<Long> left,
+                         List<GeofenceIndex.Fence> exited, double latitude, double longitude, LocalDateTime at) {
+        return transactionTemplate.execute(status -> {
+            int[] recorded = new int[2];
+            User user = userRepository.getReferenceById(userId);
+            Set<Long> removed = new HashSet<>();
+            for (Long id : left) {
+                if (presenceRepository.deleteByUserIdAndGeofenceIds(userId, List.of(id)) > 0) {
+                    removed.add(id);
+                }
+            }
+            for (GeofenceIndex.Fence fence : exited) {
+                if (removed.contains(fence.id())) {
+                    eventRepository.save(new GeofenceEvent(userRepository.getReferenceById(fence.ownerId()),
+                            geofenceRepository.getReferenceById(fence.id()), user, GeofenceEventType.EXIT,
+                            latitude, longitude, at));
+                    recorded[1]++;
+                }
+            }
+            for (GeofenceIndex.Fence fence : entered) {
+                if (presenceRepository.existsByUserIdAndGeofenceId(userId, fence.id())) {
+                    continue;
+                }
+                Geofence geofence = geofenceRepository.getReferenceById(fence.id());
+                presenceRepository.save(new GeofencePresence(user, geofence, at));
+                eventRepository.save(new GeofenceEvent(userRepository.getReferenceById(fence.ownerId()),
+                        geofence, user, GeofenceEventType.ENTER, latitude, longitude, at));
+                recorded[0]++;
+            }
+            return recorded;
+        });
+    }
+
+    /**
+     * Replaces the cached presence of a user if it still is the expected one, null for none.
+     */
+    private boolean compareAndSet(Long userId, long[] expected, long[] next) {
+        synchronized (lockFor(userId)) {
+            if (presence.get(userId) != expected) {
+                return false;
+            }
+            presence.put(userId, next);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the friends of a user if any of the fences belongs to another user, otherwise none.
+     */
+    private long[] friendsOf(Long userId, List<GeofenceIndex.Fence> containing, long[] inside) {
+        boolean others = false;
+        for (GeofenceIndex.Fence fence : containing) {
+            others |= fence.ownerId() != userId;
+        }
+        for (long id : inside) {
+            GeofenceIndex.Fence fence = index.get(id);
+            others |= fence != null && fence.ownerId() != userId;
+        }
+        if (!others) {
+            return NO_IDS;
+        }
+        long[] friendIds = friends.get(userId);
+        if (friendIds == null) {
+            friendIds = toSortedArray(userRepository.findFriendIds(userId));
+            friends.put(userId, friendIds);
+        }
+        return friendIds;
+    }
+
+    private static boolean applies(GeofenceIndex.Fence fence, Long userId, long[] friendIds) {
+        return fence.ownerId() == userId || Arrays.binarySearch(friendIds, fence.ownerId()) >= 0;
+    }
+
+    private Geofence polygon(User owner, String name, List<double[]> vertices) {
+        if (vertices.size() < 3 || vertices.size() > maxVertices) {
+            throw new ValidationException("A polygon requires between 3 and " + maxVertices + " vertices");
+        }
+        double[] latitudes = new double[vertices.size()];
+        double[] longitudes = new double[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            double[] vertex = vertices.get(i);
+            if (vertex == null || vertex.length != 2) {
+                throw new ValidationException("Every vertex must be a [latitude, longitude] pair");
+            }
+            GeocodeApiServiceImpl.validateCoordinates(vertex[0], vertex[1]);
+            latitudes[i] = vertex[0];
+            longitudes[i] = vertex[1];
+        }
+
+        double minLatitude = Arrays.stream(latitudes).min().orElseThrow();
+        double maxLatitude = Arrays.stream(latitudes).max().orElseThrow();
+        double minLongitude = Arrays.stream(longitudes).min().orElseThrow();
+        double maxLongitude = Arrays.stream(longitudes).max().orElseThrow();
+        if (maxLongitude - minLongitude > 180.0) {
+            throw new ValidationException("Geofences crossing the antimeridian are not supported");
+        }
+        // The vertex farthest from the center of the bounding box bounds the whole polygon
+        double centerLatitude = (minLatitude + maxLatitude) / 2;
+        double centerLongitude = (minLongitude + maxLongitude) / 2;
+        double radius = 0;
+        for (int i = 0; i < latitudes.length; i++) {
+            radius = Math.max(radius, GeoUtils.distanceMeters(centerLatitude, centerLongitude, latitudes[i], longitudes[i]));
+        }
+        validateRadius(radius);
+        return new Geofence(owner, name, centerLatitude, centerLongitude, radius, latitudes, longitudes);
+    }
+
+    private void validateRadius(double radiusMeters) {
+        if (radiusMeters <= 0 || radiusMeters > maxRadius) {
+            throw new ValidationException("The radius of a geofence must be positive and at most "
+                    + (long) maxRadius + " meters");
+        }
+    }
+
+    private Object lockFor(Long userId) {
+        return locks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static long[] toSortedArray(Iterable<Long> ids) {
+        List<Long> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return list.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+}
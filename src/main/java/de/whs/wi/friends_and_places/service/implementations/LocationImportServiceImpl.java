@@ -0,0 +1,253 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.whs.wi.friends_and_places.controller.dto.LocationImportResultDTO;
+import de.whs.wi.friends_and_places.error.GeocodingValidationException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.service.LocationImportService;
+import de.whs.wi.friends_and_places.util.BoundedLineReader;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Imports location history from NDJSON. Lines are read one at a time and parsed with the Jackson
+ * streaming parser, records are stored with one {@code saveAll} transaction per batch, so memory use
+ * does not depend on the size of the input.
+ * <p>
+ * The checkpoint only advances when a batch is committed. After a failure the import can be repeated
+ * with the checkpoint as offset without storing records twice.
+ */
+@Service
+public class LocationImportServiceImpl implements LocationImportService, StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationImportServiceImpl.class);
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final LatestLocationProjection projection;
+    private final MovementFilter movementFilter;
+    private final JsonFactory jsonFactory;
+    private final int batchSize;
+    private final long progressInterval;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder totalImported = new LongAdder();
+    private final LongAdder totalRejected = new LongAdder();
+    private final LongAdder failedImports = new LongAdder();
+
+    public LocationImportServiceImpl(LatestLocationProjection projection,
+                                     MovementFilter movementFilter,
+                                     ObjectMapper objectMapper,
+                                     @Value("${locations.import.batch-size:1000}") int batchSize,
+                                     @Value("${locations.import.progress-interval:100000}") long progressInterval) {
+        this.projection = projection;
+        this.movementFilter = movementFilter;
+        this.jsonFactory = objectMapper.getFactory();
+        this.batchSize = batchSize;
+        this.progressInterval = progressInterval;
+    }
+
+    @Override
+    public LocationImportResultDTO importLocations(User user, InputStream input, long offset) {
+        running.incrementAndGet();
+        long start = System.nanoTime();
+        LocalDateTime latestAccepted = LocalDateTime.now().plusMinutes(5);
+        List<UserLocation> batch = new ArrayList<>(batchSize);
+        List<String> rejectedLines = new ArrayList<>();
+        long lineNumber = 0;
+        long checkpoint = offset;
+        long imported = 0;
+        long rejected = 0;
+        long nextProgress = progressInterval;
+        String error = null;
+
+        // Lines are cut after MAX_LINE_LENGTH characters, an endless line is never held in memory
+        try (BoundedLineReader reader = new BoundedLineReader(new InputStreamReader(input, StandardCharsets.UTF_8),
+                MAX_LINE_LENGTH)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= offset || line.isBlank()) {
+                    continue;
+                }
+                try {
+                    if (reader.isTooLong()) {
+                        throw new IllegalArgumentException("line too long");
+                    }
+                    batch.add(parse(user, line, latestAccepted));
+                } catch (IllegalArgumentException e) {
+                    rejected++;
+                    if (rejectedLines.size() < MAX_REPORTED_REJECTIONS) {
+                        rejectedLines.add(lineNumber + ": " + e.getMessage());
+                    }
+                }
+                if (batch.size() >= batchSize) {
+                    imported += store(batch);
+                    checkpoint = lineNumber;
+                    if (imported >= nextProgress) {
+                        logProgress(user, checkpoint, imported, rejected, start);
+                        nextProgress += progressInterval;
+                    }
+                }
+            }
+            imported += store(batch);
+            checkpoint = lineNumber;
+        } catch (Exception e) {
+            // Records of the failed batch were rolled back, the checkpoint still points before them
+            failedImports.increment();
+            error = e.getMessage();
+            logger.warn("Location import for user {} stopped at line {}: {}", user.getId(), checkpoint, e.getMessage());
+        } finally {
+            running.decrementAndGet();
+            totalRejected.add(rejected);
+            movementFilter.forget(user.getId());
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logProgress(user, checkpoint, imported, rejected, start);
+        return new LocationImportResultDTO(error == null, checkpoint, imported, rejected, rejectedLines,
+                elapsedMillis, imported * 1000 / elapsedMillis, error);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "locationImport";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("imported", totalImported.sum());
+        stats.put("rejected", totalRejected.sum());
+        stats.put("failedImports", failedImports.sum());
+        return stats;
+    }
+
+    private int store(List<UserLocation> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        int size = projection.saveAll(batch).size();
+        totalImported.add(size);
+        batch.clear();
+        return size;
+    }
+
+    /**
+     * Parses one record with the streaming parser, without building a tree or DTO.
+     *
+     * @throws IllegalArgumentException if the line is not a valid record
+     */
+    private UserLocation parse(User user, String line, LocalDateTime latestAccepted) {
+        Double latitude = null;
+        Double longitude = null;
+        LocalDateTime recordedAt = null;
+        String locationName = null;
+        String formattedAddress = null;
+
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "latitude" -> latitude = number(parser, value, field);
+                    case "longitude" -> longitude = number(parser, value, field);
+                    case "recordedAt" -> recordedAt = timestamp(parser, value);
+                    case "locationName" -> locationName = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    case "formattedAddress" -> formattedAddress = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw new IllegalArgumentException("trailing content");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("malformed JSON");
+        }
+
+        if (latitude == null || longitude == null) {
+            throw new IllegalArgumentException("latitude and longitude are required");
+        }
+        if (recordedAt == null) {
+            throw new IllegalArgumentException("recordedAt is required");
+        }
+        if (recordedAt.isAfter(latestAccepted)) {
+            throw new IllegalArgumentException("recordedAt lies in the future");
+        }
+        try {
+            GeocodeApiServiceImpl.validateCoordinates(latitude, longitude);
+        } catch (GeocodingValidationException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+
+        UserLocation location = new UserLocation(user, latitude, longitude, formattedAddress);
+        location.setCreatedAt(recordedAt);
+        location.setLocationName(locationName);
+        location.setAddressStatus(formattedAddress != null ? AddressStatus.RESOLVED : AddressStatus.NOT_REQUESTED);
+        return location;
+    }
+
+    private static double number(JsonParser parser, JsonToken value, String field) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_FLOAT && value != JsonToken.VALUE_NUMBER_INT) {
+            throw new IllegalArgumentException(field + " must be a number");
+        }
+        return parser.getDoubleValue();
+    }
+
+    /**
+     * Accepts ISO local date-times, ISO date-times with offset and epoch milliseconds.
+     */
+    private static LocalDateTime timestamp(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneId.systemDefault());
+        }
+        if (value != JsonToken.VALUE_STRING) {
+            throw new IllegalArgumentException("recordedAt must be a string or epoch milliseconds");
+        }
+        String text = parser.getText();
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (DateTimeParseException invalid) {
+                throw new IllegalArgumentException("recordedAt is not an ISO date-time");
+            }
+        }
+    }
+
+    private void logProgress(User user, long checkpoint, long imported, long rejected, long start) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Location import for user {}: line {}, {} imported, {} rejected, {} records/s",
+                user.getId(), checkpoint, imported, rejected, imported * 1000 / elapsedMillis);
+    }
+}
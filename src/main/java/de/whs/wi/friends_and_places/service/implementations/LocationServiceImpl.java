@@ -1,23 +1,49 @@
 package de.whs.wi.friends_and_places.service.implementations;
 
+import de.whs.wi.friends_and_places.controller.dto.FriendClusterDTO;
+import de.whs.wi.friends_and_places.controller.dto.FriendClustersDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchResponseDTO;
 import de.whs.wi.friends_and_places.controller.dto.LocationCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationPageDTO;
 import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.controller.dto.NearbyFriendDTO;
 import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
 import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
 import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.model.LocationTrail;
 import de.whs.wi.friends_and_places.model.User;
 import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.repository.LatestLocationRegistry;
+import de.whs.wi.friends_and_places.repository.LocationTrailRepository;
 import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.service.AddressEnrichmentService;
 import de.whs.wi.friends_and_places.service.FriendService;
 import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.service.GeofenceService;
 import de.whs.wi.friends_and_places.service.LocationService;
 import de.whs.wi.friends_and_places.service.UserService;
+import de.whs.wi.friends_and_places.util.ClusterIndex;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.LocationCursor;
+import de.whs.wi.friends_and_places.util.MortonCode;
+import de.whs.wi.friends_and_places.util.TrailCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -27,42 +53,128 @@ import java.util.stream.Collectors;
 public class LocationServiceImpl implements LocationService {
 
     private static final Logger logger = LoggerFactory.getLogger(LocationServiceImpl.class);
+    private static final LocalDateTime HISTORY_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime HISTORY_END = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int TRAIL_DAYS_PER_QUERY = 7;
+    private static final int MAX_MAP_ZOOM = 22;
+    // Keyset order of the history, see LocationCursor
+    private static final Comparator<HistoryEntry> HISTORY_ORDER = Comparator
+            .comparing((HistoryEntry entry) -> entry.location().getCreatedAt())
+            .thenComparingLong(HistoryEntry::key)
+            .reversed();
 
     private final UserLocationRepository locationRepository;
+    private final LocationTrailRepository trailRepository;
+    private final LatestLocationProjection latestLocations;
+    private final LatestLocationRegistry latestLocationRegistry;
     private final UserService userService;
     private final GeocodeApiService geocodeApiService;
     private final FriendService friendService;
+    private final AddressEnrichmentService addressEnrichmentService;
+    private final GeofenceService geofenceService;
+    private final LocationWriteBuffer writeBuffer;
+    private final MovementFilter movementFilter;
+    private final FriendClusterCache clusterCache;
+    private final boolean asyncEnrichment;
+    private final int maxBatchSize;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultAreaLimit;
+    private final int maxAreaLimit;
+    private final int maxAreaRanges;
+    private final double defaultNearbyRadius;
+    private final double maxNearbyRadius;
+    private final int defaultNearbyLimit;
+    private final int maxNearbyLimit;
+    private final int maxClusters;
 
     public LocationServiceImpl(UserLocationRepository locationRepository,
+                               LocationTrailRepository trailRepository,
+                               LatestLocationProjection latestLocations,
+                               LatestLocationRegistry latestLocationRegistry,
                                UserService userService,
                                GeocodeApiService geocodeApiService,
-                               FriendService friendService) {
+                               FriendService friendService,
+                               AddressEnrichmentService addressEnrichmentService,
+                               GeofenceService geofenceService,
+                               LocationWriteBuffer writeBuffer,
+                               MovementFilter movementFilter,
+                               FriendClusterCache clusterCache,
+                               @Value("${locations.enrichment.async:false}") boolean asyncEnrichment,
+                               @Value("${locations.batch.max-size:500}") int maxBatchSize,
+                               @Value("${locations.history.default-page-size:100}") int defaultPageSize,
+                               @Value("${locations.history.max-page-size:1000}") int maxPageSize,
+                               @Value("${locations.area.default-limit:500}") int defaultAreaLimit,
+                               @Value("${locations.area.max-limit:5000}") int maxAreaLimit,
+                               @Value("${locations.area.max-ranges:16}") int maxAreaRanges,
+                               @Value("${locations.nearby.default-radius-meters:2000}") double defaultNearbyRadius,
+                               @Value("${locations.nearby.max-radius-meters:50000}") double maxNearbyRadius,
+                               @Value("${locations.nearby.default-limit:50}") int defaultNearbyLimit,
+                               @Value("${locations.nearby.max-limit:500}") int maxNearbyLimit,
+                               @Value("${locations.clusters.max-clusters:300}") int maxClusters) {
         this.locationRepository = locationRepository;
+        this.trailRepository = trailRepository;
+        this.latestLocations = latestLocations;
+        this.latestLocationRegistry = latestLocationRegistry;
         this.userService = userService;
         this.geocodeApiService = geocodeApiService;
         this.friendService = friendService;
+        this.addressEnrichmentService = addressEnrichmentService;
+        this.geofenceService = geofenceService;
+        this.writeBuffer = writeBuffer;
+        this.movementFilter = movementFilter;
+        this.clusterCache = clusterCache;
+        this.asyncEnrichment = asyncEnrichment;
+        this.maxBatchSize = maxBatchSize;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultAreaLimit = defaultAreaLimit;
+        this.maxAreaLimit = maxAreaLimit;
+        this.maxAreaRanges = maxAreaRanges;
+        this.defaultNearbyRadius = defaultNearbyRadius;
+        this.maxNearbyRadius = maxNearbyRadius;
+        this.defaultNearbyLimit = defaultNearbyLimit;
+        this.maxNearbyLimit = maxNearbyLimit;
+        this.maxClusters = maxClusters;
     }
 
     /**
-     * Add a new location for a user
+     * Add a new location for a user.
+     * Not transactional on purpose: geocoding calls an external API and must not hold a database connection.
+     * With {@code locations.enrichment.async} enabled, locations with coordinates are saved right away with a
+     * pending address that is filled in by the {@link AddressEnrichmentService}.
+     * With the write-behind buffer enabled the location is only buffered and the returned location has no id yet.
+     * Unnamed points the user has not moved away from only confirm the latest stored location (see {@link MovementFilter}).
+     * Every point is evaluated against the geofences of the user and their friends ({@link GeofenceService}).
      *
-     * @param email The username of the user
+     * @param user The user the location belongs to
      * @param locationDTO The location data
      * @return The saved location
      */
-    @Transactional
-    public LocationResponseDTO addLocation(String email, LocationCreateDTO locationDTO) {
-        User user = userService.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + email));
-
+    public LocationResponseDTO addLocation(User user, LocationCreateDTO locationDTO) {
         UserLocation location;
 
+        // Stationary jitter confirms the latest point instead of geocoding and inserting a new one
+        if (locationDTO.hasCoordinates() && locationDTO.getLocationName() == null) {
+            Optional<UserLocation> confirmed = movementFilter.confirmIfStationary(
+                    user, locationDTO.getLatitude(), locationDTO.getLongitude());
+            if (confirmed.isPresent()) {
+                geofenceService.evaluate(user, locationDTO.getLatitude(), locationDTO.getLongitude(), LocalDateTime.now());
+                return new LocationResponseDTO(confirmed.get());
+            }
+        }
+
         // Check if we have coordinates or need to geocode an address
-        if (locationDTO.hasCoordinates()) {
+        if (locationDTO.hasCoordinates() && asyncEnrichment) {
+            GeocodeApiServiceImpl.validateCoordinates(locationDTO.getLatitude(), locationDTO.getLongitude());
+            location = new UserLocation(user, locationDTO.getLatitude(), locationDTO.getLongitude(), null);
+            location.setAddressStatus(AddressStatus.PENDING);
+        } else if (locationDTO.hasCoordinates()) {
             // Coordinate validation is already handled in geocodeApiService.getReverseGeoData()
 
             // Try to get the address from coordinates using reverse geocoding
             String formattedAddress;
+            AddressStatus addressStatus = AddressStatus.RESOLVED;
             try {
                 GeocodingData geoData = geocodeApiService.getReverseGeoData(
                         locationDTO.getLatitude(),
@@ -71,9 +183,10 @@ public class LocationServiceImpl implements LocationService {
                 formattedAddress = geoData.getFormatted();
             } catch (Exception e) {
                 // If reverse geocoding fails, use a placeholder
-                logger.warn("Reverse geocoding failed for coordinates: {}, {}",
-                        locationDTO.getLatitude(), locationDTO.getLongitude(), e);
+                // Coordinates are not logged, they are personal data
+                logger.warn("Reverse geocoding failed: {}", e.getMessage());
                 formattedAddress = "Unknown address at coordinates";
+                addressStatus = AddressStatus.FAILED;
             }
 
             location = new UserLocation(
@@ -82,6 +195,7 @@ public class LocationServiceImpl implements LocationService {
                     locationDTO.getLongitude(),
                     formattedAddress
             );
+            location.setAddressStatus(addressStatus);
         } else if (locationDTO.hasAddress()) {
             // Geocode the address to get coordinates
             try {
@@ -98,8 +212,9 @@ public class LocationServiceImpl implements LocationService {
                         geoData.getLon(),
                         geoData.getFormatted()
                 );
+                location.setAddressStatus(AddressStatus.RESOLVED);
             } catch (Exception e) {
-                logger.error("Failed to geocode address", e);
+                logger.warn("Failed to geocode address: {}", e.getMessage());
                 throw new ValidationException("Could not geocode the provided address");
             }
         } else {
@@ -111,80 +226,403 @@ public class LocationServiceImpl implements LocationService {
             location.setLocationName(locationDTO.getLocationName());
         }
 
-        UserLocation savedLocation = locationRepository.save(location);
+        if (writeBuffer.isEnabled()) {
+            // Enrichment is queued by the buffer once the location has been written
+            writeBuffer.offer(location);
+            movementFilter.forget(user.getId());
+            geofenceService.evaluate(user, location.getLatitude(), location.getLongitude(), location.getCreatedAt());
+            return new LocationResponseDTO(location);
+        }
+
+        // Stored in one transaction with the user's latest-location entry
+        UserLocation savedLocation = latestLocations.save(location);
+        movementFilter.remember(savedLocation);
+        if (savedLocation.getAddressStatus() == AddressStatus.PENDING) {
+            // The row is committed at this point, so the worker is guaranteed to find it
+            addressEnrichmentService.enqueue(savedLocation.getId());
+        }
+        geofenceService.evaluate(user, savedLocation.getLatitude(), savedLocation.getLongitude(), savedLocation.getCreatedAt());
         return new LocationResponseDTO(savedLocation);
     }
 
+    /**
+     * Add several locations for a user.
+     * All points are stored in one transaction with batched inserts, together with the user's latest-location entry.
+     * Addresses are always resolved in the background, geocoding dozens of points inline would take too long.
+     * The points are evaluated against geofences in order, so a batch can enter and leave a fence.
+     *
+     * @param user The user the locations belong to
+     * @param points The points in the order they were recorded
+     * @return The number and ids of the saved locations
+     */
+    public LocationBatchResponseDTO addLocations(User user, List<LocationBatchPointDTO> points) {
+        if (points == null || points.isEmpty()) {
+            throw new ValidationException("At least one location is required");
+        }
+        if (points.size() > maxBatchSize) {
+            throw new ValidationException("At most " + maxBatchSize + " locations can be uploaded at once");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        // Small allowance for devices whose clock is slightly ahead
+        LocalDateTime latestAccepted = now.plusMinutes(5);
+        List<UserLocation> locations = new ArrayList<>(points.size());
+        for (LocationBatchPointDTO point : points) {
+            if (point.getLatitude() == null || point.getLongitude() == null) {
+                throw new ValidationException("Every location requires latitude and longitude");
+            }
+            GeocodeApiServiceImpl.validateCoordinates(point.getLatitude(), point.getLongitude());
+            if (point.getRecordedAt() != null && point.getRecordedAt().isAfter(latestAccepted)) {
+                throw new ValidationException("Location timestamp lies in the future");
+            }
+
+            UserLocation location = new UserLocation(user, point.getLatitude(), point.getLongitude(), null);
+            location.setCreatedAt(point.getRecordedAt() != null ? point.getRecordedAt() : now);
+            location.setLocationName(point.getLocationName());
+            location.setAddressStatus(AddressStatus.PENDING);
+            locations.add(location);
+        }
+
+        List<UserLocation> saved = latestLocations.saveAll(locations);
+        movementFilter.forget(user.getId());
+        List<Long> ids = new ArrayList<>(saved.size());
+        for (UserLocation location : saved) {
+            ids.add(location.getId());
+            addressEnrichmentService.enqueue(location.getId());
+            geofenceService.evaluate(user, location.getLatitude(), location.getLongitude(), location.getCreatedAt());
+        }
+        return new LocationBatchResponseDTO(ids.size(), ids);
+    }
+
     /**
      * Get the latest location for a user
      *
-     * @param email The username of the user
+     * @param user The user
      * @return The latest location
      */
-    public LocationResponseDTO getLatestLocation(String email) {
-        User user = userService.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + email));
-
-        UserLocation location = locationRepository.findFirstByUserOrderByCreatedAtDesc(user)
-                .orElseThrow(() -> new ResourceNotFoundException("No locations found for user: " + email));
+    public LocationResponseDTO getLatestLocation(User user) {
+        UserLocation location = newest(findLatest(user), user)
+                .orElseThrow(() -> new ResourceNotFoundException("No locations found for user: " + user.getEmail()));
 
         return new LocationResponseDTO(location);
     }
 
     /**
-     * Get all locations for a user, ordered by creation date (newest first)
+     * Get all locations for a user, ordered by creation date (newest first).
+     * Includes days compacted into location trails; those points have no id.
      *
-     * @param email The username of the user
+     * @param user The user
      * @return List of locations
      */
-    public List<LocationResponseDTO> getAllLocations(String email) {
-        User user = userService.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + email));
+    public List<LocationResponseDTO> getAllLocations(User user) {
+        // Projected with the user columns in one query, no user entity is loaded per row
+        List<LocationResponseDTO> locations = locationRepository.findResponsesByUserId(user.getId());
+        List<LocationTrail> trails = trailRepository.findByUserOrderByBucketDateDesc(user);
+        Optional<UserLocation> buffered = writeBuffer.latest(user.getId());
+        if (buffered.isPresent() || !trails.isEmpty()) {
+            locations = new ArrayList<>(locations);
+            buffered.map(LocationResponseDTO::new).ifPresent(locations::add);
+            for (LocationTrail trail : trails) {
+                for (TrailCodec.Point point : TrailCodec.decode(trail.getEncoded())) {
+                    locations.add(new LocationResponseDTO(toLocation(user, point)));
+                }
+            }
+            locations.sort(Comparator.comparing(LocationResponseDTO::getCreatedAt).reversed());
+        }
+        return locations;
+    }
+
+    /**
+     * Get one page of a user's locations, newest first.
+     * Rows are read by keyset on {@code (created_at, id)}, compacted trails only for the days the page
+     * reaches into, so the cost of a page does not grow with the length of the history.
+     *
+     * @param user The user
+     * @param from Only locations created at or after this time, or null
+     * @param to Only locations created before this time, or null
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param size The maximum number of locations, or null for the default
+     * @return The page and the cursor of the next page
+     */
+    public LocationPageDTO getLocationHistory(User user, LocalDateTime from, LocalDateTime to, String cursor, Integer size) {
+        if (size != null && size < 1) {
+            throw new ValidationException("Page size must be positive");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException("The start of the time range must lie before its end");
+        }
+        int limit = Math.min(size != null ? size : defaultPageSize, maxPageSize);
+        LocalDateTime lower = from != null ? from : HISTORY_START;
+        LocationCursor position = cursor != null ? LocationCursor.decode(cursor) : null;
+        if (position == null || (to != null && to.isBefore(position.createdAt()))) {
+            position = new LocationCursor(to != null ? to : HISTORY_END, Long.MIN_VALUE);
+        }
+        final LocationCursor after = position;
+
+        // One more than requested tells whether there is a next page
+        List<HistoryEntry> page = new ArrayList<>(limit + 1);
+        for (LocationResponseDTO location : locationRepository.findResponsePage(
+                user.getId(), lower, after.createdAt(), after.id(), PageRequest.of(0, limit + 1))) {
+            page.add(new HistoryEntry(location, location.getId()));
+        }
+
+        // Trail points older than the last row of a full page cannot make it into the page
+        LocalDateTime trailLower = page.size() > limit ? page.get(limit).location().getCreatedAt() : lower;
+        int trailPoints = 0;
+        int trailPage = 0;
+        List<LocationTrail> trails;
+        do {
+            trails = trailRepository.findByUserAndBucketDateBetweenOrderByBucketDateDesc(user,
+                    trailLower.toLocalDate(), after.createdAt().toLocalDate(), PageRequest.of(trailPage++, TRAIL_DAYS_PER_QUERY));
+            for (LocationTrail trail : trails) {
+                List<TrailCodec.Point> points = TrailCodec.decode(trail.getEncoded());
+                for (int i = 0; i < points.size(); i++) {
+                    TrailCodec.Point point = points.get(i);
+                    long key = -(i + 1L);
+                    if (!point.recordedAt().isBefore(lower) && after.precedes(point.recordedAt(), key)) {
+                        page.add(new HistoryEntry(new LocationResponseDTO(toLocation(user, point)), key));
+                        trailPoints++;
+                    }
+                }
+            }
+            // Days are read newest first, once a full page came from trails older days cannot contribute
+        } while (trails.size() == TRAIL_DAYS_PER_QUERY && trailPoints <= limit);
+
+        writeBuffer.latest(user.getId())
+                .filter(buffered -> !buffered.getCreatedAt().isBefore(lower)
+                        && after.precedes(buffered.getCreatedAt(), Long.MAX_VALUE))
+                .ifPresent(buffered -> page.add(new HistoryEntry(new LocationResponseDTO(buffered), Long.MAX_VALUE)));
+
+        page.sort(HISTORY_ORDER);
+        String nextCursor = null;
+        List<HistoryEntry> result = page;
+        if (page.size() > limit) {
+            result = page.subList(0, limit);
+            HistoryEntry last = result.get(limit - 1);
+            nextCursor = new LocationCursor(last.location().getCreatedAt(), last.key()).encode();
+        }
+        return new LocationPageDTO(result.stream().map(HistoryEntry::location).toList(), nextCursor);
+    }
+
+    /**
+     * Get a user's locations inside a bounding box, newest first.
+     * The box is split into a few ranges of spatial keys ({@link MortonCode}), each read as a range scan of
+     * {@code idx_user_locations_user_spatial_key}; compacted trails are only decoded for days of the time range
+     * whose bounding box overlaps the area.
+     *
+     * @param user The user
+     * @param minLatitude The southern edge of the box
+     * @param minLongitude The western edge of the box
+     * @param maxLatitude The northern edge of the box
+     * @param maxLongitude The eastern edge of the box
+     * @param from Only locations created at or after this time, or null
+     * @param to Only locations created before this time, or null
+     * @param limit The maximum number of locations, or null for the default
+     * @return The newest locations inside the box
+     */
+    public List<LocationResponseDTO> getLocationsInArea(User user, double minLatitude, double minLongitude,
+                                                        double maxLatitude, double maxLongitude,
+                                                        LocalDateTime from, LocalDateTime to, Integer limit) {
+        GeocodeApiServiceImpl.validateCoordinates(minLatitude, minLongitude);
+        GeocodeApiServiceImpl.validateCoordinates(maxLatitude, maxLongitude);
+        if (minLatitude > maxLatitude) {
+            throw new ValidationException("The southern edge of the area must not lie north of its northern edge");
+        }
+        if (minLongitude > maxLongitude) {
+            throw new ValidationException("Areas crossing the antimeridian are not supported");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException("The start of the time range must lie before its end");
+        }
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Limit must be positive");
+        }
+        int maxLocations = Math.min(limit != null ? limit : defaultAreaLimit, maxAreaLimit);
+        LocalDateTime lower = from != null ? from : HISTORY_START;
+        LocalDateTime upper = to != null ? to : HISTORY_END;
 
-        List<UserLocation> locations = locationRepository.findByUserOrderByCreatedAtDesc(user);
+        // Every range returns its newest rows, the newest of all of them are the result
+        List<LocationResponseDTO> locations = new ArrayList<>();
+        for (long[] range : MortonCode.ranges(minLatitude, minLongitude, maxLatitude, maxLongitude, maxAreaRanges)) {
+            locations.addAll(locationRepository.findResponsesInArea(user.getId(), range[0], range[1],
+                    minLatitude, minLongitude, maxLatitude, maxLongitude, lower, upper, PageRequest.of(0, maxLocations)));
+        }
 
-        return locations.stream()
-                .map(LocationResponseDTO::new)
-                .collect(Collectors.toList());
+        int trailPage = 0;
+        List<LocationTrail> trails;
+        do {
+            trails = trailRepository.findOverlapping(user, lower.toLocalDate(), upper.toLocalDate(), lower, upper,
+                    minLatitude, minLongitude, maxLatitude, maxLongitude, PageRequest.of(trailPage++, TRAIL_DAYS_PER_QUERY));
+            for (LocationTrail trail : trails) {
+                for (TrailCodec.Point point : TrailCodec.decode(trail.getEncoded())) {
+                    if (!point.recordedAt().isBefore(lower) && point.recordedAt().isBefore(upper)
+                            && inArea(point.latitude(), point.longitude(), minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+                        locations.add(new LocationResponseDTO(toLocation(user, point)));
+                    }
+                }
+            }
+        } while (trails.size() == TRAIL_DAYS_PER_QUERY);
+
+        writeBuffer.latest(user.getId())
+                .filter(buffered -> !buffered.getCreatedAt().isBefore(lower) && buffered.getCreatedAt().isBefore(upper)
+                        && inArea(buffered.getLatitude(), buffered.getLongitude(), minLatitude, minLongitude, maxLatitude, maxLongitude))
+                .ifPresent(buffered -> locations.add(new LocationResponseDTO(buffered)));
+
+        locations.sort(Comparator.comparing(LocationResponseDTO::getCreatedAt).reversed());
+        return locations.size() > maxLocations ? new ArrayList<>(locations.subList(0, maxLocations)) : locations;
     }
 
     /**
-     * Get the latest locations of all friends for a user
+     * Get the latest locations of all friends for a user.
+     * Served from the {@link LatestLocationRegistry}; friends it does not know yet are read from the
+     * {@code user_latest_location} projection by primary key.
      *
-     * @param email The username of the user
+     * @param user The user
      * @return List of friends' locations
      */
-    public List<LocationResponseDTO> getFriendsLocations(String email) {
-        User user = userService.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + email));
-
+    public List<LocationResponseDTO> getFriendsLocations(User user) {
         List<User> friends = friendService.getFriends(user);
 
         if (friends.isEmpty()) {
             return List.of(); // Return empty list if no friends
         }
 
-        List<UserLocation> friendLocations = locationRepository.findLatestLocationsByUsers(friends);
+        List<UserLocation> friendLocations = findLatest(friends);
+        if (writeBuffer.isEnabled()) {
+            friendLocations = withBufferedLocations(friendLocations, friends);
+        }
 
         return friendLocations.stream()
                 .map(LocationResponseDTO::new)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get the latest locations of friends within a radius of the user's latest location, nearest first.
+     * With the registry enabled the candidates come from its grid index, so the cost depends on the
+     * friends near the user rather than on the number of friends.
+     *
+     * @param user The user
+     * @param radiusMeters The radius in meters, or null for the default
+     * @param limit The maximum number of friends, or null for the default
+     * @return The nearby friends' locations with their distances
+     */
+    public List<NearbyFriendDTO> getNearbyFriends(User user, Double radiusMeters, Integer limit) {
+        if (radiusMeters != null && (radiusMeters <= 0 || radiusMeters > maxNearbyRadius)) {
+            throw new ValidationException("Radius must be positive and at most " + (long) maxNearbyRadius + " meters");
+        }
+        if (limit != null && limit < 1) {
+            throw new ValidationException("Limit must be positive");
+        }
+        double radius = radiusMeters != null ? radiusMeters : defaultNearbyRadius;
+        int maxFriends = Math.min(limit != null ? limit : defaultNearbyLimit, maxNearbyLimit);
+
+        UserLocation origin = newest(findLatest(user), user)
+                .orElseThrow(() -> new ResourceNotFoundException("No locations found for user: " + user.getEmail()));
+        List<User> friends = friendService.getFriends(user);
+        if (friends.isEmpty()) {
+            return List.of();
+        }
+
+        List<UserLocation> candidates = findNearby(friends, origin.getLatitude(), origin.getLongitude(), radius);
+        if (writeBuffer.isEnabled()) {
+            // Buffered points may have moved friends into or out of the radius
+            List<User> buffered = friends.stream()
+                    .filter(friend -> writeBuffer.latest(friend.getId()).isPresent())
+                    .toList();
+            if (!buffered.isEmpty()) {
+                Set<Long> bufferedIds = buffered.stream().map(User::getId).collect(Collectors.toSet());
+                candidates = new ArrayList<>(candidates.stream()
+                        .filter(location -> !bufferedIds.contains(location.getUser().getId()))
+                        .toList());
+                candidates.addAll(withBufferedLocations(findLatest(buffered), buffered));
+            }
+        }
+
+        List<NearbyFriendDTO> nearby = new ArrayList<>();
+        for (UserLocation location : candidates) {
+            double distance = GeoUtils.distanceMeters(origin.getLatitude(), origin.getLongitude(),
+                    location.getLatitude(), location.getLongitude());
+            if (distance <= radius) {
+                nearby.add(new NearbyFriendDTO(new LocationResponseDTO(location), distance));
+            }
+        }
+        nearby.sort(Comparator.comparingDouble(NearbyFriendDTO::distanceMeters));
+        return nearby.size() > maxFriends ? nearby.subList(0, maxFriends) : nearby;
+    }
+
+    /**
+     * Get the latest locations of friends inside a bounding box, clustered for a map zoom level.
+     * The cluster hierarchy over all friends is built once and reused until one of them moves
+     * ({@link FriendClusterCache}). If the box holds more than {@code locations.clusters.max-clusters}
+     * clusters at the requested zoom, coarser levels are used, so the response stays bounded.
+     *
+     * @param user The user
+     * @param bbox The box as "minLatitude,minLongitude,maxLatitude,maxLongitude"
+     * @param zoom The map zoom level
+     * @return The clusters and the zoom level they were taken from
+     */
+    public FriendClustersDTO getFriendClusters(User user, String bbox, Integer zoom) {
+        String[] edges = bbox == null ? new String[0] : bbox.split(",");
+        if (edges.length != 4) {
+            throw new ValidationException("The bounding box must be given as minLatitude,minLongitude,maxLatitude,maxLongitude");
+        }
+        double[] box = new double[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                box[i] = Double.parseDouble(edges[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new ValidationException("The bounding box must consist of numbers");
+        }
+        GeocodeApiServiceImpl.validateCoordinates(box[0], box[1]);
+        GeocodeApiServiceImpl.validateCoordinates(box[2], box[3]);
+        if (box[0] > box[2]) {
+            throw new ValidationException("The southern edge of the area must not lie north of its northern edge");
+        }
+        if (box[1] > box[3]) {
+            throw new ValidationException("Areas crossing the antimeridian are not supported");
+        }
+        if (zoom == null || zoom < 0 || zoom > MAX_MAP_ZOOM) {
+            throw new ValidationException("Zoom must be between 0 and " + MAX_MAP_ZOOM);
+        }
+
+        List<User> friends = friendService.getFriends(user);
+        List<UserLocation> locations = friends.isEmpty() ? List.of() : findLatest(friends);
+        if (writeBuffer.isEnabled() && !friends.isEmpty()) {
+            locations = withBufferedLocations(locations, friends);
+        }
+        // The points of the hierarchy are positions in this list, its order must not depend on the friends collection
+        locations = new ArrayList<>(locations);
+        locations.sort(Comparator.comparing(location -> location.getUser().getId()));
+
+        ClusterIndex index = clusterCache.get(user.getId(), locations);
+        int level = Math.min(zoom, index.getMaxZoom() + 1);
+        List<ClusterIndex.Cluster> clusters = index.clusters(box[0], box[1], box[2], box[3], level);
+        while (clusters.size() > maxClusters && level > 0) {
+            level--;
+            clusters = index.clusters(box[0], box[1], box[2], box[3], level);
+        }
+
+        List<FriendClusterDTO> result = new ArrayList<>(clusters.size());
+        for (ClusterIndex.Cluster cluster : clusters) {
+            LocationResponseDTO location = cluster.point() >= 0
+                    ? new LocationResponseDTO(locations.get(cluster.point())) : null;
+            result.add(new FriendClusterDTO(cluster.latitude(), cluster.longitude(), cluster.count(), location));
+        }
+        return new FriendClustersDTO(level, result);
+    }
+
     /**
      * Get the latest location for a user by username, only if the requesting user and target user are friends
      *
-     * @param requestingUserEmail The email of the user making the request
+     * @param requestingUser The user making the request
      * @param targetUsername The username of the user whose location is being requested
      * @return The latest location if users are friends
      * @throws IllegalStateException if users are not friends
      */
     @Override
-    public LocationResponseDTO getFriendLocationByUsername(String requestingUserEmail, String targetUsername) {
-        // Get the requesting user
-        User requestingUser = userService.findByEmail(requestingUserEmail)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + requestingUserEmail));
-
+    public LocationResponseDTO getFriendLocationByUsername(User requestingUser, String targetUsername) {
         // Get the target user by username
         User targetUser = userService.findByUsername(targetUsername)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + targetUsername));
@@ -199,9 +637,83 @@ public class LocationServiceImpl implements LocationService {
         }
 
         // Get the latest location of the target user
-        UserLocation location = locationRepository.findFirstByUserOrderByCreatedAtDesc(targetUser)
+        UserLocation location = newest(findLatest(targetUser), targetUser)
                 .orElseThrow(() -> new ResourceNotFoundException("No locations found for user: " + targetUsername));
 
         return new LocationResponseDTO(location);
     }
+
+    /**
+     * Finds the latest stored locations of the users, from the registry if it is enabled.
+     */
+    private List<UserLocation> findLatest(List<User> users) {
+        if (latestLocationRegistry.isEnabled()) {
+            return latestLocationRegistry.findLatest(users, latestLocations::findLatest);
+        }
+        return latestLocations.findLatest(users);
+    }
+
+    /**
+     * Finds the latest stored locations of the users within a radius, from the registry's grid index if
+     * the registry is enabled. Without the registry all latest locations are returned for the caller to filter.
+     */
+    private List<UserLocation> findNearby(List<User> users, double latitude, double longitude, double radiusMeters) {
+        if (latestLocationRegistry.isEnabled()) {
+            return latestLocationRegistry.findNearby(users, latitude, longitude, radiusMeters, latestLocations::findLatest);
+        }
+        return latestLocations.findLatest(users);
+    }
+
+    private Optional<UserLocation> findLatest(User user) {
+        return findLatest(List.of(user)).stream().findFirst();
+    }
+
+    private static boolean inArea(double latitude, double longitude, double minLatitude, double minLongitude,
+                                  double maxLatitude, double maxLongitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+
+    private static UserLocation toLocation(User user, TrailCodec.Point point) {
+        UserLocation location = new UserLocation(user, point.latitude(), point.longitude(), point.formattedAddress());
+        location.setCreatedAt(point.recordedAt());
+        location.setLastConfirmedAt(point.lastConfirmedAt());
+        location.setLocationName(point.locationName());
+        location.setAddressStatus(point.addressStatus());
+        return location;
+    }
+
+    /**
+     * Returns the newer of the stored location and a point of the user still held in the write buffer.
+     */
+    private Optional<UserLocation> newest(Optional<UserLocation> stored, User user) {
+        Optional<UserLocation> buffered = writeBuffer.latest(user.getId());
+        if (buffered.isEmpty()) {
+            return stored;
+        }
+        if (stored.isEmpty() || !buffered.get().getCreatedAt().isBefore(stored.get().getCreatedAt())) {
+            return buffered;
+        }
+        return stored;
+    }
+
+    /**
+     * Replaces stored latest locations by newer points still held in the write buffer.
+     */
+    private List<UserLocation> withBufferedLocations(List<UserLocation> stored, List<User> users) {
+        Map<Long, UserLocation> latestByUser = new LinkedHashMap<>();
+        for (UserLocation location : stored) {
+            latestByUser.put(location.getUser().getId(), location);
+        }
+        for (User user : users) {
+            writeBuffer.latest(user.getId()).ifPresent(buffered -> latestByUser.merge(user.getId(), buffered,
+                    (current, candidate) -> candidate.getCreatedAt().isBefore(current.getCreatedAt()) ? current : candidate));
+        }
+        return new ArrayList<>(latestByUser.values());
+    }
+
+    /**
+     * A location of a history page with its position key, see {@link LocationCursor}.
+     */
+    private record HistoryEntry(LocationResponseDTO location, long key) {
+    }
 }
@@ -0,0 +1,200 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.LocationTrail;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.repository.LocationTrailRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import de.whs.wi.friends_and_places.util.TrailCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves the location rows of sealed days into {@link LocationTrail} blobs ({@code locations.trail.*}).
+ * A day is sealed once it is {@code seal-after-days} in the past. The newest row of every user and rows
+ * whose address is still being enriched are never compacted, so the row referenced by
+ * {@code user_latest_location} stays in {@code user_locations}.
+ * <p>
+ * Each day is compacted in its own transaction: the rows are appended to the day's trail and deleted.
+ * Compacted points have no id anymore; {@code getAllLocations} decodes them transparently.
+ * <p>
+ * Users are visited in id order. A run that ends on its budget resumes after the last user it finished,
+ * so users with many sealed days cannot starve the others.
+ */
+@Component
+public class LocationTrailCompactor implements StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationTrailCompactor.class);
+    // Tuple header, id, user id, coordinates, timestamps, status and index entries of a row, without strings
+    private static final int ESTIMATED_ROW_OVERHEAD_BYTES = 120;
+    private static final LocalDateTime BEGINNING = LocalDate.of(1970, 1, 1).atStartOfDay();
+
+    private final UserLocationRepository locationRepository;
+    private final LocationTrailRepository trailRepository;
+    private final LatestLocationProjection latestLocations;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int sealAfterDays;
+    private final int maxBucketsPerRun;
+
+    private final LongAdder buckets = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder estimatedRowBytes = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private volatile long lastRunMillis;
+    private volatile long afterUserId;
+
+    public LocationTrailCompactor(UserLocationRepository locationRepository,
+                                  LocationTrailRepository trailRepository,
+                                  LatestLocationProjection latestLocations,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${locations.trail.enabled:false}") boolean enabled,
+                                  @Value("${locations.trail.seal-after-days:2}") int sealAfterDays,
+                                  @Value("${locations.trail.max-buckets-per-run:1000}") int maxBucketsPerRun) {
+        this.locationRepository = locationRepository;
+        this.trailRepository = trailRepository;
+        this.latestLocations = latestLocations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.sealAfterDays = sealAfterDays;
+        this.maxBucketsPerRun = maxBucketsPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${locations.trail.compact-interval:3600000}",
+               initialDelayString = "${locations.trail.compact-interval:3600000}")
+    public void compactSealedDays() {
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * Compacts sealed days, at most {@code max-buckets-per-run} per call.
+     *
+     * @return the number of compacted days
+     */
+    public int compact() {
+        long start = System.nanoTime();
+        LocalDateTime sealedBefore = LocalDate.now().minusDays(sealAfterDays - 1L).atStartOfDay();
+        int compacted = 0;
+        List<Long> userIds = locationRepository.findUserIdsWithLocationsBefore(
+                afterUserId, sealedBefore, AddressStatus.PENDING, PageRequest.of(0, maxBucketsPerRun));
+        // A short page reached the last user, the next run starts over
+        long resumeAfter = userIds.size() < maxBucketsPerRun ? 0 : userIds.get(userIds.size() - 1);
+        long previous = afterUserId;
+        users:
+        for (Long userId : userIds) {
+            // The row referenced by user_latest_location must survive, it may differ on equal timestamps
+            Long latestId = latestLocations.findLatestId(userId).orElseGet(() ->
+                    locationRepository.findLatestIds(userId, PageRequest.of(0, 1)).stream().findFirst().orElse(null));
+            LocalDateTime from = BEGINNING;
+            while (true) {
+                LocalDateTime earliest = locationRepository.findEarliestCreatedAt(userId, from, sealedBefore, AddressStatus.PENDING);
+                if (earliest == null) {
+                    break;
+                }
+                if (compacted >= maxBucketsPerRun) {
+                    resumeAfter = previous;
+                    break users;
+                }
+                LocalDate day = earliest.toLocalDate();
+                try {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> compactDay(userId, day, latestId)))) {
+                        compacted++;
+                    }
+                } catch (Exception e) {
+                    logger.warn("Compacting locations of user {} for {} failed: {}", userId, day, e.getMessage());
+                }
+                from = day.plusDays(1).atStartOfDay();
+            }
+            previous = userId;
+        }
+        afterUserId = resumeAfter;
+        lastRunMillis = (System.nanoTime() - start) / 1_000_000;
+        if (compacted > 0) {
+            logger.info("Compacted {} location days in {} ms", compacted, lastRunMillis);
+        }
+        return compacted;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "locationTrails";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long rowBytes = estimatedRowBytes.sum();
+        long trailBytes = encodedBytes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("compactedDays", buckets.sum());
+        stats.put("compactedPoints", points.sum());
+        stats.put("estimatedRowBytes", rowBytes);
+        stats.put("encodedBytes", trailBytes);
+        stats.put("compressionRatio", trailBytes == 0 ? 0.0 : (double) rowBytes / trailBytes);
+        stats.put("lastRunMillis", lastRunMillis);
+        return stats;
+    }
+
+    private boolean compactDay(Long userId, LocalDate day, Long latestId) {
+        List<UserLocation> rows = locationRepository.findInRange(
+                userId, day.atStartOfDay(), day.plusDays(1).atStartOfDay(), AddressStatus.PENDING);
+        rows.removeIf(row -> row.getId().equals(latestId));
+        if (rows.isEmpty()) {
+            return false;
+        }
+
+        LocationTrail trail = trailRepository.findByUserIdAndBucketDate(userId, day)
+                .orElseGet(() -> new LocationTrail(rows.get(0).getUser(), day));
+        List<TrailCodec.Point> trailPoints = trail.getEncoded() == null
+                ? new ArrayList<>(rows.size())
+                : new ArrayList<>(TrailCodec.decode(trail.getEncoded()));
+        int previousBytes = trail.getEncoded() == null ? 0 : trail.getEncoded().length;
+        List<Long> ids = new ArrayList<>(rows.size());
+        long rowBytes = 0;
+        for (UserLocation row : rows) {
+            trailPoints.add(new TrailCodec.Point(row.getLatitude(), row.getLongitude(), row.getCreatedAt(),
+                    row.getLastConfirmedAt(), row.getFormattedAddress(), row.getLocationName(), row.getAddressStatus()));
+            ids.add(row.getId());
+            rowBytes += ESTIMATED_ROW_OVERHEAD_BYTES + length(row.getFormattedAddress()) + length(row.getLocationName());
+        }
+
+        byte[] encoded = TrailCodec.encode(trailPoints);
+        LocalDateTime first = trailPoints.stream().map(TrailCodec.Point::recordedAt).min(LocalDateTime::compareTo).orElseThrow();
+        LocalDateTime last = trailPoints.stream().map(TrailCodec.Point::recordedAt).max(LocalDateTime::compareTo).orElseThrow();
+        trail.setEncoded(encoded, trailPoints.size(), first, last);
+        trail.setBounds(trailPoints.stream().mapToDouble(TrailCodec.Point::latitude).min().orElseThrow(),
+                trailPoints.stream().mapToDouble(TrailCodec.Point::longitude).min().orElseThrow(),
+                trailPoints.stream().mapToDouble(TrailCodec.Point::latitude).max().orElseThrow(),
+                trailPoints.stream().mapToDouble(TrailCodec.Point::longitude).max().orElseThrow());
+        trailRepository.save(trail);
+        locationRepository.deleteAllByIdInBatch(ids);
+
+        buckets.increment();
+        points.add(rows.size());
+        estimatedRowBytes.add(rowBytes);
+        encodedBytes.add(encoded.length - previousBytes);
+        return true;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,269 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.error.ServiceOverloadedException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.service.AddressEnrichmentService;
+import de.whs.wi.friends_and_places.util.BucketHistogram;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for location updates ({@code locations.write-behind.enabled}).
+ * Only the newest pending point per user is kept; older points reported before the next flush are
+ * dropped. The buffer is written to {@code user_locations} in batches once {@code flush-size} users
+ * are pending or every {@code flush-interval-millis}, and once more on shutdown.
+ * <p>
+ * Points stay visible through {@link #latest(Long)} until their batch is committed, so reads of the
+ * latest location never go back in time. When {@code max-pending} users are buffered, the writer
+ * flushes on its own thread before its point is accepted (backpressure).
+ */
+@Component
+public class LocationWriteBuffer implements StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationWriteBuffer.class);
+
+    private final LatestLocationProjection projection;
+    private final AddressEnrichmentService addressEnrichmentService;
+    private final boolean enabled;
+    private final int maxPending;
+    private final int flushSize;
+
+    // Newest point per user id that has not been handed to a flush yet
+    private final Map<Long, UserLocation> pending = new ConcurrentHashMap<>();
+    // Points of the batch currently being written, still visible to readers
+    private final Map<Long, UserLocation> flushing = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flusher;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder backpressureFlushes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final BucketHistogram batchSizes = new BucketHistogram(1, 10, 50, 100, 250, 500, 1000);
+    private final BucketHistogram flushLatencyMillis = new BucketHistogram(5, 10, 25, 50, 100, 250, 500, 1000);
+
+    public LocationWriteBuffer(LatestLocationProjection projection,
+                               AddressEnrichmentService addressEnrichmentService,
+                               @Value("${locations.write-behind.enabled:false}") boolean enabled,
+                               @Value("${locations.write-behind.max-pending:10000}") int maxPending,
+                               @Value("${locations.write-behind.flush-size:200}") int flushSize) {
+        this.projection = projection;
+        this.addressEnrichmentService = addressEnrichmentService;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.flushSize = flushSize;
+        this.flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return true if location updates should go through the buffer
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffers a new, not yet persisted location. Replaces an older pending point of the same user.
+     *
+     * @param location the location to store
+     * @throws ServiceOverloadedException if the buffer is full and could not be flushed
+     */
+    public void offer(UserLocation location) {
+        Long userId = location.getUser().getId();
+        if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+            backpressureFlushes.increment();
+            flush();
+            if (pending.size() >= maxPending && !pending.containsKey(userId)) {
+                rejected.increment();
+                throw new ServiceOverloadedException("Too many pending location updates", 1);
+            }
+        }
+        pending.compute(userId, (id, current) -> {
+            if (current == null) {
+                return location;
+            }
+            coalesced.increment();
+            return newer(current, location);
+        });
+        accepted.increment();
+        if (pending.size() >= flushSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Returns the newest buffered point of the user that is not committed yet.
+     *
+     * @param userId the id of the user
+     * @return the buffered location, or empty if all points of the user are persisted
+     */
+    public Optional<UserLocation> latest(Long userId) {
+        if (!enabled || userId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(newer(flushing.get(userId), pending.get(userId)));
+    }
+
+    /**
+     * Time trigger, hands the flush to the background writer so the scheduler thread is not blocked.
+     */
+    @Scheduled(fixedDelayString = "${locations.write-behind.flush-interval-millis:1000}")
+    public void flushPeriodically() {
+        if (enabled && !pending.isEmpty()) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Writes all points that are pending when the call starts, in batches of {@code flush-size}.
+     * Points of a failed batch are put back unless a newer point of the same user arrived meanwhile.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            int remaining = pending.size();
+            while (remaining > 0) {
+                List<UserLocation> batch = takeBatch(Math.min(remaining, flushSize));
+                if (batch.isEmpty()) {
+                    return;
+                }
+                remaining -= batch.size();
+                if (!write(batch)) {
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        if (!pending.isEmpty()) {
+            logger.warn("{} buffered locations could not be written on shutdown", pending.size());
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "locationWriteBuffer";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("pending", pending.size());
+        stats.put("maxPending", maxPending);
+        stats.put("accepted", accepted.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("written", written.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("backpressureFlushes", backpressureFlushes.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("batchSize", batchSizes.snapshot());
+        stats.put("flushLatencyMillis", flushLatencyMillis.snapshot());
+        return stats;
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushRequested.set(false);
+                    flush();
+                });
+            } catch (RuntimeException e) {
+                // Shutting down, the final flush runs in shutdown()
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private List<UserLocation> takeBatch(int size) {
+        List<UserLocation> batch = new ArrayList<>(size);
+        for (Long userId : pending.keySet()) {
+            if (batch.size() >= size) {
+                break;
+            }
+            UserLocation location = pending.get(userId);
+            if (location == null) {
+                continue;
+            }
+            // Publish to readers before removing, so the point is never invisible
+            flushing.put(userId, location);
+            pending.remove(userId, location);
+            batch.add(location);
+        }
+        return batch;
+    }
+
+    private boolean write(List<UserLocation> batch) {
+        long start = System.nanoTime();
+        try {
+            List<UserLocation> saved = projection.saveAll(batch);
+            written.add(saved.size());
+            batchSizes.record(saved.size());
+            flushLatencyMillis.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            for (UserLocation location : saved) {
+                if (location.getAddressStatus() == AddressStatus.PENDING) {
+                    addressEnrichmentService.enqueue(location.getId());
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            failedFlushes.increment();
+            logger.warn("Writing {} buffered locations failed: {}", batch.size(), e.getMessage());
+            for (UserLocation location : batch) {
+                // The rolled back insert may have assigned an id, the retry must insert again
+                location.setId(null);
+                pending.merge(location.getUser().getId(), location, LocationWriteBuffer::newer);
+            }
+            return false;
+        } finally {
+            for (UserLocation location : batch) {
+                flushing.remove(location.getUser().getId(), location);
+            }
+        }
+    }
+
+    private static UserLocation newer(UserLocation a, UserLocation b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return b.getCreatedAt().isBefore(a.getCreatedAt()) ? a : b;
+    }
+}
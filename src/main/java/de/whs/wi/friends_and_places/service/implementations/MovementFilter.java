@@ -0,0 +1,197 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationRegistry;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.util.BoundedCache;
+import de.whs.wi.friends_and_places.util.GeoUtils;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drops stationary jitter ({@code locations.dedup.*}). A new point that lies within {@code distance-meters}
+ * of the user's latest stored point, and arrives within {@code interval-seconds} of the last time that point
+ * was stored or confirmed, only bumps {@code last_confirmed_at} of the stored row instead of inserting a new one.
+ * <p>
+ * The decision is made against an in-memory copy of each user's latest point, so it costs no query.
+ * Users without a cached point (first report, evicted, after a restart) always get a new row. The address
+ * of the copy follows the enrichment of the stored row ({@link #updateAddress}).
+ */
+@Component
+public class MovementFilter implements StatsProvider {
+
+    private final UserLocationRepository locationRepository;
+    private final LatestLocationRegistry latestLocationRegistry;
+    private final boolean enabled;
+    private final double distanceMeters;
+    private final Duration interval;
+    private final BoundedCache<Long, LatestPoint> latestPoints;
+
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder moved = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+
+    public MovementFilter(UserLocationRepository locationRepository,
+                          LatestLocationRegistry latestLocationRegistry,
+                          @Value("${locations.dedup.enabled:true}") boolean enabled,
+                          @Value("${locations.dedup.distance-meters:25}") double distanceMeters,
+                          @Value("${locations.dedup.interval-seconds:600}") long intervalSeconds,
+                          @Value("${locations.dedup.max-users:100000}") int maxUsers) {
+        this.locationRepository = locationRepository;
+        this.latestLocationRegistry = latestLocationRegistry;
+        this.enabled = enabled;
+        this.distanceMeters = distanceMeters;
+        this.interval = Duration.ofSeconds(intervalSeconds);
+        // Entries are replaced on every report, the interval check makes a separate expiry unnecessary
+        this.latestPoints = new BoundedCache<>(maxUsers, Long.MAX_VALUE);
+    }
+
+    /**
+     * Confirms the user's latest stored point if the new point does not count as movement.
+     *
+     * @param user      the reporting user
+     * @param latitude  the latitude of the new point
+     * @param longitude the longitude of the new point
+     * @return the confirmed stored location, or empty if the new point has to be inserted
+     */
+    public Optional<UserLocation> confirmIfStationary(User user, double latitude, double longitude) {
+        if (!enabled || user.getId() == null) {
+            return Optional.empty();
+        }
+        evaluated.increment();
+        LatestPoint latest = latestPoints.get(user.getId());
+        if (latest == null) {
+            unknown.increment();
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (Duration.between(latest.lastSeenAt(), now).compareTo(interval) > 0) {
+            expired.increment();
+            return Optional.empty();
+        }
+        if (GeoUtils.distanceMeters(latest.latitude(), latest.longitude(), latitude, longitude) > distanceMeters) {
+            moved.increment();
+            return Optional.empty();
+        }
+        if (locationRepository.confirmLocation(latest.locationId(), now) == 0) {
+            // The row is gone (deleted user or history), start over with a new one
+            latestPoints.invalidate(user.getId());
+            unknown.increment();
+            return Optional.empty();
+        }
+        latestLocationRegistry.confirm(user.getId(), latest.locationId(), now);
+        // The address may have been resolved in the meantime, only the confirmation time is replaced
+        LatestPoint current = latestPoints.computeIfPresent(user.getId(), point ->
+                point.locationId().equals(latest.locationId()) ? point.confirmedAt(now) : point);
+        LatestPoint confirmedPoint = current != null && current.locationId().equals(latest.locationId())
+                ? current : latest.confirmedAt(now);
+        confirmed.increment();
+        return Optional.of(confirmedPoint.toLocation(user));
+    }
+
+    /**
+     * Remembers a newly stored location as the user's latest point.
+     *
+     * @param location the persisted location
+     */
+    public void remember(UserLocation location) {
+        if (enabled && location.getId() != null && location.getUser() != null) {
+            latestPoints.put(location.getUser().getId(), LatestPoint.of(location));
+        }
+    }
+
+    /**
+     * Records the result of the address enrichment of a location, if it is the user's latest point.
+     *
+     * @param userId           the id of the user
+     * @param locationId       the id of the location
+     * @param formattedAddress the resolved address
+     * @param addressStatus    the new address status
+     */
+    public void updateAddress(Long userId, Long locationId, String formattedAddress, AddressStatus addressStatus) {
+        if (enabled && userId != null && locationId != null) {
+            latestPoints.computeIfPresent(userId, point ->
+                    point.locationId().equals(locationId) ? point.withAddress(formattedAddress, addressStatus) : point);
+        }
+    }
+
+    /**
+     * Forgets the user's latest point, e.g. when locations were stored without going through the filter.
+     *
+     * @param userId the id of the user
+     */
+    public void forget(Long userId) {
+        if (userId != null) {
+            latestPoints.invalidate(userId);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "movementFilter";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        long evaluatedCount = evaluated.sum();
+        long confirmedCount = confirmed.sum();
+        Map<String, Object> stats = latestPoints.stats();
+        stats.put("enabled", enabled);
+        stats.put("evaluated", evaluatedCount);
+        stats.put("insertsAvoided", confirmedCount);
+        stats.put("moved", moved.sum());
+        stats.put("intervalExpired", expired.sum());
+        stats.put("noLatestPoint", unknown.sum());
+        stats.put("avoidedRatio", evaluatedCount == 0 ? 0.0 : (double) confirmedCount / evaluatedCount);
+        return stats;
+    }
+
+    /**
+     * Snapshot of a stored location, enough to answer the request without loading the row.
+     */
+    private record LatestPoint(Long locationId, double latitude, double longitude, String formattedAddress,
+                               String locationName, AddressStatus addressStatus,
+                               LocalDateTime createdAt, LocalDateTime lastConfirmedAt) {
+
+        static LatestPoint of(UserLocation location) {
+            return new LatestPoint(location.getId(), location.getLatitude(), location.getLongitude(),
+                    location.getFormattedAddress(), location.getLocationName(), location.getAddressStatus(),
+                    location.getCreatedAt(), location.getLastConfirmedAt());
+        }
+
+        LocalDateTime lastSeenAt() {
+            return lastConfirmedAt != null ? lastConfirmedAt : createdAt;
+        }
+
+        LatestPoint withAddress(String address, AddressStatus status) {
+            return new LatestPoint(locationId, latitude, longitude, address, locationName, status,
+                    createdAt, lastConfirmedAt);
+        }
+
+        LatestPoint confirmedAt(LocalDateTime confirmedAt) {
+            return new LatestPoint(locationId, latitude, longitude, formattedAddress, locationName, addressStatus,
+                    createdAt, confirmedAt);
+        }
+
+        UserLocation toLocation(User user) {
+            UserLocation location = new UserLocation(user, latitude, longitude, formattedAddress);
+            location.setId(locationId);
+            location.setLocationName(locationName);
+            location.setAddressStatus(addressStatus);
+            location.setCreatedAt(createdAt);
+            location.setLastConfirmedAt(lastConfirmedAt);
+            return location;
+        }
+    }
+}
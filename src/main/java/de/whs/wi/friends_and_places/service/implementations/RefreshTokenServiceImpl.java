@@ -0,0 +1,133 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.config.AuthenticatedUser;
+import de.whs.wi.friends_and_places.controller.dto.TokenPairDTO;
+import de.whs.wi.friends_and_places.error.AuthenticationException;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.model.RefreshToken;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserIdentity;
+import de.whs.wi.friends_and_places.repository.RefreshTokenRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.RefreshTokenService;
+import de.whs.wi.friends_and_places.util.HashUtils;
+import de.whs.wi.friends_and_places.util.JwtUtil;
+import de.whs.wi.friends_and_places.util.UserLookupCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Service for issuing and rotating refresh tokens.
+ * A refresh costs one indexed lookup by token hash, one update and one insert plus the HMAC of the
+ * new access token; the password is never verified again, so no BCrypt work is involved.
+ */
+@Service
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenServiceImpl.class);
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final UserLookupCache userLookupCache;
+    private final JwtUtil jwtUtil;
+    private final long refreshExpirationMillis;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                   UserRepository userRepository,
+                                   UserLookupCache userLookupCache,
+                                   JwtUtil jwtUtil,
+                                   @Value("${jwt.refresh.expiration:2592000000}") long refreshExpirationMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.userLookupCache = userLookupCache;
+        this.jwtUtil = jwtUtil;
+        this.refreshExpirationMillis = refreshExpirationMillis;
+    }
+
+    @Override
+    @Transactional
+    public String createRefreshToken(String email) {
+        UserIdentity identity = userLookupCache.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
+        return issue(userRepository.getReferenceById(identity.id()), UUID.randomUUID().toString());
+    }
+
+    @Override
+    @Transactional(noRollbackFor = AuthenticationException.class)
+    public TokenPairDTO refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new AuthenticationException("Refresh token must be provided");
+        }
+        RefreshToken stored = refreshTokenRepository.findByTokenHash(HashUtils.sha256Base64(refreshToken))
+                .orElseThrow(() -> new AuthenticationException("Invalid refresh token"));
+
+        if (stored.isRevoked()) {
+            throw new AuthenticationException("Refresh token has been revoked");
+        }
+        if (stored.isExpired()) {
+            throw new AuthenticationException("Refresh token has expired");
+        }
+        // Atomic check-and-set: of two concurrent refreshes with the same token only one succeeds
+        if (refreshTokenRepository.markUsed(stored.getId(), LocalDateTime.now()) == 0) {
+            // A consumed token was presented again, so it has probably been stolen
+            logger.warn("Refresh token reuse detected for user {}, revoking token family", stored.getUser().getId());
+            refreshTokenRepository.revokeFamily(stored.getFamilyId());
+            throw new AuthenticationException("Refresh token has already been used");
+        }
+
+        User user = stored.getUser();
+        AuthenticatedUser principal = new AuthenticatedUser(user.getId(), user.getEmail(), "",
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
+        String accessToken = jwtUtil.generateToken(principal, user.getId(), user.getUsername(),
+                user.getSecurityVersion());
+        return new TokenPairDTO(accessToken, issue(user, stored.getFamilyId()));
+    }
+
+    @Override
+    @Transactional
+    public void revoke(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(HashUtils.sha256Base64(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    @Override
+    @Transactional
+    public void revokeAll(User user) {
+        refreshTokenRepository.revokeAllForUser(user);
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval:3600000}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired or revoked refresh tokens", deleted);
+        }
+    }
+
+    private String issue(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(refreshExpirationMillis));
+        refreshTokenRepository.save(new RefreshToken(user, HashUtils.sha256Base64(token), familyId, expiresAt));
+        return token;
+    }
+}
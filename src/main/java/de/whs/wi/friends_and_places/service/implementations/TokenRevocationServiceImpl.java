@@ -0,0 +1,147 @@
+package de.whs.wi.friends_and_places.service.implementations;
+
+import de.whs.wi.friends_and_places.error.AuthenticationException;
+import de.whs.wi.friends_and_places.model.RevokedToken;
+import de.whs.wi.friends_and_places.repository.RevokedTokenRepository;
+import de.whs.wi.friends_and_places.service.TokenRevocationService;
+import de.whs.wi.friends_and_places.util.BloomFilter;
+import de.whs.wi.friends_and_places.util.JwtClaims;
+import de.whs.wi.friends_and_places.util.JwtClaimsCache;
+import de.whs.wi.friends_and_places.util.StatsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service for revoking individual access tokens (logout).
+ * Revocations are stored in the database; every request consults an in-memory Bloom filter of the
+ * revoked token ids first and only queries the database if the filter reports a possible match.
+ * <p>
+ * The filter is rebuilt from the database periodically ({@code jwt.revocation.rebuild-interval}),
+ * which also prunes revocations of tokens that have expired. Revocations made on this instance are
+ * visible immediately; revocations made on other instances become visible with the next rebuild.
+ */
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService, StatsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final JwtClaimsCache jwtClaimsCache;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+
+    private final Object lock = new Object();
+    // Revoked on this instance since the last rebuild, re-added to a new filter built concurrently
+    private final Set<String> recentlyRevoked = ConcurrentHashMap.newKeySet();
+    private volatile BloomFilter filter;
+    private volatile int filterEntries;
+    private volatile LocalDateTime lastRebuild;
+
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder storeLookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public TokenRevocationServiceImpl(RevokedTokenRepository revokedTokenRepository,
+                                      JwtClaimsCache jwtClaimsCache,
+                                      @Value("${jwt.revocation.expected-insertions:100000}") long expectedInsertions,
+                                      @Value("${jwt.revocation.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.jwtClaimsCache = jwtClaimsCache;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    @Override
+    @Transactional
+    public void revoke(String token) {
+        JwtClaims claims;
+        try {
+            claims = jwtClaimsCache.resolve(token);
+        } catch (Exception e) {
+            throw new AuthenticationException("Invalid JWT token");
+        }
+        if (claims.tokenId() == null) {
+            throw new AuthenticationException("Token cannot be revoked, please log in again to obtain a new token");
+        }
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(claims.expiration().toInstant(), ZoneId.systemDefault());
+        revokedTokenRepository.save(new RevokedToken(claims.tokenId(), claims.userId(), expiresAt));
+        synchronized (lock) {
+            recentlyRevoked.add(claims.tokenId());
+            if (filter != null) {
+                filter.put(claims.tokenId());
+            }
+        }
+    }
+
+    @Override
+    public boolean isRevoked(String tokenId) {
+        checks.increment();
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(tokenId)) {
+            return false;
+        }
+        // Possible match, or the filter has not been built yet: ask the store
+        storeLookups.increment();
+        boolean revoked = revokedTokenRepository.existsById(tokenId);
+        if (!revoked && current != null) {
+            falsePositives.increment();
+        }
+        return revoked;
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval:30000}")
+    public void rebuild() {
+        Set<String> alreadyInStore = new HashSet<>(recentlyRevoked);
+        LocalDateTime now = LocalDateTime.now();
+        int pruned = revokedTokenRepository.deleteExpired(now);
+        List<String> active = revokedTokenRepository.findActiveTokenIds(now);
+
+        // Leave headroom so the false positive rate holds until the next rebuild
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, active.size() * 2L), falsePositiveProbability);
+        active.forEach(rebuilt::put);
+        synchronized (lock) {
+            recentlyRevoked.forEach(rebuilt::put);
+            filter = rebuilt;
+            recentlyRevoked.removeAll(alreadyInStore);
+        }
+        filterEntries = active.size();
+        lastRebuild = now;
+        if (pruned > 0) {
+            logger.debug("Pruned {} expired token revocations", pruned);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "tokenRevocation";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        BloomFilter current = filter;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("filterEntries", filterEntries);
+        stats.put("filterBits", current == null ? 0 : current.getBitCount());
+        stats.put("lastRebuild", lastRebuild == null ? null : lastRebuild.toString());
+        stats.put("checks", checks.sum());
+        stats.put("storeLookups", storeLookups.sum());
+        stats.put("falsePositives", falsePositives.sum());
+        return stats;
+    }
+}
@@ -1,5 +1,6 @@
 package de.whs.wi.friends_and_places.service.implementations;
 
+import de.whs.wi.friends_and_places.config.AuthenticatedUser;
 import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
 import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
 import de.whs.wi.friends_and_places.error.AuthenticationException;
@@ -7,16 +8,21 @@ import de.whs.wi.friends_and_places.error.DuplicateResourceException;
 import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
 import de.whs.wi.friends_and_places.error.ValidationException;
 import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserIdentity;
+import de.whs.wi.friends_and_places.repository.UserChangedEvent;
 import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.RefreshTokenService;
 import de.whs.wi.friends_and_places.service.UserService;
 import de.whs.wi.friends_and_places.util.JwtUtil;
+import de.whs.wi.friends_and_places.util.SecurityVersionRegistry;
+import de.whs.wi.friends_and_places.util.UserLookupCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -31,13 +37,23 @@ public class UserServiceImpl implements UserService {
 
     private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
+    private final SecurityVersionRegistry securityVersionRegistry;
+    private final UserLookupCache userLookupCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RefreshTokenService refreshTokenService;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager, JwtUtil jwtUtil) {
+    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthenticationManager authenticationManager, JwtUtil jwtUtil,
+                           SecurityVersionRegistry securityVersionRegistry, UserLookupCache userLookupCache,
+                           ApplicationEventPublisher eventPublisher, RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtUtil = jwtUtil;
+        this.securityVersionRegistry = securityVersionRegistry;
+        this.userLookupCache = userLookupCache;
+        this.eventPublisher = eventPublisher;
+        this.refreshTokenService = refreshTokenService;
     }
 
     public User findById(Long id) {
@@ -56,11 +72,11 @@ public class UserServiceImpl implements UserService {
             throw new ValidationException("All fields in user registration data must be provided");
         }
 
-        // Check for existing user with same username or email
-        if (existsByUsername(userRegisterDTO.getUsername())) {
+        // Check for existing user with same username or email, bypassing the cache as it may lag behind other instances
+        if (userRepository.findByUsername(userRegisterDTO.getUsername()).isPresent()) {
             throw new DuplicateResourceException("User with username '" + userRegisterDTO.getUsername() + "' already exists");
         }
-        if (existsByEmail(userRegisterDTO.getEmail())) {
+        if (userRepository.findByEmail(userRegisterDTO.getEmail()).isPresent()) {
             throw new DuplicateResourceException("User with email '" + userRegisterDTO.getEmail() + "' already exists");
         }
 
@@ -73,7 +89,10 @@ public class UserServiceImpl implements UserService {
         user.setStreet(userRegisterDTO.getStreet());
         user.setHouseNumber(userRegisterDTO.getHouseNumber());
         user.setMobile(userRegisterDTO.getMobile());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Drops cached "not found" entries for the new username and email
+        publishChanged(saved);
+        return saved;
     }
 
     public Optional<User> findByUsername(String username) {
@@ -84,24 +103,50 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByEmail(email);
     }
 
+    public Optional<UserIdentity> findIdentityByEmail(String email) {
+        return userLookupCache.findByEmail(email);
+    }
+
+    public boolean existsByUsername(String username) {
+        return userLookupCache.findByUsername(username).isPresent();
+    }
+
+    public boolean existsByEmail(String email) {
+        return userLookupCache.findByEmail(email).isPresent();
+    }
+
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        publishChanged(saved);
+        return saved;
     }
 
     public void changePassword(User user, String newPassword) {
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        // Revoke all tokens issued with the old password
+        securityVersionRegistry.invalidate(user.getId());
+        refreshTokenService.revokeAll(user);
+        publishChanged(user);
+    }
+
+    public void updatePasswordHash(String email, String encodedPassword) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
+        user.setPassword(encodedPassword);
+        userRepository.save(user);
+        // Same password, so tokens stay valid; only the cached hash has to go
+        publishChanged(user);
     }
 
     public void deleteUser(User user) {
         userRepository.delete(user);
+        securityVersionRegistry.invalidate(user.getId());
+        publishChanged(user);
     }
 
-    private boolean existsByEmail(String email) {
-        return userRepository.findByEmail(email).isPresent();
-    }
-    private boolean existsByUsername(String username) {
-        return userRepository.findByUsername(username).isPresent();
+    private void publishChanged(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail(), user.getUsername()));
     }
 
     @Override
@@ -113,8 +158,10 @@ public class UserServiceImpl implements UserService {
                             userLoginDTO.getPassword()
                     ));
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            return jwtUtil.generateToken(userDetails);
+            // Loaded from the database by the authentication manager, no second lookup needed
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            // Embed id, username, roles and security version so the token can be verified statelessly
+            return jwtUtil.generateToken(user, user.getId(), user.getAccountName(), user.getSecurityVersion());
         } catch (AuthenticationException ex) {
             throw new de.whs.wi.friends_and_places.error.AuthenticationException("Invalid email or password");
         }
@@ -0,0 +1,252 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Small in-process cache with LRU eviction and per-entry expiry.
+ * The key space is split into independently locked segments so that concurrent
+ * readers on the request path do not contend on a single lock.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache using the system clock.
+     *
+     * @param maxSize   maximum number of entries held across all segments
+     * @param ttlMillis default time to live of an entry in milliseconds
+     */
+    public BoundedCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a cache with a custom clock, mainly for tests.
+     *
+     * @param maxSize   maximum number of entries held across all segments
+     * @param ttlMillis default time to live of an entry in milliseconds
+     * @param clock     source of the current time in milliseconds
+     */
+    public BoundedCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        int segmentCount = Math.min(DEFAULT_SEGMENTS, maxSize);
+        int perSegment = Math.max(1, maxSize / segmentCount);
+        // Generic arrays cannot be created directly; the array only ever holds Segment<K, V>
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Segment<K, V>[] array = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            array[i] = new Segment<>(perSegment, evictions);
+        }
+        this.segments = array;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached value, or null if there is no live entry for the key.
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                segment.map.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a value using the default time to live.
+     */
+    public void put(K key, V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Stores a value that expires at the given instant or after the default time to live,
+     * whichever comes first.
+     *
+     * @param expiresAtMillis latest expiry of the entry as epoch milliseconds
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        long now = clock.getAsLong();
+        long ttlExpiry = ttlMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlMillis;
+        long expiresAt = Math.min(expiresAtMillis, ttlExpiry);
+        if (expiresAt <= now) {
+            return;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.map.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    /**
+     * Replaces the live value for the given key with the result of the function, keeping its expiry.
+     * The function runs under the segment lock, so it must be cheap.
+     *
+     * @return the new value, or null if there was no live entry for the key
+     */
+    public V computeIfPresent(K key, UnaryOperator<V> function) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            if (entry == null || entry.expiresAt <= now) {
+                return null;
+            }
+            V value = function.apply(entry.value);
+            segment.map.put(key, new Entry<>(value, entry.expiresAt));
+            return value;
+        }
+    }
+
+    /**
+     * Removes the entry for the given key, if present.
+     */
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.map.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entries whose key and value match the predicate.
+     */
+    public void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value));
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops expired entries. Expired entries are otherwise only removed lazily on access.
+     */
+    public void cleanUp() {
+        long now = clock.getAsLong();
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                Iterator<Entry<V>> it = segment.map.values().iterator();
+                while (it.hasNext()) {
+                    if (it.next().expiresAt <= now) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries currently held, including not yet removed expired ones
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return hits divided by lookups, or 0 if there were no lookups yet
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return a snapshot of size and hit/miss counters
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("hits", getHitCount());
+        stats.put("misses", getMissCount());
+        stats.put("evictions", getEvictionCount());
+        stats.put("hitRatio", getHitRatio());
+        return stats;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[Math.floorMod(h, segments.length)];
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final class Segment<K, V> {
+        private final LinkedHashMap<K, Entry<V>> map;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
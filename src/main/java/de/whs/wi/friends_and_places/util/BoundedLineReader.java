@@ -0,0 +1,83 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a character stream into lines like {@link java.io.BufferedReader#readLine()}, but keeps at most
+ * {@code maxLength} characters of a line. The rest of a longer line is skipped without being held in
+ * memory, and {@link #isTooLong()} tells that the line was cut.
+ * <p>
+ * Lines end at {@code \n}, {@code \r} or {@code \r\n}. Not thread-safe.
+ */
+public class BoundedLineReader implements Closeable {
+
+    private final Reader reader;
+    private final int maxLength;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+    private boolean tooLong;
+
+    /**
+     * @param reader    the stream to read, not buffered by the caller
+     * @param maxLength the maximum number of characters kept of a line
+     */
+    public BoundedLineReader(Reader reader, int maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return the line without its terminator, cut after {@code maxLength} characters, or null at the end
+     *         of the stream
+     */
+    public String readLine() throws IOException {
+        line.setLength(0);
+        tooLong = false;
+        boolean started = false;
+        while (true) {
+            if (position == limit) {
+                limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+                position = 0;
+                if (limit == 0) {
+                    return started ? line.toString() : null;
+                }
+            }
+            char c = buffer[position++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            started = true;
+            if (c == '\n' || c == '\r') {
+                skipLineFeed = c == '\r';
+                return line.toString();
+            }
+            if (line.length() < maxLength) {
+                line.append(c);
+            } else {
+                tooLong = true;
+            }
+        }
+    }
+
+    /**
+     * @return whether the line returned last was longer than {@code maxLength} and has been cut
+     */
+    public boolean isTooLong() {
+        return tooLong;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,70 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with fixed bucket bounds, for reporting distributions (latencies, batch sizes)
+ * in the health metrics. A value is counted in the first bucket whose upper bound it does not exceed;
+ * larger values go to an overflow bucket.
+ */
+public class BucketHistogram {
+
+    private final long[] upperBounds;
+    private final LongAdder[] counts;
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * @param upperBounds inclusive upper bounds of the buckets in ascending order
+     */
+    public BucketHistogram(long... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be ascending");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one value.
+     */
+    public void record(long value) {
+        int bucket = 0;
+        while (bucket < upperBounds.length && value > upperBounds[bucket]) {
+            bucket++;
+        }
+        counts[bucket].increment();
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * @return count, mean, max and the count per bucket keyed by {@code le_<bound>} and {@code gt_<last bound>}
+     */
+    public Map<String, Object> snapshot() {
+        long count = total.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", count);
+        snapshot.put("mean", count == 0 ? 0 : sum.sum() / count);
+        snapshot.put("max", max.get());
+        for (int i = 0; i < upperBounds.length; i++) {
+            snapshot.put("le_" + upperBounds[i], counts[i].sum());
+        }
+        snapshot.put("gt_" + upperBounds[upperBounds.length - 1], counts[upperBounds.length].sum());
+        return snapshot;
+    }
+}
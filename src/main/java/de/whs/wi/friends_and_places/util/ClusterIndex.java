@@ -0,0 +1,220 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical point clusters for map zoom levels, in the manner of the supercluster library.
+ * <p>
+ * Points are projected to Web Mercator. The points of every zoom level are merged greedily with all
+ * unmerged neighbours within {@code radiusPixels} (at 256 pixels per tile) into their weighted centroid,
+ * starting one level below the points and going up to zoom 0. Clusters of a level are therefore at least
+ * about the radius apart, which bounds their number per screen. Levels without any merge share the arrays
+ * of the level below.
+ * <p>
+ * Immutable and thread-safe once built.
+ */
+public class ClusterIndex {
+
+    private static final double TILE_SIZE = 256.0;
+
+    private final int maxZoom;
+    // levels[z] holds the clusters at zoom z, levels[maxZoom + 1] the points themselves
+    private final Level[] levels;
+
+    /**
+     * @param latitudes    the latitudes of the points
+     * @param longitudes   the longitudes of the points, in the same order
+     * @param maxZoom      the highest zoom with clusters; above it every point is returned on its own
+     * @param radiusPixels the cluster radius in pixels
+     */
+    public ClusterIndex(double[] latitudes, double[] longitudes, int maxZoom, double radiusPixels) {
+        this.maxZoom = maxZoom;
+        this.levels = new Level[maxZoom + 2];
+        int count = latitudes.length;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        int[] weights = new int[count];
+        int[] points = new int[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = mercatorX(longitudes[i]);
+            y[i] = mercatorY(latitudes[i]);
+            weights[i] = 1;
+            points[i] = i;
+        }
+        levels[maxZoom + 1] = new Level(x, y, weights, points);
+        for (int zoom = maxZoom; zoom >= 0; zoom--) {
+            levels[zoom] = levels[zoom + 1].cluster(radiusPixels / (TILE_SIZE * Math.pow(2, zoom)));
+        }
+    }
+
+    /**
+     * Finds the clusters at a zoom level inside a bounding box. The box must not cross the antimeridian.
+     *
+     * @param zoom the zoom level; levels above the highest clustered one return the points
+     * @return the clusters, in no particular order
+     */
+    public List<Cluster> clusters(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                  int zoom) {
+        Level level = levels[Math.max(0, Math.min(zoom, maxZoom + 1))];
+        double minX = mercatorX(minLongitude);
+        double maxX = mercatorX(maxLongitude);
+        // The y axis points south
+        double minY = mercatorY(maxLatitude);
+        double maxY = mercatorY(minLatitude);
+        List<Cluster> clusters = new ArrayList<>();
+        for (int i = 0; i < level.x.length; i++) {
+            if (level.x[i] >= minX && level.x[i] <= maxX && level.y[i] >= minY && level.y[i] <= maxY) {
+                clusters.add(new Cluster(latitude(level.y[i]), longitude(level.x[i]), level.weights[i], level.points[i]));
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * @return the number of clusters at a zoom level, over the whole world
+     */
+    public int size(int zoom) {
+        return levels[Math.max(0, Math.min(zoom, maxZoom + 1))].x.length;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    private static double mercatorX(double longitude) {
+        return longitude / 360.0 + 0.5;
+    }
+
+    private static double mercatorY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0.0, Math.min(1.0, y));
+    }
+
+    private static double longitude(double x) {
+        return (x - 0.5) * 360.0;
+    }
+
+    private static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    /**
+     * A cluster of points, or a single point.
+     *
+     * @param latitude  the latitude of the centroid
+     * @param longitude the longitude of the centroid
+     * @param count     the number of points in the cluster
+     * @param point     the index of the point if the cluster is a single point, otherwise -1
+     */
+    public record Cluster(double latitude, double longitude, int count, int point) {
+    }
+
+    /**
+     * The clusters of one zoom level in projected coordinates.
+     */
+    private record Level(double[] x, double[] y, int[] weights, int[] points) {
+
+        Level cluster(double radius) {
+            // Neighbours are searched in the 3 x 3 cells of edge length radius around a cluster. Cells are numbered
+            // through an open-addressing table of their keys; cell i holds members[first[i]] until members[first[i + 1]]
+            int capacity = Integer.highestOneBit(Math.max(1, x.length)) << 2;
+            long[] tableKeys = new long[capacity];
+            int[] tableCells = new int[capacity];
+            Arrays.fill(tableCells, -1);
+            int cellCount = 0;
+            int[] cellOf = new int[x.length];
+            int[] first = new int[x.length + 1];
+            for (int i = 0; i < x.length; i++) {
+                long key = cellKey((long) Math.floor(x[i] / radius), (long) Math.floor(y[i] / radius));
+                int slot = slot(tableKeys, tableCells, key);
+                if (tableCells[slot] < 0) {
+                    tableKeys[slot] = key;
+                    tableCells[slot] = cellCount++;
+                }
+                cellOf[i] = tableCells[slot];
+                first[cellOf[i] + 1]++;
+            }
+            for (int i = 0; i < cellCount; i++) {
+                first[i + 1] += first[i];
+            }
+            int[] members = new int[x.length];
+            int[] filled = Arrays.copyOf(first, cellCount);
+            for (int i = 0; i < x.length; i++) {
+                members[filled[cellOf[i]]++] = i;
+            }
+
+            boolean[] merged = new boolean[x.length];
+            List<double[]> clusters = new ArrayList<>();
+            boolean changed = false;
+            for (int i = 0; i < x.length; i++) {
+                if (merged[i]) {
+                    continue;
+                }
+                merged[i] = true;
+                double sumX = x[i] * weights[i];
+                double sumY = y[i] * weights[i];
+                int weight = weights[i];
+                long column = (long) Math.floor(x[i] / radius);
+                long row = (long) Math.floor(y[i] / radius);
+                for (long c = column - 1; c <= column + 1; c++) {
+                    for (long r = row - 1; r <= row + 1; r++) {
+                        int cell = tableCells[slot(tableKeys, tableCells, cellKey(c, r))];
+                        if (cell < 0) {
+                            continue;
+                        }
+                        for (int k = first[cell]; k < first[cell + 1]; k++) {
+                            int j = members[k];
+                            if (!merged[j] && squaredDistance(x[i], y[i], x[j], y[j]) <= radius * radius) {
+                                merged[j] = true;
+                                sumX += x[j] * weights[j];
+                                sumY += y[j] * weights[j];
+                                weight += weights[j];
+                            }
+                        }
+                    }
+                }
+                if (weight == weights[i]) {
+                    clusters.add(new double[]{x[i], y[i], weights[i], points[i]});
+                } else {
+                    clusters.add(new double[]{sumX / weight, sumY / weight, weight, -1});
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                return this;
+            }
+
+            Level level = new Level(new double[clusters.size()], new double[clusters.size()],
+                    new int[clusters.size()], new int[clusters.size()]);
+            for (int i = 0; i < clusters.size(); i++) {
+                double[] cluster = clusters.get(i);
+                level.x[i] = cluster[0];
+                level.y[i] = cluster[1];
+                level.weights[i] = (int) cluster[2];
+                level.points[i] = (int) cluster[3];
+            }
+            return level;
+        }
+
+        private static double squaredDistance(double x1, double y1, double x2, double y2) {
+            return (x2 - x1) * (x2 - x1) + (y2 - y1) * (y2 - y1);
+        }
+
+        // The slot holding the key, or the empty slot where it belongs
+        private static int slot(long[] tableKeys, int[] tableCells, long key) {
+            int mask = tableKeys.length - 1;
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (tableCells[slot] >= 0 && tableKeys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long cellKey(long column, long row) {
+            return (column << 32) | (row & 0xFFFFFFFFL);
+        }
+    }
+}
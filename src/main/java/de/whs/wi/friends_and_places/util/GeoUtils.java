@@ -0,0 +1,124 @@
+package de.whs.wi.friends_and_places.util;
+
+/**
+ * Geographic helper functions on WGS84 coordinates.
+ */
+public final class GeoUtils {
+
+    /**
+     * Mean earth radius in meters.
+     */
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    /**
+     * Length of one degree of latitude in meters.
+     */
+    public static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180.0;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance between two points using the haversine formula.
+     *
+     * @return the distance in meters
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Whether a point lies inside a polygon, by counting the edges a ray from the point crosses.
+     * Coordinates are treated as planar, which is accurate for polygons of a few kilometers that do
+     * not cross the antimeridian. Points on an edge may count as inside or outside.
+     *
+     * @param latitudes  the latitudes of the vertices, in order
+     * @param longitudes the longitudes of the vertices, in the same order
+     */
+    public static boolean polygonContains(double[] latitudes, double[] longitudes, double latitude, double longitude) {
+        boolean inside = false;
+        for (int i = 0, j = latitudes.length - 1; i < latitudes.length; j = i++) {
+            if ((latitudes[i] > latitude) != (latitudes[j] > latitude)
+                    && longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i])
+                    / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Maps a point to a roughly square grid cell with the given edge length. Rows are bands of equal
+     * latitude; within a row the cell width in degrees grows with the latitude, so cells keep their size
+     * in meters. Points in the same cell get the same key.
+     *
+     * @param cellSizeMeters the edge length of a cell in meters
+     * @return the key of the cell
+     */
+    public static long cellKey(double latitude, double longitude, double cellSizeMeters) {
+        double latitudeStep = cellSizeMeters / METERS_PER_DEGREE;
+        long row = (long) Math.floor((latitude + 90.0) / latitudeStep);
+        return (row << 32) | column(row, latitudeStep, longitude);
+    }
+
+    /**
+     * Keys of the grid cells ({@link #cellKey}) that may contain points within the given distance of a point.
+     * The cells cover the bounding box of the circle, so callers still have to check the distance.
+     *
+     * @param radiusMeters   the distance in meters
+     * @param cellSizeMeters the edge length of a cell in meters
+     * @param maxCells       the maximum number of cells to return
+     * @return the keys of the cells, or null if the circle comes close to a pole, crosses the antimeridian
+     *         or covers more than {@code maxCells} cells
+     */
+    public static long[] cellKeysWithin(double latitude, double longitude, double radiusMeters,
+                                        double cellSizeMeters, int maxCells) {
+        double latitudeStep = cellSizeMeters / METERS_PER_DEGREE;
+        double latitudeRadius = radiusMeters / METERS_PER_DEGREE;
+        double maxLatitude = Math.abs(latitude) + latitudeRadius;
+        if (maxLatitude >= 89.0) {
+            return null;
+        }
+        // Widest at the latitude farthest from the equator
+        double longitudeRadius = latitudeRadius / Math.cos(Math.toRadians(maxLatitude));
+        if (longitude - longitudeRadius < -180.0 || longitude + longitudeRadius >= 180.0) {
+            return null;
+        }
+
+        long firstRow = (long) Math.floor((latitude - latitudeRadius + 90.0) / latitudeStep);
+        long lastRow = (long) Math.floor((latitude + latitudeRadius + 90.0) / latitudeStep);
+        long count = 0;
+        for (long row = firstRow; row <= lastRow; row++) {
+            count += column(row, latitudeStep, longitude + longitudeRadius)
+                    - column(row, latitudeStep, longitude - longitudeRadius) + 1;
+            if (count > maxCells) {
+                return null;
+            }
+        }
+
+        long[] keys = new long[(int) count];
+        int i = 0;
+        for (long row = firstRow; row <= lastRow; row++) {
+            long first = column(row, latitudeStep, longitude - longitudeRadius);
+            long last = column(row, latitudeStep, longitude + longitudeRadius);
+            for (long c = first; c <= last; c++) {
+                keys[i++] = (row << 32) | c;
+            }
+        }
+        return keys;
+    }
+
+    private static double longitudeStep(long row, double latitudeStep) {
+        double rowCenter = Math.min(89.9, Math.abs(-90.0 + (row + 0.5) * latitudeStep));
+        return latitudeStep / Math.cos(Math.toRadians(rowCenter));
+    }
+
+    private static long column(long row, double latitudeStep, double longitude) {
+        return (long) Math.floor((longitude + 180.0) / longitudeStep(row, latitudeStep));
+    }
+}
@@ -0,0 +1,30 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Hashing helpers for secrets that must not be stored or cached in plain text (tokens).
+ */
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    /**
+     * @param value the value to hash
+     * @return the Base64 encoded SHA-256 digest of the value
+     */
+    public static String sha256Base64(String value) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is guaranteed to be available on every Java platform
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The verified claims of a JWT, extracted with a single parse of the token.
+ * The user id, username, roles and security version are only present in tokens
+ * issued with {@link JwtUtil#generateToken(org.springframework.security.core.userdetails.UserDetails, Long, String, long)}.
+ *
+ * @param subject         the subject of the token (the user's email)
+ * @param issuedAt        when the token was issued
+ * @param expiration      when the token expires
+ * @param userId          the id of the user, or null
+ * @param username        the username of the user, or null
+ * @param roles           the granted authorities of the user, or null
+ * @param securityVersion the user's security version at issue time, or null
+ * @param tokenId         the unique id of the token ({@code jti}), or null for tokens issued before it was added
+ */
+public record JwtClaims(String subject, Date issuedAt, Date expiration,
+                        Long userId, String username, List<String> roles, Long securityVersion,
+                        String tokenId) {
+
+    /**
+     * Creates claims for a token without the stateless authentication claims.
+     */
+    public JwtClaims(String subject, Date issuedAt, Date expiration) {
+        this(subject, issuedAt, expiration, null, null, null, null, null);
+    }
+
+    /**
+     * @return true if the token is expired at the current time
+     */
+    public boolean isExpired() {
+        return expiration.before(new Date());
+    }
+
+    /**
+     * @return true if the token carries enough claims to build the principal without a database lookup
+     */
+    public boolean isSelfContained() {
+        return userId != null && roles != null && securityVersion != null;
+    }
+}
@@ -0,0 +1,68 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Caches verified JWT claims so that clients polling with the same token
+ * do not pay for signature verification on every request.
+ * Entries are keyed by a SHA-256 digest of the token (the raw token is never stored)
+ * and never outlive the token's own expiration.
+ */
+@Component
+public class JwtClaimsCache implements StatsProvider {
+
+    private final JwtUtil jwtUtil;
+    private final boolean enabled;
+    private final BoundedCache<String, JwtClaims> cache;
+
+    public JwtClaimsCache(JwtUtil jwtUtil,
+                          @Value("${jwt.cache.enabled:true}") boolean enabled,
+                          @Value("${jwt.cache.max-size:10000}") int maxSize,
+                          @Value("${jwt.cache.ttl:300000}") long ttlMillis) {
+        this.jwtUtil = jwtUtil;
+        this.enabled = enabled;
+        this.cache = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    /**
+     * Returns the verified claims of the token, parsing and verifying it only on a cache miss.
+     *
+     * @param token the compact JWT
+     * @return the verified claims
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
+     */
+    public JwtClaims resolve(String token) {
+        if (!enabled) {
+            return jwtUtil.parseClaims(token);
+        }
+        String key = HashUtils.sha256Base64(token);
+        JwtClaims claims = cache.get(key);
+        if (claims == null) {
+            claims = jwtUtil.parseClaims(token);
+            cache.put(key, claims, claims.expiration().getTime());
+        }
+        return claims;
+    }
+
+    /**
+     * Drops all cached claims, e.g. after tokens have been revoked.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "jwtClaimsCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = cache.stats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+}
@@ -2,17 +2,21 @@ package de.whs.wi.friends_and_places.util;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.Base64;
 
 import io.jsonwebtoken.io.Decoders;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.Jwts;
@@ -22,12 +26,41 @@ import javax.crypto.SecretKey;
 
 @Component
 public class JwtUtil {
+    // Custom claim names used by the stateless authentication mode
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_USERNAME = "username";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_SECURITY_VERSION = "sv";
+
     private final SecretKey secretKey;
     private final long jwtExpirationInMs;
+    // The parser is immutable and thread-safe, so it is built once instead of per token
+    private final JwtParser jwtParser;
 
     public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration}") long jwtExpirationInMs) {
         this.secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
         this.jwtExpirationInMs = jwtExpirationInMs;
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+    }
+
+    // Verifies the token once and returns subject, issued-at and expiration together
+    public JwtClaims parseClaims(String token) {
+        final Claims claims = extractAllClaims(token);
+        List<String> roles = null;
+        if (claims.get(CLAIM_ROLES) instanceof List<?> roleList) {
+            roles = roleList.stream().map(Object::toString).toList();
+        }
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                claims.get(CLAIM_USER_ID, Long.class),
+                claims.get(CLAIM_USERNAME, String.class),
+                roles,
+                claims.get(CLAIM_SECURITY_VERSION, Long.class),
+                claims.getId());
     }
 
     // Extracts the username from the JWT token
@@ -50,9 +83,7 @@ public class JwtUtil {
     // Extracts all claims from the JWT token
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
+            return jwtParser
                     .parseSignedClaims(token)
                     .getPayload();
         } catch (ExpiredJwtException | MalformedJwtException | SignatureException e) {
@@ -63,11 +94,6 @@ public class JwtUtil {
         }
     }
 
-    // Checks if the JWT token is expired
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
     // Generates a JWT token for the given user details
     // This method creates a token with the username as the subject and includes any additional claims
     public String generateToken(UserDetails userDetails) {
@@ -75,10 +101,25 @@ public class JwtUtil {
         return createToken(claims, userDetails.getUsername());
     }
 
+    // Generates a JWT token that also carries everything needed to authenticate the user
+    // without a database lookup: user id, username, roles and the user's security version
+    public String generateToken(UserDetails userDetails, Long userId, String username, long securityVersion) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, userId);
+        claims.put(CLAIM_USERNAME, username);
+        claims.put(CLAIM_ROLES, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
+        claims.put(CLAIM_SECURITY_VERSION, securityVersion);
+        return createToken(claims, userDetails.getUsername());
+    }
+
     // Creates a JWT token with the specified claims and subject
+    // Every token gets a unique id (jti) so that it can be revoked individually on logout
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .claims(claims)
+                .id(UUID.randomUUID().toString())
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + jwtExpirationInMs))
@@ -91,7 +132,11 @@ public class JwtUtil {
     public Boolean validateToken(String token, UserDetails userDetails) {
         // This will propagate exceptions like SignatureException, ExpiredJwtException, or MalformedJwtException
         // if the token is invalid
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateClaims(parseClaims(token), userDetails);
+    }
+
+    // Validates already verified claims against the user details without parsing the token again
+    public Boolean validateClaims(JwtClaims claims, UserDetails userDetails) {
+        return (claims.subject().equals(userDetails.getUsername()) && !claims.isExpired());
     }
 }
@@ -0,0 +1,58 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.error.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a location history ordered by {@code (created_at DESC, id DESC)}. The next page starts with
+ * the first location strictly after the cursor in that order, so pages stay stable while new locations
+ * are added. Clients receive the cursor as an opaque URL-safe string.
+ * <p>
+ * Points without id take a substitute key: compacted trail points their negated position in the trail
+ * (so they follow all rows with the same timestamp), buffered points {@link Long#MAX_VALUE}.
+ *
+ * @param createdAt the creation time of the last returned location
+ * @param id        the id or substitute key of the last returned location
+ */
+public record LocationCursor(LocalDateTime createdAt, long id) {
+
+    /**
+     * @return the cursor as an opaque string
+     */
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a cursor returned by {@link #encode()}.
+     *
+     * @throws ValidationException if the value is not a valid cursor
+     */
+    public static LocationCursor decode(String value) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new ValidationException("Invalid cursor");
+            }
+            return new LocationCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    /**
+     * @return true if the location with the given creation time and id comes after this cursor,
+     *         i.e. belongs to the following pages
+     */
+    public boolean precedes(LocalDateTime otherCreatedAt, long otherId) {
+        int byTime = otherCreatedAt.compareTo(createdAt);
+        return byTime < 0 || (byTime == 0 && otherId < id);
+    }
+}
@@ -0,0 +1,118 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Z-order (Morton) codes of WGS84 coordinates. Latitude and longitude are quantized to 31 bits each
+ * (about 1 cm) and their bits interleaved, so points that are close usually get close codes and every
+ * square of the quadtree over the world is one contiguous range of codes. Codes are never negative.
+ */
+public final class MortonCode {
+
+    private static final int BITS = 31;
+    private static final long MAX_CELL = (1L << BITS) - 1;
+
+    private MortonCode() {
+    }
+
+    /**
+     * @return the code of the point
+     */
+    public static long encode(double latitude, double longitude) {
+        return interleave(quantize(latitude, 90.0), quantize(longitude, 180.0));
+    }
+
+    /**
+     * Splits a bounding box into ranges of codes. Every point inside the box has a code in one of the
+     * ranges; the ranges also contain points outside the box near its edges, callers still have to
+     * filter by coordinates. More ranges fit the box more tightly.
+     *
+     * @param maxRanges the maximum number of ranges, at least 1
+     * @return inclusive {@code [from, to]} pairs, sorted and not adjacent to each other
+     */
+    public static List<long[]> ranges(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                                      int maxRanges) {
+        long minLat = quantize(minLatitude, 90.0);
+        long maxLat = quantize(maxLatitude, 90.0);
+        long minLon = quantize(minLongitude, 180.0);
+        long maxLon = quantize(maxLongitude, 180.0);
+
+        // Quadtree cells as {latitude prefix, longitude prefix, number of bits below the prefix}
+        List<long[]> covered = new ArrayList<>();
+        List<long[]> partial = new ArrayList<>();
+        partial.add(new long[]{0, 0, BITS});
+        int depth = 0;
+        while (!partial.isEmpty() && depth < BITS) {
+            int shift = BITS - depth - 1;
+            List<long[]> coveredChildren = new ArrayList<>();
+            List<long[]> partialChildren = new ArrayList<>();
+            for (long[] cell : partial) {
+                for (int quadrant = 0; quadrant < 4; quadrant++) {
+                    long lat = (cell[0] << 1) | (quadrant >> 1);
+                    long lon = (cell[1] << 1) | (quadrant & 1);
+                    long cellMinLat = lat << shift;
+                    long cellMaxLat = cellMinLat | ((1L << shift) - 1);
+                    long cellMinLon = lon << shift;
+                    long cellMaxLon = cellMinLon | ((1L << shift) - 1);
+                    if (cellMaxLat < minLat || cellMinLat > maxLat || cellMaxLon < minLon || cellMinLon > maxLon) {
+                        continue;
+                    }
+                    boolean inside = cellMinLat >= minLat && cellMaxLat <= maxLat
+                            && cellMinLon >= minLon && cellMaxLon <= maxLon;
+                    (inside ? coveredChildren : partialChildren).add(new long[]{lat, lon, shift});
+                }
+            }
+            if (covered.size() + coveredChildren.size() + partialChildren.size() > maxRanges) {
+                // Splitting further would exceed the limit, the partially covered cells are used whole
+                break;
+            }
+            covered.addAll(coveredChildren);
+            partial = partialChildren;
+            depth++;
+        }
+        covered.addAll(partial);
+        return merge(covered);
+    }
+
+    private static List<long[]> merge(List<long[]> cells) {
+        List<long[]> ranges = new ArrayList<>(cells.size());
+        for (long[] cell : cells) {
+            long from = interleave(cell[0] << cell[2], cell[1] << cell[2]);
+            long to = from | ((1L << (2 * cell[2])) - 1);
+            ranges.add(new long[]{from, to});
+        }
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    private static long quantize(double value, double extent) {
+        long cell = (long) Math.floor((value + extent) / (2 * extent) * (MAX_CELL + 1));
+        return Math.max(0, Math.min(MAX_CELL, cell));
+    }
+
+    // Latitude bits at the odd, longitude bits at the even positions
+    private static long interleave(long latitude, long longitude) {
+        return (spread(latitude) << 1) | spread(longitude);
+    }
+
+    private static long spread(long value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+}
@@ -0,0 +1,103 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.repository.UserChangedEvent;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks the per-user security version that is embedded in issued tokens.
+ * Bumping the version (on password change) revokes all tokens issued before.
+ * <p>
+ * The versions are stored on the user ({@code users.security_version}) and cached here for
+ * {@code jwt.stateless.version-cache-ttl}. Only older versions are rejected, so a token issued after a
+ * bump is accepted even where the cache still holds the previous version; another instance keeps
+ * accepting revoked tokens for at most the time to live.
+ */
+@Component
+public class SecurityVersionRegistry implements StatsProvider {
+
+    private final UserRepository userRepository;
+    private final BoundedCache<Long, Optional<Long>> versions;
+    private final LongAdder rejected = new LongAdder();
+
+    public SecurityVersionRegistry(UserRepository userRepository,
+                                   @Value("${jwt.stateless.version-cache-size:100000}") int maxSize,
+                                   @Value("${jwt.stateless.version-cache-ttl:60000}") long ttlMillis) {
+        this.userRepository = userRepository;
+        this.versions = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    /**
+     * Checks whether a token issued with the given version is still valid for the user.
+     *
+     * @param userId  the id of the user
+     * @param version the version embedded in the token
+     * @return false if the token is older than the user's version or the user no longer exists
+     */
+    public boolean isCurrent(Long userId, Long version) {
+        if (userId == null || version == null) {
+            return false;
+        }
+        Optional<Long> current = versions.get(userId);
+        if (current == null) {
+            current = userRepository.findSecurityVersion(userId);
+            versions.put(userId, current);
+        }
+        if (current.isEmpty() || version < current.get()) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Invalidates all tokens issued for the user so far.
+     *
+     * @param userId the id of the user
+     */
+    @Transactional
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            userRepository.incrementSecurityVersion(userId);
+            versions.invalidate(userId);
+        }
+    }
+
+    /**
+     * Drops the cached version of the changed user. Runs after the surrounding transaction committed,
+     * so a concurrent check cannot cache the old version again.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.userId() != null) {
+            versions.invalidate(event.userId());
+        }
+    }
+
+    /**
+     * Drops all cached versions, e.g. in tests.
+     */
+    public void clear() {
+        versions.invalidateAll();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "securityVersions";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = versions.stats();
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,173 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Uniform grid of ids by position for radius queries. Cells are the square cells of
+ * {@link GeoUtils#cellKey}; every id is stored in the cell of its position, or in all cells of its
+ * extent for circles ({@link #addWithin}).
+ * <p>
+ * Thread-safe. Cells are immutable arrays of primitive ids that are replaced on every change, so queries
+ * read them without locking and touch little memory. A concurrent query may visit an id that is being moved
+ * twice, but never misses it.
+ */
+public class SpatialGridIndex {
+
+    private static final long[] NO_IDS = new long[0];
+
+    private final double cellSizeMeters;
+    private final Map<Long, long[]> cells = new ConcurrentHashMap<>();
+
+    public SpatialGridIndex(double cellSizeMeters) {
+        this.cellSizeMeters = cellSizeMeters;
+    }
+
+    public void add(long id, double latitude, double longitude) {
+        add(id, GeoUtils.cellKey(latitude, longitude, cellSizeMeters));
+    }
+
+    public void remove(long id, double latitude, double longitude) {
+        remove(id, GeoUtils.cellKey(latitude, longitude, cellSizeMeters));
+    }
+
+    /**
+     * Adds an id to every cell that may contain points within a distance of a point.
+     *
+     * @param maxCells the maximum number of cells
+     * @return false, without adding the id, if the circle needs more cells or is not supported by
+     *         {@link GeoUtils#cellKeysWithin}
+     */
+    public boolean addWithin(long id, double latitude, double longitude, double radiusMeters, int maxCells) {
+        long[] keys = GeoUtils.cellKeysWithin(latitude, longitude, radiusMeters, cellSizeMeters, maxCells);
+        if (keys == null) {
+            return false;
+        }
+        for (long key : keys) {
+            add(id, key);
+        }
+        return true;
+    }
+
+    /**
+     * Removes an id added with {@link #addWithin} and the same arguments.
+     */
+    public void removeWithin(long id, double latitude, double longitude, double radiusMeters, int maxCells) {
+        long[] keys = GeoUtils.cellKeysWithin(latitude, longitude, radiusMeters, cellSizeMeters, maxCells);
+        if (keys != null) {
+            for (long key : keys) {
+                remove(id, key);
+            }
+        }
+    }
+
+    /**
+     * @return the ids in the cell of a point; the array must not be modified
+     */
+    public long[] idsAt(double latitude, double longitude) {
+        long[] ids = cells.get(GeoUtils.cellKey(latitude, longitude, cellSizeMeters));
+        return ids != null ? ids : NO_IDS;
+    }
+
+    /**
+     * Moves an id from its old to its new position. It is added to the new cell first, so that
+     * concurrent queries do not miss it.
+     */
+    public void move(long id, double oldLatitude, double oldLongitude, double latitude, double longitude) {
+        long oldKey = GeoUtils.cellKey(oldLatitude, oldLongitude, cellSizeMeters);
+        long key = GeoUtils.cellKey(latitude, longitude, cellSizeMeters);
+        if (oldKey != key) {
+            add(id, key);
+            remove(id, oldKey);
+        }
+    }
+
+    /**
+     * Visits the ids in the cells around a point. Nothing is visited if the cells hold more than
+     * {@code maxCandidates} ids; scanning the caller's own candidates is cheaper then.
+     *
+     * @param radiusMeters  the distance in meters; ids farther away may be visited as well
+     * @param maxCandidates the maximum number of ids to visit
+     * @param consumer      receives the ids
+     * @return whether the ids were visited
+     */
+    public boolean forEachWithin(double latitude, double longitude, double radiusMeters, int maxCandidates,
+                                 LongConsumer consumer) {
+        long[] keys = GeoUtils.cellKeysWithin(latitude, longitude, radiusMeters, cellSizeMeters, maxCandidates);
+        if (keys == null) {
+            return false;
+        }
+        List<long[]> candidates = new ArrayList<>();
+        long count = 0;
+        for (long key : keys) {
+            long[] ids = cells.get(key);
+            if (ids != null) {
+                candidates.add(ids);
+                count += ids.length;
+                if (count > maxCandidates) {
+                    return false;
+                }
+            }
+        }
+        for (long[] ids : candidates) {
+            for (long id : ids) {
+                consumer.accept(id);
+            }
+        }
+        return true;
+    }
+
+    private void add(long id, long cellKey) {
+        cells.compute(cellKey, (key, ids) -> {
+            if (ids == null) {
+                return new long[]{id};
+            }
+            if (indexOf(ids, id) >= 0) {
+                return ids;
+            }
+            long[] added = Arrays.copyOf(ids, ids.length + 1);
+            added[ids.length] = id;
+            return added;
+        });
+    }
+
+    private void remove(long id, long key) {
+        cells.computeIfPresent(key, (k, ids) -> {
+            int index = indexOf(ids, id);
+            if (index < 0) {
+                return ids;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            long[] removed = new long[ids.length - 1];
+            System.arraycopy(ids, 0, removed, 0, index);
+            System.arraycopy(ids, index + 1, removed, index, ids.length - index - 1);
+            return removed;
+        });
+    }
+
+    private static int indexOf(long[] ids, long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of non-empty cells
+     */
+    public int cellCount() {
+        return cells.size();
+    }
+
+    public void clear() {
+        cells.clear();
+    }
+}
@@ -0,0 +1,20 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.Map;
+
+/**
+ * Implemented by components that expose runtime counters (cache hit ratios, queue depths, ...).
+ * All providers are collected by the health check controller and reported under "metrics".
+ */
+public interface StatsProvider {
+
+    /**
+     * @return the key under which the statistics are reported
+     */
+    String getStatsName();
+
+    /**
+     * @return a snapshot of the current statistics
+     */
+    Map<String, Object> getStats();
+}
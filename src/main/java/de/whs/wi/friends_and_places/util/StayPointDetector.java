@@ -0,0 +1,95 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.List;
+
+/**
+ * Detects stay points in a track: maximal runs of consecutive points that stay within a distance of the
+ * first point of the run for at least a minimum time, in the manner of Li et al. (2008). A stay is
+ * reported at the centroid of its points.
+ * <p>
+ * A point covers the time from its recording until its last confirmation, so a single point of a user
+ * who did not move can be a stay on its own. Distances are computed with the equirectangular approximation
+ * around the first point of a run; at a few hundred meters it differs from {@link GeoUtils#distanceMeters}
+ * by far less than a meter and needs no trigonometry per point.
+ * <p>
+ * The last run of a track is left undecided, later points may still extend it. Callers keep the points
+ * from the returned index and pass them again together with the next points. Thread-safe.
+ */
+public class StayPointDetector {
+
+    private final double maxDistanceMeters;
+    private final long minDwellSeconds;
+
+    /**
+     * @param maxDistanceMeters the maximum distance of the points of a stay from its first point
+     * @param minDwellSeconds   the minimum time between the arrival and the departure of a stay
+     */
+    public StayPointDetector(double maxDistanceMeters, long minDwellSeconds) {
+        this.maxDistanceMeters = maxDistanceMeters;
+        this.minDwellSeconds = minDwellSeconds;
+    }
+
+    /**
+     * Finds the stays among the first {@code count} points of a track.
+     *
+     * @param latitudes  the latitudes of the points
+     * @param longitudes the longitudes of the points
+     * @param arrivals   the recording times of the points in epoch seconds, ascending
+     * @param departures the last times the points were confirmed in epoch seconds, or their recording times
+     * @param count      the number of points
+     * @param flush      whether the last run is decided as well, as if the track ended there
+     * @param stays      receives the stays, in time order
+     * @return the index of the first undecided point, {@code count} if all points are decided
+     */
+    public int detect(double[] latitudes, double[] longitudes, long[] arrivals, long[] departures, int count,
+                      boolean flush, List<Stay> stays) {
+        double maxDistanceSquared = maxDistanceMeters * maxDistanceMeters;
+        int i = 0;
+        while (i < count) {
+            double metersPerDegreeLongitude = GeoUtils.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitudes[i]));
+            long departure = departures[i];
+            int j = i + 1;
+            while (j < count) {
+                double dy = (latitudes[j] - latitudes[i]) * GeoUtils.METERS_PER_DEGREE;
+                double dx = (longitudes[j] - longitudes[i]) * metersPerDegreeLongitude;
+                if (dx * dx + dy * dy > maxDistanceSquared) {
+                    break;
+                }
+                departure = Math.max(departure, departures[j]);
+                j++;
+            }
+            if (j == count && !flush) {
+                break;
+            }
+            if (departure - arrivals[i] >= minDwellSeconds) {
+                stays.add(stay(latitudes, longitudes, arrivals[i], departure, i, j));
+                i = j;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static Stay stay(double[] latitudes, double[] longitudes, long arrival, long departure, int from, int to) {
+        double latitude = 0;
+        double longitude = 0;
+        for (int k = from; k < to; k++) {
+            latitude += latitudes[k];
+            longitude += longitudes[k];
+        }
+        return new Stay(latitude / (to - from), longitude / (to - from), arrival, departure, to - from);
+    }
+
+    /**
+     * A stay of a track.
+     *
+     * @param latitude  the latitude of the centroid of its points
+     * @param longitude the longitude of the centroid of its points
+     * @param arrival   the recording time of its first point in epoch seconds
+     * @param departure the latest time one of its points was confirmed in epoch seconds
+     * @param points    the number of points
+     */
+    public record Stay(double latitude, double longitude, long arrival, long departure, int points) {
+    }
+}
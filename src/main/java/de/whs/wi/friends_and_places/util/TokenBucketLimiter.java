@@ -0,0 +1,139 @@
+package de.whs.wi.friends_and_places.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed token bucket rate limiter. Every key gets its own bucket that holds up to {@code capacity}
+ * tokens and refills continuously at {@code capacity} tokens per period. Buckets are only locked
+ * individually, so requests for different keys never contend.
+ * <p>
+ * Memory is bounded by {@code maxKeys}: buckets that have refilled completely carry no state and are
+ * dropped by a sweep every {@value #CLEANUP_EVERY} acquisitions, and at most once per
+ * {@value #FULL_CLEANUP_INTERVAL_MILLIS} ms while the limit is reached. New keys beyond the limit share
+ * one overflow bucket per group (e.g. route and key type), so a full map never lets one route's
+ * limit throttle another.
+ */
+public class TokenBucketLimiter {
+
+    private static final String OVERFLOW_PREFIX = "\u0000overflow|";
+    private static final int CLEANUP_EVERY = 1024;
+    private static final long FULL_CLEANUP_INTERVAL_MILLIS = 1000;
+
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger acquisitions = new AtomicInteger();
+    private final AtomicLong lastFullCleanUp = new AtomicLong();
+
+    /**
+     * @param maxKeys maximum number of buckets held at the same time
+     */
+    public TokenBucketLimiter(int maxKeys) {
+        this(maxKeys, System::currentTimeMillis);
+    }
+
+    /**
+     * @param maxKeys maximum number of buckets held at the same time
+     * @param clock   source of the current time in milliseconds, mainly for tests
+     */
+    public TokenBucketLimiter(int maxKeys, LongSupplier clock) {
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes one token from the bucket of the key. The capacity and period of a bucket are fixed when it is
+     * created; changed limits apply once it has refilled and was dropped.
+     *
+     * @param group        the group of the key, e.g. route and key type; keys of a group share the overflow bucket
+     * @param key          the bucket key within the group, e.g. the client address
+     * @param capacity     maximum burst, also the number of tokens refilled per period
+     * @param periodMillis refill period in milliseconds
+     * @return 0 if the request is allowed, otherwise the milliseconds until the next token is available
+     */
+    public long tryAcquire(String group, String key, int capacity, long periodMillis) {
+        long now = clock.getAsLong();
+        if ((acquisitions.incrementAndGet() & (CLEANUP_EVERY - 1)) == 0) {
+            cleanUp(now);
+        } else if (buckets.size() >= maxKeys) {
+            long last = lastFullCleanUp.get();
+            // Only one caller sweeps, and only once per interval
+            if (now - last >= FULL_CLEANUP_INTERVAL_MILLIS && lastFullCleanUp.compareAndSet(last, now)) {
+                cleanUp(now);
+            }
+        }
+
+        String bucketKey = group + '|' + key;
+        Bucket bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                bucketKey = OVERFLOW_PREFIX + group;
+            }
+            bucket = buckets.computeIfAbsent(bucketKey, k -> new Bucket(capacity, (double) capacity / periodMillis, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * Drops all buckets that have refilled completely, as they are equivalent to a new bucket.
+     */
+    public void cleanUp() {
+        cleanUp(clock.getAsLong());
+    }
+
+    /**
+     * @return the number of buckets currently held
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private void cleanUp(long now) {
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isFull(now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private final int capacity;
+        private final double refillPerMilli;
+        private double tokens;
+        private long lastRefill;
+
+        Bucket(int capacity, double refillPerMilli, long now) {
+            this.capacity = capacity;
+            this.refillPerMilli = refillPerMilli;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        synchronized long tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / refillPerMilli));
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMilli);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a sequence of location points, similar to an encoded polyline with timestamps.
+ * Coordinates are stored as fixed-point values with six decimal places (about 0.1 m), timestamps with
+ * millisecond precision. Every value is written as the zigzag varint encoded difference to the previous
+ * point, so slow movement costs a few bytes per point. Addresses and names go into a string table
+ * that points refer to by index, so a repeated address is stored once.
+ * <p>
+ * Layout: version, point count, string table (count, then length-prefixed UTF-8 strings), then per point
+ * the latitude, longitude and time deltas, address and name index (0 for none), address status and
+ * the offset of the last confirmation (0 for none).
+ */
+public final class TrailCodec {
+
+    private static final int VERSION = 1;
+    private static final double SCALE = 1_000_000.0;
+    private static final AddressStatus[] STATUSES = AddressStatus.values();
+
+    private TrailCodec() {
+    }
+
+    /**
+     * A decoded point.
+     */
+    public record Point(double latitude, double longitude, LocalDateTime recordedAt, LocalDateTime lastConfirmedAt,
+                        String formattedAddress, String locationName, AddressStatus addressStatus) {
+    }
+
+    /**
+     * Encodes the points in chronological order.
+     *
+     * @param points the points, in any order
+     * @return the encoded trail
+     */
+    public static byte[] encode(List<Point> points) {
+        List<Point> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparing(Point::recordedAt));
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Point point : sorted) {
+            if (point.formattedAddress() != null) {
+                strings.putIfAbsent(point.formattedAddress(), strings.size());
+            }
+            if (point.locationName() != null) {
+                strings.putIfAbsent(point.locationName(), strings.size());
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + sorted.size() * 12);
+        writeVarLong(out, VERSION);
+        writeVarLong(out, sorted.size());
+        writeVarLong(out, strings.size());
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        long previousMillis = 0;
+        for (Point point : sorted) {
+            long latitude = Math.round(point.latitude() * SCALE);
+            long longitude = Math.round(point.longitude() * SCALE);
+            long millis = toMillis(point.recordedAt());
+            writeVarLong(out, zigzag(latitude - previousLatitude));
+            writeVarLong(out, zigzag(longitude - previousLongitude));
+            writeVarLong(out, zigzag(millis - previousMillis));
+            writeVarLong(out, point.formattedAddress() == null ? 0 : strings.get(point.formattedAddress()) + 1);
+            writeVarLong(out, point.locationName() == null ? 0 : strings.get(point.locationName()) + 1);
+            AddressStatus status = point.addressStatus() == null ? AddressStatus.RESOLVED : point.addressStatus();
+            out.write(status.ordinal());
+            writeVarLong(out, point.lastConfirmedAt() == null ? 0 : zigzag(toMillis(point.lastConfirmedAt()) - millis) + 1);
+            previousLatitude = latitude;
+            previousLongitude = longitude;
+            previousMillis = millis;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a trail written by {@link #encode(List)}.
+     *
+     * @param data the encoded trail
+     * @return the points in chronological order
+     * @throws IllegalArgumentException if the data is not a valid trail
+     */
+    public static List<Point> decode(byte[] data) {
+        Reader in = new Reader(data);
+        try {
+            long version = in.readVarLong();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported trail version " + version);
+            }
+            int count = (int) in.readVarLong();
+            int stringCount = (int) in.readVarLong();
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                int length = (int) in.readVarLong();
+                strings[i] = new String(data, in.position, length, StandardCharsets.UTF_8);
+                in.position += length;
+            }
+
+            List<Point> points = new ArrayList<>(count);
+            long latitude = 0;
+            long longitude = 0;
+            long millis = 0;
+            for (int i = 0; i < count; i++) {
+                latitude += unzigzag(in.readVarLong());
+                longitude += unzigzag(in.readVarLong());
+                millis += unzigzag(in.readVarLong());
+                int address = (int) in.readVarLong();
+                int name = (int) in.readVarLong();
+                AddressStatus status = STATUSES[data[in.position++]];
+                long confirmed = in.readVarLong();
+                points.add(new Point(latitude / SCALE, longitude / SCALE, fromMillis(millis),
+                        confirmed == 0 ? null : fromMillis(millis + unzigzag(confirmed - 1)),
+                        address == 0 ? null : strings[address - 1],
+                        name == 0 ? null : strings[name - 1],
+                        status));
+            }
+            return points;
+        } catch (ArrayIndexOutOfBoundsException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated or corrupt trail", e);
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.model.UserIdentity;
+import de.whs.wi.friends_and_places.repository.UserChangedEvent;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Cache in front of the natural-id lookups of {@link UserRepository} (by email and by username).
+ * Misses are cached as well, with a shorter time to live, so availability checks do not hit the database.
+ * <p>
+ * Entries are dropped on every {@link UserChangedEvent}. Since events are only published locally,
+ * the time to live bounds how long another instance may serve stale data. Password hashes are not cached,
+ * logins always verify against the stored hash.
+ */
+@Component
+public class UserLookupCache implements StatsProvider {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final long negativeTtlMillis;
+    private final BoundedCache<String, Optional<UserIdentity>> byEmail;
+    private final BoundedCache<String, Optional<UserIdentity>> byUsername;
+
+    public UserLookupCache(UserRepository userRepository,
+                           @Value("${users.cache.enabled:true}") boolean enabled,
+                           @Value("${users.cache.max-size:10000}") int maxSize,
+                           @Value("${users.cache.ttl:30000}") long ttlMillis,
+                           @Value("${users.cache.negative-ttl:5000}") long negativeTtlMillis) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.byEmail = new BoundedCache<>(maxSize, ttlMillis);
+        this.byUsername = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    /**
+     * Finds the identity of a user by email.
+     *
+     * @param email the email of the user
+     * @return the identity, or empty if no such user exists
+     */
+    public Optional<UserIdentity> findByEmail(String email) {
+        if (!enabled) {
+            return userRepository.findByEmail(email).map(UserIdentity::of);
+        }
+        Optional<UserIdentity> identity = byEmail.get(email);
+        if (identity == null) {
+            identity = userRepository.findByEmail(email).map(UserIdentity::of);
+            cache(byEmail, email, identity);
+        }
+        return identity;
+    }
+
+    /**
+     * Finds the identity of a user by username.
+     *
+     * @param username the username of the user
+     * @return the identity, or empty if no such user exists
+     */
+    public Optional<UserIdentity> findByUsername(String username) {
+        if (!enabled) {
+            return userRepository.findByUsername(username).map(UserIdentity::of);
+        }
+        Optional<UserIdentity> identity = byUsername.get(username);
+        if (identity == null) {
+            identity = userRepository.findByUsername(username).map(UserIdentity::of);
+            cache(byUsername, username, identity);
+        }
+        return identity;
+    }
+
+    /**
+     * Drops all entries of the changed user. Runs after the surrounding transaction committed,
+     * so a concurrent lookup cannot cache the old state again.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.email() != null) {
+            byEmail.invalidate(event.email());
+        }
+        if (event.username() != null) {
+            byUsername.invalidate(event.username());
+        }
+        if (event.userId() != null) {
+            // The email or username may have changed, so also drop entries still pointing to the old values
+            byEmail.invalidateIf((key, value) -> value.isPresent() && Objects.equals(value.get().id(), event.userId()));
+            byUsername.invalidateIf((key, value) -> value.isPresent() && Objects.equals(value.get().id(), event.userId()));
+        }
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void invalidateAll() {
+        byEmail.invalidateAll();
+        byUsername.invalidateAll();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "userLookupCache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("byEmail", byEmail.stats());
+        stats.put("byUsername", byUsername.stats());
+        return stats;
+    }
+
+    private void cache(BoundedCache<String, Optional<UserIdentity>> cache, String key, Optional<UserIdentity> identity) {
+        if (identity.isPresent()) {
+            cache.put(key, identity);
+        } else {
+            cache.put(key, identity, System.currentTimeMillis() + negativeTtlMillis);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package de.whs.wi.friends_and_places.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthRateLimitFilterTest {
+
+    private AuthRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitConfig config = new RateLimitConfig();
+        RateLimitConfig.RouteLimit login = new RateLimitConfig.RouteLimit();
+        login.setPerIp(3);
+        login.setPerEmail(1);
+        config.getRoutes().put("login", login);
+        RateLimitConfig.RouteLimit checkEmail = new RateLimitConfig.RouteLimit();
+        checkEmail.setPerIp(1);
+        config.getRoutes().put("checkEmail", checkEmail);
+        filter = new AuthRateLimitFilter(config, new ObjectMapper().registerModule(new JavaTimeModule()));
+    }
+
+    private MockHttpServletRequest login(String ip, String email) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"x\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    @Test
+    void login_sameEmailFromDifferentIps_limitedByEmail() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(login("10.0.0.1", "a@test.com"), first, chain);
+        assertEquals(200, first.getStatus());
+        // The controller can still read the body after the filter inspected it
+        assertTrue(new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8)
+                .contains("a@test.com"));
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(login("10.0.0.2", "A@test.com"), second, new MockFilterChain());
+        assertEquals(429, second.getStatus());
+        assertNotNull(second.getHeader("Retry-After"));
+        assertTrue(second.getContentAsString().contains("RATE_LIMITED"));
+    }
+
+    @Test
+    void login_chunkedBodyBeyondCap_notInspectedButForwardedCompletely() throws Exception {
+        String padding = "x".repeat(20_000);
+        String body = "{\"email\":\"a@test.com\",\"password\":\"" + padding + "\"}";
+        for (String ip : new String[]{"10.0.0.1", "10.0.0.2"}) {
+            // Chunked transfer, the length is unknown
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login") {
+                @Override
+                public int getContentLength() {
+                    return -1;
+                }
+            };
+            request.setRemoteAddr(ip);
+            request.setContentType("application/json");
+            request.setContent(body.getBytes(StandardCharsets.UTF_8));
+            MockFilterChain chain = new MockFilterChain();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, chain);
+
+            // Only the IP limit applies, the email of an oversized body is not parsed
+            assertEquals(200, response.getStatus());
+            assertEquals(body, new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void checkEmail_limitedByIp() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/auth/checkEmail");
+        request.setParameter("email", "a@test.com");
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request, first, new MockFilterChain());
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(request, second, new MockFilterChain());
+
+        assertEquals(200, first.getStatus());
+        assertEquals(429, second.getStatus());
+        assertEquals("60", second.getHeader("Retry-After"));
+    }
+
+    @Test
+    void unlimitedRoute_isNotFiltered() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/places");
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package de.whs.wi.friends_and_places.config;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTracingFilterTest {
+
+    @Test
+    void doFilter_failedRequestsAreAlwaysRecorded() throws Exception {
+        RequestTracingFilter filter = new RequestTracingFilter(true, 0.0, 1000);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/places"), new MockHttpServletResponse(), new MockFilterChain());
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/places"), failed,
+                new MockFilterChain(new jakarta.servlet.http.HttpServlet() {
+                    @Override
+                    protected void service(jakarta.servlet.http.HttpServletRequest req, HttpServletResponse resp) {
+                        resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    }
+                }));
+
+        assertEquals(2L, filter.getStats().get("requests"));
+        assertEquals(1L, filter.getStats().get("failed"));
+        assertEquals(1L, filter.getStats().get("recorded"), "Only the failed request should be recorded at sample rate 0");
+    }
+
+    @Test
+    void doFilter_slowRequestsAreAlwaysRecorded() throws Exception {
+        RequestTracingFilter filter = new RequestTracingFilter(true, 0.0, 0);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/places"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(1L, filter.getStats().get("slow"));
+        assertEquals(1L, filter.getStats().get("recorded"));
+    }
+}
@@ -3,7 +3,11 @@ package de.whs.wi.friends_and_places.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
 import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
+import de.whs.wi.friends_and_places.controller.dto.RefreshTokenRequestDTO;
+import de.whs.wi.friends_and_places.controller.dto.TokenPairDTO;
 import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.service.RefreshTokenService;
+import de.whs.wi.friends_and_places.service.TokenRevocationService;
 import de.whs.wi.friends_and_places.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -26,6 +30,10 @@ class AuthControllerTest {
     private MockMvc mockMvc;
     @Mock
     private UserService userService;
+    @Mock
+    private RefreshTokenService refreshTokenService;
+    @Mock
+    private TokenRevocationService tokenRevocationService;
     @InjectMocks
     private AuthController authController;
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -62,11 +70,27 @@ class AuthControllerTest {
         dto.setEmail("test@example.com");
         dto.setPassword("password");
         Mockito.when(userService.authenticate(any(UserLoginDTO.class))).thenReturn("mock-jwt-token");
+        Mockito.when(refreshTokenService.createRefreshToken("test@example.com")).thenReturn("mock-refresh-token");
 
         mockMvc.perform(post("/api/v1/auth/login")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(dto)))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.token").value("mock-jwt-token"));
+                .andExpect(jsonPath("$.token").value("mock-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("mock-refresh-token"));
+    }
+
+    @Test
+    @DisplayName("Refresh should return 200 and a new token pair")
+    void refresh_ReturnsTokenPair() throws Exception {
+        Mockito.when(refreshTokenService.refresh("old-refresh-token"))
+                .thenReturn(new TokenPairDTO("new-jwt-token", "new-refresh-token"));
+
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO("old-refresh-token"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("new-jwt-token"))
+                .andExpect(jsonPath("$.refreshToken").value("new-refresh-token"));
     }
 }
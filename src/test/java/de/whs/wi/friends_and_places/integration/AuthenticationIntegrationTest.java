@@ -1,9 +1,14 @@
 package de.whs.wi.friends_and_places.integration;
 
+import de.whs.wi.friends_and_places.controller.dto.RefreshTokenRequestDTO;
 import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
 import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
 import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.repository.RefreshTokenRepository;
 import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.RefreshTokenService;
+import de.whs.wi.friends_and_places.service.TokenRevocationService;
+import de.whs.wi.friends_and_places.util.HashUtils;
 import de.whs.wi.friends_and_places.util.JwtUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +23,7 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.util.Optional;
@@ -44,6 +50,15 @@ public class AuthenticationIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
     @Autowired
     private WebApplicationContext context;
 
@@ -236,4 +251,93 @@ public class AuthenticationIntegrationTest {
                 .header("Authorization", "Bearer " + token))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void testRefreshTokenRotationAndReuseDetection() throws Exception {
+        mockMvc.perform(post("/api/v1/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testUser)))
+                .andExpect(status().isOk());
+
+        MvcResult loginResult = mockMvc.perform(post("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserLoginDTO(TEST_EMAIL, TEST_PASSWORD))))
+                .andExpect(status().isOk())
+                .andReturn();
+        String refreshToken = objectMapper.readTree(loginResult.getResponse().getContentAsString())
+                .get("refreshToken").asText();
+
+        // 1. Exchange the refresh token for a new pair
+        MvcResult refreshResult = mockMvc.perform(post("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(refreshToken))))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode pair = objectMapper.readTree(refreshResult.getResponse().getContentAsString());
+        String accessToken = pair.get("token").asText();
+        String rotatedToken = pair.get("refreshToken").asText();
+        assertNotEquals(refreshToken, rotatedToken, "Refresh token should be rotated");
+        assertEquals(TEST_EMAIL, jwtUtil.extractUsername(accessToken));
+
+        mockMvc.perform(get("/api/v1/test/secured")
+                .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+
+        // 2. The sweep keeps the consumed token, reusing it is rejected and revokes its successor as well
+        refreshTokenService.deleteExpired();
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(refreshToken))))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(rotatedToken))))
+                .andExpect(status().isUnauthorized());
+
+        // 3. Revoked tokens are deleted by the next sweep
+        refreshTokenService.deleteExpired();
+        assertTrue(refreshTokenRepository.findByTokenHash(HashUtils.sha256Base64(refreshToken)).isEmpty());
+        assertTrue(refreshTokenRepository.findByTokenHash(HashUtils.sha256Base64(rotatedToken)).isEmpty());
+    }
+
+    @Test
+    void testLogoutRevokesAccessAndRefreshToken() throws Exception {
+        mockMvc.perform(post("/api/v1/auth/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testUser)))
+                .andExpect(status().isOk());
+
+        MvcResult loginResult = mockMvc.perform(post("/api/v1/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new UserLoginDTO(TEST_EMAIL, TEST_PASSWORD))))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode tokens = objectMapper.readTree(loginResult.getResponse().getContentAsString());
+        String token = tokens.get("token").asText();
+        String refreshToken = tokens.get("refreshToken").asText();
+
+        mockMvc.perform(get("/api/v1/test/secured")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/v1/auth/logout")
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(refreshToken))))
+                .andExpect(status().isNoContent());
+
+        // Checked against the revocation store right away, and against the filter after a rebuild
+        mockMvc.perform(get("/api/v1/test/secured")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        tokenRevocationService.rebuild();
+        mockMvc.perform(get("/api/v1/test/secured")
+                .header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(post("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequestDTO(refreshToken))))
+                .andExpect(status().isUnauthorized());
+    }
 }
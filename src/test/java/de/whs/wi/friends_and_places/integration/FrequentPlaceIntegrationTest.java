@@ -0,0 +1,168 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.controller.dto.UserPlaceDTO;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.repository.PlaceDetectionCursorRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.FrequentPlaceService;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.service.LocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class FrequentPlaceIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private PlaceDetectionCursorRepository cursorRepository;
+
+    @Autowired
+    private FrequentPlaceService frequentPlaceService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private GeocodeApiService geocodeApiService;
+
+    private User alice;
+    private User bob;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        GeocodingData data = new GeocodingData();
+        data.setFormatted("Neidenburger Str. 43, Gelsenkirchen");
+        when(geocodeApiService.getReverseGeoData(anyDouble(), anyDouble())).thenReturn(data);
+
+        alice = userRepository.save(user("placesalice"));
+        bob = userRepository.save(user("placesbob"));
+        start = LocalDateTime.now().minusHours(6).withNano(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Places and cursors are deleted with their users
+        for (User user : List.of(alice, bob)) {
+            locationRepository.deleteByUser(user);
+        }
+        userRepository.deleteAll(List.of(alice, bob));
+    }
+
+    @Test
+    void staysAreGroupedIntoPlacesAndOnlyNewLocationsAreRead() {
+        // 30 minutes at home, an hour at work, back home
+        addLocations(alice, point(51.5000, 7.1000, 0), point(51.5001, 7.1001, 10), point(51.5000, 7.1002, 20),
+                point(51.5001, 7.1000, 30), point(51.5300, 7.1500, 45), point(51.5301, 7.1501, 60),
+                point(51.5300, 7.1502, 75), point(51.5302, 7.1500, 90), point(51.5301, 7.1500, 105),
+                point(51.5000, 7.1001, 120), point(51.5001, 7.1000, 130));
+        assertTrue(newLocationUserIds().contains(alice.getId()));
+
+        assertEquals(11, frequentPlaceService.detect(alice.getId()));
+
+        List<UserPlaceDTO> places = frequentPlaceService.getFrequentPlaces(alice, null);
+        assertEquals(2, places.size());
+        UserPlaceDTO work = places.get(0);
+        assertEquals(51.5301, work.latitude(), 1e-4);
+        assertEquals(3600, work.totalDwellSeconds());
+        assertEquals(start.plusMinutes(45), work.firstVisitAt());
+        assertEquals(1800, places.get(1).totalDwellSeconds());
+        assertEquals("Neidenburger Str. 43, Gelsenkirchen", work.name());
+        assertFalse(newLocationUserIds().contains(alice.getId()));
+
+        // Nothing new, only the stay at home that may still go on is read again
+        assertEquals(2, frequentPlaceService.detect(alice.getId()));
+        assertEquals(2, frequentPlaceService.getFrequentPlaces(alice, null).size());
+
+        // Leaving home completes the second visit
+        addLocations(alice, point(51.5000, 7.1000, 140), point(51.5001, 7.1001, 155), point(51.5100, 7.1000, 160));
+        assertTrue(newLocationUserIds().contains(alice.getId()));
+        assertEquals(5, frequentPlaceService.detect(alice.getId()));
+
+        places = frequentPlaceService.getFrequentPlaces(alice, null);
+        assertEquals(2, places.size());
+        UserPlaceDTO home = places.get(0);
+        assertEquals(2, home.visitCount());
+        assertEquals(3900, home.totalDwellSeconds());
+        assertEquals(start.plusMinutes(120), home.lastVisitAt());
+        assertEquals(List.of(home.id()), frequentPlaceService.getFrequentPlaces(alice, 1).stream()
+                .map(UserPlaceDTO::id).toList());
+    }
+
+    @Test
+    void detectAllProcessesEveryUserOnce() {
+        addLocations(alice, point(51.5000, 7.1000, 0), point(51.5000, 7.1001, 40), point(51.6000, 7.1000, 50));
+        addLocations(bob, point(52.5200, 13.4050, 0), point(52.5201, 13.4050, 25), point(52.6000, 13.4050, 30));
+
+        assertTrue(frequentPlaceService.detectAll() >= 6);
+        assertTrue(frequentPlaceService.detectAll() >= 2);
+
+        assertEquals(List.of(1), frequentPlaceService.getFrequentPlaces(alice, null).stream()
+                .map(UserPlaceDTO::visitCount).toList());
+        List<UserPlaceDTO> bobsPlaces = frequentPlaceService.getFrequentPlaces(bob, null);
+        assertEquals(1, bobsPlaces.size());
+        assertEquals(1500, bobsPlaces.get(0).totalDwellSeconds());
+
+        assertThrows(ValidationException.class, () -> frequentPlaceService.getFrequentPlaces(alice, 0));
+    }
+
+    @Test
+    void cursorOnlyMovesFromThePositionAPageWasReadFrom() {
+        addLocations(alice, point(51.5000, 7.1000, 0), point(51.5000, 7.1001, 40), point(51.6000, 7.1000, 50));
+        frequentPlaceService.detect(alice.getId());
+        LocalDateTime seenUntil = cursorRepository.findById(alice.getId()).orElseThrow().getSeenUntil();
+
+        // A detection on another instance that read the page before this one moved the cursor
+        Integer moved = new TransactionTemplate(transactionManager).execute(status -> cursorRepository.advance(
+                alice.getId(), start.minusDays(1), Long.MIN_VALUE, seenUntil, Long.MAX_VALUE, seenUntil));
+
+        assertEquals(0, moved);
+        assertEquals(1, frequentPlaceService.getFrequentPlaces(alice, null).get(0).visitCount());
+    }
+
+    private List<Long> newLocationUserIds() {
+        return cursorRepository.findUserIdsWithNewLocations(PageRequest.of(0, 1000));
+    }
+
+    private void addLocations(User user, LocationBatchPointDTO... points) {
+        locationService.addLocations(user, List.of(points));
+    }
+
+    private LocationBatchPointDTO point(double latitude, double longitude, int minutes) {
+        LocationBatchPointDTO point = new LocationBatchPointDTO();
+        point.setLatitude(latitude);
+        point.setLongitude(longitude);
+        point.setRecordedAt(start.plusMinutes(minutes));
+        return point;
+    }
+}
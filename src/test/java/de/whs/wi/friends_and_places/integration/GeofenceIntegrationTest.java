@@ -0,0 +1,186 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.GeofenceCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceDTO;
+import de.whs.wi.friends_and_places.controller.dto.GeofenceEventDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.GeofenceEventType;
+import de.whs.wi.friends_and_places.model.GeofenceShape;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.repository.GeofencePresenceRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.service.GeofenceService;
+import de.whs.wi.friends_and_places.service.LocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class GeofenceIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private GeofencePresenceRepository presenceRepository;
+
+    @Autowired
+    private GeofenceService geofenceService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private GeocodeApiService geocodeApiService;
+
+    private User alice;
+    private User bob;
+    private User carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(user("fencealice"));
+        bob = userRepository.save(user("fencebob"));
+        carol = userRepository.save(user("fencecarol"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User owner = userRepository.findById(alice.getId()).orElseThrow();
+            owner.addFriend(userRepository.findById(bob.getId()).orElseThrow());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Fences, events and presence rows are deleted with their users
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (User user : userRepository.findAllById(List.of(alice.getId(), bob.getId(), carol.getId()))) {
+                user.setFriends(new HashSet<>());
+            }
+        });
+        for (User user : List.of(alice, bob, carol)) {
+            locationRepository.deleteByUser(user);
+        }
+        userRepository.deleteAll(List.of(alice, bob, carol));
+    }
+
+    @Test
+    void onlyTransitionsOfTheOwnerAndFriendsProduceEvents() {
+        GeofenceDTO home = geofenceService.createGeofence(alice, circle("Home", 51.5000, 7.1000, 200));
+        LocalDateTime start = LocalDateTime.now().minusHours(1).withNano(0);
+
+        // Outside, inside twice, outside; the second point inside is no transition
+        addLocations(bob, point(51.5100, 7.1000, start), point(51.5001, 7.1000, start.plusMinutes(1)));
+        addLocations(bob, point(51.5002, 7.1001, start.plusMinutes(2)));
+        assertEquals(List.of(home.id()), presenceRepository.findGeofenceIdsByUserId(bob.getId()));
+        addLocations(bob, point(51.5100, 7.1000, start.plusMinutes(3)));
+        // Carol is not a friend of alice
+        addLocations(carol, point(51.5000, 7.1000, start.plusMinutes(4)));
+        addLocations(alice, point(51.5000, 7.1000, start.plusMinutes(5)));
+
+        List<GeofenceEventDTO> events = geofenceService.getEvents(alice, null, null);
+
+        assertEquals(List.of(GeofenceEventType.ENTER, GeofenceEventType.EXIT, GeofenceEventType.ENTER),
+                events.stream().map(GeofenceEventDTO::type).toList());
+        assertEquals(List.of("fencebob", "fencebob", "fencealice"),
+                events.stream().map(GeofenceEventDTO::username).toList());
+        assertEquals("Home", events.get(0).geofenceName());
+        assertEquals(start.plusMinutes(1), events.get(0).occurredAt());
+        assertTrue(presenceRepository.findGeofenceIdsByUserId(bob.getId()).isEmpty());
+        assertTrue(presenceRepository.findGeofenceIdsByUserId(carol.getId()).isEmpty());
+
+        // Polling continues after the last event seen
+        List<GeofenceEventDTO> newer = geofenceService.getEvents(alice, events.get(0).id(), 1);
+        assertEquals(List.of(events.get(1).id()), newer.stream().map(GeofenceEventDTO::id).toList());
+        assertTrue(geofenceService.getEvents(bob, null, null).isEmpty());
+    }
+
+    @Test
+    void polygonsUseTheirVerticesAndDeletingAFenceRemovesItsEvents() {
+        GeofenceCreateDTO triangle = new GeofenceCreateDTO();
+        triangle.setName("Campus");
+        triangle.setVertices(List.of(new double[]{51.4995, 7.1005}, new double[]{51.5005, 7.1005},
+                new double[]{51.4995, 7.1025}));
+        GeofenceDTO campus = geofenceService.createGeofence(alice, triangle);
+        assertEquals(GeofenceShape.POLYGON, campus.shape());
+        assertEquals(3, campus.vertices().size());
+        assertEquals(List.of(campus.id()), geofenceService.getGeofences(alice).stream().map(GeofenceDTO::id).toList());
+
+        LocalDateTime start = LocalDateTime.now().minusHours(1).withNano(0);
+        // Inside the bounding circle but outside the triangle, then inside
+        addLocations(bob, point(51.5005, 7.1023, start), point(51.4997, 7.1008, start.plusMinutes(1)));
+        List<GeofenceEventDTO> events = geofenceService.getEvents(alice, null, null);
+        assertEquals(1, events.size());
+        assertEquals(GeofenceEventType.ENTER, events.get(0).type());
+
+        assertThrows(ResourceNotFoundException.class, () -> geofenceService.deleteGeofence(bob, campus.id()));
+        geofenceService.deleteGeofence(alice, campus.id());
+        assertTrue(geofenceService.getGeofences(alice).isEmpty());
+        assertTrue(geofenceService.getEvents(alice, null, null).isEmpty());
+
+        // Leaving a deleted fence is no event
+        addLocations(bob, point(51.5100, 7.1000, start.plusMinutes(2)));
+        assertTrue(geofenceService.getEvents(alice, null, null).isEmpty());
+    }
+
+    @Test
+    void invalidFencesAreRejected() {
+        assertThrows(ValidationException.class, () -> geofenceService.createGeofence(alice, circle(" ", 51.5, 7.1, 100)));
+        assertThrows(ValidationException.class, () -> geofenceService.createGeofence(alice, circle("Far", 51.5, 7.1, 1_000_000)));
+
+        GeofenceCreateDTO line = new GeofenceCreateDTO();
+        line.setName("Line");
+        line.setVertices(List.of(new double[]{51.50, 7.10}, new double[]{51.51, 7.10}));
+        assertThrows(ValidationException.class, () -> geofenceService.createGeofence(alice, line));
+
+        GeofenceCreateDTO both = circle("Both", 51.5, 7.1, 100);
+        both.setVertices(List.of(new double[]{51.50, 7.10}, new double[]{51.51, 7.10}, new double[]{51.50, 7.11}));
+        assertThrows(ValidationException.class, () -> geofenceService.createGeofence(alice, both));
+
+        assertThrows(ValidationException.class, () -> geofenceService.getEvents(alice, null, 0));
+        assertTrue(geofenceService.getGeofences(alice).isEmpty());
+    }
+
+    private void addLocations(User user, LocationBatchPointDTO... points) {
+        locationService.addLocations(user, List.of(points));
+    }
+
+    private static GeofenceCreateDTO circle(String name, double latitude, double longitude, double radiusMeters) {
+        GeofenceCreateDTO geofence = new GeofenceCreateDTO();
+        geofence.setName(name);
+        geofence.setLatitude(latitude);
+        geofence.setLongitude(longitude);
+        geofence.setRadiusMeters(radiusMeters);
+        return geofence;
+    }
+
+    private static LocationBatchPointDTO point(double latitude, double longitude, LocalDateTime recordedAt) {
+        LocationBatchPointDTO point = new LocationBatchPointDTO();
+        point.setLatitude(latitude);
+        point.setLongitude(longitude);
+        point.setRecordedAt(recordedAt);
+        return point;
+    }
+}
@@ -0,0 +1,269 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.FriendClusterDTO;
+import de.whs.wi.friends_and_places.controller.dto.FriendClustersDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.controller.dto.NearbyFriendDTO;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.repository.UserLatestLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import de.whs.wi.friends_and_places.service.LocationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class LatestLocationIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private UserLatestLocationRepository latestRepository;
+
+    @Autowired
+    private LatestLocationProjection latestLocations;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private GeocodeApiService geocodeApiService;
+
+    private User alice;
+    private User bob;
+    private User carol;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(user("latestalice"));
+        bob = userRepository.save(user("latestbob"));
+        carol = userRepository.save(user("latestcarol"));
+        inTransaction(() -> {
+            User viewer = userRepository.findById(alice.getId()).orElseThrow();
+            viewer.addFriend(userRepository.findById(bob.getId()).orElseThrow());
+            viewer.addFriend(userRepository.findById(carol.getId()).orElseThrow());
+            return userRepository.save(viewer);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        inTransaction(() -> {
+            for (User user : userRepository.findAllById(List.of(alice.getId(), bob.getId(), carol.getId()))) {
+                user.setFriends(new HashSet<>());
+            }
+            return null;
+        });
+        for (User user : List.of(alice, bob, carol)) {
+            locationRepository.deleteByUser(user);
+        }
+        userRepository.deleteAll(List.of(alice, bob, carol));
+    }
+
+    @Test
+    void friendsLocationsReturnOneLatestLocationPerFriendDespiteSharedTimestamps() {
+        LocalDateTime shared = LocalDateTime.now().minusHours(2).withNano(0);
+        addLocations(bob, point(51.50, 7.10, shared), point(51.60, 7.20, shared.plusHours(1)));
+        addLocations(carol, point(52.50, 13.40, shared));
+
+        List<LocationResponseDTO> locations = friendsLocationsOfAlice();
+
+        // The former subquery also returned bob's older row, because it matched carol's timestamp
+        assertEquals(2, locations.size());
+        LocationResponseDTO bobLatest = locations.stream()
+                .filter(l -> l.getUsername().equals("latestbob")).findFirst().orElseThrow();
+        assertEquals(51.60, bobLatest.getLatitude(), 1e-9);
+    }
+
+    @Test
+    void historicPointsDoNotReplaceTheLatestLocation() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        addLocations(bob, point(51.60, 7.20, now));
+        addLocations(bob, point(51.50, 7.10, now.minusDays(3)));
+
+        double latestLatitude = inTransaction(() ->
+                latestRepository.findById(bob.getId()).orElseThrow().getLocation().getLatitude());
+        assertEquals(51.60, latestLatitude, 1e-9);
+        assertEquals(51.60, inTransaction(() -> locationService.getLatestLocation(bob)).getLatitude(), 1e-9);
+    }
+
+    @Test
+    void locationsStoredBeforeTheProjectionAreReadWithoutWritingEntries() {
+        UserLocation older = new UserLocation(bob, 51.50, 7.10, "Older");
+        older.setCreatedAt(LocalDateTime.now().minusHours(3));
+        older.setAddressStatus(AddressStatus.RESOLVED);
+        UserLocation newer = new UserLocation(bob, 51.60, 7.20, "Newer");
+        newer.setCreatedAt(LocalDateTime.now().minusHours(1));
+        newer.setAddressStatus(AddressStatus.RESOLVED);
+        locationRepository.saveAll(List.of(older, newer));
+        assertFalse(latestRepository.existsById(bob.getId()));
+
+        List<LocationResponseDTO> locations = friendsLocationsOfAlice();
+
+        assertEquals(1, locations.size());
+        assertEquals("Newer", locations.get(0).getFormattedAddress());
+        // Concurrent first reads would otherwise insert the same entries
+        assertFalse(latestRepository.existsById(bob.getId()));
+        assertFalse(latestRepository.existsById(carol.getId()));
+
+        // The next location creates the entry, older history is still taken into account
+        addLocations(bob, point(51.40, 7.00, LocalDateTime.now().minusHours(2)));
+        assertEquals(newer.getId(), latestRepository.findLocationId(bob.getId()).orElseThrow());
+    }
+
+    @Test
+    void concurrentFirstLocationsOfAUserBothCommit() throws Exception {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        CountDownLatch firstSaved = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> first = executor.submit(() -> inTransaction(() -> {
+                UserLocation saved = latestLocations.save(location(bob, 51.50, now.minusMinutes(1)));
+                firstSaved.countDown();
+                // Keeps the entry uncommitted while the second request inserts it too
+                sleep(300);
+                return saved;
+            }));
+            assertTrue(firstSaved.await(5, TimeUnit.SECONDS));
+            UserLocation second = inTransaction(() -> latestLocations.save(location(bob, 51.60, now)));
+            first.get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, locationRepository.findByUserOrderByCreatedAtDesc(bob).size());
+            assertEquals(second.getId(), latestRepository.findLocationId(bob.getId()).orElseThrow());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void nearbyFriendsAreFilteredByRadiusAndOrderedByDistance() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        addLocations(alice, point(51.5000, 7.1000, now));
+        addLocations(bob, point(51.5090, 7.1000, now.minusMinutes(5)));
+        addLocations(carol, point(51.5020, 7.1000, now.minusMinutes(5)));
+
+        List<NearbyFriendDTO> nearby = nearbyFriendsOfAlice(2000.0, null);
+
+        assertEquals(List.of("latestcarol", "latestbob"), nearby.stream().map(n -> n.location().getUsername()).toList());
+        assertEquals(222, nearby.get(0).distanceMeters(), 1);
+        assertEquals(1, nearbyFriendsOfAlice(500.0, null).size());
+        assertEquals(1, nearbyFriendsOfAlice(2000.0, 1).size());
+
+        // Bob moves away, the index follows his latest location
+        addLocations(bob, point(52.5200, 13.4050, now.minusMinutes(1)));
+        assertEquals(List.of("latestcarol"),
+                nearbyFriendsOfAlice(2000.0, null).stream().map(n -> n.location().getUsername()).toList());
+
+        assertThrows(ValidationException.class, () -> nearbyFriendsOfAlice(0.0, null));
+        assertThrows(ValidationException.class, () -> nearbyFriendsOfAlice(1_000_000.0, null));
+    }
+
+    @Test
+    void friendClustersMergeNearbyFriendsAndFollowMoves() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        addLocations(bob, point(51.5000, 7.1000, now.minusMinutes(5)));
+        addLocations(carol, point(51.5020, 7.1000, now.minusMinutes(5)));
+
+        FriendClustersDTO zoom10 = friendClustersOfAlice("50,5,54,15", 10);
+        assertEquals(10, zoom10.zoom());
+        assertEquals(1, zoom10.clusters().size());
+        assertEquals(2, zoom10.clusters().get(0).count());
+        assertNull(zoom10.clusters().get(0).location());
+        assertEquals(51.5010, zoom10.clusters().get(0).latitude(), 1e-4);
+
+        // Close enough to the ground every friend is on their own
+        FriendClustersDTO zoom18 = friendClustersOfAlice("50,5,54,15", 18);
+        assertEquals(List.of("latestbob", "latestcarol"), zoom18.clusters().stream()
+                .map(c -> c.location().getUsername()).sorted().toList());
+
+        // Bob moves to Berlin, the cached hierarchy is built again
+        addLocations(bob, point(52.5200, 13.4050, now.minusMinutes(1)));
+        List<FriendClusterDTO> moved = friendClustersOfAlice("50,5,54,15", 10).clusters();
+        assertEquals(List.of(1, 1), moved.stream().map(FriendClusterDTO::count).toList());
+        assertEquals(List.of("latestcarol"), friendClustersOfAlice("51,6,52,8", 10).clusters().stream()
+                .map(c -> c.location().getUsername()).toList());
+
+        assertThrows(ValidationException.class, () -> friendClustersOfAlice("50,5,54", 10));
+        assertThrows(ValidationException.class, () -> friendClustersOfAlice("54,5,50,15", 10));
+        assertThrows(ValidationException.class, () -> friendClustersOfAlice("50,5,54,15", 23));
+    }
+
+    private FriendClustersDTO friendClustersOfAlice(String bbox, Integer zoom) {
+        return inTransaction(() -> locationService.getFriendClusters(userRepository.findById(alice.getId()).orElseThrow(),
+                bbox, zoom));
+    }
+
+    private List<NearbyFriendDTO> nearbyFriendsOfAlice(Double radius, Integer limit) {
+        return inTransaction(() -> locationService.getNearbyFriends(userRepository.findById(alice.getId()).orElseThrow(),
+                radius, limit));
+    }
+
+    private List<LocationResponseDTO> friendsLocationsOfAlice() {
+        return inTransaction(() -> locationService.getFriendsLocations(userRepository.findById(alice.getId()).orElseThrow()));
+    }
+
+    private void addLocations(User user, LocationBatchPointDTO... points) {
+        locationService.addLocations(user, List.of(points));
+    }
+
+    private static LocationBatchPointDTO point(double latitude, double longitude, LocalDateTime recordedAt) {
+        LocationBatchPointDTO point = new LocationBatchPointDTO();
+        point.setLatitude(latitude);
+        point.setLongitude(longitude);
+        point.setRecordedAt(recordedAt);
+        return point;
+    }
+
+    private static UserLocation location(User user, double latitude, LocalDateTime createdAt) {
+        UserLocation location = new UserLocation(user, latitude, 7.10, "Neidenburger Str. 43, Gelsenkirchen");
+        location.setCreatedAt(createdAt);
+        location.setAddressStatus(AddressStatus.RESOLVED);
+        return location;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+}
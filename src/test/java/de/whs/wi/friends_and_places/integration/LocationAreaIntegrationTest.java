@@ -0,0 +1,120 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.SpatialKeyBackfill;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.LocationService;
+import de.whs.wi.friends_and_places.util.MortonCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class LocationAreaIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private SpatialKeyBackfill backfill;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("areauser"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        locationRepository.deleteByUser(user);
+        userRepository.delete(user);
+    }
+
+    @Test
+    void onlyLocationsInsideTheBoxAndTimeRangeAreReturnedNewestFirst() {
+        LocalDateTime start = LocalDateTime.now().minusDays(40).withNano(0);
+        List<UserLocation> locations = new ArrayList<>();
+        // A 20 x 20 grid of points 0.01 degrees apart, one hour apart
+        for (int i = 0; i < 400; i++) {
+            locations.add(location(51.40 + (i / 20) * 0.01, 7.00 + (i % 20) * 0.01, start.plusHours(i)));
+        }
+        locationRepository.saveAll(locations);
+        assertEquals(MortonCode.encode(51.40, 7.00), locationRepository.findAll().stream()
+                .filter(l -> l.getLatitude() == 51.40 && l.getLongitude() == 7.00)
+                .findFirst().orElseThrow().getSpatialKey());
+
+        List<LocationResponseDTO> area = locationService.getLocationsInArea(user, 51.445, 7.045, 51.475, 7.075,
+                null, null, null);
+
+        // Rows 5 to 7 and columns 5 to 7
+        assertEquals(9, area.size());
+        assertTrue(area.stream().allMatch(l -> l.getLatitude() > 51.445 && l.getLatitude() < 51.475
+                && l.getLongitude() > 7.045 && l.getLongitude() < 7.075));
+        for (int i = 1; i < area.size(); i++) {
+            assertTrue(area.get(i).getCreatedAt().isBefore(area.get(i - 1).getCreatedAt()));
+        }
+
+        assertEquals(3, locationService.getLocationsInArea(user, 51.445, 7.045, 51.475, 7.075,
+                start.plusHours(120), start.plusHours(140), null).size());
+        assertEquals(2, locationService.getLocationsInArea(user, 51.445, 7.045, 51.475, 7.075,
+                null, null, 2).size());
+        assertThrows(ValidationException.class, () -> locationService.getLocationsInArea(user, 51.5, 7.0, 51.4, 7.1,
+                null, null, null));
+        assertThrows(ValidationException.class, () -> locationService.getLocationsInArea(user, 51.4, 179.0, 51.5, -179.0,
+                null, null, null));
+    }
+
+    @Test
+    void rowsWithoutSpatialKeyAreBackfilled() {
+        UserLocation location = locationRepository.save(location(51.5, 7.1, LocalDateTime.now().minusHours(1)));
+        jdbcTemplate.update("UPDATE user_locations SET spatial_key = NULL WHERE id = ?", location.getId());
+        assertTrue(locationService.getLocationsInArea(user, 51.4, 7.0, 51.6, 7.2, null, null, null).isEmpty());
+
+        assertTrue(backfill.backfill() >= 1);
+
+        assertEquals(MortonCode.encode(51.5, 7.1), locationRepository.findById(location.getId()).orElseThrow().getSpatialKey());
+        assertEquals(1, locationService.getLocationsInArea(user, 51.4, 7.0, 51.6, 7.2, null, null, null).size());
+    }
+
+    @Test
+    void keyRangesAreReadThroughTheSpatialIndex() {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT id FROM user_locations WHERE user_id = 1 " +
+                "AND spatial_key BETWEEN 10 AND 20 AND created_at >= TIMESTAMP '2020-01-01 00:00:00'", String.class);
+
+        assertTrue(plan.toUpperCase().contains("IDX_USER_LOCATIONS_USER_SPATIAL_KEY"), plan);
+    }
+
+    private UserLocation location(double latitude, double longitude, LocalDateTime createdAt) {
+        UserLocation location = new UserLocation(user, latitude, longitude, "Neidenburger Str. 43, Gelsenkirchen");
+        location.setCreatedAt(createdAt);
+        location.setAddressStatus(AddressStatus.RESOLVED);
+        return location;
+    }
+}
@@ -0,0 +1,204 @@
+package de.whs.wi.friends_and_places.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.whs.wi.friends_and_places.controller.dto.LocationBatchPointDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationCreateDTO;
+import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
+import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.GeocodeApiService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class LocationBatchIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationBatchIntegrationTest.class);
+
+    private static final String TEST_EMAIL = "batch@example.com";
+    private static final String TEST_PASSWORD = "Password123!";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    // Keeps the test away from the real geocoding API
+    @MockitoBean
+    private GeocodeApiService geocodeApiService;
+
+    private MockMvc mockMvc;
+    private String token;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        GeocodingData data = new GeocodingData();
+        data.setFormatted("Neidenburger Str. 43, Gelsenkirchen");
+        when(geocodeApiService.getReverseGeoData(anyDouble(), anyDouble())).thenReturn(data);
+
+        UserRegisterDTO register = new UserRegisterDTO();
+        register.setUsername("batchuser");
+        register.setEmail(TEST_EMAIL);
+        register.setPassword(TEST_PASSWORD);
+        register.setCity("Gelsenkirchen");
+        register.setZipCode("45897");
+        register.setStreet("Neidenburger Str.");
+        register.setHouseNumber("43");
+        register.setMobile("1234567890");
+        mockMvc.perform(post("/api/v1/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(register)))
+                .andExpect(status().isOk());
+
+        UserLoginDTO login = new UserLoginDTO();
+        login.setEmail(TEST_EMAIL);
+        login.setPassword(TEST_PASSWORD);
+        MvcResult loginResult = mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn();
+        token = objectMapper.readTree(loginResult.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.findByEmail(TEST_EMAIL).ifPresent(user -> {
+            locationRepository.deleteByUser(user);
+            userRepository.delete(user);
+        });
+    }
+
+    @Test
+    void batchUploadStoresPointsInOrderWithClientTimestamps() throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusHours(1).withNano(0);
+        List<LocationBatchPointDTO> points = points(3, start);
+
+        MvcResult result = mockMvc.perform(post("/api/v1/places/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(points)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertEquals(3, body.get("saved").asInt());
+        assertEquals(3, body.get("ids").size());
+
+        User user = userRepository.findByEmail(TEST_EMAIL).orElseThrow();
+        List<UserLocation> stored = locationRepository.findByUserOrderByCreatedAtDesc(user);
+        assertEquals(3, stored.size());
+        assertEquals(start.plusSeconds(20), stored.get(0).getCreatedAt());
+        assertEquals(start, stored.get(2).getCreatedAt());
+        assertNotEquals(AddressStatus.FAILED, stored.get(0).getAddressStatus());
+    }
+
+    @Test
+    void batchUploadRejectsInvalidPointWithoutStoringAny() throws Exception {
+        List<LocationBatchPointDTO> points = points(2, LocalDateTime.now().minusMinutes(5));
+        points.get(1).setLatitude(123.0);
+
+        mockMvc.perform(post("/api/v1/places/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(points)))
+                .andExpect(status().is4xxClientError());
+
+        User user = userRepository.findByEmail(TEST_EMAIL).orElseThrow();
+        assertTrue(locationRepository.findByUserOrderByCreatedAtDesc(user).isEmpty());
+    }
+
+    /**
+     * Compares uploading points one by one with uploading them in batches.
+     * Run with {@code mvn test -Dtest=LocationBatchIntegrationTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkPerPointVersusBatchedIngestion() throws Exception {
+        int count = 2000;
+        int batchSize = 100;
+        List<LocationBatchPointDTO> points = points(count, LocalDateTime.now().minusDays(1));
+
+        long perPointStart = System.nanoTime();
+        for (LocationBatchPointDTO point : points) {
+            LocationCreateDTO single = new LocationCreateDTO();
+            single.setLatitude(point.getLatitude());
+            single.setLongitude(point.getLongitude());
+            mockMvc.perform(put("/api/v1/places")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(single)))
+                    .andExpect(status().isOk());
+        }
+        long perPointNanos = System.nanoTime() - perPointStart;
+
+        long batchStart = System.nanoTime();
+        for (int i = 0; i < count; i += batchSize) {
+            mockMvc.perform(post("/api/v1/places/batch")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(points.subList(i, i + batchSize))))
+                    .andExpect(status().isOk());
+        }
+        long batchNanos = System.nanoTime() - batchStart;
+
+        logger.info("Per-point ingestion: {} points/s, batched ingestion ({} per request): {} points/s",
+                count * 1_000_000_000L / perPointNanos, batchSize, count * 1_000_000_000L / batchNanos);
+        assertTrue(batchNanos < perPointNanos, "Batched ingestion should be faster than per-point ingestion");
+    }
+
+    private List<LocationBatchPointDTO> points(int count, LocalDateTime start) {
+        List<LocationBatchPointDTO> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocationBatchPointDTO point = new LocationBatchPointDTO();
+            point.setLatitude(51.5 + i * 0.0001);
+            point.setLongitude(7.1 + i * 0.0001);
+            point.setRecordedAt(start.plusSeconds(10L * i));
+            points.add(point);
+        }
+        return points;
+    }
+}
@@ -0,0 +1,174 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.LocationPageDTO;
+import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.error.ValidationException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LocationTrailRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.LocationService;
+import de.whs.wi.friends_and_places.service.implementations.LocationTrailCompactor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class LocationHistoryIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationHistoryIntegrationTest.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private LocationTrailRepository trailRepository;
+
+    @Autowired
+    private LocationTrailCompactor compactor;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("historyuser"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        locationRepository.deleteByUser(user);
+        trailRepository.deleteAll(trailRepository.findByUserOrderByBucketDateDesc(user));
+        userRepository.delete(user);
+    }
+
+    @Test
+    void pagesCoverTheWholeHistoryInOrderIncludingTrailsAndEqualTimestamps() {
+        LocalDateTime start = LocalDate.now().minusDays(6).atTime(8, 0);
+        List<UserLocation> locations = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            // Pairs of points share a timestamp, so pages must also be cut between equal timestamps
+            locations.add(location(51.0 + i * 0.001, start.plusHours(i / 2)));
+        }
+        locationRepository.saveAll(locations);
+        compactor.compact();
+        assertFalse(trailRepository.findByUserOrderByBucketDateDesc(user).isEmpty());
+
+        List<LocationResponseDTO> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            LocationPageDTO page = history(null, null, cursor, 25);
+            assertTrue(page.locations().size() <= 25);
+            paged.addAll(page.locations());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(5, pages);
+        assertEquals(120, paged.size());
+        assertEquals(120, paged.stream().mapToDouble(LocationResponseDTO::getLatitude).distinct().count());
+        for (int i = 1; i < paged.size(); i++) {
+            assertFalse(paged.get(i).getCreatedAt().isAfter(paged.get(i - 1).getCreatedAt()));
+        }
+    }
+
+    @Test
+    void timeRangeAndPageSizeAreApplied() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1).withNano(0);
+        List<UserLocation> locations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            locations.add(location(51.0 + i * 0.001, start.plusMinutes(i)));
+        }
+        locationRepository.saveAll(locations);
+
+        LocationPageDTO page = history(start.plusMinutes(2), start.plusMinutes(6), null, null);
+
+        // from is inclusive, to exclusive
+        assertEquals(4, page.locations().size());
+        assertEquals(start.plusMinutes(5), page.locations().get(0).getCreatedAt());
+        assertEquals(start.plusMinutes(2), page.locations().get(3).getCreatedAt());
+        assertNull(page.nextCursor());
+
+        assertEquals(2, history(null, null, null, 2).locations().size());
+        assertThrows(ValidationException.class, () -> history(start, start.minusMinutes(1), null, null));
+        assertThrows(ValidationException.class, () -> history(null, null, "not-a-cursor", null));
+    }
+
+    /**
+     * Compares the time of the first and a deep page of a long history.
+     * Run with {@code mvn test -Dtest=LocationHistoryIntegrationTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkDeepPages() {
+        LocalDateTime start = LocalDateTime.now().minusDays(60);
+        List<UserLocation> locations = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            locations.add(location(51.0 + (i % 1000) * 0.0001, start.plusSeconds(60L * i)));
+            if (locations.size() == 5000) {
+                locationRepository.saveAll(locations);
+                locations.clear();
+            }
+        }
+        history(null, null, null, 100);
+
+        long firstStart = System.nanoTime();
+        LocationPageDTO page = history(null, null, null, 100);
+        long firstMicros = (System.nanoTime() - firstStart) / 1000;
+
+        for (int i = 0; i < 400; i++) {
+            page = history(null, null, page.nextCursor(), 100);
+        }
+        long deepStart = System.nanoTime();
+        history(null, null, page.nextCursor(), 100);
+        long deepMicros = (System.nanoTime() - deepStart) / 1000;
+
+        long allStart = System.nanoTime();
+        new TransactionTemplate(transactionManager).execute(status -> locationService.getAllLocations(user));
+        long allMicros = (System.nanoTime() - allStart) / 1000;
+
+        logger.info("50000 locations: first page {} µs, page 402 {} µs, whole history {} µs",
+                firstMicros, deepMicros, allMicros);
+    }
+
+    // Requests read inside an open session (open-in-view), the test needs its own for the lazy user
+    private LocationPageDTO history(LocalDateTime from, LocalDateTime to, String cursor, Integer size) {
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> locationService.getLocationHistory(user, from, to, cursor, size));
+    }
+
+    private UserLocation location(double latitude, LocalDateTime createdAt) {
+        UserLocation location = new UserLocation(user, latitude, 7.1, "Neidenburger Str. 43, Gelsenkirchen");
+        location.setCreatedAt(createdAt);
+        location.setAddressStatus(AddressStatus.RESOLVED);
+        return location;
+    }
+}
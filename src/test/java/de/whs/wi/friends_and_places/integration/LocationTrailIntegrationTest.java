@@ -0,0 +1,186 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.LocationResponseDTO;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.LocationTrail;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.repository.LocationTrailRepository;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.LocationService;
+import de.whs.wi.friends_and_places.service.implementations.LocationTrailCompactor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class LocationTrailIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationTrailIntegrationTest.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private LocationTrailRepository trailRepository;
+
+    @Autowired
+    private LatestLocationProjection latestLocations;
+
+    @Autowired
+    private LocationTrailCompactor compactor;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(user("trailuser"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        locationRepository.deleteByUser(user);
+        trailRepository.deleteAll(trailRepository.findByUserOrderByBucketDateDesc(user));
+        userRepository.delete(user);
+    }
+
+    @Test
+    void compactMovesSealedDaysIntoTrailsAndKeepsTheLatestRow() {
+        LocalDateTime fiveDaysAgo = LocalDate.now().minusDays(5).atTime(9, 0);
+        locationRepository.saveAll(List.of(
+                location(51.5, 7.1, fiveDaysAgo, AddressStatus.RESOLVED),
+                location(51.6, 7.2, fiveDaysAgo.plusHours(1), AddressStatus.RESOLVED),
+                location(51.7, 7.3, fiveDaysAgo.plusDays(1), AddressStatus.PENDING),
+                location(51.8, 7.4, fiveDaysAgo.plusDays(2), AddressStatus.RESOLVED),
+                location(51.9, 7.5, fiveDaysAgo.plusDays(3), AddressStatus.RESOLVED)));
+        List<LocationResponseDTO> before = allLocations();
+
+        assertEquals(2, compactor.compact());
+
+        // The pending row and the latest row stay, the other three are compacted into two days
+        assertEquals(2, locationRepository.findByUserOrderByCreatedAtDesc(user).size());
+        List<LocationTrail> trails = trailRepository.findByUserOrderByBucketDateDesc(user);
+        assertEquals(2, trails.size());
+        assertEquals(2, trails.get(1).getPointCount());
+
+        List<LocationResponseDTO> after = allLocations();
+        assertEquals(before.size(), after.size());
+        for (int i = 0; i < before.size(); i++) {
+            assertEquals(before.get(i).getLatitude(), after.get(i).getLatitude(), 1e-6);
+            assertEquals(before.get(i).getCreatedAt().withNano(0), after.get(i).getCreatedAt().withNano(0));
+        }
+        assertEquals(51.9, new TransactionTemplate(transactionManager)
+                .execute(status -> locationService.getLatestLocation(user)).getLatitude());
+        assertEquals(0, compactor.compact());
+    }
+
+    @Test
+    void areaQueriesOnlyDecodeTrailsOverlappingTheArea() {
+        LocalDateTime fiveDaysAgo = LocalDate.now().minusDays(5).atTime(9, 0);
+        locationRepository.saveAll(List.of(
+                location(51.50, 7.10, fiveDaysAgo, AddressStatus.RESOLVED),
+                location(51.52, 7.12, fiveDaysAgo.plusHours(1), AddressStatus.RESOLVED),
+                location(52.52, 13.40, fiveDaysAgo.plusDays(1), AddressStatus.RESOLVED),
+                location(51.90, 7.50, fiveDaysAgo.plusDays(3), AddressStatus.RESOLVED)));
+        assertEquals(2, compactor.compact());
+
+        LocationTrail gelsenkirchen = trailRepository.findByUserOrderByBucketDateDesc(user).get(1);
+        assertEquals(51.50, gelsenkirchen.getMinLatitude(), 1e-6);
+        assertEquals(7.12, gelsenkirchen.getMaxLongitude(), 1e-6);
+        List<LocationTrail> overlapping = trailRepository.findOverlapping(user, LocalDate.of(2000, 1, 1),
+                LocalDate.now(), LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.now(), 51.4, 7.0, 51.6, 7.2,
+                PageRequest.of(0, 10));
+        assertEquals(List.of(gelsenkirchen.getId()), overlapping.stream().map(LocationTrail::getId).toList());
+        assertEquals(2, new TransactionTemplate(transactionManager).execute(status ->
+                locationService.getLocationsInArea(user, 51.4, 7.0, 51.6, 7.2, null, null, null)).size());
+    }
+
+    @Test
+    void usersWhoseOnlySealedRowIsTheLatestAreNotListed() {
+        LocalDateTime fiveDaysAgo = LocalDate.now().minusDays(5).atTime(9, 0);
+        latestLocations.save(location(51.5, 7.1, fiveDaysAgo, AddressStatus.RESOLVED));
+
+        // Inactive users would otherwise fill every page without anything to compact
+        assertFalse(locationRepository.findUserIdsWithLocationsBefore(0, LocalDate.now().atStartOfDay(),
+                AddressStatus.PENDING, PageRequest.of(0, 1000)).contains(user.getId()));
+        assertEquals(0, compactor.compact());
+        assertEquals(1, locationRepository.findByUserOrderByCreatedAtDesc(user).size());
+    }
+
+    /**
+     * Compares storage size and read time of the row-per-point layout with compacted trails.
+     * Run with {@code mvn test -Dtest=LocationTrailIntegrationTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRowsVersusTrails() {
+        int days = 20;
+        int pointsPerDay = 2000;
+        LocalDateTime start = LocalDate.now().minusDays(days + 2L).atStartOfDay();
+        for (int day = 0; day < days; day++) {
+            List<UserLocation> locations = new ArrayList<>(pointsPerDay);
+            for (int i = 0; i < pointsPerDay; i++) {
+                locations.add(location(51.5 + i * 0.00005, 7.1 + i * 0.00003,
+                        start.plusDays(day).plusSeconds(40L * i), AddressStatus.RESOLVED));
+            }
+            locationRepository.saveAll(locations);
+        }
+        allLocations();
+
+        long rowsStart = System.nanoTime();
+        int rowCount = allLocations().size();
+        long rowsMillis = (System.nanoTime() - rowsStart) / 1_000_000;
+
+        compactor.compact();
+        allLocations();
+
+        long trailsStart = System.nanoTime();
+        int trailCount = allLocations().size();
+        long trailsMillis = (System.nanoTime() - trailsStart) / 1_000_000;
+
+        logger.info("{} points: rows read in {} ms, trails read in {} ms; storage {}", rowCount, rowsMillis,
+                trailsMillis, compactor.getStats());
+        assertEquals(rowCount, trailCount);
+    }
+
+    // Requests read inside an open session (open-in-view), the test needs its own for the lazy user
+    private List<LocationResponseDTO> allLocations() {
+        return new TransactionTemplate(transactionManager).execute(status -> locationService.getAllLocations(user));
+    }
+
+    private UserLocation location(double latitude, double longitude, LocalDateTime createdAt, AddressStatus status) {
+        UserLocation location = new UserLocation(user, latitude, longitude, "Neidenburger Str. 43, Gelsenkirchen");
+        location.setCreatedAt(createdAt);
+        location.setAddressStatus(status);
+        return location;
+    }
+}
@@ -0,0 +1,197 @@
+package de.whs.wi.friends_and_places.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
+import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.repository.LatestLocationRegistry;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static de.whs.wi.friends_and_places.integration.TestUsers.user;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts the number of SQL statements per location endpoint with Hibernate statistics
+ * ({@code hibernate.generate_statistics}, enabled for this test only). Every user owns several locations and
+ * has several friends, so a query per row or per friend (N+1) changes the count and fails the build.
+ * <p>
+ * Every authenticated request costs one statement to load the user of the token; the counts below
+ * include it.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class QueryCountIntegrationTest {
+
+    private static final String TEST_EMAIL = "querycount@example.com";
+    private static final String TEST_PASSWORD = "Password123!";
+    private static final int AUTHENTICATION_STATEMENTS = 1;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserLocationRepository locationRepository;
+
+    @Autowired
+    private LatestLocationProjection latestLocations;
+
+    @Autowired
+    private LatestLocationRegistry latestLocationRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MockMvc mockMvc;
+    private String token;
+    private User viewer;
+    private final List<User> friends = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        UserRegisterDTO register = new UserRegisterDTO();
+        register.setUsername("querycount");
+        register.setEmail(TEST_EMAIL);
+        register.setPassword(TEST_PASSWORD);
+        register.setCity("Gelsenkirchen");
+        register.setZipCode("45897");
+        register.setStreet("Neidenburger Str.");
+        register.setHouseNumber("43");
+        register.setMobile("1234567890");
+        mockMvc.perform(post("/api/v1/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(register)))
+                .andExpect(status().isOk());
+
+        UserLoginDTO login = new UserLoginDTO();
+        login.setEmail(TEST_EMAIL);
+        login.setPassword(TEST_PASSWORD);
+        MvcResult loginResult = mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn();
+        token = objectMapper.readTree(loginResult.getResponse().getContentAsString()).get("token").asText();
+
+        viewer = userRepository.findByEmail(TEST_EMAIL).orElseThrow();
+        storeLocations(viewer, 20);
+        for (int i = 0; i < 3; i++) {
+            User friend = userRepository.save(user("querycountfriend" + i));
+            storeLocations(friend, 5);
+            friends.add(friend);
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            User managed = userRepository.findById(viewer.getId()).orElseThrow();
+            friends.forEach(friend -> managed.addFriend(userRepository.findById(friend.getId()).orElseThrow()));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Friendships are stored for both users
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (User user : userRepository.findAllById(friends.stream().map(User::getId).toList())) {
+                user.setFriends(new HashSet<>());
+            }
+            userRepository.findById(viewer.getId()).ifPresent(user -> user.setFriends(new HashSet<>()));
+        });
+        for (User user : friends) {
+            locationRepository.deleteByUser(user);
+            userRepository.delete(user);
+        }
+        locationRepository.deleteByUser(viewer);
+        userRepository.delete(viewer);
+    }
+
+    @Test
+    void allLocationsRunOneLocationQuery() throws Exception {
+        // Locations projected with the user columns, plus the compacted trails
+        assertEquals(AUTHENTICATION_STATEMENTS + 2, statementsOf("/api/v1/places"));
+    }
+
+    @Test
+    void historyRunsOneLocationQuery() throws Exception {
+        // One page of projected locations, plus the trails of the first week
+        assertEquals(AUTHENTICATION_STATEMENTS + 2, statementsOf("/api/v1/places/history?size=10"));
+    }
+
+    @Test
+    void friendsLocationsRunNoLocationQueryOnceTheRegistryKnowsTheFriends() throws Exception {
+        statementsOf("/api/v1/places/friends");
+
+        // The friends collection only, positions come from the registry
+        assertEquals(AUTHENTICATION_STATEMENTS + 1, statementsOf("/api/v1/places/friends"));
+    }
+
+    @Test
+    void friendsLocationsRunOneLocationQueryWithoutTheRegistry() throws Exception {
+        statementsOf("/api/v1/places/friends");
+        latestLocationRegistry.clear();
+
+        // The friends collection and one primary-key lookup in user_latest_location for all friends
+        assertEquals(AUTHENTICATION_STATEMENTS + 2, statementsOf("/api/v1/places/friends"));
+    }
+
+    private long statementsOf(String url) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void storeLocations(User user, int count) {
+        LocalDateTime start = LocalDateTime.now().minusHours(count);
+        List<UserLocation> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UserLocation location = new UserLocation(user, 51.5 + i * 0.001, 7.1, "Neidenburger Str. 43, Gelsenkirchen");
+            location.setCreatedAt(start.plusHours(i));
+            location.setAddressStatus(AddressStatus.RESOLVED);
+            locations.add(location);
+        }
+        latestLocations.saveAll(locations);
+    }
+}
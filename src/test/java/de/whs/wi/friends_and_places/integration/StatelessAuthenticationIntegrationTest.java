@@ -0,0 +1,119 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.controller.dto.UserLoginDTO;
+import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import de.whs.wi.friends_and_places.service.UserService;
+import de.whs.wi.friends_and_places.util.SecurityVersionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Token revocation by security version in stateless mode, checked through the authentication filter.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "jwt.stateless.enabled=true")
+public class StatelessAuthenticationIntegrationTest {
+
+    private static final String EMAIL = "stateless@example.com";
+    private static final String PASSWORD = "Password123!";
+    private static final String NEW_PASSWORD = "Password456!";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SecurityVersionRegistry securityVersionRegistry;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        UserRegisterDTO register = new UserRegisterDTO();
+        register.setUsername("statelessuser");
+        register.setEmail(EMAIL);
+        register.setPassword(PASSWORD);
+        register.setCity("Test City");
+        register.setZipCode("12345");
+        register.setStreet("Test Street");
+        register.setHouseNumber("123");
+        register.setMobile("1234567890");
+        mockMvc.perform(post("/api/v1/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(register)))
+                .andExpect(status().isOk());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.findByEmail(EMAIL).ifPresent(userRepository::delete);
+        securityVersionRegistry.clear();
+    }
+
+    @Test
+    void passwordChangeRejectsOlderTokensAcrossRegistryReset() throws Exception {
+        String staleToken = login(PASSWORD);
+        expectStatus(staleToken, 200);
+
+        User user = userRepository.findByEmail(EMAIL).orElseThrow();
+        userService.changePassword(user, NEW_PASSWORD);
+        expectStatus(staleToken, 401);
+
+        String currentToken = login(NEW_PASSWORD);
+        expectStatus(currentToken, 200);
+
+        // Same as a restart: the version is loaded from the database again
+        securityVersionRegistry.clear();
+        expectStatus(currentToken, 200);
+        expectStatus(staleToken, 401);
+    }
+
+    private String login(String password) throws Exception {
+        UserLoginDTO login = new UserLoginDTO();
+        login.setEmail(EMAIL);
+        login.setPassword(password);
+        String response = mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(login)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("token").asText();
+    }
+
+    private void expectStatus(String token, int expected) throws Exception {
+        mockMvc.perform(get("/api/v1/test/secured").header("Authorization", "Bearer " + token))
+                .andExpect(status().is(expected));
+    }
+}
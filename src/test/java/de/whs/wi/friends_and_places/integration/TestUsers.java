@@ -0,0 +1,21 @@
+package de.whs.wi.friends_and_places.integration;
+
+import de.whs.wi.friends_and_places.model.User;
+
+/**
+ * Unsaved users for integration tests.
+ */
+final class TestUsers {
+
+    private TestUsers() {
+    }
+
+    /**
+     * @param username the username, also the local part of the email address
+     * @return a new, unsaved user with a fixed address
+     */
+    static User user(String username) {
+        return new User(null, username, "secret", username + "@example.com",
+                "Gelsenkirchen", "45897", "Neidenburger Str.", "43", "1234567890");
+    }
+}
@@ -0,0 +1,158 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.Geofence;
+import de.whs.wi.friends_and_places.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GeofenceIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeofenceIndexTest.class);
+
+    @Mock
+    private GeofenceRepository geofenceRepository;
+
+    private GeofenceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        index = new GeofenceIndex(geofenceRepository, 1000, 16);
+    }
+
+    private static GeofenceIndex.Fence circle(long id, long ownerId, double latitude, double longitude, double radius) {
+        return new GeofenceIndex.Fence(id, ownerId, latitude, longitude, radius, null, null);
+    }
+
+    private static List<Long> ids(List<GeofenceIndex.Fence> fences) {
+        return fences.stream().map(GeofenceIndex.Fence::id).sorted().toList();
+    }
+
+    @Test
+    void findContaining_testsCirclesAndPolygonsExactly() {
+        index.add(circle(1L, 10L, 51.5000, 7.1000, 100));
+        // Triangle with its bounding circle, the point 51.5005/7.1023 lies in the circle but not the triangle
+        index.add(new GeofenceIndex.Fence(2L, 10L, 51.5000, 7.1015, 150,
+                new double[]{51.4995, 51.5005, 51.4995}, new double[]{7.1005, 7.1005, 7.1025}));
+
+        assertEquals(List.of(1L), ids(index.findContaining(51.5008, 7.1000)));
+        assertEquals(List.of(1L, 2L), ids(index.findContaining(51.4997, 7.1008)));
+        assertEquals(List.of(), ids(index.findContaining(51.5005, 7.1023)));
+        assertEquals(List.of(), ids(index.findContaining(51.5030, 7.1000)));
+    }
+
+    @Test
+    void largeFencesAreFoundWithoutTheGrid() {
+        // 20 km need far more than 16 cells of 1 km
+        index.add(circle(1L, 10L, 51.5, 7.1, 20_000));
+        index.add(circle(2L, 10L, 51.5, 7.1, 300));
+
+        assertEquals(List.of(1L, 2L), ids(index.findContaining(51.5, 7.1)));
+        assertEquals(List.of(1L), ids(index.findContaining(51.6, 7.1)));
+        assertEquals(1, index.getStats().get("largeFences"));
+
+        index.remove(1L);
+        index.remove(2L);
+        assertEquals(List.of(), ids(index.findContaining(51.5, 7.1)));
+        assertEquals(0, index.size());
+        assertEquals(0, index.getStats().get("gridCells"));
+    }
+
+    @Test
+    void onUserChanged_dropsFencesOfDeletedUsers() {
+        index.add(circle(1L, 10L, 51.5, 7.1, 300));
+        index.add(circle(2L, 20L, 51.5, 7.1, 300));
+        when(geofenceRepository.findByOwnerIdOrderById(10L)).thenReturn(List.of());
+
+        index.onUserChanged(new UserChangedEvent(10L, "owner@example.com", "owner"));
+
+        assertEquals(List.of(2L), ids(index.findContaining(51.5, 7.1)));
+        assertEquals(1, index.getStats().get("owners"));
+    }
+
+    @Test
+    void onUserChanged_skipsUsersWithoutFences() {
+        index.add(circle(1L, 10L, 51.5, 7.1, 300));
+
+        index.onUserChanged(new UserChangedEvent(30L, "other@example.com", "other"));
+
+        verifyNoInteractions(geofenceRepository);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void refresh_addsNewAndRemovesDeletedFences() {
+        index.add(circle(1L, 10L, 51.5, 7.1, 300));
+        // Created on this instance after the reload read its last page
+        index.add(circle(3L, 10L, 51.5, 7.1, 300));
+        User owner = new User();
+        owner.setId(20L);
+        Geofence created = mock(Geofence.class);
+        when(created.getId()).thenReturn(2L);
+        when(created.getOwner()).thenReturn(owner);
+        when(created.getCenterLatitude()).thenReturn(51.5);
+        when(created.getCenterLongitude()).thenReturn(7.1);
+        when(created.getRadiusMeters()).thenReturn(300.0);
+        when(geofenceRepository.findPageAfter(eq(0L), any())).thenReturn(List.of(created));
+
+        index.refresh();
+
+        assertEquals(List.of(2L, 3L), ids(index.findContaining(51.5, 7.1)));
+    }
+
+    /**
+     * Measures point lookups in 100k fences against testing every fence.
+     * Run with {@code mvn test -Dtest=GeofenceIndexTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkLookups() {
+        int fenceCount = 100_000;
+        index = new GeofenceIndex(geofenceRepository, 1000, 256);
+        Random random = new Random(42);
+        List<GeofenceIndex.Fence> fences = new ArrayList<>(fenceCount);
+        // Fences of 50 to 1000 m, spread over about 300 x 300 km
+        for (long id = 1; id <= fenceCount; id++) {
+            GeofenceIndex.Fence fence = circle(id, id % 10_000, 50.0 + random.nextDouble() * 2.7,
+                    6.0 + random.nextDouble() * 4.3, 50 + random.nextDouble() * 950);
+            fences.add(fence);
+            index.add(fence);
+        }
+
+        int lookups = 1_000_000;
+        long found = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            found += index.findContaining(50.0 + random.nextDouble() * 2.7, 6.0 + random.nextDouble() * 4.3).size();
+        }
+        long lookupNanos = (System.nanoTime() - start) / lookups;
+
+        int scans = 1000;
+        start = System.nanoTime();
+        for (int i = 0; i < scans; i++) {
+            double latitude = 50.0 + random.nextDouble() * 2.7;
+            double longitude = 6.0 + random.nextDouble() * 4.3;
+            fences.stream().filter(fence -> fence.contains(latitude, longitude)).count();
+        }
+        long scanNanos = (System.nanoTime() - start) / scans;
+
+        logger.info("Geofence index with {} fences in {} cells: {} ns per lookup ({} fences per point), "
+                        + "{} ns per lookup testing every fence",
+                fenceCount, index.getStats().get("gridCells"), lookupNanos, (double) found / lookups, scanNanos);
+        assertTrue(lookupNanos < scanNanos);
+    }
+}
@@ -0,0 +1,342 @@
+package de.whs.wi.friends_and_places.repository;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLatestLocation;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LatestLocationRegistryTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestLocationRegistryTest.class);
+
+    @Mock
+    private UserLatestLocationRepository latestRepository;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private LatestLocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registry = new LatestLocationRegistry(latestRepository, true, 1000, 60_000, 1000, clock::get);
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    private static UserLocation location(User user, long id, LocalDateTime createdAt) {
+        UserLocation location = new UserLocation(user, 51.5 + id / 1000.0, 7.1, "Street " + id);
+        location.setId(id);
+        location.setCreatedAt(createdAt);
+        location.setAddressStatus(AddressStatus.RESOLVED);
+        return location;
+    }
+
+    @Test
+    void findLatest_loadsMissingUsersOnceAndRemembersUsersWithoutLocations() {
+        User alice = user(1L);
+        User bob = user(2L);
+        LocalDateTime now = LocalDateTime.now();
+        AtomicInteger loads = new AtomicInteger();
+
+        List<UserLocation> first = registry.findLatest(List.of(alice, bob), users -> {
+            loads.incrementAndGet();
+            return List.of(location(alice, 10L, now));
+        });
+        List<UserLocation> second = registry.findLatest(List.of(alice, bob), users -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertEquals(10L, second.get(0).getId());
+        assertEquals(now, second.get(0).getCreatedAt());
+        assertEquals("Street 10", second.get(0).getFormattedAddress());
+        assertSame(alice, second.get(0).getUser());
+    }
+
+    @Test
+    void record_keepsTheNewerLocation() {
+        User alice = user(1L);
+        LocalDateTime now = LocalDateTime.now();
+        registry.record(location(alice, 11L, now));
+        registry.record(location(alice, 10L, now.minusHours(1)));
+
+        List<UserLocation> latest = registry.findLatest(List.of(alice), users -> fail("Should be served from memory"));
+
+        assertEquals(11L, latest.get(0).getId());
+    }
+
+    @Test
+    void confirmAndUpdateAddress_onlyApplyToTheLatestLocation() {
+        User alice = user(1L);
+        LocalDateTime now = LocalDateTime.now();
+        UserLocation pending = location(alice, 11L, now.minusMinutes(5));
+        pending.setFormattedAddress(null);
+        pending.setAddressStatus(AddressStatus.PENDING);
+        registry.record(pending);
+
+        registry.updateAddress(1L, 10L, "Older Street", AddressStatus.RESOLVED);
+        registry.updateAddress(1L, 11L, "Main Street 1", AddressStatus.RESOLVED);
+        registry.confirm(1L, 11L, now);
+
+        UserLocation latest = registry.findLatest(List.of(alice), users -> List.of()).get(0);
+        assertEquals("Main Street 1", latest.getFormattedAddress());
+        assertEquals(AddressStatus.RESOLVED, latest.getAddressStatus());
+        assertEquals(now, latest.getLastConfirmedAt());
+    }
+
+    @Test
+    void onUserChanged_forgetsTheUser() {
+        User alice = user(1L);
+        registry.record(location(alice, 11L, LocalDateTime.now()));
+
+        registry.onUserChanged(new UserChangedEvent(1L, "alice@test.com", "alice"));
+
+        AtomicInteger loads = new AtomicInteger();
+        registry.findLatest(List.of(alice), users -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void warmUp_loadsAllPages() {
+        User alice = user(1L);
+        UserLatestLocation entry = new UserLatestLocation(alice, location(alice, 11L, LocalDateTime.now()));
+        when(latestRepository.findPageAfter(eq(0L), any())).thenReturn(List.of(entry));
+
+        registry.warmUp();
+
+        assertEquals(1, registry.getStats().get("warmedUsers"));
+        assertEquals(1, registry.findLatest(List.of(alice), users -> fail("Should be served from memory")).size());
+    }
+
+    @Test
+    void expiredEntriesAndWarmUpsAreReadAgain() {
+        User alice = user(1L);
+        User bob = user(2L);
+        registry.warmUp();
+        registry.record(location(alice, 10L, LocalDateTime.now().minusMinutes(1)));
+
+        // Written by another instance, only seen once the entry has expired
+        clock.addAndGet(60_000);
+        UserLocation moved = location(alice, 11L, LocalDateTime.now());
+        List<UserLocation> latest = registry.findLatest(List.of(alice), users -> List.of(moved));
+        assertEquals(11L, latest.get(0).getId());
+        assertEquals(1L, registry.getStats().get("expired"));
+
+        // Bob's first location was written elsewhere after the warm-up
+        List<UserLocation> nearby = registry.findNearby(List.of(bob), 51.5, 7.1, 5000,
+                users -> List.of(location(bob, 20L, LocalDateTime.now())));
+        assertEquals(1, nearby.size());
+    }
+
+    @Test
+    void record_clampsTimesBeyondTheNanosecondRange() {
+        User alice = user(1L);
+        LocalDateTime far = LocalDateTime.of(2500, 1, 1, 0, 0);
+        UserLocation location = location(alice, 10L, LocalDateTime.of(1500, 1, 1, 0, 0));
+        location.setLastConfirmedAt(far);
+        registry.record(location);
+
+        UserLocation latest = registry.findLatest(List.of(alice), users -> fail("Should be served from memory")).get(0);
+        assertTrue(latest.getCreatedAt().getYear() <= 1677);
+        assertTrue(latest.getLastConfirmedAt().getYear() >= 2262);
+    }
+
+    @Test
+    void findNearby_usesTheGridAndFollowsMovingUsers() {
+        List<User> friends = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= 100; id++) {
+            User friend = user(id);
+            friends.add(friend);
+            // Spread along a meridian, 1 km apart; friend 1 is 1 km north of the origin
+            UserLocation location = location(friend, id, now);
+            location.setLatitude(51.5 + id * 0.009);
+            registry.record(location);
+        }
+
+        List<UserLocation> nearby = registry.findNearby(friends, 51.5, 7.1, 2500, users -> fail("Should be served from memory"));
+        assertEquals(List.of(1L, 2L), nearby.stream().map(l -> l.getUser().getId()).sorted().toList());
+        assertEquals(1L, registry.getStats().get("nearbyGridQueries"));
+
+        UserLocation moved = location(friends.get(50), 1000L, now.plusMinutes(1));
+        moved.setLatitude(51.501);
+        registry.record(moved);
+        UserLocation away = location(friends.get(0), 1001L, now.plusMinutes(1));
+        away.setLatitude(52.5);
+        registry.record(away);
+
+        nearby = registry.findNearby(friends, 51.5, 7.1, 2500, users -> fail("Should be served from memory"));
+        assertEquals(List.of(2L, 51L), nearby.stream().map(l -> l.getUser().getId()).sorted().toList());
+    }
+
+    @Test
+    void findNearby_checksFewUsersDirectlyAndLoadsMissingOnes() {
+        User alice = user(1L);
+        User bob = user(2L);
+        registry.record(location(alice, 10L, LocalDateTime.now()));
+
+        List<UserLocation> nearby = registry.findNearby(List.of(alice, bob), 51.51, 7.1, 2000,
+                users -> List.of(location(bob, 20L, LocalDateTime.now())));
+
+        assertEquals(2, nearby.size());
+        assertEquals(1L, registry.getStats().get("nearbyScanQueries"));
+        assertEquals(1, registry.findLatest(List.of(bob), users -> fail("Should be served from memory")).size());
+    }
+
+    @Test
+    void findNearby_afterACompleteWarmUpOnlyLoadsForgottenUsers() {
+        registry.warmUp();
+        List<User> friends = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            friends.add(user(id));
+            registry.record(location(friends.get(friends.size() - 1), id, LocalDateTime.now()));
+        }
+        // Unknown to a complete registry, so without locations
+        friends.add(user(11L));
+        registry.onUserChanged(new UserChangedEvent(1L, "user1@test.com", "user1"));
+
+        List<List<User>> loaded = new ArrayList<>();
+        List<UserLocation> nearby = registry.findNearby(friends, 51.5, 7.1, 5000, users -> {
+            loaded.add(users);
+            return List.of(location(friends.get(0), 1L, LocalDateTime.now()));
+        });
+
+        assertEquals(10, nearby.size());
+        assertEquals(List.of(List.of(friends.get(0))), loaded);
+        assertEquals(true, registry.getStats().get("complete"));
+    }
+
+    @Test
+    void onUserChangedAndClear_removeUsersFromTheGrid() {
+        registry.record(location(user(1L), 10L, LocalDateTime.now()));
+        registry.record(location(user(2L), 2000L, LocalDateTime.now()));
+        assertEquals(2, registry.getStats().get("gridCells"));
+
+        registry.onUserChanged(new UserChangedEvent(1L, "user1@test.com", "user1"));
+        assertEquals(1, registry.getStats().get("gridCells"));
+
+        registry.clear();
+        assertEquals(0, registry.getStats().get("gridCells"));
+    }
+
+    /**
+     * Cost of moving users in the grid and of nearby queries with 1,000,000 indexed users in an area of
+     * about 300 x 300 km, and 500 friends per query.
+     * Run with {@code mvn test -Dtest=LatestLocationRegistryTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkNearbyIndex() {
+        int userCount = 1_000_000;
+        registry = new LatestLocationRegistry(latestRepository, true, userCount, 60_000, 1000, clock::get);
+        // Nothing to load, the registry then knows every user
+        registry.warmUp();
+        Random random = new Random(42);
+        List<User> users = new ArrayList<>(userCount);
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= userCount; id++) {
+            User user = user(id);
+            users.add(user);
+            registry.record(position(user, id, now, random));
+        }
+
+        int updates = 1_000_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            User user = users.get(random.nextInt(userCount));
+            registry.record(position(user, userCount + i, now.plusNanos(i + 1), random));
+        }
+        long updateNanos = (System.nanoTime() - start) / updates;
+
+        int rounds = 10_000;
+        long found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            int offset = random.nextInt(userCount - 500);
+            found += registry.findNearby(users.subList(offset, offset + 500), 50.0 + random.nextDouble() * 2.7,
+                    6.0 + random.nextDouble() * 4.3, 2000, missing -> fail("Should be served from memory")).size();
+        }
+        long queryMicros = (System.nanoTime() - start) / 1000 / rounds;
+
+        // For comparison: all latest locations of the same number of friends, filtered by the caller
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            int offset = random.nextInt(userCount - 500);
+            registry.findLatest(users.subList(offset, offset + 500), missing -> fail("Should be served from memory"));
+        }
+        long latestMicros = (System.nanoTime() - start) / 1000 / rounds;
+
+        logger.info("Nearby index with {} users: {} ns per update, {} µs per query of 500 friends ({} found per query, "
+                        + "{} grid and {} scanned queries), {} µs for all latest locations of 500 friends",
+                userCount, updateNanos, queryMicros, found / rounds, registry.getStats().get("nearbyGridQueries"),
+                registry.getStats().get("nearbyScanQueries"), latestMicros);
+    }
+
+    private static UserLocation position(User user, long id, LocalDateTime createdAt, Random random) {
+        UserLocation location = location(user, id, createdAt);
+        location.setLatitude(50.0 + random.nextDouble() * 2.7);
+        location.setLongitude(6.0 + random.nextDouble() * 4.3);
+        return location;
+    }
+
+    /**
+     * Lookup latency and memory per user for 100,000 users with 50 friends each.
+     * Run with {@code mvn test -Dtest=LatestLocationRegistryTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkFriendsLookup() {
+        int userCount = 100_000;
+        List<User> users = new ArrayList<>(userCount);
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= userCount; id++) {
+            users.add(user(id));
+        }
+        registry = new LatestLocationRegistry(latestRepository, true, userCount, 60_000, 1000, clock::get);
+        for (User user : users) {
+            registry.record(location(user, user.getId(), now));
+        }
+
+        int rounds = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            int offset = (i * 50) % (userCount - 50);
+            registry.findLatest(users.subList(offset, offset + 50), missing -> fail("Should be served from memory"));
+        }
+        long micros = (System.nanoTime() - start) / 1000 / rounds;
+
+        logger.info("Registry: {} bytes per user (estimated), {} µs per lookup of 50 friends",
+                registry.getStats().get("estimatedBytesPerUser"), micros);
+    }
+}
@@ -0,0 +1,138 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.error.GeocodingValidationException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationRegistry;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.service.implementations.AddressEnrichmentServiceImpl;
+import de.whs.wi.friends_and_places.service.implementations.MovementFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AddressEnrichmentServiceTest {
+
+    @Mock
+    private UserLocationRepository locationRepository;
+
+    @Mock
+    private LatestLocationRegistry latestLocationRegistry;
+
+    @Mock
+    private MovementFilter movementFilter;
+
+    @Mock
+    private GeocodeApiService geocodeApiService;
+
+    private AddressEnrichmentServiceImpl enrichmentService;
+
+    @BeforeEach
+    public void setup() {
+        // Long backoff so that scheduled retries never run during a test
+        enrichmentService = new AddressEnrichmentServiceImpl(locationRepository, latestLocationRegistry, movementFilter,
+                geocodeApiService,
+                1, 10, 3, 60_000, 60_000);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        enrichmentService.shutdown();
+    }
+
+    @Test
+    public void enrich_resolvesPendingLocation() {
+        when(locationRepository.findById(1L)).thenReturn(Optional.of(pendingLocation(1L, 0)));
+        GeocodingData data = new GeocodingData();
+        data.setFormatted("Main Street 1, Gelsenkirchen");
+        when(geocodeApiService.getReverseGeoData(51.5, 7.1)).thenReturn(data);
+        when(locationRepository.completeEnrichment(1L, "Main Street 1, Gelsenkirchen", AddressStatus.RESOLVED, 1))
+                .thenReturn(1);
+
+        enrichmentService.enrich(1L);
+
+        verify(locationRepository).completeEnrichment(1L, "Main Street 1, Gelsenkirchen", AddressStatus.RESOLVED, 1);
+        verify(latestLocationRegistry).updateAddress(9L, 1L, "Main Street 1, Gelsenkirchen", AddressStatus.RESOLVED);
+        verify(movementFilter).updateAddress(9L, 1L, "Main Street 1, Gelsenkirchen", AddressStatus.RESOLVED);
+        assertEquals(1L, enrichmentService.getStats().get("resolved"));
+    }
+
+    @Test
+    public void enrich_recordsAttemptAndRetriesOnTransientFailure() {
+        when(locationRepository.findById(2L)).thenReturn(Optional.of(pendingLocation(2L, 0)));
+        when(geocodeApiService.getReverseGeoData(anyDouble(), anyDouble()))
+                .thenThrow(new RuntimeException("Geocoding service unavailable"));
+
+        enrichmentService.enrich(2L);
+
+        verify(locationRepository).recordEnrichmentAttempt(2L, 1);
+        verify(locationRepository, never()).completeEnrichment(anyLong(), anyString(), any(), anyInt());
+        assertEquals(1L, enrichmentService.getStats().get("retries"));
+    }
+
+    @Test
+    public void enrich_marksFailedAfterLastAttempt() {
+        when(locationRepository.findById(3L)).thenReturn(Optional.of(pendingLocation(3L, 2)));
+        when(geocodeApiService.getReverseGeoData(anyDouble(), anyDouble()))
+                .thenThrow(new RuntimeException("Geocoding service unavailable"));
+        when(locationRepository.completeEnrichment(eq(3L), anyString(), eq(AddressStatus.FAILED), eq(3)))
+                .thenReturn(1);
+
+        enrichmentService.enrich(3L);
+
+        verify(locationRepository).completeEnrichment(3L, "Unknown address at coordinates", AddressStatus.FAILED, 3);
+        assertEquals(1L, enrichmentService.getStats().get("deadLettered"));
+    }
+
+    @Test
+    public void enrich_doesNotRetryInvalidCoordinates() {
+        when(locationRepository.findById(4L)).thenReturn(Optional.of(pendingLocation(4L, 0)));
+        when(geocodeApiService.getReverseGeoData(anyDouble(), anyDouble()))
+                .thenThrow(new GeocodingValidationException("Latitude out of range"));
+
+        enrichmentService.enrich(4L);
+
+        verify(locationRepository).completeEnrichment(4L, "Unknown address at coordinates", AddressStatus.FAILED, 1);
+        verify(locationRepository, never()).recordEnrichmentAttempt(anyLong(), anyInt());
+    }
+
+    @Test
+    public void enrich_skipsLocationThatIsNoLongerPending() {
+        UserLocation location = pendingLocation(5L, 0);
+        location.setAddressStatus(AddressStatus.RESOLVED);
+        when(locationRepository.findById(5L)).thenReturn(Optional.of(location));
+
+        enrichmentService.enrich(5L);
+
+        verify(geocodeApiService, never()).getReverseGeoData(anyDouble(), anyDouble());
+    }
+
+    private UserLocation pendingLocation(Long id, int attempts) {
+        User user = new User();
+        user.setId(9L);
+        UserLocation location = new UserLocation(user, 51.5, 7.1, null);
+        location.setId(id);
+        location.setAddressStatus(AddressStatus.PENDING);
+        location.setEnrichmentAttempts(attempts);
+        return location;
+    }
+}
@@ -0,0 +1,66 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.error.GeocodingValidationException;
+import de.whs.wi.friends_and_places.error.ResourceNotFoundException;
+import de.whs.wi.friends_and_places.model.GeocodingData;
+import de.whs.wi.friends_and_places.service.implementations.CachingGeocodeApiService;
+import de.whs.wi.friends_and_places.service.implementations.GeocodeApiServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingGeocodeApiServiceTest {
+
+    @Mock
+    private GeocodeApiServiceImpl delegate;
+
+    private CachingGeocodeApiService geocodeApiService;
+
+    @BeforeEach
+    public void setup() {
+        geocodeApiService = new CachingGeocodeApiService(delegate, true, 15, 100, 60_000);
+    }
+
+    @Test
+    public void getReverseGeoData_reusesResultForNearbyCoordinates() {
+        GeocodingData data = new GeocodingData();
+        data.setFormatted("Neidenburger Str. 43, Gelsenkirchen");
+        when(delegate.getReverseGeoData(anyDouble(), anyDouble())).thenReturn(data);
+
+        // About one meter apart
+        GeocodingData first = geocodeApiService.getReverseGeoData(51.574201, 7.027401);
+        GeocodingData second = geocodeApiService.getReverseGeoData(51.574208, 7.027409);
+
+        assertSame(first, second);
+        verify(delegate, times(1)).getReverseGeoData(anyDouble(), anyDouble());
+        assertEquals(1L, geocodeApiService.getStats().get("hits"));
+    }
+
+    @Test
+    public void getReverseGeoData_looksUpDistantCoordinatesSeparately() {
+        when(delegate.getReverseGeoData(anyDouble(), anyDouble())).thenReturn(new GeocodingData());
+
+        geocodeApiService.getReverseGeoData(51.5742, 7.0274);
+        geocodeApiService.getReverseGeoData(51.5752, 7.0274);
+
+        verify(delegate, times(2)).getReverseGeoData(anyDouble(), anyDouble());
+    }
+
+    @Test
+    public void getReverseGeoData_doesNotCacheFailuresOrAcceptInvalidCoordinates() {
+        when(delegate.getReverseGeoData(anyDouble(), anyDouble()))
+                .thenThrow(new ResourceNotFoundException("No address"));
+
+        assertThrows(ResourceNotFoundException.class, () -> geocodeApiService.getReverseGeoData(51.5742, 7.0274));
+        assertThrows(ResourceNotFoundException.class, () -> geocodeApiService.getReverseGeoData(51.5742, 7.0274));
+        assertThrows(GeocodingValidationException.class, () -> geocodeApiService.getReverseGeoData(91.0, 7.0274));
+        verify(delegate, times(2)).getReverseGeoData(anyDouble(), anyDouble());
+    }
+}
@@ -1,17 +1,21 @@
 package de.whs.wi.friends_and_places.service;
 
+import de.whs.wi.friends_and_places.config.AuthenticatedUser;
 import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserIdentity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class CustomUserDetailsServiceTest {
@@ -25,23 +29,61 @@ class CustomUserDetailsServiceTest {
         MockitoAnnotations.openMocks(this);
     }
 
-    @Test
-    void testLoadUserByUsername_Success() {
+    private static User user(Long id) {
         User user = new User();
+        user.setId(id);
+        user.setUsername("test");
         user.setEmail("test@example.com");
         user.setPassword("password");
-        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+        return user;
+    }
+
+    @Test
+    void testLoadUserByUsername_Success() {
+        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(user(1L)));
         UserDetails userDetails = customUserDetailsService.loadUserByUsername("test@example.com");
         assertEquals("test@example.com", userDetails.getUsername());
         assertEquals("password", userDetails.getPassword());
         assertTrue(userDetails.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
     }
 
+    @Test
+    void testLoadUserByUsername_PrincipalCarriesUserIdAndAccount() {
+        when(userService.findByEmail("test@example.com")).thenReturn(Optional.of(user(7L)));
+        UserDetails userDetails = customUserDetailsService.loadUserByUsername("test@example.com");
+        assertInstanceOf(AuthenticatedUser.class, userDetails);
+        AuthenticatedUser principal = (AuthenticatedUser) userDetails;
+        assertEquals(7L, principal.getId());
+        assertEquals("test", principal.getAccountName());
+        assertEquals(0L, principal.getSecurityVersion());
+    }
+
     @Test
     void testLoadUserByUsername_NotFound() {
         when(userService.findByEmail("notfound@example.com")).thenReturn(Optional.empty());
         assertThrows(UsernameNotFoundException.class, () ->
                 customUserDetailsService.loadUserByUsername("notfound@example.com"));
     }
-}
 
+    @Test
+    void testLoadPrincipalByEmail_UsesCachedIdentityWithoutPassword() {
+        when(userService.findIdentityByEmail("test@example.com"))
+                .thenReturn(Optional.of(new UserIdentity(7L, "test", "test@example.com")));
+        UserDetails principal = customUserDetailsService.loadPrincipalByEmail("test@example.com");
+        assertEquals(7L, ((AuthenticatedUser) principal).getId());
+        assertEquals("", principal.getPassword());
+        verify(userService, never()).findByEmail(any());
+    }
+
+    @Test
+    void testUpdatePassword_StoresNewHashKeepingAccount() {
+        AuthenticatedUser user = new AuthenticatedUser(7L, "test@example.com", "oldHash",
+                AuthorityUtils.createAuthorityList("ROLE_USER"), "test", 3L);
+        UserDetails updated = customUserDetailsService.updatePassword(user, "newHash");
+        verify(userService).updatePasswordHash("test@example.com", "newHash");
+        assertEquals("newHash", updated.getPassword());
+        assertEquals(7L, ((AuthenticatedUser) updated).getId());
+        assertEquals("test", ((AuthenticatedUser) updated).getAccountName());
+        assertEquals(3L, ((AuthenticatedUser) updated).getSecurityVersion());
+    }
+}
@@ -0,0 +1,133 @@
+package de.whs.wi.friends_and_places.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.whs.wi.friends_and_places.controller.dto.LocationImportResultDTO;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.service.implementations.LocationImportServiceImpl;
+import de.whs.wi.friends_and_places.service.implementations.MovementFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LocationImportServiceTest {
+
+    @Mock
+    private LatestLocationProjection projection;
+
+    @Mock
+    private MovementFilter movementFilter;
+
+    private LocationImportServiceImpl importService;
+    private User user;
+    private final List<UserLocation> stored = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        importService = new LocationImportServiceImpl(projection, movementFilter, new ObjectMapper(), 2, 1000);
+        user = new User();
+        user.setId(1L);
+    }
+
+    @Test
+    public void importLocations_storesValidRecordsInBatchesAndReportsRejectedLines() {
+        storeSucceeds();
+        String input = """
+                {"latitude": 51.5, "longitude": 7.1, "recordedAt": "2024-05-01T10:00:00"}
+                {"latitude": 51.6, "longitude": 7.2, "recordedAt": "2024-05-01T10:05:00", "formattedAddress": "Main Street 1"}
+                {"latitude": 123.0, "longitude": 7.2, "recordedAt": "2024-05-01T10:06:00"}
+                not json
+
+                {"latitude": 51.7, "longitude": 7.3, "recordedAt": 1714558200000, "unknown": {"nested": true}}
+                """;
+
+        LocationImportResultDTO result = importService.importLocations(user, stream(input), 0);
+
+        assertTrue(result.completed());
+        assertEquals(3, result.imported());
+        assertEquals(2, result.rejected());
+        assertEquals(6, result.checkpoint());
+        assertTrue(result.rejectedLines().get(0).startsWith("3: Latitude out of range"));
+        assertTrue(result.rejectedLines().get(1).startsWith("4: "));
+        verify(projection, times(2)).saveAll(anyList());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 0), stored.get(0).getCreatedAt());
+        assertEquals(AddressStatus.NOT_REQUESTED, stored.get(0).getAddressStatus());
+        assertEquals(AddressStatus.RESOLVED, stored.get(1).getAddressStatus());
+    }
+
+    @Test
+    public void importLocations_resumesFromOffset() {
+        storeSucceeds();
+        String input = """
+                {"latitude": 51.5, "longitude": 7.1, "recordedAt": "2024-05-01T10:00:00"}
+                {"latitude": 51.6, "longitude": 7.2, "recordedAt": "2024-05-01T10:05:00"}
+                {"latitude": 51.7, "longitude": 7.3, "recordedAt": "2024-05-01T10:10:00"}
+                """;
+
+        LocationImportResultDTO result = importService.importLocations(user, stream(input), 2);
+
+        assertEquals(1, result.imported());
+        assertEquals(3, result.checkpoint());
+        assertEquals(51.7, stored.get(0).getLatitude());
+    }
+
+    @Test
+    public void importLocations_keepsCheckpointAtLastCommittedBatchOnFailure() {
+        when(projection.saveAll(anyList()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<UserLocation>>getArgument(0)))
+                .thenThrow(new RuntimeException("Connection lost"));
+        String input = """
+                {"latitude": 51.5, "longitude": 7.1, "recordedAt": "2024-05-01T10:00:00"}
+                {"latitude": 51.6, "longitude": 7.2, "recordedAt": "2024-05-01T10:05:00"}
+                {"latitude": 51.7, "longitude": 7.3, "recordedAt": "2024-05-01T10:10:00"}
+                {"latitude": 51.8, "longitude": 7.4, "recordedAt": "2024-05-01T10:15:00"}
+                """;
+
+        LocationImportResultDTO result = importService.importLocations(user, stream(input), 0);
+
+        assertFalse(result.completed());
+        assertEquals(2, result.imported());
+        assertEquals(2, result.checkpoint());
+        assertEquals("Connection lost", result.error());
+    }
+
+    @Test
+    public void importLocations_rejectsOverlongLinesAndContinuesAfterThem() {
+        storeSucceeds();
+        String input = "{\"locationName\": \"" + "x".repeat(100_000) + "\"}\r\n"
+                + "{\"latitude\": 51.5, \"longitude\": 7.1, \"recordedAt\": \"2024-05-01T10:00:00\"}\n";
+
+        LocationImportResultDTO result = importService.importLocations(user, stream(input), 0);
+
+        assertEquals(1, result.imported());
+        assertEquals(List.of("1: line too long"), result.rejectedLines());
+        assertEquals(2, result.checkpoint());
+    }
+
+    private void storeSucceeds() {
+        when(projection.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserLocation> batch = new ArrayList<>(invocation.getArgument(0));
+            stored.addAll(batch);
+            return batch;
+        });
+    }
+
+    private ByteArrayInputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+}
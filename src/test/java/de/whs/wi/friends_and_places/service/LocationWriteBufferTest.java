@@ -0,0 +1,124 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.error.ServiceOverloadedException;
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationProjection;
+import de.whs.wi.friends_and_places.service.implementations.LocationWriteBuffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LocationWriteBufferTest {
+
+    @Mock
+    private LatestLocationProjection projection;
+
+    @Mock
+    private AddressEnrichmentService addressEnrichmentService;
+
+    private LocationWriteBuffer buffer;
+
+    @BeforeEach
+    public void setup() {
+        // Flush size above max pending, so flushes only happen when the test asks for them
+        buffer = new LocationWriteBuffer(projection, addressEnrichmentService, true, 2, 100);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        reset(projection);
+        buffer.shutdown();
+    }
+
+    @Test
+    public void offer_keepsNewestPointPerUserAndIsVisibleBeforeFlush() {
+        User user = user(1L);
+        LocalDateTime now = LocalDateTime.now();
+        UserLocation older = location(user, now.minusSeconds(2));
+        UserLocation newer = location(user, now);
+
+        buffer.offer(newer);
+        buffer.offer(older);
+
+        assertSame(newer, buffer.latest(1L).orElseThrow());
+        assertEquals(1L, buffer.getStats().get("coalesced"));
+        verifyNoInteractions(projection);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void flush_writesBufferedPointsInOneBatchAndQueuesEnrichment() {
+        UserLocation first = location(user(1L), LocalDateTime.now());
+        UserLocation second = location(user(2L), LocalDateTime.now());
+        first.setAddressStatus(AddressStatus.PENDING);
+        when(projection.saveAll(anyList())).thenAnswer(invocation -> {
+            List<UserLocation> batch = invocation.getArgument(0);
+            long id = 10;
+            for (UserLocation location : batch) {
+                location.setId(id++);
+            }
+            return batch;
+        });
+
+        buffer.offer(first);
+        buffer.offer(second);
+        buffer.flush();
+
+        ArgumentCaptor<List<UserLocation>> batch = ArgumentCaptor.forClass(List.class);
+        verify(projection).saveAll(batch.capture());
+        assertEquals(2, batch.getValue().size());
+        verify(addressEnrichmentService).enqueue(first.getId());
+        assertTrue(buffer.latest(1L).isEmpty());
+        assertEquals(2L, buffer.getStats().get("written"));
+    }
+
+    @Test
+    public void flush_putsPointsBackWhenTheWriteFails() {
+        UserLocation location = location(user(1L), LocalDateTime.now());
+        when(projection.saveAll(anyList())).thenThrow(new RuntimeException("Connection refused"));
+
+        buffer.offer(location);
+        buffer.flush();
+
+        assertSame(location, buffer.latest(1L).orElseThrow());
+        assertEquals(1L, buffer.getStats().get("failedFlushes"));
+    }
+
+    @Test
+    public void offer_rejectsNewUserWhenFullAndFlushFails() {
+        when(projection.saveAll(anyList())).thenThrow(new RuntimeException("Connection refused"));
+        buffer.offer(location(user(1L), LocalDateTime.now()));
+        buffer.offer(location(user(2L), LocalDateTime.now()));
+
+        assertThrows(ServiceOverloadedException.class, () -> buffer.offer(location(user(3L), LocalDateTime.now())));
+        // Users that already have a pending point can still replace it
+        assertDoesNotThrow(() -> buffer.offer(location(user(1L), LocalDateTime.now())));
+    }
+
+    private User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    private UserLocation location(User user, LocalDateTime createdAt) {
+        UserLocation location = new UserLocation(user, 51.5, 7.1, "Main Street 1");
+        location.setCreatedAt(createdAt);
+        location.setAddressStatus(AddressStatus.RESOLVED);
+        return location;
+    }
+}
@@ -0,0 +1,110 @@
+package de.whs.wi.friends_and_places.service;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserLocation;
+import de.whs.wi.friends_and_places.repository.LatestLocationRegistry;
+import de.whs.wi.friends_and_places.repository.UserLocationRepository;
+import de.whs.wi.friends_and_places.service.implementations.MovementFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MovementFilterTest {
+
+    @Mock
+    private UserLocationRepository locationRepository;
+
+    @Mock
+    private LatestLocationRegistry latestLocationRegistry;
+
+    private MovementFilter movementFilter;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        movementFilter = new MovementFilter(locationRepository, latestLocationRegistry, true, 25, 600, 100);
+        user = new User();
+        user.setId(1L);
+    }
+
+    @Test
+    public void confirmIfStationary_confirmsNearbyPointWithoutInsert() {
+        movementFilter.remember(stored(LocalDateTime.now().minusMinutes(1)));
+        when(locationRepository.confirmLocation(eq(7L), any())).thenReturn(1);
+
+        // About 11 meters north
+        Optional<UserLocation> confirmed = movementFilter.confirmIfStationary(user, 51.5001, 7.1);
+
+        assertTrue(confirmed.isPresent());
+        assertEquals(7L, confirmed.get().getId());
+        assertNotNull(confirmed.get().getLastConfirmedAt());
+        assertEquals(1L, movementFilter.getStats().get("insertsAvoided"));
+        verify(latestLocationRegistry).confirm(eq(1L), eq(7L), any());
+    }
+
+    @Test
+    public void confirmIfStationary_insertsWhenUserMoved() {
+        movementFilter.remember(stored(LocalDateTime.now().minusMinutes(1)));
+
+        // About 110 meters north
+        assertTrue(movementFilter.confirmIfStationary(user, 51.501, 7.1).isEmpty());
+        verify(locationRepository, never()).confirmLocation(anyLong(), any());
+    }
+
+    @Test
+    public void confirmIfStationary_insertsAfterIntervalWithoutReports() {
+        movementFilter.remember(stored(LocalDateTime.now().minusMinutes(11)));
+
+        assertTrue(movementFilter.confirmIfStationary(user, 51.5, 7.1).isEmpty());
+        verify(locationRepository, never()).confirmLocation(anyLong(), any());
+    }
+
+    @Test
+    public void confirmIfStationary_insertsWhenLatestPointIsUnknownOrGone() {
+        assertTrue(movementFilter.confirmIfStationary(user, 51.5, 7.1).isEmpty());
+
+        movementFilter.remember(stored(LocalDateTime.now()));
+        when(locationRepository.confirmLocation(eq(7L), any())).thenReturn(0);
+        assertTrue(movementFilter.confirmIfStationary(user, 51.5, 7.1).isEmpty());
+        // The stale point was dropped, no second update is attempted
+        assertTrue(movementFilter.confirmIfStationary(user, 51.5, 7.1).isEmpty());
+        verify(locationRepository, times(1)).confirmLocation(anyLong(), any());
+    }
+
+    @Test
+    public void confirmIfStationary_returnsTheAddressResolvedAfterTheInsert() {
+        UserLocation pending = stored(LocalDateTime.now().minusMinutes(1));
+        pending.setFormattedAddress(null);
+        pending.setAddressStatus(AddressStatus.PENDING);
+        movementFilter.remember(pending);
+        movementFilter.updateAddress(1L, 7L, "Main Street 1", AddressStatus.RESOLVED);
+        // Results for other rows of the user are ignored
+        movementFilter.updateAddress(1L, 6L, "Old Street 2", AddressStatus.RESOLVED);
+        when(locationRepository.confirmLocation(eq(7L), any())).thenReturn(1);
+
+        UserLocation confirmed = movementFilter.confirmIfStationary(user, 51.5, 7.1).orElseThrow();
+
+        assertEquals("Main Street 1", confirmed.getFormattedAddress());
+        assertEquals(AddressStatus.RESOLVED, confirmed.getAddressStatus());
+    }
+
+    private UserLocation stored(LocalDateTime createdAt) {
+        UserLocation location = new UserLocation(user, 51.5, 7.1, "Main Street 1");
+        location.setId(7L);
+        location.setCreatedAt(createdAt);
+        return location;
+    }
+}
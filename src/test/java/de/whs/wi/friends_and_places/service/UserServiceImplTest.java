@@ -2,13 +2,17 @@ package de.whs.wi.friends_and_places.service;
 
 import de.whs.wi.friends_and_places.controller.dto.UserRegisterDTO;
 import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.repository.UserChangedEvent;
 import de.whs.wi.friends_and_places.repository.UserRepository;
 import de.whs.wi.friends_and_places.service.implementations.UserServiceImpl;
+import de.whs.wi.friends_and_places.util.SecurityVersionRegistry;
+import de.whs.wi.friends_and_places.util.UserLookupCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
@@ -22,6 +26,14 @@ class UserServiceImplTest {
     private UserRepository userRepository;
     @Mock
     private PasswordEncoder passwordEncoder;
+    @Mock
+    private SecurityVersionRegistry securityVersionRegistry;
+    @Mock
+    private UserLookupCache userLookupCache;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private RefreshTokenService refreshTokenService;
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -78,6 +90,19 @@ class UserServiceImplTest {
         userService.changePassword(user, "newpass");
         assertEquals("encodedNewPass", user.getPassword());
         verify(userRepository).save(user);
+        verify(securityVersionRegistry).invalidate(user.getId());
+        verify(refreshTokenService).revokeAll(user);
+        verify(eventPublisher).publishEvent(any(UserChangedEvent.class));
+    }
+
+    @Test
+    void testDeleteUserInvalidatesTokens() {
+        User user = new User();
+        user.setId(42L);
+        userService.deleteUser(user);
+        verify(userRepository).delete(user);
+        verify(securityVersionRegistry).invalidate(42L);
+        verify(eventPublisher).publishEvent(new UserChangedEvent(42L, null, null));
     }
 }
 
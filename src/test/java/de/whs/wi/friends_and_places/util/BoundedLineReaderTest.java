@@ -0,0 +1,43 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedLineReaderTest {
+
+    @Test
+    void readLine_splitsLikeBufferedReader() throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("a\r\nb\rc\n\nd"), 10);
+
+        assertEquals("a", reader.readLine());
+        assertEquals("b", reader.readLine());
+        assertEquals("c", reader.readLine());
+        assertEquals("", reader.readLine());
+        assertEquals("d", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    void readLine_cutsLongLinesAndSkipsTheirRest() throws IOException {
+        // Longer than the internal buffer, so the rest spans several reads
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("y".repeat(20_000) + "\nshort\n"), 4);
+
+        assertEquals("yyyy", reader.readLine());
+        assertTrue(reader.isTooLong());
+        assertEquals("shor", reader.readLine());
+        assertTrue(reader.isTooLong());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    void readLine_lineOfExactlyMaxLengthIsNotTooLong() throws IOException {
+        BoundedLineReader reader = new BoundedLineReader(new StringReader("abcd\n"), 4);
+
+        assertEquals("abcd", reader.readLine());
+        assertFalse(reader.isTooLong());
+    }
+}
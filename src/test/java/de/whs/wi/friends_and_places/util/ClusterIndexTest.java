@@ -0,0 +1,103 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClusterIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterIndexTest.class);
+
+    @Test
+    public void clusters_mergeNearbyPointsAtLowZoomAndReturnEveryPointAboveMaxZoom() {
+        // Two points in Gelsenkirchen about 150 m apart, one in Berlin
+        double[] latitudes = {51.5000, 51.5010, 52.5200};
+        double[] longitudes = {7.1000, 7.1010, 13.4050};
+        ClusterIndex index = new ClusterIndex(latitudes, longitudes, 16, 60);
+
+        List<ClusterIndex.Cluster> zoom10 = index.clusters(50, 5, 54, 15, 10);
+        assertEquals(2, zoom10.size());
+        ClusterIndex.Cluster gelsenkirchen = zoom10.stream().filter(c -> c.count() == 2).findFirst().orElseThrow();
+        assertEquals(-1, gelsenkirchen.point());
+        assertEquals(51.5005, gelsenkirchen.latitude(), 1e-4);
+        assertEquals(7.1005, gelsenkirchen.longitude(), 1e-4);
+        assertEquals(2, zoom10.stream().filter(c -> c.count() == 1).findFirst().orElseThrow().point());
+
+        // Everything is one cluster at zoom 0, every point on its own above zoom 16
+        assertEquals(List.of(3), index.clusters(-85, -180, 85, 180, 0).stream().map(ClusterIndex.Cluster::count).toList());
+        List<ClusterIndex.Cluster> zoom17 = index.clusters(50, 5, 54, 15, 17);
+        assertEquals(List.of(0, 1, 2), zoom17.stream().map(ClusterIndex.Cluster::point).sorted().toList());
+
+        // Only clusters with their centroid inside the box
+        assertEquals(1, index.clusters(52, 13, 53, 14, 10).size());
+        assertTrue(index.clusters(40, 0, 41, 1, 10).isEmpty());
+    }
+
+    @Test
+    public void clusters_keepAllPointsAndStayApartAtEveryZoom() {
+        Random random = new Random(42);
+        int count = 2000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = 50.0 + random.nextDouble() * 3;
+            longitudes[i] = 6.0 + random.nextDouble() * 4;
+        }
+        ClusterIndex index = new ClusterIndex(latitudes, longitudes, 16, 60);
+
+        int previous = 0;
+        for (int zoom = 0; zoom <= 17; zoom++) {
+            List<ClusterIndex.Cluster> clusters = index.clusters(-85, -180, 85, 180, zoom);
+            assertEquals(count, clusters.stream().mapToInt(ClusterIndex.Cluster::count).sum());
+            assertTrue(clusters.size() >= previous);
+            previous = clusters.size();
+        }
+        // At zoom 8 the 3 x 4 degrees are about 700 x 700 pixels, clusters 60 pixels apart leave room for a few hundred at most
+        assertTrue(index.size(8) < 400, "Clusters at zoom 8: " + index.size(8));
+        assertEquals(count, index.size(17));
+    }
+
+    /**
+     * Measures building the hierarchy for many friends.
+     * Run with {@code mvn test -Dtest=ClusterIndexTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    public void benchmarkBuild() {
+        Random random = new Random(42);
+        for (int count : new int[]{100, 1000, 10_000}) {
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            for (int i = 0; i < count; i++) {
+                latitudes[i] = 47.0 + random.nextDouble() * 8;
+                longitudes[i] = 6.0 + random.nextDouble() * 9;
+            }
+            for (int i = 0; i < 20; i++) {
+                new ClusterIndex(latitudes, longitudes, 16, 60);
+            }
+            int rounds = 50;
+            long start = System.nanoTime();
+            ClusterIndex index = null;
+            for (int i = 0; i < rounds; i++) {
+                index = new ClusterIndex(latitudes, longitudes, 16, 60);
+            }
+            long buildMicros = (System.nanoTime() - start) / 1000 / rounds;
+
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < 10_000; i++) {
+                found += index.clusters(50, 8, 52, 11, 9).size();
+            }
+            long queryMicros = (System.nanoTime() - start) / 1000 / 10_000;
+            logger.info("{} points: {} µs per build, {} µs per query at zoom 9 ({} clusters)",
+                    count, buildMicros, queryMicros, found / 10_000);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeoUtilsTest {
+
+    @Test
+    public void distanceMeters_matchesKnownDistances() {
+        assertEquals(0.0, GeoUtils.distanceMeters(51.5, 7.1, 51.5, 7.1), 1e-9);
+        // One degree of latitude is about 111.2 km
+        assertEquals(111_195, GeoUtils.distanceMeters(0, 0, 1, 0), 10);
+        // Gelsenkirchen to Berlin, about 446 km
+        assertEquals(446_000, GeoUtils.distanceMeters(51.5177, 7.0857, 52.5200, 13.4050), 3_000);
+    }
+
+    @Test
+    public void cellKey_groupsNearbyPointsAndSeparatesDistantOnes() {
+        long cell = GeoUtils.cellKey(51.574201, 7.027401, 15);
+        assertEquals(cell, GeoUtils.cellKey(51.574205, 7.027405, 15));
+        // 30 meters north and east are in neighbouring cells
+        assertNotEquals(cell, GeoUtils.cellKey(51.574471, 7.027401, 15));
+        assertNotEquals(cell, GeoUtils.cellKey(51.574201, 7.027835, 15));
+    }
+
+    @Test
+    public void cellKeysWithin_containTheCellsOfAllPointsWithinTheRadius() {
+        Random random = new Random(42);
+        for (double latitude : new double[]{-60.0, 0.0, 51.5, 70.0}) {
+            long[] keys = GeoUtils.cellKeysWithin(latitude, 7.1, 2000, 500, 10_000);
+            assertNotNull(keys);
+            Arrays.sort(keys);
+            for (int i = 0; i < 1000; i++) {
+                double pointLatitude = latitude + (random.nextDouble() - 0.5) * 0.04;
+                double pointLongitude = 7.1 + (random.nextDouble() - 0.5) * 0.12;
+                if (GeoUtils.distanceMeters(latitude, 7.1, pointLatitude, pointLongitude) <= 2000) {
+                    assertTrue(Arrays.binarySearch(keys, GeoUtils.cellKey(pointLatitude, pointLongitude, 500)) >= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cellKeysWithin_refusesPolesTheAntimeridianAndTooManyCells() {
+        assertNull(GeoUtils.cellKeysWithin(88.99, 0.0, 2000, 500, 10_000));
+        assertNull(GeoUtils.cellKeysWithin(0.0, 179.99, 2000, 500, 10_000));
+        assertNull(GeoUtils.cellKeysWithin(51.5, 7.1, 50_000, 500, 100));
+    }
+
+    @Test
+    public void polygonContains_handlesConcavePolygons() {
+        // L-shaped polygon, the upper right quarter of the square is cut out
+        double[] latitudes = {51.50, 51.52, 51.52, 51.51, 51.51, 51.50};
+        double[] longitudes = {7.10, 7.10, 7.11, 7.11, 7.12, 7.12};
+
+        assertTrue(GeoUtils.polygonContains(latitudes, longitudes, 51.505, 7.105));
+        assertTrue(GeoUtils.polygonContains(latitudes, longitudes, 51.515, 7.105));
+        assertTrue(GeoUtils.polygonContains(latitudes, longitudes, 51.505, 7.115));
+        assertFalse(GeoUtils.polygonContains(latitudes, longitudes, 51.515, 7.115));
+        assertFalse(GeoUtils.polygonContains(latitudes, longitudes, 51.525, 7.105));
+        assertFalse(GeoUtils.polygonContains(latitudes, longitudes, 51.505, 7.095));
+    }
+}
@@ -0,0 +1,55 @@
+package de.whs.wi.friends_and_places.util;
+
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JwtClaimsCacheTest {
+    private static final String SECRET = "FiJyPNdycju8rMCzfVtH69mS5LCpAQZ4SmBshSt2jLA=";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = spy(new JwtUtil(SECRET, 3600000));
+        token = jwtUtil.generateToken(User.withUsername("test@example.com").password("password").roles("USER").build());
+    }
+
+    @Test
+    void resolve_sameTokenTwice_parsesOnlyOnce() {
+        JwtClaimsCache cache = new JwtClaimsCache(jwtUtil, true, 100, 60000);
+
+        JwtClaims first = cache.resolve(token);
+        JwtClaims second = cache.resolve(token);
+
+        assertEquals("test@example.com", first.subject());
+        assertSame(first, second, "The second lookup should be served from the cache");
+        verify(jwtUtil, times(1)).parseClaims(token);
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void resolve_disabled_parsesEveryTime() {
+        JwtClaimsCache cache = new JwtClaimsCache(jwtUtil, false, 100, 60000);
+
+        cache.resolve(token);
+        cache.resolve(token);
+
+        verify(jwtUtil, times(2)).parseClaims(token);
+    }
+
+    @Test
+    void resolve_invalidToken_isNotCached() {
+        JwtClaimsCache cache = new JwtClaimsCache(jwtUtil, true, 100, 60000);
+
+        assertThrows(MalformedJwtException.class, () -> cache.resolve("not.a.jwt.token"));
+        assertThrows(MalformedJwtException.class, () -> cache.resolve("not.a.jwt.token"));
+        assertEquals(0, cache.getStats().get("size"));
+    }
+}
@@ -84,8 +84,10 @@ class JwtUtilTest {
 
     @Test
     void validateToken_invalidSignature_throwsException() {
-        // Tamper with the token by changing the last character
-        String tamperedToken = token.substring(0, token.length() - 1) + "X";
+        // Tamper with the first character of the signature; the last character may only carry padding bits
+        int signatureStart = token.lastIndexOf('.') + 1;
+        char replacement = token.charAt(signatureStart) == 'A' ? 'B' : 'A';
+        String tamperedToken = token.substring(0, signatureStart) + replacement + token.substring(signatureStart + 1);
 
         assertThrows(SignatureException.class, () -> jwtUtil.validateToken(tamperedToken, userDetails),
                 "A token with invalid signature should throw SignatureException");
@@ -109,4 +111,49 @@ class JwtUtilTest {
         assertFalse(jwtUtil.validateToken(token, differentUser),
                 "Token should be invalid for a user different from the one it was created for");
     }
+
+    @Test
+    void parseClaims_validToken_returnsSubjectAndDates() {
+        JwtClaims claims = jwtUtil.parseClaims(token);
+        assertEquals(userDetails.getUsername(), claims.subject(),
+                "The parsed subject should match the one used to create the token");
+        assertNotNull(claims.issuedAt(), "Issued-at should not be null");
+        assertFalse(claims.isExpired(), "A fresh token should not be expired");
+    }
+
+    @Test
+    void validateClaims_wrongUser_returnsFalse() {
+        JwtClaims claims = jwtUtil.parseClaims(token);
+        UserDetails differentUser = User.withUsername("other@example.com")
+                .password("password").roles("USER").build();
+
+        assertTrue(jwtUtil.validateClaims(claims, userDetails),
+                "Claims should be valid for the user they were created for");
+        assertFalse(jwtUtil.validateClaims(claims, differentUser),
+                "Claims should be invalid for a different user");
+    }
+
+    @Test
+    void generateToken_withUserClaims_isSelfContained() {
+        String statelessToken = jwtUtil.generateToken(userDetails, 7L, "testuser", 3L);
+
+        JwtClaims claims = jwtUtil.parseClaims(statelessToken);
+        assertTrue(claims.isSelfContained(), "Token should carry all claims needed for stateless authentication");
+        assertEquals(7L, claims.userId());
+        assertEquals("testuser", claims.username());
+        assertEquals(3L, claims.securityVersion());
+        assertTrue(claims.roles().contains("ROLE_USER"));
+        assertFalse(jwtUtil.parseClaims(token).isSelfContained(),
+                "A token without user claims should not be self-contained");
+    }
+
+    @Test
+    void generateToken_hasUniqueTokenId() {
+        String first = jwtUtil.generateToken(userDetails);
+        String second = jwtUtil.generateToken(userDetails);
+
+        String firstId = jwtUtil.parseClaims(first).tokenId();
+        assertNotNull(firstId, "Every token should carry a jti claim");
+        assertNotEquals(firstId, jwtUtil.parseClaims(second).tokenId());
+    }
 }
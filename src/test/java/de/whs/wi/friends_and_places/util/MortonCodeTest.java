@@ -0,0 +1,58 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MortonCodeTest {
+
+    @Test
+    public void encode_isNonNegativeAndKeepsNearbyPointsInTheSameQuadrant() {
+        assertEquals(0L, MortonCode.encode(-90.0, -180.0));
+        assertTrue(MortonCode.encode(90.0, 180.0) > 0);
+        // Both points lie in the same 1/4 of the world, the north-eastern quadrant
+        long quadrant = MortonCode.encode(45.0, 90.0) >>> 60;
+        assertEquals(quadrant, MortonCode.encode(51.5, 7.1) >>> 60);
+        assertNotEquals(quadrant, MortonCode.encode(-33.9, 151.2) >>> 60);
+    }
+
+    @Test
+    public void ranges_containEveryPointInsideTheBox() {
+        Random random = new Random(42);
+        for (int box = 0; box < 50; box++) {
+            double minLatitude = -80 + random.nextDouble() * 150;
+            double minLongitude = -170 + random.nextDouble() * 330;
+            double height = random.nextDouble() * (box % 2 == 0 ? 0.05 : 5);
+            double width = random.nextDouble() * (box % 2 == 0 ? 0.05 : 5);
+            List<long[]> ranges = MortonCode.ranges(minLatitude, minLongitude,
+                    minLatitude + height, minLongitude + width, 16);
+
+            assertTrue(ranges.size() <= 16);
+            for (int i = 1; i < ranges.size(); i++) {
+                assertTrue(ranges.get(i)[0] > ranges.get(i - 1)[1] + 1);
+            }
+            for (int i = 0; i < 200; i++) {
+                long code = MortonCode.encode(minLatitude + random.nextDouble() * height,
+                        minLongitude + random.nextDouble() * width);
+                assertTrue(ranges.stream().anyMatch(range -> range[0] <= code && code <= range[1]));
+            }
+        }
+    }
+
+    @Test
+    public void ranges_coverLittleMoreThanTheBox() {
+        // A viewport of about 1 x 1 km
+        List<long[]> ranges = MortonCode.ranges(51.50, 7.10, 51.509, 7.1145, 16);
+
+        // Points 5 km away are outside every range
+        long outside = MortonCode.encode(51.55, 7.10);
+        assertTrue(ranges.stream().noneMatch(range -> range[0] <= outside && outside <= range[1]));
+
+        List<long[]> world = MortonCode.ranges(-90, -180, 90, 180, 16);
+        assertEquals(1, world.size());
+        assertArrayEquals(new long[]{0, (1L << 62) - 1}, world.get(0));
+    }
+}
@@ -0,0 +1,57 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SecurityVersionRegistryTest {
+    @Mock
+    private UserRepository userRepository;
+
+    private SecurityVersionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registry = new SecurityVersionRegistry(userRepository, 100, 60000);
+    }
+
+    @Test
+    void isCurrent_rejectsOnlyOlderVersions() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.of(2L));
+
+        assertFalse(registry.isCurrent(1L, 1L));
+        assertTrue(registry.isCurrent(1L, 2L));
+        // Issued by an instance that already saw a newer bump
+        assertTrue(registry.isCurrent(1L, 3L));
+        verify(userRepository, times(1)).findSecurityVersion(1L);
+    }
+
+    @Test
+    void isCurrent_rejectsDeletedUsersAndMissingClaims() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.empty());
+
+        assertFalse(registry.isCurrent(1L, 0L));
+        assertFalse(registry.isCurrent(null, 0L));
+        assertFalse(registry.isCurrent(2L, null));
+    }
+
+    @Test
+    void invalidate_bumpsStoredVersionAndDropsCachedOne() {
+        when(userRepository.findSecurityVersion(1L)).thenReturn(Optional.of(0L), Optional.of(1L));
+        assertTrue(registry.isCurrent(1L, 0L));
+
+        registry.invalidate(1L);
+
+        verify(userRepository).incrementSecurityVersion(1L);
+        assertFalse(registry.isCurrent(1L, 0L));
+        assertTrue(registry.isCurrent(1L, 1L));
+    }
+}
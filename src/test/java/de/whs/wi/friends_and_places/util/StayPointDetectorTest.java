@@ -0,0 +1,188 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StayPointDetectorTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(StayPointDetectorTest.class);
+
+    private final StayPointDetector detector = new StayPointDetector(200, 20 * 60);
+
+    /**
+     * Points every 5 minutes: 40 minutes at home, a 3 km trip, 15 minutes at a bakery, back home.
+     */
+    private static final double[] LATITUDES = {51.5000, 51.5003, 51.4999, 51.5001, 51.5002, 51.5000, 51.5001, 51.5003, 51.5002,
+            51.5100, 51.5200, 51.5270, 51.5271, 51.5272, 51.5271, 51.5150, 51.5001, 51.5000};
+
+    private static long[] everyFiveMinutes(int count) {
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = 1_700_000_000L + i * 300L;
+        }
+        return times;
+    }
+
+    @Test
+    void detect_findsStaysAndLeavesTheLastRunUndecided() {
+        double[] longitudes = new double[LATITUDES.length];
+        Arrays.fill(longitudes, 7.1);
+        long[] times = everyFiveMinutes(LATITUDES.length);
+        List<StayPointDetector.Stay> stays = new ArrayList<>();
+
+        int decided = detector.detect(LATITUDES, longitudes, times, times, LATITUDES.length, false, stays);
+
+        // Home from the first to the ninth point; 15 minutes at the bakery are too short
+        assertEquals(1, stays.size());
+        StayPointDetector.Stay home = stays.get(0);
+        assertEquals(9, home.points());
+        assertEquals(51.5001, home.latitude(), 1e-4);
+        assertEquals(times[0], home.arrival());
+        assertEquals(times[8], home.departure());
+        // The user may still be at home
+        assertEquals(16, decided);
+
+        // Flushing decides the last run as well, 5 minutes are no stay
+        stays.clear();
+        assertEquals(LATITUDES.length, detector.detect(LATITUDES, longitudes, times, times, LATITUDES.length, true, stays));
+        assertEquals(1, stays.size());
+    }
+
+    @Test
+    void detect_countsConfirmationsOfAPointAsDwellTime() {
+        double[] latitudes = {51.50, 51.60, 51.70};
+        double[] longitudes = {7.10, 7.10, 7.10};
+        long[] arrivals = {0, 600, 1200};
+        // The second point was confirmed for an hour before the user moved on
+        long[] departures = {0, 4200, 1200};
+        List<StayPointDetector.Stay> stays = new ArrayList<>();
+
+        assertEquals(2, detector.detect(latitudes, longitudes, arrivals, departures, 3, false, stays));
+
+        assertEquals(1, stays.size());
+        assertEquals(51.60, stays.get(0).latitude(), 1e-9);
+        assertEquals(1, stays.get(0).points());
+        assertEquals(3600, stays.get(0).departure() - stays.get(0).arrival());
+    }
+
+    /**
+     * Measures the detection throughput on one thread and on all cores with tracks partitioned like users.
+     * Run with {@code mvn test -Dtest=StayPointDetectorTest -Dbenchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkThroughput() {
+        int tracks = 64;
+        int pointsPerTrack = 100_000;
+        List<double[][]> coordinates = new ArrayList<>(tracks);
+        Random random = new Random(42);
+        for (int t = 0; t < tracks; t++) {
+            coordinates.add(track(random, pointsPerTrack));
+        }
+        // One point per minute
+        long[] times = new long[pointsPerTrack];
+        for (int i = 0; i < pointsPerTrack; i++) {
+            times[i] = 1_700_000_000L + i * 60L;
+        }
+
+        for (int round = 0; round < 3; round++) {
+            detectTracks(coordinates, times, 0, 8);
+        }
+        long start = System.nanoTime();
+        long found = detectTracks(coordinates, times, 0, tracks);
+        long singleNanos = System.nanoTime() - start;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        start = System.nanoTime();
+        long parallelFound = pool.invoke(new TrackTask(coordinates, times, 0, tracks));
+        long parallelNanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        long points = (long) tracks * pointsPerTrack;
+        logger.info("Stay-point detection over {} points: {} points/s on one thread, {} points/s per core on {} cores "
+                        + "({} stays)",
+                points, points * 1_000_000_000L / singleNanos, points * 1_000_000_000L / parallelNanos / cores,
+                cores, found);
+        assertEquals(found, parallelFound);
+        assertTrue(found > 0);
+    }
+
+    /**
+     * Alternates stays of 10 to 120 minutes with GPS noise and trips of 5 to 30 minutes.
+     */
+    private static double[][] track(Random random, int count) {
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        double latitude = 51.5;
+        double longitude = 7.1;
+        int i = 0;
+        while (i < count) {
+            int stay = 10 + random.nextInt(110);
+            for (int k = 0; k < stay && i < count; k++, i++) {
+                latitudes[i] = latitude + random.nextGaussian() * 0.0002;
+                longitudes[i] = longitude + random.nextGaussian() * 0.0003;
+            }
+            int trip = 5 + random.nextInt(25);
+            double stepLatitude = (random.nextDouble() - 0.5) * 0.01;
+            double stepLongitude = (random.nextDouble() - 0.5) * 0.015;
+            for (int k = 0; k < trip && i < count; k++, i++) {
+                latitude += stepLatitude;
+                longitude += stepLongitude;
+                latitudes[i] = latitude;
+                longitudes[i] = longitude;
+            }
+        }
+        return new double[][]{latitudes, longitudes};
+    }
+
+    private long detectTracks(List<double[][]> coordinates, long[] times, int from, int to) {
+        long found = 0;
+        for (int t = from; t < to; t++) {
+            List<StayPointDetector.Stay> stays = new ArrayList<>();
+            double[][] track = coordinates.get(t);
+            detector.detect(track[0], track[1], times, times, times.length, true, stays);
+            found += stays.size();
+        }
+        return found;
+    }
+
+    private class TrackTask extends RecursiveTask<Long> {
+
+        private final List<double[][]> coordinates;
+        private final long[] times;
+        private final int from;
+        private final int to;
+
+        TrackTask(List<double[][]> coordinates, long[] times, int from, int to) {
+            this.coordinates = coordinates;
+            this.times = times;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= 2) {
+                return detectTracks(coordinates, times, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            TrackTask left = new TrackTask(coordinates, times, from, middle);
+            left.fork();
+            long right = new TrackTask(coordinates, times, middle, to).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.whs.wi.friends_and_places.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @Test
+    void tryAcquire_allowsBurstThenRejectsWithRetryAfter() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("g", "k", 3, 3000));
+        }
+        long retryAfter = limiter.tryAcquire("g", "k", 3, 3000);
+        assertTrue(retryAfter > 0 && retryAfter <= 1000, "One token refills every second: " + retryAfter);
+
+        now.addAndGet(1000);
+        assertEquals(0, limiter.tryAcquire("g", "k", 3, 3000));
+    }
+
+    @Test
+    void tryAcquire_keysAreIndependent() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, now::get);
+
+        assertEquals(0, limiter.tryAcquire("g", "a", 1, 60000));
+        assertTrue(limiter.tryAcquire("g", "a", 1, 60000) > 0);
+        assertEquals(0, limiter.tryAcquire("g", "b", 1, 60000));
+    }
+
+    @Test
+    void cleanUp_dropsRefilledBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(100, now::get);
+        limiter.tryAcquire("g", "a", 2, 1000);
+        limiter.tryAcquire("g", "b", 2, 1000);
+        assertEquals(2, limiter.size());
+
+        now.addAndGet(1000);
+        limiter.cleanUp();
+
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void tryAcquire_atKeyLimit_newKeysShareOverflowBucket() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, now::get);
+        limiter.tryAcquire("g", "a", 1, 60000);
+        limiter.tryAcquire("g", "b", 1, 60000);
+
+        assertEquals(0, limiter.tryAcquire("g", "c", 1, 60000));
+        assertTrue(limiter.tryAcquire("g", "d", 1, 60000) > 0, "New keys beyond the limit share one bucket");
+        assertTrue(limiter.size() <= 3);
+    }
+
+    @Test
+    void tryAcquire_atKeyLimit_groupsHaveSeparateOverflowBuckets() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, now::get);
+        limiter.tryAcquire("login", "a", 1, 60000);
+        limiter.tryAcquire("login", "b", 1, 60000);
+
+        assertEquals(0, limiter.tryAcquire("login", "c", 1, 60000));
+        assertTrue(limiter.tryAcquire("login", "d", 1, 60000) > 0);
+        // Another group is not throttled by the exhausted overflow bucket of the first one
+        assertEquals(0, limiter.tryAcquire("register", "e", 5, 60000));
+        // The capacity of an overflow bucket is fixed when it is created
+        assertEquals(0, limiter.tryAcquire("register", "f", 1, 60000));
+        assertEquals(0, limiter.tryAcquire("register", "g", 1, 60000));
+    }
+
+    @Test
+    void tryAcquire_atKeyLimit_sweepsAtMostOncePerInterval() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, now::get);
+        limiter.tryAcquire("g", "a", 1, 100);
+        limiter.tryAcquire("g", "b", 1, 100);
+        limiter.tryAcquire("g", "c", 1, 100);
+        assertEquals(3, limiter.size());
+
+        // The buckets have refilled, but the map was swept just before
+        now.addAndGet(100);
+        limiter.tryAcquire("g", "a", 1, 100);
+        assertEquals(3, limiter.size());
+
+        now.addAndGet(900);
+        limiter.tryAcquire("g", "b", 1, 100);
+        assertEquals(1, limiter.size());
+    }
+}
@@ -0,0 +1,62 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.model.AddressStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrailCodecTest {
+
+    @Test
+    public void encode_roundTripsPointsInChronologicalOrder() {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 10, 0, 0, 123_000_000);
+        List<TrailCodec.Point> points = List.of(
+                new TrailCodec.Point(51.574201, 7.027401, start.plusMinutes(5), null,
+                        "Neidenburger Str. 43, Gelsenkirchen", "Campus", AddressStatus.RESOLVED),
+                new TrailCodec.Point(-33.868820, 151.209296, start, start.plusMinutes(2),
+                        null, null, AddressStatus.NOT_REQUESTED),
+                new TrailCodec.Point(51.574213, 7.027388, start.plusMinutes(10), null,
+                        "Neidenburger Str. 43, Gelsenkirchen", null, AddressStatus.FAILED));
+
+        List<TrailCodec.Point> decoded = TrailCodec.decode(TrailCodec.encode(points));
+
+        assertEquals(List.of(points.get(1), points.get(0), points.get(2)), decoded);
+    }
+
+    @Test
+    public void encode_needsOnlyAFewBytesPerPointOfSlowMovement() {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 1, 0, 0);
+        List<TrailCodec.Point> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            points.add(new TrailCodec.Point(51.5 + i * 0.00005, 7.1 + i * 0.00003, start.plusSeconds(30L * i), null,
+                    "Neidenburger Str. 43, Gelsenkirchen", null, AddressStatus.RESOLVED));
+        }
+
+        byte[] encoded = TrailCodec.encode(points);
+
+        // Deltas of 50, 30 and 30000 plus two indexes and the status, the address is stored once
+        assertTrue(encoded.length < 1000 * 10 + 100, "Encoded size was " + encoded.length);
+        List<TrailCodec.Point> decoded = TrailCodec.decode(encoded);
+        assertEquals(points.size(), decoded.size());
+        for (int i = 0; i < points.size(); i++) {
+            // Fixed-point coordinates are exact to the sixth decimal place
+            assertEquals(points.get(i).latitude(), decoded.get(i).latitude(), 1e-9);
+            assertEquals(points.get(i).longitude(), decoded.get(i).longitude(), 1e-9);
+            assertEquals(points.get(i).recordedAt(), decoded.get(i).recordedAt());
+        }
+    }
+
+    @Test
+    public void decode_rejectsCorruptData() {
+        byte[] encoded = TrailCodec.encode(List.of(new TrailCodec.Point(51.5, 7.1,
+                LocalDateTime.of(2024, 5, 1, 0, 0), null, "Main Street 1", null, AddressStatus.RESOLVED)));
+
+        assertThrows(IllegalArgumentException.class, () -> TrailCodec.decode(Arrays.copyOf(encoded, encoded.length - 2)));
+        assertThrows(IllegalArgumentException.class, () -> TrailCodec.decode(new byte[]{7}));
+    }
+}
@@ -0,0 +1,95 @@
+package de.whs.wi.friends_and_places.util;
+
+import de.whs.wi.friends_and_places.model.User;
+import de.whs.wi.friends_and_places.model.UserIdentity;
+import de.whs.wi.friends_and_places.repository.UserChangedEvent;
+import de.whs.wi.friends_and_places.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserLookupCacheTest {
+    @Mock
+    private UserRepository userRepository;
+
+    private UserLookupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new UserLookupCache(userRepository, true, 100, 60000, 60000);
+    }
+
+    private static User user(Long id, String username, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("hash");
+        return user;
+    }
+
+    @Test
+    void findByEmail_cachesHits() {
+        when(userRepository.findByEmail("a@test.com")).thenReturn(Optional.of(user(1L, "a", "a@test.com")));
+
+        Optional<UserIdentity> first = cache.findByEmail("a@test.com");
+        Optional<UserIdentity> second = cache.findByEmail("a@test.com");
+
+        assertTrue(first.isPresent());
+        assertEquals(first, second);
+        assertEquals("a", second.get().username());
+        verify(userRepository, times(1)).findByEmail("a@test.com");
+    }
+
+    @Test
+    void findByUsername_cachesMisses() {
+        when(userRepository.findByUsername("nobody")).thenReturn(Optional.empty());
+
+        assertTrue(cache.findByUsername("nobody").isEmpty());
+        assertTrue(cache.findByUsername("nobody").isEmpty());
+
+        verify(userRepository, times(1)).findByUsername("nobody");
+    }
+
+    @Test
+    void onUserChanged_dropsEntriesOfTheUser() {
+        when(userRepository.findByUsername("new")).thenReturn(Optional.empty());
+        cache.findByUsername("new");
+
+        when(userRepository.findByUsername("new")).thenReturn(Optional.of(user(2L, "new", "new@test.com")));
+        cache.onUserChanged(new UserChangedEvent(2L, "new@test.com", "new"));
+
+        assertTrue(cache.findByUsername("new").isPresent());
+        verify(userRepository, times(2)).findByUsername("new");
+    }
+
+    @Test
+    void onUserChanged_dropsEntriesOfChangedEmail() {
+        when(userRepository.findByEmail("old@test.com")).thenReturn(Optional.of(user(3L, "u", "old@test.com")));
+        cache.findByEmail("old@test.com");
+
+        // Email changed to a new value, the entry under the old email must go as well
+        when(userRepository.findByEmail("old@test.com")).thenReturn(Optional.empty());
+        cache.onUserChanged(new UserChangedEvent(3L, "changed@test.com", "u"));
+
+        assertTrue(cache.findByEmail("old@test.com").isEmpty());
+    }
+
+    @Test
+    void disabled_alwaysQueriesRepository() {
+        UserLookupCache disabled = new UserLookupCache(userRepository, false, 100, 60000, 60000);
+        when(userRepository.findByEmail("a@test.com")).thenReturn(Optional.empty());
+
+        disabled.findByEmail("a@test.com");
+        disabled.findByEmail("a@test.com");
+
+        verify(userRepository, times(2)).findByEmail("a@test.com");
+    }
+}